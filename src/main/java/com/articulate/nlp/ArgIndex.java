@@ -0,0 +1,160 @@
+package com.articulate.nlp;
+
+import java.util.*;
+
+/** ***************************************************************
+ * Posting lists from an argument position and the term in that
+ * position to the ids of the formulas that have it, so that KBLite
+ * can find the formulas with a given term in a given place without
+ * scanning all of them.  Formulas are added with increasing ids,
+ * which keeps every list sorted, and a query on several positions
+ * walks the shortest list and looks up each of its ids in the others.
+ *
+ * An index is filled while the knowledge base loads and is then only
+ * read, which may be done from any number of threads.
+ */
+public class ArgIndex {
+
+    private static final int[] EMPTY = new int[0];
+
+    // one map from term to formula ids for each argument position
+    private final ArrayList<HashMap<String, Postings>> positions = new ArrayList<>();
+    private int last = -1;
+
+    /** ***************************************************************
+     * A growable, sorted list of formula ids
+     */
+    private static class Postings {
+
+        int[] ids = new int[2];
+        int size = 0;
+
+        void add(int id) {
+            if (size == ids.length)
+                ids = Arrays.copyOf(ids, size * 2);
+            ids[size++] = id;
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+    }
+
+    /** ***************************************************************
+     * Index a formula by the terms in each of its argument positions.
+     * @param id the formula's id, which must be greater than that of
+     *           any formula added before
+     * @param args the formula's arguments, as split by KBLite
+     * @param first the index in args of argument position 0
+     */
+    public void add(int id, List<String> args, int first) {
+
+        if (id <= last)
+            throw new IllegalArgumentException("ArgIndex.add(): ids must increase: " + id);
+        last = id;
+        if (args == null)
+            return;
+        for (int i = first; i < args.size(); i++) {
+            String term = args.get(i);
+            if (term == null)
+                continue;
+            int pos = i - first;
+            while (positions.size() <= pos)
+                positions.add(new HashMap<>());
+            positions.get(pos).computeIfAbsent(term, k -> new Postings()).add(id);
+        }
+    }
+
+    /** ***************************************************************
+     */
+    private Postings postings(int pos, String term) {
+
+        if (pos < 0 || pos >= positions.size() || term == null)
+            return null;
+        return positions.get(pos).get(term);
+    }
+
+    /** ***************************************************************
+     * @return the number of formulas with the term in the position
+     */
+    public int count(int pos, String term) {
+
+        Postings p = postings(pos, term);
+        return (p == null) ? 0 : p.size;
+    }
+
+    /** ***************************************************************
+     * @param pos argument positions
+     * @param terms the term that must be in each of them
+     * @return the ids, in increasing order, of the formulas that have
+     * every one of the terms in its position
+     */
+    public int[] find(int[] pos, String[] terms) {
+
+        if (pos.length != terms.length)
+            throw new IllegalArgumentException("ArgIndex.find(): " + pos.length + " positions but " +
+                    terms.length + " terms");
+        if (pos.length == 0)
+            return EMPTY;
+        Postings[] lists = new Postings[pos.length];
+        for (int i = 0; i < pos.length; i++) {
+            lists[i] = postings(pos[i], terms[i]);
+            if (lists[i] == null)
+                return EMPTY;
+        }
+        Arrays.sort(lists, Comparator.comparingInt(p -> p.size));
+        Postings smallest = lists[0];
+        int[] result = new int[smallest.size];
+        int n = 0;
+        next:
+        for (int k = 0; k < smallest.size; k++) {
+            int id = smallest.ids[k];
+            for (int i = 1; i < lists.length; i++)
+                if (!lists[i].contains(id))
+                    continue next;
+            result[n++] = id;
+        }
+        return (n == result.length) ? result : Arrays.copyOf(result, n);
+    }
+
+    /** ***************************************************************
+     * @return the ids of the formulas with the term in the position
+     */
+    public int[] find(int pos, String term) {
+
+        return find(new int[] {pos}, new String[] {term});
+    }
+
+    /** ***************************************************************
+     * Trim the posting lists to their sizes, once no more formulas
+     * will be added
+     */
+    public void trim() {
+
+        for (HashMap<String, Postings> m : positions)
+            for (Postings p : m.values())
+                if (p.ids.length > p.size)
+                    p.ids = Arrays.copyOf(p.ids, p.size);
+    }
+
+    /** ***************************************************************
+     */
+    public void clear() {
+
+        positions.clear();
+        last = -1;
+    }
+
+    /** ***************************************************************
+     */
+    public String toString() {
+
+        long entries = 0, terms = 0;
+        for (HashMap<String, Postings> m : positions) {
+            terms += m.size();
+            for (Postings p : m.values())
+                entries += p.size;
+        }
+        return "ArgIndex: " + positions.size() + " positions, " + terms + " terms, " + entries + " postings";
+    }
+}
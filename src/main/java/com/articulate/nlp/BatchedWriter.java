@@ -0,0 +1,319 @@
+package com.articulate.nlp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/** ***************************************************************
+ * Appends lines to a group of files that are written together, such
+ * as the English and logic files of the sentence generators, where
+ * line N of one must always match line N of the other.  Lines are
+ * kept in memory and written in batches: when a batch reaches
+ * batchChars characters, every flushMillis milliseconds, and when the
+ * JVM shuts down.  Each batch is written with every file of the group
+ * locked, as GenUtils used to do for each line, so several processes
+ * may still build the same files, and if a batch cannot be written in
+ * full every file is cut back to where it was, which keeps the files
+ * aligned, and its lines are kept to be written with the next batch.
+ *
+ * A file whose name ends in ".gz" is written as one gzip member per
+ * batch, which gunzip and GZIPInputStream read as a single stream.
+ *
+ * Writers are shared through get(), so a file must only belong to one
+ * group in a JVM.
+ */
+public class BatchedWriter implements AutoCloseable {
+
+    public static boolean debug = false;
+
+    public static final int DEFAULT_BATCH_CHARS = 1 << 20;
+    public static final long DEFAULT_FLUSH_MILLIS = 1000;
+
+    private static final Map<String, BatchedWriter> writers = new HashMap<>();
+    private static ScheduledExecutorService timer = null;
+
+    private final String[] files;
+    private final int batchChars;
+    private final boolean[] gzip;
+    private final FileChannel[] channels;
+    private StringBuilder[] pending;
+    private int pendingChars = 0;
+    private long lines = 0;
+    private final Object flushLock = new Object();
+    private boolean closed = false;
+
+    /** ***************************************************************
+     * Open a group of files, creating any that do not exist.  Nothing
+     * flushes the writer on a timer or at shutdown unless it comes
+     * from get().
+     */
+    public BatchedWriter(int batchChars, String... files) throws IOException {
+
+        if (files.length == 0)
+            throw new IllegalArgumentException("BatchedWriter(): no files");
+        this.files = files.clone();
+        this.batchChars = batchChars;
+        gzip = new boolean[files.length];
+        channels = new FileChannel[files.length];
+        pending = newBuffers();
+        try {
+            for (int i = 0; i < files.length; i++) {
+                GenUtils.createFileIfDoesNotExists(files[i]);
+                gzip[i] = files[i].endsWith(".gz");
+                channels[i] = FileChannel.open(Paths.get(files[i]), StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+        }
+        catch (IOException e) {
+            closeChannels();
+            throw e;
+        }
+    }
+
+    /** ***************************************************************
+     * @return the shared writer for this group of files, opening it if
+     * needed, which is flushed every DEFAULT_FLUSH_MILLIS and when the
+     * JVM shuts down
+     */
+    public static synchronized BatchedWriter get(String... files) throws IOException {
+
+        String key = String.join("\n", files);
+        BatchedWriter w = writers.get(key);
+        if (w == null) {
+            if (timer == null) {
+                timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "BatchedWriter");
+                    t.setDaemon(true);
+                    return t;
+                });
+                timer.scheduleWithFixedDelay(BatchedWriter::flushAll, DEFAULT_FLUSH_MILLIS,
+                        DEFAULT_FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+                Runtime.getRuntime().addShutdownHook(new Thread(BatchedWriter::closeAll, "BatchedWriter-shutdown"));
+            }
+            w = new BatchedWriter(DEFAULT_BATCH_CHARS, files);
+            writers.put(key, w);
+        }
+        return w;
+    }
+
+    /** ***************************************************************
+     */
+    private StringBuilder[] newBuffers() {
+
+        StringBuilder[] result = new StringBuilder[files.length];
+        for (int i = 0; i < files.length; i++)
+            result[i] = new StringBuilder();
+        return result;
+    }
+
+    /** ***************************************************************
+     * Add one line to each file of the group, in the order the files
+     * were given.  The lines go in together, so they always end up on
+     * the same line of their files.
+     */
+    public void write(String... lines) throws IOException {
+
+        if (lines.length != files.length)
+            throw new IllegalArgumentException("BatchedWriter.write(): " + lines.length + " lines for " +
+                    files.length + " files");
+        boolean full;
+        synchronized (this) {
+            if (closed)
+                throw new IOException("BatchedWriter.write(): closed: " + Arrays.toString(files));
+            for (int i = 0; i < lines.length; i++) {
+                pending[i].append(lines[i]).append('\n');
+                pendingChars += lines[i].length() + 1;
+            }
+            this.lines++;
+            full = pendingChars >= batchChars;
+        }
+        if (full)
+            flush();
+    }
+
+    /** ***************************************************************
+     * Write out the lines added so far.  Batches are written in the
+     * order their lines were added, and other threads may go on adding
+     * lines while one is written.  If the batch can't be written its
+     * lines go back ahead of those added since.
+     */
+    public void flush() throws IOException {
+
+        synchronized (flushLock) {
+            StringBuilder[] batch;
+            int batchChars;
+            synchronized (this) {
+                if (pendingChars == 0)
+                    return;
+                batch = pending;
+                batchChars = pendingChars;
+                pending = newBuffers();
+                pendingChars = 0;
+            }
+            try {
+                writeBatch(batch);
+            }
+            catch (IOException | RuntimeException e) {
+                synchronized (this) {
+                    for (int i = 0; i < files.length; i++)
+                        pending[i] = batch[i].append(pending[i]);
+                    pendingChars += batchChars;
+                }
+                throw e;
+            }
+        }
+    }
+
+    /** ***************************************************************
+     * Write a batch to every file while holding all of their locks,
+     * cutting every file back to its old size if any write fails
+     */
+    private void writeBatch(StringBuilder[] batch) throws IOException {
+
+        ByteBuffer[] bytes = new ByteBuffer[files.length];
+        for (int i = 0; i < files.length; i++)
+            bytes[i] = ByteBuffer.wrap(encode(batch[i], gzip[i]));
+        FileLock[] locks = new FileLock[files.length];
+        long[] sizes = new long[files.length];
+        try {
+            for (int i = 0; i < files.length; i++) {
+                locks[i] = channels[i].lock();
+                sizes[i] = channels[i].size();
+            }
+            try {
+                for (int i = 0; i < files.length; i++)
+                    while (bytes[i].hasRemaining())
+                        channels[i].write(bytes[i]);
+            }
+            catch (IOException e) {
+                for (int i = 0; i < files.length; i++) {
+                    try {
+                        channels[i].truncate(sizes[i]);
+                    }
+                    catch (IOException e2) {
+                        System.err.println("Error in BatchedWriter.writeBatch(): can't restore " + files[i] +
+                                ": " + e2.getMessage());
+                    }
+                }
+                throw e;
+            }
+        }
+        finally {
+            for (FileLock lock : locks)
+                if (lock != null && lock.isValid())
+                    lock.release();
+        }
+        if (debug) System.out.println("INFO in BatchedWriter.writeBatch(): wrote " + bytes[0].limit() +
+                " bytes to " + files[0]);
+    }
+
+    /** ***************************************************************
+     */
+    private static byte[] encode(StringBuilder sb, boolean gzip) throws IOException {
+
+        byte[] raw = sb.toString().getBytes(StandardCharsets.UTF_8);
+        if (!gzip)
+            return raw;
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(raw.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(bos, 1 << 16)) {
+            gz.write(raw);
+        }
+        return bos.toByteArray();
+    }
+
+    /** ***************************************************************
+     * @return the number of lines written to each file so far
+     */
+    public synchronized long lines() {
+
+        return lines;
+    }
+
+    /** ***************************************************************
+     * Write out what is left and close the files
+     */
+    @Override
+    public void close() throws IOException {
+
+        synchronized (flushLock) {
+            synchronized (this) {
+                if (closed)
+                    return;
+                closed = true;
+            }
+            try {
+                if (pendingChars > 0)
+                    writeBatch(pending);
+            }
+            finally {
+                closeChannels();
+            }
+        }
+    }
+
+    /** ***************************************************************
+     */
+    private void closeChannels() {
+
+        for (int i = 0; i < channels.length; i++) {
+            try {
+                if (channels[i] != null)
+                    channels[i].close();
+            }
+            catch (IOException e) {
+                System.err.println("Error in BatchedWriter.closeChannels(): " + files[i] + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /** ***************************************************************
+     * Write out the lines of every shared writer
+     */
+    public static void flushAll() {
+
+        List<BatchedWriter> all;
+        synchronized (BatchedWriter.class) {
+            all = new ArrayList<>(writers.values());
+        }
+        for (BatchedWriter w : all) {
+            try {
+                w.flush();
+            }
+            catch (IOException | RuntimeException e) {
+                // caught for each writer, as an exception would also cancel the timer's flushes
+                System.err.println("Error in BatchedWriter.flushAll(): " + Arrays.toString(w.files) + ": " + e);
+            }
+        }
+    }
+
+    /** ***************************************************************
+     * Write out and close every shared writer.  Later calls to get()
+     * open the files again.
+     */
+    public static void closeAll() {
+
+        List<BatchedWriter> all;
+        synchronized (BatchedWriter.class) {
+            all = new ArrayList<>(writers.values());
+            writers.clear();
+        }
+        for (BatchedWriter w : all) {
+            try {
+                w.close();
+            }
+            catch (IOException | RuntimeException e) {
+                System.err.println("Error in BatchedWriter.closeAll(): " + Arrays.toString(w.files) + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -66,6 +66,7 @@ public class DBPMultiWordAnnotator extends MultiWordAnnotator {
         tokenAnno = DBPMWTokenAnnotation.class;
         DBPedia.initOnce();
         mw = DBPedia.multiWords;
+        getTrie();
         //String path = System.getenv("CORPORA") + File.separator + "DBPedia" + File.separator;
     }
 
@@ -15,12 +15,8 @@ import java.util.List;
 import java.util.ArrayList;
 import java.util.stream.Collectors;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
-import java.nio.channels.FileLock;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.nio.file.Files;
 import java.util.Random;
 
@@ -211,38 +207,8 @@ public class GenCausesTestData {
      *   the dataset, the correspondence of english/logic pairs is preserved.
      */
     public static void writeEnglishLogicPairToFile(String english, String logic) {
-        FileChannel fileChannel1 = null;
-        FileChannel fileChannel2 = null;
-        FileLock lock1 = null;
-        FileLock lock2 = null;
-        english = english + "\n";
-        logic = logic + "\n";
 
-        try {
-            fileChannel1 = FileChannel.open(Paths.get(outputFileEnglish), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
-            fileChannel2 = FileChannel.open(Paths.get(outputFileLogic), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
-
-            lock1 = fileChannel1.lock();
-            lock2 = fileChannel2.lock();
-
-            ByteBuffer buffer1 = ByteBuffer.wrap(english.getBytes());
-            ByteBuffer buffer2 = ByteBuffer.wrap(logic.getBytes());
-
-            fileChannel1.write(buffer1);
-            fileChannel2.write(buffer2);
-
-        } catch (IOException e) {
-            e.printStackTrace();
-        } finally {
-            try {
-                if (lock1 != null) lock1.release();
-                if (fileChannel1 != null) fileChannel1.close();
-                if (lock2 != null) lock2.release();
-                if (fileChannel2 != null) fileChannel2.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        }
+        GenUtils.writeEnglishLogicPairToFile(english, logic, outputFileEnglish, outputFileLogic);
         sentenceGeneratedCounter++;
     }
 
@@ -0,0 +1,80 @@
+package com.articulate.nlp;
+
+import java.util.Random;
+
+/** ***************************************************************
+ * A Random for the sentence generators that, on a thread that has
+ * been given a seed with seed(), draws from that thread's own seeded
+ * stream instead of its own state.  The static Random fields of
+ * GenSimpTestData, LFeatures, LFeatureSets, GenWordSelector, GenUtils
+ * and RandSet are all GenRandoms, so a worker that seeds its thread
+ * before each sentence gets the same sentence for the same seed no
+ * matter which thread it runs on or what other threads are doing.
+ * Without a seed a GenRandom is an ordinary Random.
+ */
+public class GenRandom extends Random {
+
+    private static final ThreadLocal<Random> stream = new ThreadLocal<>();
+
+    /** ***************************************************************
+     */
+    public GenRandom() {
+
+        super();
+    }
+
+    /** ***************************************************************
+     * Make every GenRandom used on this thread draw from a stream
+     * starting at the given seed
+     */
+    public static void seed(long seed) {
+
+        Random r = stream.get();
+        if (r == null)
+            stream.set(new Random(seed));
+        else
+            r.setSeed(seed);
+    }
+
+    /** ***************************************************************
+     * Go back to each GenRandom's own state on this thread
+     */
+    public static void clear() {
+
+        stream.remove();
+    }
+
+    /** ***************************************************************
+     * @return a well mixed seed for item n of a run with the given
+     * seed, from the SplitMix64 finalizer, so that nearby items get
+     * unrelated streams
+     */
+    public static long seedFor(long seed, long n) {
+
+        long z = seed + (n + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /** ***************************************************************
+     * All of Random's methods but nextGaussian() get their bits here
+     */
+    @Override
+    protected int next(int bits) {
+
+        Random r = stream.get();
+        if (r == null)
+            return super.next(bits);
+        return r.nextInt() >>> (32 - bits);
+    }
+
+    /** ***************************************************************
+     */
+    @Override
+    public double nextGaussian() {
+
+        Random r = stream.get();
+        return (r == null) ? super.nextGaussian() : r.nextGaussian();
+    }
+}
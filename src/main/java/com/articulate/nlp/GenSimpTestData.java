@@ -17,6 +17,12 @@ import java.time.LocalTime;
 import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -57,7 +63,7 @@ public class GenSimpTestData {
     public static final int freqLimit = 3; // SUMO terms used in a statement must have an equivalent
                                            // synset with a frequency of at least freqLimit
 
-    public static final Random rand = new Random();
+    public static final Random rand = new GenRandom();
 
     public static final Set<String> suppress = new HashSet<>( // forms to suppress, usually for testing
             Arrays.asList());
@@ -295,7 +301,6 @@ public class GenSimpTestData {
         while (sentCount < sentMax) {
             progressPrint(sentCount, badSentCount);
             lfeat = new LFeatures();
-            lfeatsets.prevHumans.clear();
             if (genSentence(lfeat)) {
                 lfeat.flushToEnglishLogic(kbLite);
                 printSentenceToFiles(lfeat.englishSentence, lfeat.logicFormula, lfeat.toString());
@@ -309,6 +314,142 @@ public class GenSimpTestData {
         System.out.println("Ollama was used to find " + GenWordSelector.foundWordReturned + " words. Ollama failed to find a word " + GenWordSelector.randomWordReturned + " times.");
     }
 
+    /** ***************************************************************
+     * The sentences generated for one run of consecutive sentence
+     * numbers, waiting to be written in order
+     */
+    private static class SentenceChunk {
+
+        final String[] english;
+        final String[] logic;
+        final String[] frames;
+        int bad = 0;
+
+        SentenceChunk(int size) {
+            english = new String[size];
+            logic = new String[size];
+            frames = new String[size];
+        }
+    }
+
+    /** ***************************************************************
+     * Writes chunks in the order of their numbers, whichever order
+     * they are finished in, by having the thread that finishes the next
+     * chunk due write it and any later ones that were waiting for it
+     */
+    private static class OrderedChunkWriter {
+
+        private final Map<Long, SentenceChunk> pending = new HashMap<>();
+        private final Semaphore inFlight;
+        private long next = 0;
+        private int written = 0;
+        private int bad = 0;
+
+        OrderedChunkWriter(Semaphore inFlight) {
+            this.inFlight = inFlight;
+        }
+
+        synchronized void put(long n, SentenceChunk chunk) {
+
+            pending.put(n, chunk);
+            SentenceChunk c;
+            while ((c = pending.remove(next)) != null) {
+                for (int i = 0; i < c.english.length; i++) {
+                    englishFile.println(c.english[i]);
+                    logicFile.println(c.logic[i]);
+                    frameFile.println(c.frames[i]);
+                }
+                written += c.english.length;
+                bad += c.bad;
+                next++;
+                inFlight.release();
+                progressPrint(written, bad);
+            }
+        }
+    }
+
+    /** ***************************************************************
+     * Generate sentMax sentences, as runGenSentence() does, on a pool
+     * of threads.  Sentence n is generated with every GenRandom on its
+     * thread seeded from the seed and n, and the sentences are written
+     * in order of n, so the output depends only on the seed and not on
+     * the number of threads or how they are scheduled.  Threads claim
+     * chunks of sentences, and at most a few chunks per thread may be
+     * finished and waiting on an earlier one before threads stop to
+     * wait for the writer.
+     *
+     * The output is only reproducible for the RANDOM, WORD_PAIR and
+     * FRAME_LITE word selection strategies, since the others ask a
+     * language model.
+     */
+    public void parallelGenSentence(int threads, long seed) {
+
+        System.out.println("GenSimpTestData.parallelGenSentence(): start with " + threads + " threads and seed " + seed);
+        final int chunkSize = 256;
+        final long chunks = (sentMax + chunkSize - 1) / chunkSize;
+        AtomicLong nextChunk = new AtomicLong();
+        Semaphore inFlight = new Semaphore(threads * 4);
+        OrderedChunkWriter writer = new OrderedChunkWriter(inFlight);
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        for (int t = 0; t < threads; t++) {
+            workers.add(pool.submit(() -> {
+                try {
+                    while (true) {
+                        inFlight.acquire(); // before claiming a chunk, so the earliest unwritten one always has a thread
+                        long c = nextChunk.getAndIncrement();
+                        if (c >= chunks) {
+                            inFlight.release();
+                            break;
+                        }
+                        long first = c * chunkSize;
+                        SentenceChunk chunk = new SentenceChunk((int) Math.min(chunkSize, sentMax - first));
+                        for (int i = 0; i < chunk.english.length; i++) {
+                            GenRandom.seed(GenRandom.seedFor(seed, first + i));
+                            LFeatures lfeat = new LFeatures();
+                            while (!genSentence(lfeat)) {
+                                chunk.bad++;
+                                lfeat = new LFeatures();
+                            }
+                            lfeat.flushToEnglishLogic(kbLite);
+                            chunk.english[i] = lfeat.englishSentence;
+                            chunk.logic[i] = lfeat.logicFormula;
+                            chunk.frames[i] = lfeat.toString().replace("\n", " ");
+                        }
+                        writer.put(c, chunk);
+                    }
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                catch (RuntimeException e) {
+                    pool.shutdownNow(); // the chunk will never be written, so stop the threads waiting on it
+                    throw e;
+                }
+                finally {
+                    GenRandom.clear();
+                }
+                return null;
+            }));
+        }
+        pool.shutdown();
+        try {
+            for (Future<?> f : workers)
+                f.get();
+        }
+        catch (InterruptedException | ExecutionException e) {
+            System.err.println("Error in GenSimpTestData.parallelGenSentence(): " + e.getMessage());
+            e.printStackTrace();
+            pool.shutdownNow();
+        }
+        double secs = (System.currentTimeMillis() - start) / 1000.0;
+        System.out.println();
+        System.out.println("Finished generating " + writer.written + " good sentences in " + secs + " seconds (" +
+                String.format("%.1f", writer.written / Math.max(secs, 0.001)) + " per second). The number of malformed sentences during generation: " + writer.bad);
+        System.out.println("Ollama was used to find " + GenWordSelector.foundWordReturned + " words. Ollama failed to find a word " + GenWordSelector.randomWordReturned + " times.");
+    }
+
 
     /** ***************************************************************
      * @return the correct version of the copula for tense, number and
@@ -1374,7 +1515,7 @@ public class GenSimpTestData {
      *             "Attribute" or subAttribute, as a side effect.
      * @param name the name of the named human, as a side effect.
      *
-     * lfeatsets.prevHumans are names or roles from previous parts of the
+     * lfeat.prevHumans are names or roles from previous parts of the
      *                 sentence that should not be repeated, modified
      *                 as a side effect.
      */
@@ -1400,19 +1541,19 @@ public class GenSimpTestData {
                 type.append(socialRole);
                 plural = new AVPair();
                 name.append(nounFormFromTerm(type.toString(),plural,""));
-                if (lfeatsets.prevHumans.contains(type))  // don't allow the same name or role twice in a sentence
+                if (lfeat.prevHumans.contains(type))  // don't allow the same name or role twice in a sentence
                     found = true;
                 else
-                    lfeatsets.prevHumans.add(type.toString());
+                    lfeat.prevHumans.add(type.toString());
             }
             else {  // a named human
                 name.append(lfeatsets.humans.getNext());
                 type.append("Human");
             }
-            if (lfeatsets.prevHumans.contains(name)) // don't allow the same name or role twice in a sentence
+            if (lfeat.prevHumans.contains(name)) // don't allow the same name or role twice in a sentence
                 found = true;
             else
-                lfeatsets.prevHumans.add(name.toString());
+                lfeat.prevHumans.add(name.toString());
         } while (found);
         if (!StringUtil.emptyString(lfeat.framePart) && lfeat.framePart.length() > 9 &&
                 lfeat.framePart.toLowerCase().startsWith("somebody"))
@@ -1531,6 +1672,22 @@ public class GenSimpTestData {
         }
     }
 
+    /** ***************************************************************
+     * Set the word selection strategy by name
+     * @return false if there is no strategy of that name
+     */
+    public static boolean setStrategy(String name) {
+
+        try {
+            GenWordSelector.strategy = GenWordSelector.SelectionStrategy.valueOf(name);
+            return true;
+        }
+        catch (IllegalArgumentException e) {
+            System.out.println("You must define a valid word selection strategy. Strategies are RANDOM, WORD_PAIR, FRAME_LITE, FRAME_LITE_WITH_OLLAMA, OLLAMA_JUST_ASK, OLLAMA_SUBSET.");
+            return false;
+        }
+    }
+
     /** ***************************************************************
      */
     public static void showHelp() {
@@ -1545,7 +1702,7 @@ public class GenSimpTestData {
         System.out.println("  -g <filename> - generate ground statement pairs for all relations");
         System.out.println("  -i - generate English for all non-ground formulas");
         System.out.println("  -s <filename> <optional count> <optional word selection strategy> - generate NL/logic compositional <count> sentences to <filename> (no extension)");
-        // System.out.println("  -p <filename> <optional count> - parallel generation of NL/logic compositional <count> sentences to <filename> (no extension)");
+        System.out.println("  -p <filename> <count> <word selection strategy> <optional threads> <optional seed> - as -s, on many threads, with output fixed by the seed");
         System.out.println("  -n - generate term formats from term names in a file");
         System.out.println("  -u - other utility");
     }
@@ -1562,7 +1719,12 @@ public class GenSimpTestData {
                 FileWriter fweng;
                 FileWriter fwlog;
                 FileWriter fwframe;
-                if (args.length > 1) {
+                if (args.length > 1 && args[0].equals("-p")) { // written a chunk at a time, so not flushed each line
+                    englishFile = new PrintWriter(new BufferedWriter(new FileWriter(args[1] + "-eng.txt"), 1 << 16));
+                    logicFile = new PrintWriter(new BufferedWriter(new FileWriter(args[1] + "-log.txt"), 1 << 16));
+                    frameFile = new PrintWriter(new BufferedWriter(new FileWriter(args[1] + "-frame.txt"), 1 << 16));
+                }
+                else if (args.length > 1) {
                     fweng = new FileWriter(args[1] + "-eng.txt");
                     englishFile = new PrintWriter(fweng, true);
                     fwlog = new FileWriter(args[1] + "-log.txt");
@@ -1571,7 +1733,7 @@ public class GenSimpTestData {
                     frameFile = new PrintWriter(fwframe, true);
                 }
                 else {
-                    if (args[0].equals("-s") || args[0].equals("-a") ||args[0].equals("-g")) {
+                    if (args[0].equals("-s") || args[0].equals("-p") || args[0].equals("-a") ||args[0].equals("-g")) {
                         System.out.println("Missing filename parameter for option");
                         System.exit(1);
                     }
@@ -1583,30 +1745,8 @@ public class GenSimpTestData {
                         System.exit(0);
                     }
                     sentMax = Integer.parseInt(args[2]);
-                    switch (args[3]) {
-                        case "RANDOM":
-                            GenWordSelector.strategy = GenWordSelector.SelectionStrategy.RANDOM;
-                            break;
-                        case "WORD_PAIR":
-                            GenWordSelector.strategy = GenWordSelector.SelectionStrategy.WORD_PAIR;
-                            break;
-                        case "FRAME_LITE":
-                            GenWordSelector.strategy = GenWordSelector.SelectionStrategy.FRAME_LITE;
-                            break;
-                        case "FRAME_LITE_WITH_OLLAMA":
-                            GenWordSelector.strategy = GenWordSelector.SelectionStrategy.FRAME_LITE_WITH_OLLAMA;
-                            break;
-                        case "OLLAMA_JUST_ASK":
-                            GenWordSelector.strategy = GenWordSelector.SelectionStrategy.OLLAMA_JUST_ASK;
-                            break;
-                        case "OLLAMA_SUBSET":
-                            GenWordSelector.strategy = GenWordSelector.SelectionStrategy.OLLAMA_SUBSET;
-                            break;
-                        default:
-                            System.out.println("You must define a valid word selection strategy. Strategies are RANDOM, WORD_PAIR, FRAME_LITE, FRAME_LITE_WITH_OLLAMA, OLLAMA_JUST_ASK, OLLAMA_SUBSET.");
-                            System.exit(0);
-                            break;
-                    }
+                    if (!setStrategy(args[3]))
+                        System.exit(0);
 
                     GenSimpTestData gstd = new GenSimpTestData(true);
                     gstd.runGenSentence();
@@ -1614,6 +1754,22 @@ public class GenSimpTestData {
                     logicFile.close();
                     frameFile.close();
                 }
+                if (args.length > 1 && args[0].equals("-p")) { // create NL/logic synthetically on many threads
+                    if (args.length < 4) {
+                        System.out.println("Usage:  -p <filename> <count> <word selection strategy> <optional threads> <optional seed>");
+                        System.exit(0);
+                    }
+                    sentMax = Long.parseLong(args[2]);
+                    if (!setStrategy(args[3]))
+                        System.exit(0);
+                    int threads = (args.length > 4) ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+                    long seed = (args.length > 5) ? Long.parseLong(args[5]) : 0;
+                    GenSimpTestData gstd = new GenSimpTestData(true);
+                    gstd.parallelGenSentence(threads, seed);
+                    englishFile.close();
+                    logicFile.close();
+                    frameFile.close();
+                }
                 if (args.length > 0 && args[0].equals("-g")) { // generate ground statements
                     GenGroundStatements ggs = new GenGroundStatements();
                     ggs.generate(englishFile, logicFile);
@@ -1875,29 +2031,3 @@ public class GenSimpTestData {
  }
  }
  */
-
-/** ***************************************************************
- * Create action sentences, possibly with modals.  Indirect object and its preposition
- * can be left out.
- *
- * To be implemented later
- public void parallelGenSentence() {
-
- System.out.println("GenSimpTestData.parallelGenSentence(): start");
- kbLite = new KBLite("SUMO");
- System.out.println("GenSimpTestData.parallelGenSentence(): finished loading KBs");
-
- List<Integer> numbers = new ArrayList<>();
- for (int i =0; i < sentMax; i++)
- numbers.add(i);
- //ArrayList<String> terms = new ArrayList<>();
- //if (debug) System.out.println("GenSimpTestData.parallelGenSentence():  lfeat.direct: " + lfeat.direct);
- //System.exit(1);
- //for (Preposition p : lfeat.direct)
- //    terms.add(p.procType);
- numbers.parallelStream().forEach(number -> {
- LFeatures lfeat = new LFeatures();
- genAttitudes(lfeat);
- });
- }
- */
@@ -5,13 +5,9 @@ import com.articulate.sigma.nlg.NLGUtils;
 import com.articulate.sigma.wordNet.WordNet;
 import com.articulate.sigma.*;
 
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
-import java.nio.channels.FileLock;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
@@ -24,6 +20,10 @@ import java.io.InputStreamReader;
 import java.io.IOException;
 import java.util.Set;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
 
 import io.github.ollama4j.OllamaAPI;
 import io.github.ollama4j.models.response.OllamaResult;
@@ -58,6 +58,7 @@ public class GenUtils {
     private static final String DEFAULT_OPENROUTER_BASE_URL = "https://openrouter.ai/api/v1";
     private static final int REMOTE_MAX_ATTEMPTS = 3;
     private static final long REMOTE_RETRY_DELAY_MS = 10000L;
+    private static final long LLM_RETRY_BASE_DELAY_MS = 1000L;
     private static final int REMOTE_REQUEST_TIMEOUT_MS = 300000;
     private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
 
@@ -70,19 +71,26 @@ public class GenUtils {
     static boolean CHEAP_PROMPT_MODE = false;
     static List<String> OPENROUTER_PROVIDER_ORDER = new ArrayList<>();
     static int OLLAMA_PORT = Integer.parseInt(System.getProperty("OLLAMA_PORT", "11434"));
-    public static OllamaAPI ollamaAPI;
+    public static volatile OllamaAPI ollamaAPI;
     public static Options options;
-    private static Process ollamaProcess = null;
-    private static final Random rand = new Random();
+    // Ollama servers started by this process, and the connections to them, by port
+    private static final Map<Integer, Process> ollamaProcesses = new ConcurrentHashMap<>();
+    private static final Map<Integer, OllamaAPI> ollamaAPIs = new ConcurrentHashMap<>();
+    // the port of the calling thread's Ollama requests, when not OLLAMA_PORT
+    private static final ThreadLocal<Integer> threadOllamaPort = new ThreadLocal<>();
+    private static final Random rand = new GenRandom();
     private static final int OLLAMA_MAX_ATTEMPTS = 6;
     private static final long OLLAMA_RETRY_DELAY_MS = 30 * 1000L;
+    static int LLM_CONCURRENCY = Integer.parseInt(System.getProperty("llm.concurrency", "4"));
+    static double LLM_RATE = Double.parseDouble(System.getProperty("llm.rate", "0"));
+    static long LLM_DEADLINE_MS = 1000L * Long.parseLong(System.getProperty("llm.deadline", "0"));
 
     /** ***************************************************************
      *   Creates a random unique variable name.
      *   The random variable half the time ends with a number.
      */
     public String randomVariableName() {
-        Random random = new Random();
+        Random random = rand;
         boolean isUnique = false;
         String newVariable = "";
         while(!isUnique) {
@@ -151,7 +159,6 @@ public class GenUtils {
         }
         if (!equivalentTerms.isEmpty()) {
             // TODO: Do wordsense disambiguation
-            Random rand = new Random();
             return equivalentTerms.get(rand.nextInt(equivalentTerms.size()));
         }
         return null;
@@ -204,68 +211,33 @@ public class GenUtils {
 
 
     /** ***************************************************************
-     *  Writes to a file, locks file during write, so thread safe.
+     *  Appends a line to a file through a shared BatchedWriter, so
+     *  thread safe.  The line is written within a second, or at
+     *  shutdown, and ends with a newline whether or not it has one.
      */
     public static void writeToFile(String fileName, String stringToWrite) {
-        FileChannel fileChannel1 = null;
-        FileLock lock1 = null;
-        try {
-            createFileIfDoesNotExists(fileName);
-            fileChannel1 = FileChannel.open(Paths.get(fileName), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
-            lock1 = fileChannel1.lock();
-            ByteBuffer buffer1 = ByteBuffer.wrap(stringToWrite.getBytes());
-            fileChannel1.write(buffer1);
 
+        if (stringToWrite.endsWith("\n"))
+            stringToWrite = stringToWrite.substring(0, stringToWrite.length() - 1);
+        try {
+            BatchedWriter.get(fileName).write(stringToWrite);
         } catch (IOException e) {
             e.printStackTrace();
-        } finally {
-            try {
-                if (lock1 != null) lock1.release();
-                if (fileChannel1 != null) fileChannel1.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
         }
     }
 
 
     /** ***************************************************************
      *   Writes an english sentence and logic sentence to their
-     *   respective files.
+     *   respective files, through a shared BatchedWriter that keeps
+     *   line N of one file matching line N of the other.
      */
     public static void writeEnglishLogicPairToFile(String english, String logic, String outputFileEnglish, String outputFileLogic) {
 
-        FileChannel fileChannel1 = null;
-        FileChannel fileChannel2 = null;
-        FileLock lock1 = null;
-        FileLock lock2 = null;
-        english = english + "\n";
-        logic = logic + "\n";
-
         try {
-            fileChannel1 = FileChannel.open(Paths.get(outputFileEnglish), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
-            fileChannel2 = FileChannel.open(Paths.get(outputFileLogic), StandardOpenOption.WRITE, StandardOpenOption.APPEND);
-
-            lock1 = fileChannel1.lock();
-            lock2 = fileChannel2.lock();
-
-            ByteBuffer buffer1 = ByteBuffer.wrap(english.getBytes());
-            ByteBuffer buffer2 = ByteBuffer.wrap(logic.getBytes());
-
-            fileChannel1.write(buffer1);
-            fileChannel2.write(buffer2);
-
+            BatchedWriter.get(outputFileEnglish, outputFileLogic).write(english, logic);
         } catch (IOException e) {
             e.printStackTrace();
-        } finally {
-            try {
-                if (lock1 != null) lock1.release();
-                if (fileChannel1 != null) fileChannel1.close();
-                if (lock2 != null) lock2.release();
-                if (fileChannel2 != null) fileChannel2.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
         }
     }
 
@@ -341,41 +313,56 @@ public class GenUtils {
      * @throws InterruptedException if the process is interrupted
      */
     public static void startOllamaServer(int port) {
+
+        ollamaAPI = connectOllamaServer(port);
+        setOllamaPort(port);
+    }
+
+    /**
+     * Starts the Ollama server on the specified port if it is not already
+     * running, and connects to it.  Exits if the server can't be started.
+     * @param port the port to check and use for the server
+     * @return the connection, also kept for later requests to the port
+     */
+    private static synchronized OllamaAPI connectOllamaServer(int port) {
         try {
             if (!isOllamaServerRunning(port)) {
                 System.out.println("GenUtils: Starting Ollama Server on port: " + port);
                 ProcessBuilder pb = new ProcessBuilder("ollama", "serve");
                 pb.environment().put("OLLAMA_HOST", "127.0.0.1:" + port);
                 pb.inheritIO();
-                ollamaProcess = pb.start();
+                ollamaProcesses.put(port, pb.start());
                 Thread.sleep(10000);
                 if (!isOllamaServerRunning(port)) {
                     System.err.println("Failed to start Ollama server on port " + port);
                     System.exit(1);
                 }
-                setOllamaPort(port);
                 System.out.println("GenUtils: Ollama server started on port: " + port);
             } else { System.out.println("GenUtils: Ollama server already running on port: " + port);}
 
             System.out.println("GenUtils: Creating connection to Ollama server using model: " + LLM_MODEL);
-            ollamaAPI = new OllamaAPI("http://localhost:" + port + "/");
-            ollamaAPI.setVerbose(false);
+            OllamaAPI api = new OllamaAPI("http://localhost:" + port + "/");
+            api.setVerbose(false);
             options = new OptionsBuilder().setTemperature(0.0f).setNumPredict(4000).build();
+            ollamaAPIs.put(port, api);
             System.out.println("GenUtils: Connected to Ollama server");
+            return api;
         } catch (Exception e) {
             System.err.println("Failed to start Ollama server on port " + port);
             System.err.println("aError: " + e.getMessage());
             System.exit(1);
+            throw new IllegalStateException("System exit failed to terminate process."); // required for compiler.
         }
     }
 
-    private static void stopOllamaServer() {
+    private static void stopOllamaServer(int port) {
+        Process ollamaProcess = ollamaProcesses.remove(port);
         if (ollamaProcess != null && ollamaProcess.isAlive()) {
             ollamaProcess.destroy();
             try { ollamaProcess.waitFor(5, java.util.concurrent.TimeUnit.SECONDS); } catch (Exception ignored) {}
             if (ollamaProcess.isAlive()) ollamaProcess.destroyForcibly();
         }
-        ollamaProcess = null;
+        ollamaAPIs.remove(port);
     }
 
     public static void setOllamaModel(String newModel) {
@@ -542,6 +529,30 @@ public class GenUtils {
         OLLAMA_PORT = port;
     }
 
+    /** ***************************************************************
+     *   Sends the Ollama requests of the calling thread to the server on
+     *   the given port instead of OLLAMA_PORT, so that workers in one
+     *   process can share several servers, or, for null, to OLLAMA_PORT
+     *   again.
+     */
+    public static void setThreadOllamaPort(Integer port) {
+
+        if (port == null) {
+            threadOllamaPort.remove();
+        } else {
+            threadOllamaPort.set(port);
+        }
+    }
+
+    /** ***************************************************************
+     *   @return the port the calling thread's Ollama requests go to
+     */
+    public static int getOllamaPort() {
+
+        Integer port = threadOllamaPort.get();
+        return (port == null) ? OLLAMA_PORT : port;
+    }
+
     public static String getOllamaModel() {
 
         return LLM_MODEL;
@@ -581,6 +592,8 @@ public class GenUtils {
 
     /** ***************************************************************
      *   Sends a prompt to the configured LLM provider and returns the response.
+     *   Exits if no response comes after all attempts, as callers
+     *   expect an answer for every prompt.
      */
     public static String askLLM(String prompt) {
 
@@ -588,19 +601,217 @@ public class GenUtils {
         if ("ollama".equals(provider)) {
             return askOllama(prompt);
         }
-        String response;
+        String response = awaitLLM(askLLMAsync(prompt), "GenUtils.askLLM() [" + provider + "]");
+        System.out.println("GenUtils.askLLM() [" + provider + "] Prompt: " + prompt);
+        System.out.println("GenUtils.askLLM() [" + provider + "] Response: " + response);
+        return response;
+    }
+
+    /** ***************************************************************
+     *   Queues a prompt for the configured LLM provider on the shared
+     *   LLMScheduler, unless the shared LLMCache already has its
+     *   response.  The future fails if every attempt fails or the
+     *   deadline set with setLLMDeadlineSeconds() passes.
+     */
+    public static CompletableFuture<String> askLLMAsync(String prompt) {
+
+        String provider = getLLMProvider();
+        if ("ollama".equals(provider)) {
+            return askOllamaAsync(prompt);
+        }
+        String serviceTier = resolveOpenAIServiceTierForRequest();
+        LLMScheduler.Call call;
         if ("openai".equals(provider) || "openai-compatible".equals(provider) || "openrouter".equals(provider)) {
-            response = askOpenAICompatible(prompt);
+            call = () -> askOpenAICompatible(prompt, serviceTier);
         } else if ("anthropic".equals(provider)) {
-            response = askAnthropic(prompt);
+            call = () -> askAnthropic(prompt);
         } else if ("google".equals(provider)) {
-            response = askGemini(prompt);
+            call = () -> askGemini(prompt);
         } else {
             throw new IllegalStateException("Unsupported LLM provider: " + provider);
         }
-        System.out.println("GenUtils.askLLM() [" + provider + "] Prompt: " + prompt);
-        System.out.println("GenUtils.askLLM() [" + provider + "] Response: " + response);
-        return response;
+        return askCached(provider, prompt, () -> LLMScheduler.get().submit(getLLMEndpoint(), call, LLM_DEADLINE_MS));
+    }
+
+    /** ***************************************************************
+     *   Answers a prompt from the shared LLMCache if it holds a
+     *   response for this provider, model and prompt, and otherwise
+     *   makes the request and caches its response.  A caller that
+     *   can't parse the response evicts it with evictLLMResponse().
+     */
+    private static CompletableFuture<String> askCached(String provider, String prompt,
+                                                       Supplier<CompletableFuture<String>> request) {
+
+        LLMCache cache = LLMCache.get();
+        if (cache == null) {
+            return request.get();
+        }
+        LLMCache.Key key = LLMCache.key(provider, getLLMModel(), getLLMOptionsKey(provider), prompt);
+        String cached = cache.get(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return request.get().thenApply(response -> {
+            cache.put(key, response);
+            return response;
+        });
+    }
+
+    /** ***************************************************************
+     *   Drops the cached response to a prompt asked with askLLM() or
+     *   askLLMAsync(), for callers that can't use it, so the prompt is
+     *   asked again rather than answered with the same response.
+     */
+    public static void evictLLMResponse(String prompt) {
+
+        evictCached(getLLMProvider(), prompt);
+    }
+
+    /** ***************************************************************
+     *   As evictLLMResponse(), for a prompt asked with askOllama()
+     */
+    public static void evictOllamaResponse(String prompt) {
+
+        evictCached("ollama", prompt);
+    }
+
+    /** ***************************************************************
+     */
+    private static void evictCached(String provider, String prompt) {
+
+        LLMCache cache = LLMCache.getIfOpen();
+        if (cache != null && prompt != null) {
+            cache.evict(LLMCache.key(provider, getLLMModel(), getLLMOptionsKey(provider), prompt));
+        }
+    }
+
+    /** ***************************************************************
+     *   @return the request settings, besides the model and prompt,
+     *   that change what a provider answers, as part of the cache key
+     */
+    private static String getLLMOptionsKey(String provider) {
+
+        if ("ollama".equals(provider)) {
+            return "temperature=0.0;num_predict=4000"; // as set in startOllamaServer()
+        }
+        if ("anthropic".equals(provider)) {
+            return "temperature=0;max_tokens=1024";
+        }
+        if ("openai-compatible".equals(provider)) {
+            return "temperature=0;base_url=" + LLM_BASE_URL;
+        }
+        if ("openrouter".equals(provider)) {
+            return "temperature=0;provider_order=" + OPENROUTER_PROVIDER_ORDER;
+        }
+        return "";
+    }
+
+    /** ***************************************************************
+     *   Prints the request and cache counts of this run.
+     */
+    public static void printLLMStats() {
+
+        System.out.println(LLMScheduler.get());
+        LLMCache cache = LLMCache.getIfOpen();
+        if (cache != null) {
+            System.out.println(cache);
+        }
+    }
+
+    /** ***************************************************************
+     *   @return the scheduler endpoint for the configured provider,
+     *   base URL and, for Ollama, port
+     */
+    public static LLMScheduler.Endpoint getLLMEndpoint() {
+
+        String provider = getLLMProvider();
+        if ("ollama".equals(provider)) {
+            return getOllamaEndpoint();
+        }
+        String baseUrl = (LLM_BASE_URL == null) ? "default" : LLM_BASE_URL;
+        return LLMScheduler.get().endpoint(provider + ":" + baseUrl, LLM_CONCURRENCY, LLM_RATE,
+                REMOTE_MAX_ATTEMPTS, LLM_RETRY_BASE_DELAY_MS, REMOTE_RETRY_DELAY_MS);
+    }
+
+    /** ***************************************************************
+     *   @return the scheduler endpoint for the Ollama server the calling
+     *   thread's requests go to
+     */
+    public static LLMScheduler.Endpoint getOllamaEndpoint() {
+
+        return getOllamaEndpoint(getOllamaPort());
+    }
+
+    /** ***************************************************************
+     *   @return the scheduler endpoint for the Ollama server on a port
+     */
+    public static LLMScheduler.Endpoint getOllamaEndpoint(int port) {
+
+        return LLMScheduler.get().endpoint("ollama:" + port, LLM_CONCURRENCY, LLM_RATE,
+                OLLAMA_MAX_ATTEMPTS, LLM_RETRY_BASE_DELAY_MS, OLLAMA_RETRY_DELAY_MS);
+    }
+
+    /** ***************************************************************
+     *   Sets the most requests in flight at once to the configured
+     *   provider, and to any set up later.
+     */
+    public static void setLLMConcurrency(int concurrency) {
+
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("LLM concurrency must be at least 1.");
+        }
+        LLM_CONCURRENCY = concurrency;
+        getLLMEndpoint().setConcurrency(concurrency);
+    }
+
+    public static int getLLMConcurrency() {
+
+        return LLM_CONCURRENCY;
+    }
+
+    /** ***************************************************************
+     *   Sets the most requests started per second to the configured
+     *   provider, and to any set up later, or 0 for no limit.
+     */
+    public static void setLLMRate(double requestsPerSecond) {
+
+        if (requestsPerSecond < 0) {
+            throw new IllegalArgumentException("LLM rate must not be negative.");
+        }
+        LLM_RATE = requestsPerSecond;
+        getLLMEndpoint().setRatePerSecond(requestsPerSecond);
+    }
+
+    public static double getLLMRate() {
+
+        return LLM_RATE;
+    }
+
+    /** ***************************************************************
+     *   Sets how long a request may take, retries included, before it
+     *   fails, or 0 for no limit.
+     */
+    public static void setLLMDeadlineSeconds(long seconds) {
+
+        LLM_DEADLINE_MS = Math.max(0, seconds) * 1000L;
+    }
+
+    /** ***************************************************************
+     *   Waits for a scheduled LLM request, exiting if it failed
+     */
+    private static String awaitLLM(CompletableFuture<String> future, String caller) {
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println(caller + ": Interrupted while waiting for a response. Exiting.");
+        } catch (ExecutionException e) {
+            System.err.println(caller + ": Exhausted all retries without receiving a response. Exiting. " +
+                    e.getCause());
+        }
+        System.exit(1);
+        throw new IllegalStateException(caller + ": System exit failed to terminate process."); // required for compiler.
     }
 
     public static class StringBuilderStreamHandler implements OllamaStreamHandler {
@@ -621,53 +832,95 @@ public class GenUtils {
      */
     public static String askOllama(String prompt) {
 
-        for (int attempt = 1; attempt <= OLLAMA_MAX_ATTEMPTS; attempt++) {
-            try {
-                if (ollamaAPI == null) {
-                    startOllamaServer(OLLAMA_PORT);
-                }
-                ollamaAPI.setRequestTimeoutSeconds(600);
-                StringBuilderStreamHandler handler = new StringBuilderStreamHandler();
-                OllamaResult result = ollamaAPI.generate(getLLMModel(), prompt, false, options, handler);
-                Object response = result.getResponse();
-                if (response == null) {
-                    throw new IllegalStateException("Ollama returned a null response.");
-                }
-                String text = response.toString();
-                if (text.isBlank()) {
-                    throw new IllegalStateException("Ollama returned an empty response.");
-                }
-                return text;
-            } catch (Exception e) {
-                System.out.println("Error in GenUtils.askOllama() attempt " + attempt +
-                        " of " + OLLAMA_MAX_ATTEMPTS + ": " + e.getMessage());
-                System.out.println("Erroring Prompt: " + prompt);
-                e.printStackTrace();
-                boolean serverHealthy = isOllamaServerRunning(OLLAMA_PORT);
-                if (!serverHealthy) {
-                    System.out.println("Ollama server appears unhealthy. Restarting...");
-                    stopOllamaServer();
-                    startOllamaServer(OLLAMA_PORT);
-                } else {
-                    System.out.println("Ollama server responds to health check. Retrying without restart.");
-                }
-                if (attempt < OLLAMA_MAX_ATTEMPTS) {
-                    System.out.println("Retrying Ollama request in 30 seconds...");
-                    try {
-                        Thread.sleep(OLLAMA_RETRY_DELAY_MS);
-                    } catch (InterruptedException interruptedException) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    }
+        return awaitLLM(askOllamaAsync(prompt), "GenUtils.askOllama()");
+    }
+
+    /** ***************************************************************
+     *   Queues a prompt for the Ollama server of the calling thread on
+     *   the shared LLMScheduler.
+     */
+    public static CompletableFuture<String> askOllamaAsync(String prompt) {
+
+        int port = getOllamaPort();
+        return askCached("ollama", prompt,
+                () -> LLMScheduler.get().submit(getOllamaEndpoint(port), () -> askOllamaOnce(prompt, port), LLM_DEADLINE_MS));
+    }
+
+    /** ***************************************************************
+     *   Starts the Ollama server and connection on a port if that
+     *   hasn't been done.
+     */
+    private static OllamaAPI ensureOllamaServer(int port) {
+
+        OllamaAPI api = ollamaAPIs.get(port);
+        if (api != null) {
+            return api;
+        }
+        synchronized (GenUtils.class) {
+            api = ollamaAPIs.get(port);
+            if (api == null) {
+                api = connectOllamaServer(port);
+                if (port == OLLAMA_PORT) {
+                    ollamaAPI = api;
                 }
             }
+            return api;
         }
-        System.err.println("GenUtils.askOllama(): Exhausted all retries without receiving a response. Exiting.");
-        System.exit(1);
-        throw new IllegalStateException("GenUtils.askOllama(): System exit failed to terminate process.");
     }
 
-    private static String askOpenAICompatible(String prompt) {
+    /** ***************************************************************
+     *   Restarts the Ollama server on a port if it doesn't answer a
+     *   health check.  Synchronized so that requests failing together
+     *   restart it once.
+     */
+    private static synchronized void restartOllamaIfDown(int port) {
+
+        if (!isOllamaServerRunning(port)) {
+            System.out.println("Ollama server on port " + port + " appears unhealthy. Restarting...");
+            stopOllamaServer(port);
+            OllamaAPI api = connectOllamaServer(port);
+            if (port == OLLAMA_PORT) {
+                ollamaAPI = api;
+            }
+        } else {
+            System.out.println("Ollama server responds to health check. Retrying without restart.");
+        }
+    }
+
+    /** ***************************************************************
+     *   One attempt at an Ollama request.
+     */
+    private static String askOllamaOnce(String prompt, int port) throws Exception {
+
+        try {
+            OllamaAPI api = ensureOllamaServer(port);
+            api.setRequestTimeoutSeconds(600);
+            StringBuilderStreamHandler handler = new StringBuilderStreamHandler();
+            OllamaResult result = api.generate(getLLMModel(), prompt, false, options, handler);
+            Object response = result.getResponse();
+            if (response == null) {
+                throw new IllegalStateException("Ollama returned a null response.");
+            }
+            String text = response.toString();
+            if (text.isBlank()) {
+                throw new IllegalStateException("Ollama returned an empty response.");
+            }
+            return text;
+        } catch (Exception e) {
+            System.out.println("Error in GenUtils.askOllama(): " + e.getMessage());
+            System.out.println("Erroring Prompt: " + prompt);
+            e.printStackTrace();
+            restartOllamaIfDown(port);
+            throw e;
+        }
+    }
+
+    /** ***************************************************************
+     *   One attempt at an OpenAI-compatible request.  If flex capacity
+     *   is unavailable, the request is made again at once with the
+     *   default service tier.
+     */
+    private static String askOpenAICompatible(String prompt, String serviceTier) throws Exception {
 
         String apiKey = resolveApiKey();
         String defaultBaseUrl = "openrouter".equals(getLLMProvider())
@@ -679,37 +932,29 @@ public class GenUtils {
         String endpoint = resolveOpenAIEndpoint(baseUrl);
         Map<String, String> headers = new HashMap<>();
         headers.put("Authorization", "Bearer " + apiKey);
-        String provider = getLLMProvider();
-        String effectiveServiceTier = resolveOpenAIServiceTierForRequest();
-        for (int attempt = 1; attempt <= REMOTE_MAX_ATTEMPTS; attempt++) {
-            try {
-                String payload = buildOpenAIRequestPayload(prompt, effectiveServiceTier);
-                String responseBody = postJson(endpoint, payload, headers);
-                JsonNode root = JSON_MAPPER.readTree(responseBody);
-                JsonNode contentNode = root.path("choices").path(0).path("message").path("content");
-                if (contentNode == null || contentNode.isMissingNode() || contentNode.isNull()) {
-                    throw new IllegalStateException("No message content in OpenAI response.");
-                }
-                return contentNode.asText();
-            } catch (Exception e) {
-                if ("flex".equals(effectiveServiceTier) && shouldFallbackToDefaultServiceTier(e)) {
-                    System.out.println("OpenAI flex capacity unavailable on attempt " + attempt +
-                            ". Retrying with service_tier=" + DEFAULT_OPENAI_SERVICE_TIER + ".");
-                    effectiveServiceTier = DEFAULT_OPENAI_SERVICE_TIER;
-                }
-                System.out.println("Error in GenUtils.askLLM() [" + provider + "] attempt " + attempt +
-                        " of " + REMOTE_MAX_ATTEMPTS + ": " + e.getMessage());
-                if (attempt < REMOTE_MAX_ATTEMPTS) {
-                    sleepBeforeRetry();
-                }
+        String responseBody;
+        try {
+            responseBody = postJson(endpoint, buildOpenAIRequestPayload(prompt, serviceTier), headers);
+        } catch (IOException e) {
+            if (!"flex".equals(serviceTier) || !shouldFallbackToDefaultServiceTier(e)) {
+                throw e;
             }
+            System.out.println("OpenAI flex capacity unavailable. Retrying with service_tier=" +
+                    DEFAULT_OPENAI_SERVICE_TIER + ".");
+            responseBody = postJson(endpoint, buildOpenAIRequestPayload(prompt, DEFAULT_OPENAI_SERVICE_TIER), headers);
         }
-        System.err.println("GenUtils.askLLM(): Exhausted " + provider + " retries without receiving a response. Exiting.");
-        System.exit(1);
-        throw new IllegalStateException("GenUtils.askLLM(): System exit failed to terminate process."); // required for compiler.
+        JsonNode root = JSON_MAPPER.readTree(responseBody);
+        JsonNode contentNode = root.path("choices").path(0).path("message").path("content");
+        if (contentNode == null || contentNode.isMissingNode() || contentNode.isNull()) {
+            throw new IllegalStateException("No message content in OpenAI response.");
+        }
+        return contentNode.asText();
     }
 
-    private static String askAnthropic(String prompt) {
+    /** ***************************************************************
+     *   One attempt at an Anthropic request.
+     */
+    private static String askAnthropic(String prompt) throws Exception {
 
         String apiKey = resolveApiKey();
         String baseUrl = (LLM_BASE_URL == null || LLM_BASE_URL.trim().isEmpty())
@@ -719,34 +964,24 @@ public class GenUtils {
         Map<String, String> headers = new HashMap<>();
         headers.put("x-api-key", apiKey);
         headers.put("anthropic-version", "2023-06-01");
-        for (int attempt = 1; attempt <= REMOTE_MAX_ATTEMPTS; attempt++) {
-            try {
-                String payload = buildAnthropicRequestPayload(prompt);
-                String responseBody = postJson(endpoint, payload, headers);
-                JsonNode root = JSON_MAPPER.readTree(responseBody);
-                JsonNode contentArray = root.path("content");
-                if (contentArray == null || !contentArray.isArray() || contentArray.size() == 0) {
-                    throw new IllegalStateException("No content blocks in Anthropic response.");
-                }
-                JsonNode textNode = contentArray.get(0).path("text");
-                if (textNode == null || textNode.isMissingNode() || textNode.isNull()) {
-                    throw new IllegalStateException("No text content in Anthropic response.");
-                }
-                return textNode.asText();
-            } catch (Exception e) {
-                System.out.println("Error in GenUtils.askLLM() [anthropic] attempt " + attempt +
-                        " of " + REMOTE_MAX_ATTEMPTS + ": " + e.getMessage());
-                if (attempt < REMOTE_MAX_ATTEMPTS) {
-                    sleepBeforeRetry();
-                }
-            }
-        }
-        System.err.println("GenUtils.askLLM(): Exhausted Anthropic retries without receiving a response. Exiting.");
-        System.exit(1);
-        throw new IllegalStateException("GenUtils.askLLM(): System exit failed to terminate process."); // required for compiler.
+        String payload = buildAnthropicRequestPayload(prompt);
+        String responseBody = postJson(endpoint, payload, headers);
+        JsonNode root = JSON_MAPPER.readTree(responseBody);
+        JsonNode contentArray = root.path("content");
+        if (contentArray == null || !contentArray.isArray() || contentArray.size() == 0) {
+            throw new IllegalStateException("No content blocks in Anthropic response.");
+        }
+        JsonNode textNode = contentArray.get(0).path("text");
+        if (textNode == null || textNode.isMissingNode() || textNode.isNull()) {
+            throw new IllegalStateException("No text content in Anthropic response.");
+        }
+        return textNode.asText();
     }
 
-    private static String askGemini(String prompt) {
+    /** ***************************************************************
+     *   One attempt at a Gemini request.
+     */
+    private static String askGemini(String prompt) throws Exception {
 
         String apiKey = resolveApiKey();
         String baseUrl = (LLM_BASE_URL == null || LLM_BASE_URL.trim().isEmpty())
@@ -754,26 +989,13 @@ public class GenUtils {
                 : LLM_BASE_URL;
         String endpoint = trimTrailingSlash(baseUrl) + "/models/" + getLLMModel()
                 + ":generateContent?key=" + apiKey;
-        for (int attempt = 1; attempt <= REMOTE_MAX_ATTEMPTS; attempt++) {
-            try {
-                String responseBody = postJson(endpoint, buildGeminiRequestPayload(prompt), new HashMap<>());
-                JsonNode textNode = JSON_MAPPER.readTree(responseBody)
-                        .path("candidates").path(0).path("content").path("parts").path(0).path("text");
-                if (textNode.isMissingNode() || textNode.isNull()) {
-                    throw new IllegalStateException("No text content in Gemini response.");
-                }
-                return textNode.asText();
-            } catch (Exception e) {
-                System.out.println("Error in GenUtils.askLLM() [google] attempt " + attempt +
-                        " of " + REMOTE_MAX_ATTEMPTS + ": " + e.getMessage());
-                if (attempt < REMOTE_MAX_ATTEMPTS) {
-                    sleepBeforeRetry();
-                }
-            }
+        String responseBody = postJson(endpoint, buildGeminiRequestPayload(prompt), new HashMap<>());
+        JsonNode textNode = JSON_MAPPER.readTree(responseBody)
+                .path("candidates").path(0).path("content").path("parts").path(0).path("text");
+        if (textNode.isMissingNode() || textNode.isNull()) {
+            throw new IllegalStateException("No text content in Gemini response.");
         }
-        System.err.println("GenUtils.askLLM(): Exhausted Google retries without receiving a response. Exiting.");
-        System.exit(1);
-        throw new IllegalStateException("GenUtils.askLLM(): System exit failed to terminate process.");
+        return textNode.asText();
     }
 
     private static String buildGeminiRequestPayload(String prompt) throws IOException {
@@ -787,15 +1009,6 @@ public class GenUtils {
         return JSON_MAPPER.writeValueAsString(root);
     }
 
-    private static void sleepBeforeRetry() {
-
-        try {
-            Thread.sleep(REMOTE_RETRY_DELAY_MS);
-        } catch (InterruptedException interruptedException) {
-            Thread.currentThread().interrupt();
-        }
-    }
-
     private static String resolveApiKey() {
 
         if (LLM_API_KEY != null && !LLM_API_KEY.trim().isEmpty()) {
@@ -2,6 +2,7 @@ package com.articulate.nlp;
 
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.Map.Entry;
@@ -28,10 +29,10 @@ public class GenWordSelector {
     public static boolean debug = false;
     public static SelectionStrategy strategy = SelectionStrategy.FRAME_LITE_WITH_OLLAMA;
     private static final int OBJ_SUBSET_SIZE = 20;
-    public static final Random rand = new Random();
+    public static final Random rand = new GenRandom();
 
-    public static int foundWordReturned = 0; // Used to track when Ollama finds a word in SUMO successfully.
-    public static int randomWordReturned = 0; // Used to track when Ollama can't find a word so a random word is returned.
+    public static final AtomicInteger foundWordReturned = new AtomicInteger(); // Used to track when Ollama finds a word in SUMO successfully.
+    public static final AtomicInteger randomWordReturned = new AtomicInteger(); // Used to track when Ollama can't find a word so a random word is returned.
 
     public enum SelectionStrategy {
         RANDOM, WORD_PAIR, FRAME_LITE, FRAME_LITE_WITH_OLLAMA, OLLAMA_JUST_ASK, OLLAMA_SUBSET
@@ -104,7 +105,7 @@ public class GenWordSelector {
 
         List<LFeatureSets.ProcessTypeEntry> processes = lfeatset.processTypes.get(lfeat.verbType);
         if (processes == null) return lfeatset.objects.getNext();
-        LFeatureSets.ProcessTypeEntry process = processes.get(new Random().nextInt(processes.size()));
+        LFeatureSets.ProcessTypeEntry process = processes.get(rand.nextInt(processes.size()));
         //LFeatureSets.printProcessTypeEntry(process);
         if (pos == PoS.INDIRECT) { // indirect object
             if (process.IndirectObjClass == null || process.IndirectObjClass.equals("")) return "";
@@ -153,7 +154,8 @@ public class GenWordSelector {
         if (debug) System.out.println("\n\n" + response + "\n\n\n");
         if (debug) System.out.println("Final Results: " + returnedObjects);
         if (returnedObjects == null) {
-            randomWordReturned++;
+            GenUtils.evictOllamaResponse(prompt);
+            randomWordReturned.incrementAndGet();
             return lfeatset.objects.getNext();
         }
         for (String obj:returnedObjects) {
@@ -161,13 +163,13 @@ public class GenWordSelector {
             String noun = GenUtils.getBestSUMOMapping(synsetOfTerm);
             if (lfeatset.objects.terms.contains(noun)) {
                 if (debug) System.out.println("Returning: " + noun + " for verb " + lfeat.verb);
-                foundWordReturned++;
+                foundWordReturned.incrementAndGet();
                 if (rand.nextBoolean() && kbLite.isSubclass(noun, "Human"))
                     return "Human";
                 return noun;
             }
         }
-        randomWordReturned++;
+        randomWordReturned.incrementAndGet();
         return lfeatset.objects.getNext();
     }
 
@@ -196,8 +198,9 @@ public class GenWordSelector {
         if (debug) System.out.println("\n\n" + response + "\n\n\n");
         if (debug) System.out.println("Final Results: " + returnedTerms);
         if (returnedTerms == null) {
+            GenUtils.evictOllamaResponse(prompt);
             if (debug) System.out.println("returnedObjects is null. Returning a random item from the subclass.");
-            randomWordReturned++;
+            randomWordReturned.incrementAndGet();
             if (className != null && !className.equals(""))
                 return lfeatset.getRandomSubclassFrom(className);
             return lfeatset.objects.getNext();
@@ -205,7 +208,7 @@ public class GenWordSelector {
         for (String term:returnedTerms) {
             if (isFrameLiteStrategy()) {
                 if (className != null && !className.equals("") && lfeatset.termInSubclass(term, className)) {
-                    foundWordReturned++;
+                    foundWordReturned.incrementAndGet();
                     if (rand.nextBoolean() && kbLite.isSubclass(term, "Human")) {
                         if (debug) System.out.println("GenWordSelector.getTermFromSubsetWithOllama() returning a generic Human randomly");
                         return "Human";
@@ -216,14 +219,14 @@ public class GenWordSelector {
             }
             else if (lfeatset.objects.terms.contains(term)) {
                 if (debug) System.out.println("Returning object: " + term + " for verb " + lfeat.verb);
-                foundWordReturned++;
+                foundWordReturned.incrementAndGet();
                 if (rand.nextBoolean() && kbLite.isSubclass(term, "Human"))
                     return "Human";
                 return term;
             }
         }
         if (debug) System.out.println("No objects matched an appropriate SUMO term. Returning a random object.");
-        randomWordReturned++;
+        randomWordReturned.incrementAndGet();
         return lfeatset.objects.getNext();
     }
 
@@ -275,7 +278,8 @@ public class GenWordSelector {
      */
     private static String getJSONSetOfSize(int n, ArrayList<LFeatureSets.TermInfo> termInfos) {
 
-        Collections.shuffle(termInfos);
+        termInfos = new ArrayList<>(termInfos); // shared by every thread, so shuffle a copy
+        Collections.shuffle(termInfos, rand);
         List<LFeatureSets.TermInfo> subsetTermInfos = termInfos;
         if (n <= subsetTermInfos.size()) {
             subsetTermInfos = termInfos.subList(0, n);
@@ -4,19 +4,23 @@ import com.articulate.sigma.Formula;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import org.w3c.dom.*;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class KBLite {
 
@@ -25,6 +29,13 @@ public class KBLite {
     public String kbDir = KB_FILEPATH; // kbDir used for compatibility purposes.
     private List<String> kifFiles = new ArrayList<>();
 
+    // The parsed KIF files are saved here so that later starts needn't
+    // parse them again, unless it is null.  Set by the kblite.cache
+    // system property, which may be "none" to turn the cache off.
+    private String cacheFile = null;
+    private static final int CACHE_MAGIC = 0x4B424C43; // "KBLC"
+    private static final int CACHE_VERSION = 1;
+
     // Fast lookup map: key = second argument, value = argument list
     // private final Map<String, List<List<String>>> termArguments = new HashMap<>();
     public final Set<String> terms = new TreeSet<>();
@@ -44,11 +55,26 @@ public class KBLite {
     public final Set<String> subAttributes = new HashSet<>();
     public final Set<String> subrelations = new HashSet<>();
 
-    Random rand = new Random();
+    Random rand = new GenRandom();
     // This is the formula, then the arg list. example: ["(subclass Cat Animal)", "subclass", "cat", "animal"]
     // rawFormulasWithArgs does not include implication formulas, or formulas that begin with IGNORED_FORMULA_STARTS.
     private final List<List<String>> rawFormulasWithArgs = new ArrayList<>();
 
+    // Formula ids by the term in each argument position, where position
+    // 0 is the predicate.  The ids are indexes into rawFormulasWithArgs,
+    // or into implications for the antecedents and consequents.
+    private final ArgIndex argIndex = new ArgIndex();
+    private final ArgIndex antIndex = new ArgIndex();
+    private final ArgIndex consIndex = new ArgIndex();
+
+    // Formula objects are only made when a query first returns them
+    private final FormulaCache formulaCache = new FormulaCache(id -> rawFormulasWithArgs.get(id).get(0));
+    private final FormulaCache implicationCache = new FormulaCache(id -> implications.get(id).toFormulaString());
+
+    // The transitive closure of childrenOf, built after loading and
+    // again if more subclass or instance statements are read
+    private volatile TermHierarchy hierarchy = null;
+
     // Set of relevant first arguments
     private static final Set<String> TERM_CREATION_ARGUMENTS = new HashSet<>(Arrays.asList(
             "subAttribute", "instance", "subrelation", "subclass"
@@ -71,14 +97,85 @@ public class KBLite {
         }
     }
 
+    /** ***************************************************************
+     * The Formula for each id of a list of formulas, made the first
+     * time it is asked for and then shared
+     */
+    private static class FormulaCache {
+
+        private final IntFunction<String> text;
+        private volatile AtomicReferenceArray<Formula> formulas = new AtomicReferenceArray<>(0);
+
+        FormulaCache(IntFunction<String> text) {
+            this.text = text;
+        }
+
+        Formula get(int id) {
+            AtomicReferenceArray<Formula> a = formulas;
+            if (id >= a.length()) {
+                synchronized (this) {
+                    a = formulas;
+                    if (id >= a.length()) {
+                        AtomicReferenceArray<Formula> b = new AtomicReferenceArray<>(Math.max(id + 1, a.length() * 2));
+                        for (int i = 0; i < a.length(); i++)
+                            b.set(i, a.get(i));
+                        formulas = b;
+                        a = b;
+                    }
+                }
+            }
+            Formula f = a.get(id);
+            if (f == null) {
+                f = new Formula(text.apply(id));
+                if (!a.compareAndSet(id, null, f))
+                    f = a.get(id);
+            }
+            return f;
+        }
+
+        List<Formula> get(int[] ids) {
+            List<Formula> result = new ArrayList<>(ids.length);
+            for (int id : ids)
+                result.add(get(id));
+            return result;
+        }
+    }
+
     /**
      * Constructor that takes the KB name and extracts the kif files for that KB.
      */
     public KBLite(String kbName) {
         System.out.println("\n**********************************************************\nWARNING: KBLite does not perform syntax, type check, or \nany other check to ensure the knowledge base is accurate. \nOnly use after you are otherwise confident in the \naccuracy of the Knowledge Base. EnglishLanguage only.\n**********************************************************\n");
         getKifFilesFromConfig(kbName);
+        String cache = System.getProperty("kblite.cache", KB_FILEPATH + File.separator + kbName + ".kblite");
+        cacheFile = "none".equals(cache) ? null : cache;
+        load();
+    }
+
+    /** ***************************************************************
+     * Load the given kif files, for tests
+     * @param cacheFile where to keep the parsed files, or null for nowhere
+     */
+    KBLite(List<String> kifFiles, String cacheFile) {
+
+        this.kifFiles.addAll(kifFiles);
+        this.cacheFile = cacheFile;
+        load();
+    }
+
+    /** ***************************************************************
+     */
+    private void load() {
+
         System.out.println("Loading kif files into cache.");
         loadKifs();
+        argIndex.trim();
+        antIndex.trim();
+        consIndex.trim();
+        System.out.println("INFO in KBLite.load(): " + argIndex);
+        long t = System.currentTimeMillis();
+        System.out.println("INFO in KBLite.load(): " + getHierarchy() + " built in " +
+                (System.currentTimeMillis() - t) + " ms");
         buildRelationsCache();
         buildFunctionsCache();
         // Sort domains
@@ -152,7 +249,59 @@ public class KBLite {
         }
     }
 
+    /** ***************************************************************
+     * A formula split into its arguments, and for an implication its
+     * antecedent and consequent too, as parsed from a kif file
+     */
+    static class ParsedFormula {
+
+        final String text;
+        final List<String> arguments;
+        final List<String> antecedent; // null unless an implication
+        final List<String> consequent;
+
+        ParsedFormula(String text, List<String> arguments, List<String> antecedent, List<String> consequent) {
+            this.text = text;
+            this.arguments = arguments;
+            this.antecedent = antecedent;
+            this.consequent = consequent;
+        }
+    }
+
+    /** ***************************************************************
+     * The formulas of one kif file, with the length and modification
+     * time the file had when it was read
+     */
+    static class ParsedFile {
+
+        final String path;
+        final long modified;
+        final long length;
+        final List<ParsedFormula> formulas;
+        final boolean complete; // false if reading it failed part way
+
+        ParsedFile(String path, long modified, long length, List<ParsedFormula> formulas, boolean complete) {
+            this.path = path;
+            this.modified = modified;
+            this.length = length;
+            this.formulas = formulas;
+            this.complete = complete;
+        }
+    }
+
+    /** ***************************************************************
+     * Parse the kif files, each on its own task of a fork-join pool of
+     * kblite.threads threads, taking any that haven't changed from the
+     * cache file instead.  The formulas are then added in the order of
+     * the files and of the formulas within them, so the result is the
+     * same as reading them one at a time.  As it did then, an exception
+     * thrown by parsing any file fails the load, once all the files are
+     * done, and nothing is added or written to the cache.
+     */
     public void loadKifs() {
+
+        long t = System.currentTimeMillis();
+        List<File> files = new ArrayList<>();
         for (String kifFile : kifFiles) {
             File file = new File(kifFile);
             if (!file.isAbsolute()) {
@@ -162,61 +311,290 @@ public class KBLite {
                 System.err.println("Error: File specified in config.xml not found: " + file.getAbsolutePath());
                 continue;
             }
-            try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-                String line;
-                StringBuilder formula = new StringBuilder();
-                int parenBalance = 0;
-                boolean inFormula = false;
-                boolean inQuote = false;
-                while ((line = reader.readLine()) != null) {
-                    // Remove comments (everything after ';')
-                    line = stripComments(line, inQuote).trim();
-                    if (line.isEmpty()) {
-                        continue; // Skip blank/whitespace-only lines
+            files.add(file);
+        }
+        Map<String, ParsedFile> cached = (cacheFile == null) ? Collections.emptyMap() : readCache(cacheFile);
+        int threads = Integer.getInteger("kblite.threads", Runtime.getRuntime().availableProcessors());
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        ParsedFile[] results = new ParsedFile[files.size()];
+        int fromCache = 0;
+        Throwable failure = null;
+        try {
+            List<ForkJoinTask<ParsedFile>> tasks = new ArrayList<>();
+            for (int i = 0; i < results.length; i++) {
+                File file = files.get(i);
+                ParsedFile pf = cached.get(file.getAbsolutePath());
+                if (pf != null && pf.modified == file.lastModified() && pf.length == file.length()) {
+                    results[i] = pf;
+                    fromCache++;
+                    tasks.add(null);
+                }
+                else
+                    tasks.add(pool.submit(() -> parseKif(file)));
+            }
+            for (int i = 0; i < results.length; i++) {
+                if (tasks.get(i) == null)
+                    continue;
+                try {
+                    results[i] = tasks.get(i).get();
+                }
+                catch (ExecutionException e) {
+                    System.err.println("Error in KBLite.loadKifs(): failed to parse " +
+                            files.get(i).getAbsolutePath() + ": " + e.getCause());
+                    if (failure == null)
+                        failure = e.getCause();
+                    else
+                        failure.addSuppressed(e.getCause());
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("KBLite.loadKifs() interrupted", e);
+        }
+        finally {
+            pool.shutdown();
+        }
+        if (failure instanceof RuntimeException)
+            throw (RuntimeException) failure;
+        if (failure instanceof Error)
+            throw (Error) failure;
+        if (failure != null)
+            throw new RuntimeException(failure);
+        List<ParsedFile> parsed = new ArrayList<>();
+        for (ParsedFile pf : results)
+            if (pf != null)
+                parsed.add(pf);
+        int count = 0;
+        for (ParsedFile pf : parsed) {
+            for (ParsedFormula f : pf.formulas)
+                addFormula(f);
+            count += pf.formulas.size();
+        }
+        System.out.println("INFO in KBLite.loadKifs(): " + count + " formulas from " + parsed.size() +
+                " files (" + fromCache + " cached) in " + (System.currentTimeMillis() - t) + " ms");
+        if (cacheFile != null && (fromCache < parsed.size() || cached.size() != parsed.size()))
+            writeCache(cacheFile, parsed);
+    }
+
+    /** ***************************************************************
+     * Read the formulas of one kif file.  Nothing is changed but the
+     * result, so files may be parsed at the same time.
+     */
+    static ParsedFile parseKif(File file) {
+
+        long modified = file.lastModified();
+        long length = file.length();
+        List<ParsedFormula> result = new ArrayList<>();
+        boolean complete = true;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            StringBuilder formula = new StringBuilder();
+            int parenBalance = 0;
+            boolean inFormula = false;
+            boolean inQuote = false;
+            while ((line = reader.readLine()) != null) {
+                // Remove comments (everything after ';')
+                line = stripComments(line, inQuote).trim();
+                if (line.isEmpty()) {
+                    continue; // Skip blank/whitespace-only lines
+                }
+
+                // If not currently in a formula, look for the start
+                if (!inFormula) {
+                    if (line.startsWith("(")) {
+                        inFormula = true;
+                        formula.setLength(0); // reset the formula buffer
+                        parenBalance = 0;
+                    } else {
+                        System.out.println("ERROR in KBLite.loadKifs(). Unexpected characters outside of comments or formulas for line: " + line);
+                        continue; // skip lines that don't start a formula
                     }
+                }
 
-                    // If not currently in a formula, look for the start
-                    if (!inFormula) {
-                        if (line.startsWith("(")) {
-                            inFormula = true;
-                            formula.setLength(0); // reset the formula buffer
-                            parenBalance = 0;
-                        } else {
-                            System.out.println("ERROR in KBLite.loadKifs(). Unexpected characters outside of comments or formulas for line: " + line);
-                            continue; // skip lines that don't start a formula
-                        }
+                // Accumulate the line
+                formula.append(line).append(" ");
+
+                for (int i = 0; i < line.length(); i++) {
+                    char c = line.charAt(i);
+                    // Handle quote toggling (ignore escaped quotes)
+                    if (c == '"' && (i == 0 || line.charAt(i - 1) != '\\')) {
+                        inQuote = !inQuote;
+                    }
+                    if (!inQuote) {
+                        if (c == '(') parenBalance++;
+                        else if (c == ')') parenBalance--;
                     }
+                }
 
-                    // Accumulate the line
-                    formula.append(line).append(" ");
+                // If balanced, process the formula
+                if (inFormula && parenBalance == 0) {
+                    String formulaStr = formula.toString().replace("\n", "").trim();
+                    ParsedFormula pf = parseFormula(formulaStr);
+                    if (pf != null)
+                        result.add(pf);
+                    inFormula = false;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + file.getAbsolutePath());
+            e.printStackTrace();
+            complete = false;
+        }
+        return new ParsedFile(file.getAbsolutePath(), modified, length, result, complete);
+    }
 
-                    for (int i = 0; i < line.length(); i++) {
-                        char c = line.charAt(i);
-                        // Handle quote toggling (ignore escaped quotes)
-                        if (c == '"' && (i == 0 || line.charAt(i - 1) != '\\')) {
-                            inQuote = !inQuote;
-                        }
-                        if (!inQuote) {
-                            if (c == '(') parenBalance++;
-                            else if (c == ')') parenBalance--;
-                        }
+    /** ***************************************************************
+     * Save the parsed files that were read completely.  Strings are
+     * written once and then referred to by number, which also lets
+     * readCache() share one copy of each term.
+     */
+    static void writeCache(String filename, List<ParsedFile> files) {
+
+        Path path = Paths.get(filename);
+        Path tmp = Paths.get(filename + ".tmp");
+        Map<String, Integer> strings = new HashMap<>();
+        int count = 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(CACHE_MAGIC);
+            out.writeInt(CACHE_VERSION);
+            for (ParsedFile pf : files)
+                if (pf.complete)
+                    count++;
+            out.writeInt(count);
+            for (ParsedFile pf : files) {
+                if (!pf.complete)
+                    continue;
+                writeString(out, pf.path, strings);
+                out.writeLong(pf.modified);
+                out.writeLong(pf.length);
+                out.writeInt(pf.formulas.size());
+                for (ParsedFormula f : pf.formulas) {
+                    writeString(out, f.text, strings);
+                    writeStrings(out, f.arguments, strings);
+                    out.writeBoolean(f.antecedent != null || f.consequent != null);
+                    if (f.antecedent != null || f.consequent != null) {
+                        writeStrings(out, f.antecedent, strings);
+                        writeStrings(out, f.consequent, strings);
                     }
+                }
+            }
+        }
+        catch (IOException e) {
+            System.err.println("Error in KBLite.writeCache(): can't write " + filename + ": " + e.getMessage());
+            return;
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("INFO in KBLite.writeCache(): wrote " + count + " files to " + filename);
+        }
+        catch (IOException e) {
+            System.err.println("Error in KBLite.writeCache(): can't write " + filename + ": " + e.getMessage());
+        }
+    }
+
+    /** ***************************************************************
+     */
+    private static void writeString(DataOutputStream out, String s, Map<String, Integer> strings) throws IOException {
+
+        Integer id = strings.get(s);
+        if (id != null) {
+            out.writeInt(id);
+            return;
+        }
+        strings.put(s, strings.size());
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(-1 - b.length); // a new string, and its length
+        out.write(b);
+    }
+
+    /** ***************************************************************
+     */
+    private static void writeStrings(DataOutputStream out, List<String> l, Map<String, Integer> strings) throws IOException {
 
-                    // If balanced, process the formula
-                    if (inFormula && parenBalance == 0) {
-                        String formulaStr = formula.toString().replace("\n", "").trim();
-                        processFormula(formulaStr);
-                        inFormula = false;
+        if (l == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(l.size());
+        for (String s : l)
+            writeString(out, s, strings);
+    }
+
+    /** ***************************************************************
+     * @return the files saved by writeCache(), by absolute path, or an
+     * empty map if there is no cache or it can't be read
+     */
+    static Map<String, ParsedFile> readCache(String filename) {
+
+        Map<String, ParsedFile> result = new HashMap<>();
+        File f = new File(filename);
+        if (!f.exists())
+            return result;
+        long t = System.currentTimeMillis();
+        List<String> strings = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f), 1 << 16))) {
+            if (in.readInt() != CACHE_MAGIC || in.readInt() != CACHE_VERSION) {
+                System.out.println("INFO in KBLite.readCache(): ignoring " + filename + " from another version");
+                return result;
+            }
+            int files = in.readInt();
+            for (int i = 0; i < files; i++) {
+                String path = readString(in, strings);
+                long modified = in.readLong();
+                long length = in.readLong();
+                int n = in.readInt();
+                List<ParsedFormula> formulas = new ArrayList<>(n);
+                for (int j = 0; j < n; j++) {
+                    String text = readString(in, strings);
+                    List<String> arguments = readStrings(in, strings);
+                    List<String> antecedent = null, consequent = null;
+                    if (in.readBoolean()) {
+                        antecedent = readStrings(in, strings);
+                        consequent = readStrings(in, strings);
                     }
+                    formulas.add(new ParsedFormula(text, arguments, antecedent, consequent));
                 }
-            } catch (IOException e) {
-                System.err.println("Error reading file: " + file.getAbsolutePath());
-                e.printStackTrace();
+                result.put(path, new ParsedFile(path, modified, length, formulas, true));
             }
         }
+        catch (IOException | RuntimeException e) {
+            System.err.println("Error in KBLite.readCache(): ignoring " + filename + ": " + e);
+            return new HashMap<>();
+        }
+        System.out.println("INFO in KBLite.readCache(): read " + result.size() + " files from " + filename +
+                " in " + (System.currentTimeMillis() - t) + " ms");
+        return result;
     }
 
-    private String stripComments(String line, boolean p_inQuote) {
+    /** ***************************************************************
+     */
+    private static String readString(DataInputStream in, List<String> strings) throws IOException {
+
+        int id = in.readInt();
+        if (id >= 0)
+            return strings.get(id);
+        byte[] b = new byte[-1 - id];
+        in.readFully(b);
+        String s = new String(b, StandardCharsets.UTF_8);
+        strings.add(s);
+        return s;
+    }
+
+    /** ***************************************************************
+     */
+    private static List<String> readStrings(DataInputStream in, List<String> strings) throws IOException {
+
+        int n = in.readInt();
+        if (n < 0)
+            return null;
+        List<String> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            result.add(readString(in, strings));
+        return result;
+    }
+
+    private static String stripComments(String line, boolean p_inQuote) {
 
         StringBuilder sb = new StringBuilder();
         for (int i = 0; i < line.length(); i++) {
@@ -234,23 +612,43 @@ public class KBLite {
         return sb.toString();
     }
 
-    private void processFormula(String formulaStr) {
+    /** ***************************************************************
+     * @return the formula split into arguments, or null if it is one
+     * KBLite ignores
+     */
+    private static ParsedFormula parseFormula(String formulaStr) {
 
         List<String> arguments = splitFormulaArguments(formulaStr);
         if (arguments == null || arguments.isEmpty()
                 || IGNORED_FORMULA_STARTS.contains(arguments.get(0)))
-            return; // In this lite version we don't care about formulas that start with exists, and, or.
+            return null; // In this lite version we don't care about formulas that start with exists, and, or.
+        if (arguments.size() > 2 && "=>".equals(arguments.get(0)))
+            return new ParsedFormula(formulaStr, arguments, splitFormulaArguments(arguments.get(1)),
+                    splitFormulaArguments(arguments.get(2)));
+        return new ParsedFormula(formulaStr, arguments, null, null);
+    }
+
+    /** ***************************************************************
+     * Add a parsed formula to the caches
+     */
+    private void addFormula(ParsedFormula pf) {
+
+        String formulaStr = pf.text;
+        List<String> arguments = pf.arguments;
 
         // Handle implication entries, and save the rest of the formulas to rawFormulasWithArgs
         if (arguments.size() > 2 && "=>".equals(arguments.get(0))) {
-            List<String> antecedent = splitFormulaArguments(arguments.get(1));
-            List<String> consequent = splitFormulaArguments(arguments.get(2));
+            List<String> antecedent = pf.antecedent;
+            List<String> consequent = pf.consequent;
             implications.add(new Implication(antecedent, consequent));
+            antIndex.add(implications.size() - 1, antecedent, 0);
+            consIndex.add(implications.size() - 1, consequent, 0);
         } else { // Handle non-implications separately.
             List<String> thisRawFormWithArg = new ArrayList<>();
             thisRawFormWithArg.add(formulaStr);               // insert at front
             thisRawFormWithArg.addAll(arguments);      // append the rest
             rawFormulasWithArgs.add(thisRawFormWithArg);
+            argIndex.add(rawFormulasWithArgs.size() - 1, arguments, 0);
         }
 
         // Handle documentation entries
@@ -313,6 +711,7 @@ public class KBLite {
                 TERM_CREATION_ARGUMENTS.contains(arguments.get(0)) &&
                 !arguments.get(1).startsWith("?")) {
 
+            hierarchy = null;
             terms.add(arguments.get(1));
             terms.add(arguments.get(2)); // Otherwise things like Entity will never get added, or if doing a domain ontology, the root level classes.
             switch (arguments.get(0)) {
@@ -329,7 +728,7 @@ public class KBLite {
                     subclasses.add(arguments.get(1));
                     break;
                 default:
-                    System.out.println("Error in KBLite.processFormula(), should not get here with line: " + arguments);
+                    System.out.println("Error in KBLite.addFormula(), should not get here with line: " + arguments);
                     break;
             }
 
@@ -358,7 +757,7 @@ public class KBLite {
      * Splits a KIF formula into top-level arguments, preserving subformulas.
      * e.g., "(subclass bat (subformula function))" -> ["subclass", "bat", "(subformula function)"]
      */
-    private List<String> splitFormulaArguments(String formula) {
+    private static List<String> splitFormulaArguments(String formula) {
         if (formula.startsWith("(") && formula.endsWith(")")) {
             formula = formula.substring(1, formula.length() - 1).trim();
         }
@@ -466,8 +865,7 @@ public class KBLite {
             return false;
         if (childClass.equals(parentClass))
            return true;
-        Set<String> subclassesOfParent = getChildClasses(parentClass);
-        return subclassesOfParent.contains(childClass);
+        return getHierarchy().isSubclass(childClass, parentClass);
     }
 
     public boolean isInstance (String term) {
@@ -484,13 +882,45 @@ public class KBLite {
      */
     public boolean isInstanceOf(String i, String c) {
 
-        Set<String> childInstances = getAllInstances(c);
-        return childInstances.contains(i);
+        return getHierarchy().isInstanceOf(i, c);
     }
 
+    /** ***************************************************************
+     * @return the closure of the subclass and instance hierarchy,
+     * building it if it hasn't been built since the last statement
+     * that changed childrenOf
+     */
+    public TermHierarchy getHierarchy() {
+
+        TermHierarchy h = hierarchy;
+        if (h == null) {
+            synchronized (this) {
+                h = hierarchy;
+                if (h == null) {
+                    h = new TermHierarchy(childrenOf, this::isSubclass, this::isInstance);
+                    hierarchy = h;
+                }
+            }
+        }
+        return h;
+    }
 
+    /** ***************************************************************
+     * @return all the subclasses of a class, as a new set the caller
+     * may change
+     */
     public Set<String> getChildClasses(String cl) {
 
+        return new HashSet<>(getHierarchy().subclasses(cl));
+    }
+
+    /** ***************************************************************
+     * Find the subclasses of a class by a breadth-first search of
+     * childrenOf, as getChildClasses() did before the hierarchy was
+     * indexed.  Kept to check and time the index against.
+     */
+    private Set<String> getChildClassesBFS(String cl) {
+
         Set<String> childClasses = new HashSet<>();
         Queue<String> childrenToProcess = new LinkedList<>();
         List<String> childrenOfCl = childrenOf.get(cl);
@@ -498,8 +928,7 @@ public class KBLite {
             childrenToProcess.addAll(childrenOfCl);
         while (!childrenToProcess.isEmpty()) {
             String child = childrenToProcess.poll();
-            if (isSubclass(child)) {
-                childClasses.add(child);
+            if (isSubclass(child) && childClasses.add(child)) {
                 List<String> childrenOfChild = childrenOf.get(child);
                 if (childrenOfChild != null)
                     childrenToProcess.addAll(childrenOfChild);
@@ -512,12 +941,24 @@ public class KBLite {
         return getAllInstances(className);
     }
 
+    /** ***************************************************************
+     * @return the instances of a class and all its subclasses, as a new
+     * sorted set the caller may change
+     */
     public Set<String> getAllInstances(String className) {
+
+        return new TreeSet<>(getHierarchy().instances(className));
+    }
+
+    /** ***************************************************************
+     * getAllInstances() by a search of childrenOf, for comparison
+     */
+    private Set<String> getAllInstancesBFS(String className) {
         if (className == null || className.isEmpty()) {
             return new TreeSet<>();
         }
         Set<String> instancesOfClassName = new TreeSet<>();
-        Set<String> allSubclassesofClassName = getChildClasses(className);
+        Set<String> allSubclassesofClassName = getChildClassesBFS(className);
         allSubclassesofClassName.add(className);
         Iterator<String> iterator = allSubclassesofClassName.iterator();
         while (iterator.hasNext()) {
@@ -533,6 +974,60 @@ public class KBLite {
         return instancesOfClassName;
     }
 
+    /** ***************************************************************
+     * Time the subclass and instance queries of every term against the
+     * index and against a search of childrenOf, and report any that
+     * differ
+     */
+    public void benchmarkHierarchy() {
+
+        List<String> all = new ArrayList<>(childrenOf.keySet());
+        long t = System.nanoTime();
+        int bfsCount = 0;
+        List<Set<String>> bfsSubs = new ArrayList<>(), bfsInsts = new ArrayList<>();
+        for (String cl : all) {
+            bfsSubs.add(getChildClassesBFS(cl));
+            bfsInsts.add(getAllInstancesBFS(cl));
+        }
+        long bfsTime = System.nanoTime() - t;
+        t = System.nanoTime();
+        List<Set<String>> subs = new ArrayList<>(), insts = new ArrayList<>();
+        for (String cl : all) {
+            subs.add(getChildClasses(cl));
+            insts.add(getAllInstances(cl));
+        }
+        long indexTime = System.nanoTime() - t;
+        int diffs = 0;
+        for (int i = 0; i < all.size(); i++) {
+            bfsCount += bfsSubs.get(i).size() + bfsInsts.get(i).size();
+            if (!bfsSubs.get(i).equals(subs.get(i)) || !bfsInsts.get(i).equals(insts.get(i))) {
+                if (diffs++ < 10)
+                    System.err.println("Error in KBLite.benchmarkHierarchy(): results differ for " + all.get(i));
+            }
+        }
+        t = System.nanoTime();
+        int found = 0;
+        for (String cl : all)
+            for (String p : parentsOf.getOrDefault(cl, Collections.emptyList()))
+                if (getChildClassesBFS(p).contains(cl))
+                    found++;
+        long bfsTestTime = System.nanoTime() - t;
+        t = System.nanoTime();
+        int found2 = 0;
+        for (String cl : all)
+            for (String p : parentsOf.getOrDefault(cl, Collections.emptyList()))
+                if (getHierarchy().isSubclass(cl, p))
+                    found2++;
+        long indexTestTime = System.nanoTime() - t;
+        if (found != found2)
+            System.err.println("Error in KBLite.benchmarkHierarchy(): subclass tests differ " + found + " " + found2);
+        System.out.printf("INFO in KBLite.benchmarkHierarchy(): %d classes, %d results, %d differences%n" +
+                        "  enumeration: search %.1f ms, index %.1f ms%n" +
+                        "  subclass tests: search %.1f ms, index %.1f ms%n",
+                all.size(), bfsCount, diffs, bfsTime / 1e6, indexTime / 1e6,
+                bfsTestTime / 1e6, indexTestTime / 1e6);
+    }
+
     public Map<String, List<String>> getTermFormatMap() {
         return termFormats;
     }
@@ -581,29 +1076,18 @@ public class KBLite {
     public List<Formula> ask(String kind, int argnum, String term) {
         // Only support for kind == "arg"
         // Format of rawFormulasWithArgs is the complete formula, then the args. example ["(subclass Cat Animal)", "subclass", "Cat", "Animal"]
-        // The actual args in rawFormulasWithArgs starts at 1, so for kind=args we have to add 1 to argnum when querying rawFormulasWithArgs.
-        List<Formula> result = new ArrayList<>();
+        // argIndex positions are those of the args, so argnum is used as is.
         if (kind.equals("stmt")) {
             System.out.println("ERROR IN KBLite.ask(). Unsupported kind for kind: '" + kind + "' argnum: " + argnum + " term: " + term);
             return null;
         }
-        if (kind.equals("arg")) {
-            argnum++;
-            for (List<String> formula : rawFormulasWithArgs) {
-                if (argnum < formula.size()
-                        && formula.get(argnum).equals(term)) {
-                    result.add(new Formula(formula.get(0)));
-                }
-            }
-        } else if (kind.equals("ant") || kind.equals("cons")) {
-            for (Implication imp : implications) {
-                String impArg = kind.equals("ant") ? imp.antecedent.get(argnum) : imp.consequent.get(argnum);
-                if(impArg != null && impArg.equals(term)) {
-                    result.add(new Formula(imp.toFormulaString()));
-                }
-            }
-        }
-        return result;
+        if (kind.equals("arg"))
+            return formulaCache.get(argIndex.find(argnum, term));
+        else if (kind.equals("ant"))
+            return implicationCache.get(antIndex.find(argnum, term));
+        else if (kind.equals("cons"))
+            return implicationCache.get(consIndex.find(argnum, term));
+        return new ArrayList<>();
     }
 
     /***************************************************************
@@ -614,16 +1098,8 @@ public class KBLite {
      * results.
      */
     public List<Formula> askWithRestriction(int argnum1, String term1, int argnum2, String term2) {
-        // See not on KBLite.ask() for why we increments the argsnums.
-        argnum1++; argnum2++;
-        List<Formula> result = new ArrayList<>();
-        for (List<String> formula: rawFormulasWithArgs) {
-            if (argnum1 < formula.size() && argnum2 < formula.size()
-                    && formula.get(argnum1).equals(term1) && formula.get(argnum2).equals(term2)) {
-                result.add(new Formula(formula.get(0)));
-            }
-        }
-        return result;
+
+        return formulaCache.get(argIndex.find(new int[] {argnum1, argnum2}, new String[] {term1, term2}));
     }
 
     /***************************************************************
@@ -637,16 +1113,9 @@ public class KBLite {
     public List<Formula> askWithTwoRestrictions(int argnum1, String term1,
                                                 int argnum2, String term2,
                                                 int argnum3, String term3) {
-        //see note on KBLite.ask() for why we increment the argnums.
-        argnum1++; argnum2++; argnum3++;
-        List<Formula> result = new ArrayList<>();
-        for (List<String> formula: rawFormulasWithArgs) {
-            if (argnum1 < formula.size() && argnum2 < formula.size() && argnum3 < formula.size()
-                    && formula.get(argnum1).equals(term1) && formula.get(argnum2).equals(term2) && formula.get(argnum3).equals(term3)) {
-                result.add(new Formula(formula.get(0)));
-            }
-        }
-        return result;
+
+        return formulaCache.get(argIndex.find(new int[] {argnum1, argnum2, argnum3},
+                new String[] {term1, term2, term3}));
     }
 
     /*************************************************************
@@ -703,6 +1172,10 @@ public class KBLite {
 */
     public static void main(String[] args) {
         KBLite kbLite = new KBLite("SUMO");
+        if (args.length > 0 && args[0].equals("-b")) {
+            kbLite.benchmarkHierarchy();
+            return;
+        }
         for (String f : kbLite.kifFiles) {
             System.out.println(f);
         }
@@ -12,6 +12,7 @@ import com.opencsv.CSVReader;
 import java.io.File;
 import java.io.FileReader;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 /**
@@ -25,7 +26,7 @@ public class LFeatureSets {
             Arrays.asList("Acidification","Vending","OrganizationalProcess",
                     "NaturalProcess","Corkage","LinguisticCommunication"));
     public static boolean useCapabilities = false; // include process types from capabilities list
-    public static Random rand = new Random();
+    public static Random rand = new GenRandom();
 
     /** *******************************************
      */
@@ -121,7 +122,6 @@ public class LFeatureSets {
     public RandSet socRoles = null;
     public RandSet objects = null;
     public RandSet bodyParts = null;
-    public Set<String> prevHumans = new HashSet<>();
     public RandSet processes = null;
     private KBLite kbLite = null;
     public ArrayList<TermInfo> termInfos = null;
@@ -133,7 +133,7 @@ public class LFeatureSets {
     public static Map<String,String> prepPhrase = new HashMap<>();
     public static final List<Word> attitudes = new ArrayList<>();
     public static Map<String, List<ProcessTypeEntry>> processTypes;
-    public static Map<String, List<String>> subclassMap = new HashMap<>(); // Its a list because we will get random items from it.
+    public static Map<String, List<String>> subclassMap = new ConcurrentHashMap<>(); // Its a list because we will get random items from it.
 
     public LFeatureSets(KBLite kbLiteParam) {
         kbLite = kbLiteParam;
@@ -13,7 +13,7 @@ public class LFeatures {
 
     private static final boolean debug = false;
     public boolean testMode = false;
-    private static final Random rand = new Random();
+    private static final Random rand = new GenRandom();
     private static final boolean GEN_ENG_WITH_OLLAMA = false;
 
     public static final int NOTIME = -1;
@@ -100,6 +100,8 @@ public class LFeatures {
     public String bodyPart = null; // subject body part
     public AVPair pluralBodyPart = null;
 
+    public Set<String> prevHumans = new HashSet<>(); // names and roles already in the sentence
+
     public String englishSentence;
     public String logicFormula;
 
@@ -506,6 +508,7 @@ public class LFeatures {
                 englishSentence = matcher.group(1);
             }
             else {
+                GenUtils.evictOllamaResponse(prompt);
                 System.out.println("LFeatures could not generate sentence with an LLM. Returing non-LLM generated english sentence: " + englishSentence);
             }
         }
@@ -0,0 +1,347 @@
+package com.articulate.nlp;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/** ***************************************************************
+ * A persistent cache of LLM responses, keyed by a hash of the
+ * provider, model, request options and prompt, so that a re-run, a
+ * resumed job or a repeated prompt gets its answer without asking the
+ * LLM again.  Responses are appended to a log file and an in-memory
+ * index maps each key to where its response is, so a lookup is one
+ * positional read.  Each record has a CRC, and a record cut short by
+ * a crash is dropped when the log is next opened.
+ *
+ * Appends are made under a FileLock, so several processes may share
+ * a log, though each only sees what the others added before it
+ * opened the log.
+ *
+ * A caller that can't use a response evicts it, so that the prompt is
+ * asked again rather than answered with the same response.
+ *
+ * Log: magic, version, then records of a 128 bit key, the UTF-8
+ * length, the UTF-8 bytes of the response, and the CRC32 of all that.
+ * A record with length -1 and no bytes evicts its key.
+ */
+public class LLMCache implements AutoCloseable {
+
+    public static boolean debug = false;
+
+    private static final int MAGIC = 0x4C4C4D43; // "LLMC"
+    private static final int VERSION = 1;
+    private static final int HEADER = 8;
+    private static final int RECORD_OVERHEAD = 16 + 4 + 4;
+    private static final int MAX_LENGTH = (1 << 24) - 1;
+    private static final int EVICTED = -1;
+
+    private static LLMCache shared = null;
+    private static boolean sharedOpened = false;
+
+    private final String fileName;
+    private final FileChannel channel;
+    // key to the offset of its response in the upper 40 bits and its length in the lower 24
+    private final ConcurrentHashMap<Key, Long> index = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong puts = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /** ***************************************************************
+     * The first 128 bits of a SHA-256 hash
+     */
+    public static final class Key {
+
+        final long hi, lo;
+
+        Key(long hi, long lo) {
+            this.hi = hi;
+            this.lo = lo;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).hi == hi && ((Key) o).lo == lo;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (lo ^ (lo >>> 32));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%016x%016x", hi, lo);
+        }
+    }
+
+    /** ***************************************************************
+     * Open a cache log, creating it if needed, and index what it holds
+     */
+    public LLMCache(String fileName) throws IOException {
+
+        this.fileName = fileName;
+        Path path = Paths.get(fileName);
+        if (path.getParent() != null)
+            Files.createDirectories(path.getParent());
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE);
+        try (FileLock lock = channel.lock()) {
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER).putInt(MAGIC).putInt(VERSION);
+                header.flip();
+                writeFully(header, 0);
+            }
+            else
+                load();
+        }
+        catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (debug) System.out.println("INFO in LLMCache(): " + index.size() + " responses in " + fileName);
+    }
+
+    /** ***************************************************************
+     * @return the cache named by the llm.cache property, by default
+     * ~/.sigmanlp/LLMCache.bin, or null if the property is "none" or
+     * the log can't be opened
+     */
+    public static synchronized LLMCache get() {
+
+        if (!sharedOpened) {
+            sharedOpened = true;
+            String fileName = System.getProperty("llm.cache",
+                    Paths.get(System.getProperty("user.home"), ".sigmanlp", "LLMCache.bin").toString());
+            if (!fileName.equals("none")) {
+                try {
+                    shared = new LLMCache(fileName);
+                    System.out.println("INFO in LLMCache.get(): " + shared.size() + " cached responses in " + fileName);
+                }
+                catch (IOException e) {
+                    System.err.println("Error in LLMCache.get(): can't open " + fileName + ": " + e.getMessage());
+                }
+            }
+        }
+        return shared;
+    }
+
+    /** ***************************************************************
+     * @return the shared cache if get() has opened it, or else null
+     */
+    public static synchronized LLMCache getIfOpen() {
+
+        return shared;
+    }
+
+    /** ***************************************************************
+     * Read the log, stopping at the first record that is cut short or
+     * fails its CRC and cutting the log back to there
+     */
+    private void load() throws IOException {
+
+        long size = channel.size();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(fileName), 1 << 16))) {
+            if (size < HEADER || in.readInt() != MAGIC || in.readInt() != VERSION)
+                throw new IOException("LLMCache.load(): not a version " + VERSION + " cache: " + fileName);
+            long pos = HEADER;
+            CRC32 crc = new CRC32();
+            byte[] buf = new byte[1024];
+            while (pos + RECORD_OVERHEAD <= size) {
+                long hi = in.readLong(), lo = in.readLong();
+                int len = in.readInt();
+                if (len == EVICTED) {
+                    int stored = in.readInt();
+                    crc.reset();
+                    crc.update(ByteBuffer.allocate(20).putLong(hi).putLong(lo).putInt(len).array());
+                    if ((int) crc.getValue() != stored)
+                        break;
+                    index.remove(new Key(hi, lo));
+                    pos += RECORD_OVERHEAD;
+                    continue;
+                }
+                if (len < 0 || len > MAX_LENGTH || pos + RECORD_OVERHEAD + len > size)
+                    break;
+                if (buf.length < len)
+                    buf = new byte[Math.max(len, buf.length * 2)];
+                in.readFully(buf, 0, len);
+                int stored = in.readInt();
+                crc.reset();
+                crc.update(ByteBuffer.allocate(20).putLong(hi).putLong(lo).putInt(len).array());
+                crc.update(buf, 0, len);
+                if ((int) crc.getValue() != stored)
+                    break;
+                index.put(new Key(hi, lo), ((pos + 20) << 24) | len);
+                pos += RECORD_OVERHEAD + len;
+            }
+            if (pos < size) {
+                System.err.println("Error in LLMCache.load(): dropping " + (size - pos) +
+                        " bytes of an incomplete record from " + fileName);
+                channel.truncate(pos);
+            }
+        }
+        catch (EOFException e) {
+            throw new IOException("LLMCache.load(): unexpected end of " + fileName, e);
+        }
+    }
+
+    /** ***************************************************************
+     */
+    private void writeFully(ByteBuffer buf, long pos) throws IOException {
+
+        while (buf.hasRemaining())
+            pos += channel.write(buf, pos);
+    }
+
+    /** ***************************************************************
+     * @return the key for a request
+     */
+    public static Key key(String provider, String model, String options, String prompt) {
+
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            for (String s : new String[] {provider, model, options}) {
+                md.update(String.valueOf(s).getBytes(StandardCharsets.UTF_8));
+                md.update((byte) 0);
+            }
+            md.update(prompt.getBytes(StandardCharsets.UTF_8));
+            ByteBuffer digest = ByteBuffer.wrap(md.digest());
+            return new Key(digest.getLong(), digest.getLong());
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("LLMCache.key(): no SHA-256", e);
+        }
+    }
+
+    /** ***************************************************************
+     * @return the cached response, or null if there is none
+     */
+    public String get(Key key) {
+
+        Long where = index.get(key);
+        if (where == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        ByteBuffer buf = ByteBuffer.allocate((int) (where & MAX_LENGTH));
+        long pos = where >>> 24;
+        try {
+            while (buf.hasRemaining()) {
+                int n = channel.read(buf, pos);
+                if (n < 0)
+                    throw new EOFException("LLMCache.get(): " + fileName + " is shorter than its index");
+                pos += n;
+            }
+        }
+        catch (IOException e) {
+            System.err.println("Error in LLMCache.get(): " + e.getMessage());
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return new String(buf.array(), StandardCharsets.UTF_8);
+    }
+
+    /** ***************************************************************
+     * Add a response to the log, unless its key is already there
+     */
+    public void put(Key key, String response) {
+
+        if (response == null || index.containsKey(key))
+            return;
+        byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_LENGTH)
+            return;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_OVERHEAD + bytes.length);
+        record.putLong(key.hi).putLong(key.lo).putInt(bytes.length).put(bytes);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, record.position());
+        record.putInt((int) crc.getValue());
+        record.flip();
+        synchronized (this) {
+            if (index.containsKey(key))
+                return;
+            try (FileLock lock = channel.lock()) {
+                long pos = channel.size();
+                writeFully(record, pos);
+                index.put(key, ((pos + 20) << 24) | bytes.length);
+                puts.incrementAndGet();
+            }
+            catch (IOException e) {
+                System.err.println("Error in LLMCache.put(): " + fileName + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /** ***************************************************************
+     * Drop the response for a key, here and for anyone who opens the
+     * log later, so the prompt is asked again
+     */
+    public void evict(Key key) {
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_OVERHEAD);
+        record.putLong(key.hi).putLong(key.lo).putInt(EVICTED);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, record.position());
+        record.putInt((int) crc.getValue());
+        record.flip();
+        synchronized (this) {
+            if (!index.containsKey(key))
+                return;
+            try (FileLock lock = channel.lock()) {
+                writeFully(record, channel.size());
+                index.remove(key);
+                evictions.incrementAndGet();
+            }
+            catch (IOException e) {
+                System.err.println("Error in LLMCache.evict(): " + fileName + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /** ***************************************************************
+     * @return the number of cached responses
+     */
+    public int size() {
+
+        return index.size();
+    }
+
+    /** ***************************************************************
+     * @return the fraction of lookups that found a response
+     */
+    public double hitRate() {
+
+        long h = hits.get(), total = h + misses.get();
+        return (total == 0) ? 0 : (double) h / total;
+    }
+
+    /** ***************************************************************
+     */
+    @Override
+    public void close() throws IOException {
+
+        channel.close();
+    }
+
+    /** ***************************************************************
+     */
+    public String toString() {
+
+        return String.format("LLMCache: %d responses in %s, %d hits, %d misses (%.1f%% hit rate), %d added, %d evicted",
+                index.size(), fileName, hits.get(), misses.get(), 100 * hitRate(), puts.get(), evictions.get());
+    }
+}
@@ -0,0 +1,380 @@
+package com.articulate.nlp;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** ***************************************************************
+ * Runs LLM requests asynchronously, each against a named endpoint such
+ * as a local Ollama server or a provider's API.  Every endpoint has its
+ * own limit on requests in flight, an optional token bucket limiting
+ * requests per second, and a number of attempts; a failed attempt is
+ * tried again after an exponential backoff with jitter.  A request may
+ * have a deadline, after which its future fails with a
+ * TimeoutException whether it is still queued, waiting to be retried
+ * or in flight.  The thread of a call in flight is interrupted then,
+ * but a call that doesn't respond to interrupts, such as an Ollama
+ * request with its 600 second timeout, holds its endpoint's slot until
+ * it returns.
+ *
+ * Requests are started in the order they were submitted to their
+ * endpoint, except that a request being retried goes ahead of those
+ * not yet started.  The blocking calls themselves run on a pool of daemon
+ * threads, so a caller that submits many requests and then waits on
+ * the futures keeps the endpoint busy up to its limit.
+ */
+public class LLMScheduler {
+
+    public static boolean debug = false;
+
+    private static LLMScheduler shared = null;
+
+    private final ConcurrentHashMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final ExecutorService pool;
+    private final ScheduledExecutorService timer;
+    private final Random rand = new Random();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    /** ***************************************************************
+     * One attempt at a request, which returns the response or throws
+     */
+    public interface Call {
+        String call() throws Exception;
+    }
+
+    /** ***************************************************************
+     * The limits of one endpoint and the requests waiting for it
+     */
+    public class Endpoint {
+
+        public final String name;
+        private int concurrency;
+        private double ratePerSecond;
+        private int maxAttempts;
+        private long baseDelayMillis;
+        private long maxDelayMillis;
+
+        private final ArrayDeque<Task> queue = new ArrayDeque<>();
+        private int running = 0;
+        private double tokens = 1;
+        private long lastRefill = System.nanoTime();
+        private boolean pumpScheduled = false;
+
+        /** ***************************************************************
+         */
+        private Endpoint(String name, int concurrency, double ratePerSecond, int maxAttempts,
+                         long baseDelayMillis, long maxDelayMillis) {
+
+            this.name = name;
+            configure(concurrency, ratePerSecond, maxAttempts, baseDelayMillis, maxDelayMillis);
+            tokens = Math.max(1, ratePerSecond);
+        }
+
+        /** ***************************************************************
+         * @param concurrency the most requests in flight at once
+         * @param ratePerSecond the most requests started per second, or
+         *                      0 for no limit
+         * @param maxAttempts the attempts made at a request before it fails
+         * @param baseDelayMillis the backoff after the first failure,
+         *                        doubled after each further one
+         * @param maxDelayMillis the longest backoff
+         */
+        public synchronized void configure(int concurrency, double ratePerSecond, int maxAttempts,
+                                           long baseDelayMillis, long maxDelayMillis) {
+
+            if (concurrency < 1 || maxAttempts < 1 || ratePerSecond < 0)
+                throw new IllegalArgumentException("LLMScheduler.Endpoint.configure(): bad limits for " + name);
+            this.concurrency = concurrency;
+            this.ratePerSecond = ratePerSecond;
+            this.maxAttempts = maxAttempts;
+            this.baseDelayMillis = baseDelayMillis;
+            this.maxDelayMillis = Math.max(baseDelayMillis, maxDelayMillis);
+            pump();
+        }
+
+        /** ***************************************************************
+         */
+        public synchronized void setConcurrency(int concurrency) {
+
+            configure(concurrency, ratePerSecond, maxAttempts, baseDelayMillis, maxDelayMillis);
+        }
+
+        /** ***************************************************************
+         */
+        public synchronized void setRatePerSecond(double ratePerSecond) {
+
+            configure(concurrency, ratePerSecond, maxAttempts, baseDelayMillis, maxDelayMillis);
+        }
+
+        /** ***************************************************************
+         */
+        public synchronized int getConcurrency() {
+
+            return concurrency;
+        }
+
+        /** ***************************************************************
+         */
+        public synchronized int getMaxAttempts() {
+
+            return maxAttempts;
+        }
+
+        /** ***************************************************************
+         * Take a token from the bucket, which holds up to one second's
+         * worth of requests
+         * @return 0 if a token was taken, or else the nanoseconds until
+         * there will be one
+         */
+        private long takeToken() {
+
+            if (ratePerSecond <= 0)
+                return 0;
+            long now = System.nanoTime();
+            double burst = Math.max(1, ratePerSecond);
+            tokens = Math.min(burst, tokens + (now - lastRefill) * ratePerSecond / 1e9);
+            lastRefill = now;
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) * 1e9 / ratePerSecond);
+        }
+
+        /** ***************************************************************
+         * Start as many queued requests as the limits allow
+         */
+        private synchronized void pump() {
+
+            while (running < concurrency && !queue.isEmpty()) {
+                Task task = queue.peek();
+                if (task.future.isDone()) {
+                    queue.poll();
+                    continue;
+                }
+                long wait = takeToken();
+                if (wait > 0) {
+                    if (!pumpScheduled) {
+                        pumpScheduled = true;
+                        timer.schedule(() -> {
+                            synchronized (Endpoint.this) {
+                                pumpScheduled = false;
+                                pump();
+                            }
+                        }, wait, TimeUnit.NANOSECONDS);
+                    }
+                    return;
+                }
+                queue.poll();
+                running++;
+                pool.execute(() -> run(task));
+            }
+        }
+
+        /** ***************************************************************
+         */
+        private synchronized void enqueue(Task task) {
+
+            queue.add(task);
+            pump();
+        }
+
+        /** ***************************************************************
+         * Put a task that is being retried at the head of the queue
+         */
+        private synchronized void requeue(Task task) {
+
+            queue.addFirst(task);
+            pump();
+        }
+
+        /** ***************************************************************
+         */
+        private synchronized void finished() {
+
+            running--;
+            pump();
+        }
+
+        /** ***************************************************************
+         */
+        private synchronized long backoff(int attempt) {
+
+            long delay = baseDelayMillis << Math.min(attempt - 1, 30);
+            if (delay <= 0 || delay > maxDelayMillis)
+                delay = maxDelayMillis;
+            return delay / 2 + (long) (rand.nextDouble() * (delay / 2 + 1));
+        }
+
+        /** ***************************************************************
+         */
+        public synchronized String toString() {
+
+            return name + ": " + running + " running, " + queue.size() + " queued, limit " + concurrency +
+                    (ratePerSecond > 0 ? ", " + ratePerSecond + "/s" : "");
+        }
+    }
+
+    /** ***************************************************************
+     * A submitted request
+     */
+    private class Task {
+
+        final Endpoint endpoint;
+        final Call call;
+        final CompletableFuture<String> future = new CompletableFuture<>();
+        int attempts = 0;
+        Thread thread = null; // running the call, guarded by this
+
+        Task(Endpoint endpoint, Call call) {
+            this.endpoint = endpoint;
+            this.call = call;
+        }
+    }
+
+    /** ***************************************************************
+     */
+    public LLMScheduler() {
+
+        AtomicInteger count = new AtomicInteger();
+        pool = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "LLMScheduler-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "LLMScheduler-timer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** ***************************************************************
+     * @return the scheduler that GenUtils sends its requests through
+     */
+    public static synchronized LLMScheduler get() {
+
+        if (shared == null)
+            shared = new LLMScheduler();
+        return shared;
+    }
+
+    /** ***************************************************************
+     * @return the named endpoint, created with the given limits if it
+     * does not exist yet; the limits of an existing endpoint are left
+     * as they are
+     */
+    public Endpoint endpoint(String name, int concurrency, double ratePerSecond, int maxAttempts,
+                             long baseDelayMillis, long maxDelayMillis) {
+
+        return endpoints.computeIfAbsent(name, k -> new Endpoint(name, concurrency, ratePerSecond,
+                maxAttempts, baseDelayMillis, maxDelayMillis));
+    }
+
+    /** ***************************************************************
+     * @return the named endpoint, or null if there is none
+     */
+    public Endpoint endpoint(String name) {
+
+        return endpoints.get(name);
+    }
+
+    /** ***************************************************************
+     * Queue a request.  Callbacks may be added to the returned future,
+     * and cancelling it drops the request if it has not started yet.
+     * @param deadlineMillis how long the request may take in all, or 0
+     *                       for no limit
+     */
+    public CompletableFuture<String> submit(Endpoint endpoint, Call call, long deadlineMillis) {
+
+        Task task = new Task(endpoint, call);
+        submitted.incrementAndGet();
+        if (deadlineMillis > 0) {
+            ScheduledFuture<?> timeout = timer.schedule(() -> {
+                if (task.future.completeExceptionally(new TimeoutException("LLMScheduler: no response from " +
+                        endpoint.name + " within " + deadlineMillis + " ms"))) {
+                    timedOut.incrementAndGet();
+                    synchronized (task) {
+                        if (task.thread != null)
+                            task.thread.interrupt();
+                    }
+                }
+            }, deadlineMillis, TimeUnit.MILLISECONDS);
+            task.future.whenComplete((r, e) -> timeout.cancel(false));
+        }
+        endpoint.enqueue(task);
+        return task.future;
+    }
+
+    /** ***************************************************************
+     * Make one attempt at a task and complete it, or put it back in
+     * its endpoint's queue after a backoff.  The attempt runs with
+     * task.thread set, so that the deadline can interrupt it.
+     */
+    private void run(Task task) {
+
+        Endpoint endpoint = task.endpoint;
+        try {
+            synchronized (task) {
+                if (task.future.isDone())
+                    return;
+                task.thread = Thread.currentThread();
+            }
+            task.attempts++;
+            String response;
+            try {
+                response = task.call.call();
+            }
+            finally {
+                synchronized (task) {
+                    task.thread = null;
+                    Thread.interrupted(); // don't leave an interrupt for the pool thread's next task
+                }
+            }
+            if (task.future.complete(response))
+                succeeded.incrementAndGet();
+        }
+        catch (Exception e) {
+            int max = endpoint.getMaxAttempts();
+            System.out.println("Error in LLMScheduler.run(): " + endpoint.name + " attempt " + task.attempts +
+                    " of " + max + ": " + e.getMessage());
+            if (task.attempts >= max) {
+                if (task.future.completeExceptionally(e))
+                    failed.incrementAndGet();
+            }
+            else if (!task.future.isDone()) {
+                long delay = endpoint.backoff(task.attempts);
+                retries.incrementAndGet();
+                if (debug) System.out.println("INFO in LLMScheduler.run(): retrying in " + delay + " ms");
+                timer.schedule(() -> endpoint.requeue(task), delay, TimeUnit.MILLISECONDS);
+            }
+        }
+        catch (Error e) {
+            task.future.completeExceptionally(e);
+            throw e;
+        }
+        finally {
+            endpoint.finished();
+        }
+    }
+
+    /** ***************************************************************
+     */
+    public String toString() {
+
+        StringBuilder sb = new StringBuilder("LLMScheduler: " + submitted + " submitted, " + succeeded +
+                " succeeded, " + failed + " failed, " + timedOut + " timed out, " + retries + " retries");
+        for (Map.Entry<String, Endpoint> e : new TreeMap<>(endpoints).entrySet())
+            sb.append("\n  ").append(e.getValue());
+        return sb.toString();
+    }
+}
@@ -44,6 +44,11 @@ public abstract class MultiWordAnnotator implements Annotator {
 
     public String name = "MultiWordAnnotator";
 
+    // the trie built from mw, and the mw it was built from, checked
+    // against the content of mw once per annotate()
+    private volatile MultiWordTrie trie = null;
+    private volatile MultiWords trieSource = null;
+
     public MultiWordAnnotator() {}
 
     // annotation for the actual matched form of a multi-word, which could be
@@ -111,168 +116,47 @@ public abstract class MultiWordAnnotator implements Annotator {
     }
 
     /****************************************************************
+     * @return the trie of mw, shared with any other annotator using
+     * the same MultiWords.  Changes to the multiwords of mw are only
+     * seen by annotate(), which rebuilds the trie if need be.
      */
-    public static List<CoreLabel> findMultiWord(List<CoreLabel> head, List<CoreLabel> rest,
-                                                Collection<String> candidates) {
-
-        //if (debug) System.out.println("findMultiWord(1): " + head + " : " + rest);
-        if (rest.isEmpty())
-            return null;
-        List<CoreLabel> result = new ArrayList<>(), newResult;
-        String headString = multiWordToKey(head,'_');
-        CoreLabel token = new CoreLabel(rest.get(0));
-        List<CoreLabel> newRest = labelListCopy(rest.subList(1,rest.size()));
-        List<CoreLabel> newHead = labelListCopy(head);
-        newHead.add(token);
-        String orig = token.originalText();
-        String lower = token.originalText().toLowerCase();
-        String lemma = token.lemma();
-        String lemmalower = null;
-        if (!StringUtil.emptyString(token.lemma()))
-            lemmalower = token.lemma().toLowerCase();
-        String bestMatch = "", newString;
-        for (String s : candidates) {
-            newString = headString + "_" + orig;
-            //if (debug) System.out.println("findMultiWord(1): s, newString " + s + ", " + newString);
-            if (s.equals(newString)) {
-                if (newString.length() > bestMatch.length()) {
-                    result = labelListCopy(head);
-                    result.add(token);
-                    bestMatch = newString;
-                    token.set(MultiWordFormAnnotation.class,orig);
-                }
-            }
-            else if (s.startsWith(newString)) {
-                token.set(MultiWordFormAnnotation.class,orig);
-                newResult = findMultiWord(newHead,newRest,candidates);
-                newString = multiWordToKey(newResult,'_');
-                if (newString.length() > bestMatch.length()) {
-                    result = newResult;
-                    bestMatch = newString;
-                }
-            }
-
-            newString = headString + "_" + lemma;
-            if (s.equals(newString)) {
-                if (newString.length() > bestMatch.length()) {
-                    result = labelListCopy(head);
-                    result.add(token);
-                    bestMatch = newString;
-                    token.set(MultiWordFormAnnotation.class,lemma);
-                }
-            }
-            else if (s.startsWith(newString)) {
-                token.set(MultiWordFormAnnotation.class,lemma);
-                newResult = findMultiWord(newHead,newRest,candidates);
-                newString = multiWordToKey(newResult,'_');
-                if (newString.length() > bestMatch.length()) {
-                    result = newResult;
-                    bestMatch = newString;
-                }
-            }
-
-            newString = headString + "_" + lower;
-            if (s.equals(newString)) {
-                if (newString.length() > bestMatch.length()) {
-                    result = labelListCopy(head);
-                    result.add(token);
-                    bestMatch = newString;
-                    token.set(MultiWordFormAnnotation.class,lower);
-                }
-            }
-            else if (s.startsWith(newString)) {
-                token.set(MultiWordFormAnnotation.class,lower);
-                newResult = findMultiWord(newHead,newRest,candidates);
-                newString = multiWordToKey(newResult,'_');
-                if (newString.length() > bestMatch.length()) {
-                    result = newResult;
-                    bestMatch = newString;
-                }
-            }
-
-            newString = headString + "_" + lemmalower;
-            if (s.equals(newString)) {
-                if (newString.length() > bestMatch.length()) {
-                    result = labelListCopy(head);
-                    result.add(token);
-                    bestMatch = newString;
-                    token.set(MultiWordFormAnnotation.class,lemmalower);
-                }
-            }
-            else if (s.startsWith(newString)) {
-                token.set(MultiWordFormAnnotation.class,lemmalower);
-                newResult = findMultiWord(newHead,newRest,candidates);
-                newString = multiWordToKey(newResult,'_');
-                if (newString.length() > bestMatch.length()) {
-                    result = newResult;
-                    bestMatch = newString;
-                }
-            }
+    public MultiWordTrie getTrie() {
+
+        MultiWords m = mw;
+        MultiWordTrie t = trie;
+        if (t == null || trieSource != m) {
+            t = MultiWordTrie.get(m);
+            trieSource = m;
+            trie = t;
         }
-        return result;
+        return t;
     }
 
     /****************************************************************
-     * First part of the algorithm just to match the head of any multiword
+     * @return the longest multiword starting at token i of the
+     * sentence, with each token copied and given the
+     * MultiWordFormAnnotation that matched, or an empty list if there
+     * is none
      */
-    public List<CoreLabel> findMultiWord(CoreLabel token, List<CoreLabel> rest) {
-
+    public List<CoreLabel> findMultiWord(List<CoreLabel> tokens, int i) {
 
         List<CoreLabel> result = new ArrayList<>();
-        String orig = token.originalText();
-        String lower = token.originalText().toLowerCase();
-        String lemma = token.lemma();
-        String lemmalower = null;
-        if (!StringUtil.emptyString(token.lemma()))
-            lemmalower = token.lemma().toLowerCase();
-        //if (debug) System.out.println("findMultiWord(2): " + orig + " : " + lemma);
-        //if (debug) System.out.println("findMultiWord(2): matches: " + mw.multiWord.get(orig).size());
-        if (mw.multiWordSerialized.containsKey(orig)) {
-            Collection<String> candidates = mw.multiWordSerialized.get(orig);
-            List<CoreLabel> head = new ArrayList<>();
-            head.add(new CoreLabel(token));
-            head.get(0).set(MultiWordFormAnnotation.class,orig);
-            List<CoreLabel> newres = findMultiWord(head,rest,candidates);
-            if (newres != null && newres.size() > result.size()) {
-                result = newres;
-            }
-        }
-        if (mw.multiWordSerialized.containsKey(lower)) {
-            Collection<String> candidates = mw.multiWordSerialized.get(lower);
-            List<CoreLabel> head = new ArrayList<>();
-            head.add(new CoreLabel(token));
-            head.get(0).set(MultiWordFormAnnotation.class,lower);
-            List<CoreLabel> newres = findMultiWord(head,rest,candidates);
-            if (newres != null && newres.size() > result.size()) {
-                result = newres;
-            }
-        }
-        if (mw.multiWordSerialized.containsKey(lemma)) {
-            Collection<String> candidates = mw.multiWordSerialized.get(lemma);
-            List<CoreLabel> head = new ArrayList<>();
-            head.add(new CoreLabel(token));
-            head.get(0).set(MultiWordFormAnnotation.class,lemma);
-            List<CoreLabel> newres = findMultiWord(head,rest,candidates);
-            if (newres != null && newres.size() > result.size()) {
-                result = newres;
-            }
-        }
-        if (mw.multiWordSerialized.containsKey(lemmalower)) {
-            Collection<String> candidates = mw.multiWordSerialized.get(lemmalower);
-            List<CoreLabel> head = new ArrayList<>();
-            head.add(new CoreLabel(token));
-            head.get(0).set(MultiWordFormAnnotation.class,lemmalower);
-            List<CoreLabel> newres = findMultiWord(head,rest,candidates);
-            if (newres != null && newres.size() > result.size()) {
-                result = newres;
-            }
+        MultiWordTrie.Match m = getTrie().longestMatch(MultiWordTrie.sentenceForms(tokens), i);
+        if (m == null)
+            return result;
+        CoreLabel cl;
+        for (int index = m.start; index < m.end; index++) {
+            cl = new CoreLabel(tokens.get(index));
+            cl.set(MultiWordFormAnnotation.class, m.forms[index - m.start]);
+            result.add(cl);
         }
         return result;
     }
 
     /****************************************************************
      * Look for multiwords in the sentence starting from the first
-     * CoreLabel, calling findMultiWord()
+     * CoreLabel, taking the longest match in the trie at each token
+     * and then carrying on from the token after it
      */
     public void annotateSentence(List<CoreLabel> tokens) {
 
@@ -280,20 +164,20 @@ public abstract class MultiWordAnnotator implements Annotator {
         if (tokens.size() < 2)
             return;
 
-        List<CoreLabel> rest, multiWord;
-        CoreLabel token, tok;
+        MultiWordTrie t = getTrie();
+        String[][] forms = MultiWordTrie.sentenceForms(tokens);
+        MultiWordTrie.Match multiWord;
+        CoreLabel tok;
         String key, sumo;
         int end;
         IntPair ip;
         for (int i = 0; i < tokens.size() - 1; i++) { // don't try just the last token since one token can't be multiword
-            rest = tokens.subList(i+1,tokens.size());
-            token = tokens.get(i);
-            if (debug) System.out.println("annotateSentence(): token: " + token);
-            multiWord = findMultiWord(token, rest);
-            if (debug) System.out.println("annotateSentence(): multiword: " + multiWord);
-            if (!multiWord.isEmpty()) {
-                key = multiWordToKey(multiWord,'_');
-                end = i + multiWord.size();
+            multiWord = t.longestMatch(forms, i);
+            if (debug) System.out.println("annotateSentence(): token: " + tokens.get(i) + " multiword: " +
+                    (multiWord == null ? null : multiWord.key()));
+            if (multiWord != null) {
+                key = multiWord.key();
+                end = multiWord.end;
                 for (int index = i; index < end; index++) {
                     tok = tokens.get(index);  // note that token index is token number -1
                     tok.set(multiWordAnno,findSynset(key));
@@ -310,7 +194,7 @@ public abstract class MultiWordAnnotator implements Annotator {
                         if (debug) System.out.println("annotateSentence(): multiword token: " + key);
                     }
                 }
-                i = end; // skip to end of current multiWord
+                i = end - 1; // carry on from the token after the current multiWord
             }
         }
     }
@@ -329,6 +213,9 @@ public abstract class MultiWordAnnotator implements Annotator {
         if (!annotation.containsKey(CoreAnnotations.SentencesAnnotation.class))
             throw new RuntimeException("Unable to find sentences in " + annotation);
 
+        MultiWords m = mw;
+        trie = MultiWordTrie.get(m);
+        trieSource = m;
         List<CoreMap> sentences = annotation.get(CoreAnnotations.SentencesAnnotation.class);
         List<CoreLabel> tokens;
         for (CoreMap sentence : sentences) {
@@ -0,0 +1,247 @@
+package com.articulate.nlp;
+
+import com.articulate.sigma.utils.StringUtil;
+import com.articulate.sigma.wordNet.MultiWords;
+
+import edu.stanford.nlp.ling.CoreLabel;
+
+import java.util.*;
+
+/** ***************************************************************
+ * A token-level trie of the multiwords in a MultiWords instance,
+ * such as WordNet's or the one built from DBPedia.  Each multiword
+ * in MultiWords.multiWordSerialized, which is keyed by its first
+ * word, is split on '_' into the path of words that leads to a
+ * terminal node.  Finding the longest multiword that starts at a
+ * token is then a walk down the trie, trying the original text,
+ * lemma and lowercase forms of each following token, with no copying
+ * of tokens or building of candidate strings.
+ *
+ * A trie is built once for each MultiWords and then shared, read-only,
+ * by every annotator and thread that uses it.  The tries are held
+ * weakly by their MultiWords, so a MultiWords that is no longer used
+ * can be collected with its trie, and each records a fingerprint of
+ * the multiwords it was built from, so it is built again once they
+ * have changed.
+ */
+public class MultiWordTrie {
+
+    public static boolean debug = false;
+
+    // MultiWords doesn't override equals(), so this is keyed by identity
+    private static final Map<MultiWords, MultiWordTrie> tries = new WeakHashMap<>();
+
+    private final Node root = new Node();
+    private int size = 0;
+    private int maxDepth = 0;
+    private long version = -1; // fingerprint() of the multiwords when built
+
+    /** ***************************************************************
+     */
+    private static class Node {
+
+        HashMap<String, Node> children = null;
+        boolean terminal = false;
+
+        Node child(String word) {
+            return (children == null) ? null : children.get(word);
+        }
+
+        Node add(String word) {
+            if (children == null)
+                children = new HashMap<>(4);
+            return children.computeIfAbsent(word, k -> new Node());
+        }
+    }
+
+    /** ***************************************************************
+     * The result of a match: the index of its first token, the index
+     * just past its last token and the form of each word that matched
+     */
+    public static class Match {
+
+        public final int start;
+        public final int end;
+        public final String[] forms;
+
+        Match(int start, int end, String[] forms) {
+            this.start = start;
+            this.end = end;
+            this.forms = forms;
+        }
+
+        /** ***************************************************************
+         * @return the multiword as stored in MultiWords, such as "answering_machine"
+         */
+        public String key() {
+            return String.join("_", forms);
+        }
+
+        public int size() {
+            return end - start;
+        }
+    }
+
+    /** ***************************************************************
+     * @param multiWords a map from the first word of each multiword to
+     *                   the underscore-separated multiwords that start with it
+     */
+    public MultiWordTrie(Map<String, ? extends Collection<String>> multiWords) {
+
+        String[] words;
+        Node n;
+        for (Map.Entry<String, ? extends Collection<String>> e : multiWords.entrySet()) {
+            String head = e.getKey();
+            if (StringUtil.emptyString(head) || e.getValue() == null)
+                continue;
+            for (String s : e.getValue()) {
+                if (s == null || !s.startsWith(head + "_") || s.length() == head.length() + 1)
+                    continue;
+                words = s.substring(head.length() + 1).split("_");
+                n = root.add(head);
+                for (String w : words)
+                    n = n.add(w);
+                if (!n.terminal) {
+                    n.terminal = true;
+                    size++;
+                    maxDepth = Math.max(maxDepth, words.length + 1);
+                }
+            }
+        }
+        if (debug) System.out.println("MultiWordTrie(): " + size + " multiwords, longest " + maxDepth);
+    }
+
+    /** ***************************************************************
+     * @return the number of heads and of the multiwords of each, which
+     * changes when multiwords are added or removed.  It takes one pass
+     * over the heads but none over the multiwords.
+     */
+    static long fingerprint(Map<String, ? extends Collection<String>> multiWords) {
+
+        long result = multiWords.size();
+        for (Collection<String> c : multiWords.values())
+            result = result * 31 + ((c == null) ? 0 : c.size());
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return the trie for the given MultiWords, building it the first
+     * time it is asked for, or again if its multiwords have changed
+     */
+    public static MultiWordTrie get(MultiWords mw) {
+
+        long version = fingerprint(mw.multiWordSerialized);
+        synchronized (tries) {
+            MultiWordTrie trie = tries.get(mw);
+            if (trie == null || trie.version != version) {
+                long t = System.currentTimeMillis();
+                trie = new MultiWordTrie(mw.multiWordSerialized);
+                trie.version = version;
+                tries.put(mw, trie);
+                System.out.println("INFO in MultiWordTrie.get(): built trie of " + trie.size +
+                        " multiwords in " + (System.currentTimeMillis() - t) + " ms");
+            }
+            return trie;
+        }
+    }
+
+    /** ***************************************************************
+     */
+    public int size() {
+
+        return size;
+    }
+
+    /** ***************************************************************
+     * The forms of a token that may match a word of a multiword, in the
+     * order they are tried, without duplicates or nulls
+     */
+    public static String[] forms(CoreLabel token) {
+
+        String orig = token.originalText();
+        String lemma = token.lemma();
+        String lower = (orig == null) ? null : orig.toLowerCase();
+        String lemmalower = StringUtil.emptyString(lemma) ? null : lemma.toLowerCase();
+        String[] all = new String[] {orig, lemma, lower, lemmalower};
+        int n = 0;
+        for (int i = 0; i < all.length; i++) {
+            if (StringUtil.emptyString(all[i]))
+                continue;
+            boolean dup = false;
+            for (int j = 0; j < n; j++)
+                if (all[j].equals(all[i]))
+                    dup = true;
+            if (!dup)
+                all[n++] = all[i];
+        }
+        return Arrays.copyOf(all, n);
+    }
+
+    /** ***************************************************************
+     * @param forms the forms of each token of a sentence, from forms()
+     * @return the longest multiword, in tokens, that starts at the
+     * given token, or null if there is none.  Among matches of the same
+     * length the one with the longest key wins, and then the first
+     * found, trying original text before lemma before lowercase.
+     */
+    public Match longestMatch(String[][] forms, int start) {
+
+        if (start >= forms.length - 1)
+            return null;
+        boolean head = false;
+        for (String f : forms[start])
+            if (root.child(f) != null)
+                head = true;
+        if (!head)
+            return null;
+        int depth = Math.min(maxDepth, forms.length - start);
+        int[] path = new int[depth];
+        int[] best = new int[depth];
+        int[] bestLen = new int[] {0, 0}; // tokens, characters
+        walk(root, forms, start, 0, 0, path, best, bestLen);
+        if (bestLen[0] < 2)
+            return null;
+        String[] result = new String[bestLen[0]];
+        for (int i = 0; i < result.length; i++)
+            result[i] = forms[start + i][best[i]];
+        return new Match(start, start + result.length, result);
+    }
+
+    /** ***************************************************************
+     * Depth-first walk recording the best terminal reached so far
+     */
+    private static void walk(Node n, String[][] forms, int start, int depth, int chars,
+                             int[] path, int[] best, int[] bestLen) {
+
+        if (depth >= path.length)
+            return;
+        String[] f = forms[start + depth];
+        Node child;
+        for (int i = 0; i < f.length; i++) {
+            child = n.child(f[i]);
+            if (child == null)
+                continue;
+            path[depth] = i;
+            int c = chars + f[i].length();
+            if (child.terminal && depth >= 1 &&
+                    (depth + 1 > bestLen[0] || (depth + 1 == bestLen[0] && c > bestLen[1]))) {
+                System.arraycopy(path, 0, best, 0, depth + 1);
+                bestLen[0] = depth + 1;
+                bestLen[1] = c;
+            }
+            if (child.children != null)
+                walk(child, forms, start, depth + 1, c, path, best, bestLen);
+        }
+    }
+
+    /** ***************************************************************
+     * @return the forms of every token of a sentence, for longestMatch()
+     */
+    public static String[][] sentenceForms(List<CoreLabel> tokens) {
+
+        String[][] result = new String[tokens.size()][];
+        for (int i = 0; i < result.length; i++)
+            result[i] = forms(tokens.get(i));
+        return result;
+    }
+}
@@ -13,7 +13,7 @@ import java.util.*;
 public class RandSet {
 
     public ArrayList<String> terms = new ArrayList<String>();
-    public Random rand = new Random();
+    public Random rand = new GenRandom();
 
     /** ***************************************************************
      */
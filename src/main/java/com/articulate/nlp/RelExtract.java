@@ -841,10 +841,7 @@ public class RelExtract {
         System.out.println("RelExtract.sentenceExtract(): input: " + newInput);
         Set<String> preds = newInput.getPreds();
         Set<String> terms = newInput.getTerms();
-        for (int i = 0; i < rs.rules.size(); i++) {
-            if (!interp.termCoverage(preds, terms, rs.rules.get(i)))
-                continue;
-            Rule r = rs.rules.get(i).deepCopy();
+        for (Rule r : rs.getIndex().candidates(preds, terms)) { // neither unify() nor applyBindings() modify the rule
             if (debug) System.out.println("RelExtract.sentenceExtract(): r: " + r);
             Subst bindings = r.cnf.unify(newInput);
             if (bindings != null) {
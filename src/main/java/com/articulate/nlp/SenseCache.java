@@ -0,0 +1,335 @@
+package com.articulate.nlp;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/** ***************************************************************
+ * A bounded, thread-safe cache of word senses and their SUMO terms,
+ * keyed by lemma, part of speech and a signature of the sentence the
+ * word appeared in, so that a sentence or context seen before needn't
+ * be disambiguated again.  The least recently used entries are dropped
+ * once the cache is full.  To keep threads from waiting on each other
+ * the cache is split into segments, each with its own lock.
+ *
+ * The cache can be saved to and loaded from a tab-separated file so
+ * that it survives between runs.  The file records the size and
+ * modification time of the files the senses came from, such as the
+ * WordNet files and SUMO mappings, and isn't loaded if any of them
+ * has changed, so the cache is built again from the new ones.
+ */
+public class SenseCache {
+
+    public static boolean debug = false;
+
+    private static final String HEADER = "# SenseCache 2";
+    private static final String SOURCES = "# sources";
+    private static final int SEGMENTS = 16;
+
+    /** ***************************************************************
+     * The result of disambiguating one word, where either string may
+     * be empty if nothing was found
+     */
+    public static class Entry {
+
+        public final String sense;
+        public final String sumo;
+
+        public Entry(String sense, String sumo) {
+            this.sense = (sense == null) ? "" : sense;
+            this.sumo = (sumo == null) ? "" : sumo;
+        }
+    }
+
+    /** ***************************************************************
+     */
+    private static class Segment extends LinkedHashMap<String, Entry> {
+
+        private final int capacity;
+        private final LongAdder evictions;
+
+        Segment(int capacity, LongAdder evictions) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+            this.evictions = evictions;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final int maxSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /** ***************************************************************
+     * @param maxSize the most entries kept, which is rounded up to a
+     *                multiple of the number of segments
+     */
+    public SenseCache(int maxSize) {
+
+        if (maxSize < 1)
+            throw new IllegalArgumentException("SenseCache(): maxSize must be positive");
+        int perSegment = (maxSize + SEGMENTS - 1) / SEGMENTS;
+        this.maxSize = perSegment * SEGMENTS;
+        for (int i = 0; i < SEGMENTS; i++)
+            segments[i] = new Segment(perSegment, evictions);
+    }
+
+    /** ***************************************************************
+     * @return a 64 bit FNV-1a hash of the words of a sentence, in order
+     */
+    public static long contextSignature(List<String> words) {
+
+        long h = 0xcbf29ce484222325L;
+        for (String w : words) {
+            if (w != null) {
+                for (int i = 0; i < w.length(); i++) {
+                    h ^= w.charAt(i);
+                    h *= 0x100000001b3L;
+                }
+            }
+            h ^= 0x1f; // separator, so that "ab c" and "a bc" differ
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /** ***************************************************************
+     */
+    public static String key(String lemma, int pos, long signature) {
+
+        return lemma + "\t" + pos + "\t" + Long.toHexString(signature);
+    }
+
+    /** ***************************************************************
+     */
+    private Segment segment(String key) {
+
+        int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    /** ***************************************************************
+     * @return the cached entry, or null if there is none
+     */
+    public Entry get(String key) {
+
+        Segment s = segment(key);
+        Entry e;
+        synchronized (s) {
+            e = s.get(key);
+        }
+        if (e == null)
+            misses.increment();
+        else
+            hits.increment();
+        return e;
+    }
+
+    /** ***************************************************************
+     */
+    public void put(String key, Entry e) {
+
+        Segment s = segment(key);
+        synchronized (s) {
+            s.put(key, e);
+        }
+    }
+
+    /** ***************************************************************
+     */
+    public int size() {
+
+        int result = 0;
+        for (Segment s : segments) {
+            synchronized (s) {
+                result += s.size();
+            }
+        }
+        return result;
+    }
+
+    /** ***************************************************************
+     */
+    public int getMaxSize() {
+
+        return maxSize;
+    }
+
+    /** ***************************************************************
+     */
+    public long getHits() {
+
+        return hits.sum();
+    }
+
+    /** ***************************************************************
+     */
+    public long getMisses() {
+
+        return misses.sum();
+    }
+
+    /** ***************************************************************
+     */
+    public long getEvictions() {
+
+        return evictions.sum();
+    }
+
+    /** ***************************************************************
+     */
+    public double hitRate() {
+
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /** ***************************************************************
+     */
+    public void clear() {
+
+        for (Segment s : segments) {
+            synchronized (s) {
+                s.clear();
+            }
+        }
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    /** ***************************************************************
+     * @return the size and modification time of each file, in the order
+     * given, with -1 for a missing file
+     */
+    public static long[] fingerprint(List<File> sources) {
+
+        long[] result = new long[sources.size() * 2];
+        for (int i = 0; i < sources.size(); i++) {
+            File f = sources.get(i);
+            result[i * 2] = f.exists() ? f.length() : -1;
+            result[i * 2 + 1] = f.exists() ? f.lastModified() : -1;
+        }
+        return result;
+    }
+
+    /** ***************************************************************
+     */
+    private static String sourcesLine(long[] fingerprint) {
+
+        StringBuilder sb = new StringBuilder(SOURCES);
+        for (long value : fingerprint)
+            sb.append('\t').append(value);
+        return sb.toString();
+    }
+
+    /** ***************************************************************
+     * Write the cache with no source files
+     */
+    public void save(String filename) throws IOException {
+
+        save(filename, new long[0]);
+    }
+
+    /** ***************************************************************
+     * Write the cache, one entry per line as the key followed by the
+     * sense and SUMO term, all separated by tabs, after a line with the
+     * fingerprint of the source files.  The file is written under a
+     * temporary name and then moved, so a reader never sees a partial
+     * file.
+     */
+    public void save(String filename, long[] fingerprint) throws IOException {
+
+        Path path = Paths.get(filename);
+        Path tmp = Paths.get(filename + ".tmp");
+        int count = 0;
+        try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(tmp, StandardCharsets.UTF_8))) {
+            pw.println(HEADER);
+            pw.println(sourcesLine(fingerprint));
+            for (Segment s : segments) {
+                synchronized (s) {
+                    for (Map.Entry<String, Entry> e : s.entrySet()) {
+                        pw.print(e.getKey());
+                        pw.print('\t');
+                        pw.print(e.getValue().sense);
+                        pw.print('\t');
+                        pw.println(e.getValue().sumo);
+                        count++;
+                    }
+                }
+            }
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        System.out.println("INFO in SenseCache.save(): wrote " + count + " entries to " + filename);
+    }
+
+    /** ***************************************************************
+     * Add the entries of a file saved with no source files
+     */
+    public int load(String filename) throws IOException {
+
+        return load(filename, new long[0]);
+    }
+
+    /** ***************************************************************
+     * Add the entries of a file written by save(), stopping once the
+     * cache is full, unless it was saved with another fingerprint of
+     * the source files.  Lines that aren't well formed are skipped.
+     * @return the number of entries read
+     */
+    public int load(String filename, long[] fingerprint) throws IOException {
+
+        int count = 0;
+        try (BufferedReader br = Files.newBufferedReader(Paths.get(filename), StandardCharsets.UTF_8)) {
+            String line = br.readLine();
+            if (!HEADER.equals(line)) {
+                System.err.println("Error in SenseCache.load(): " + filename +
+                        " is not a sense cache, or is of another version");
+                return 0;
+            }
+            line = br.readLine();
+            if (!sourcesLine(fingerprint).equals(line)) {
+                System.out.println("INFO in SenseCache.load(): the source files have changed since " +
+                        filename + " was saved; not loading it");
+                return 0;
+            }
+            String[] parts;
+            while ((line = br.readLine()) != null && count < maxSize) {
+                parts = line.split("\t", -1);
+                if (parts.length != 5) {
+                    if (debug) System.out.println("SenseCache.load(): bad line: " + line);
+                    continue;
+                }
+                put(parts[0] + "\t" + parts[1] + "\t" + parts[2], new Entry(parts[3], parts[4]));
+                count++;
+            }
+        }
+        System.out.println("INFO in SenseCache.load(): read " + count + " entries from " + filename);
+        return count;
+    }
+
+    /** ***************************************************************
+     */
+    public String toString() {
+
+        return String.format("SenseCache: size: %d/%d hits: %d misses: %d evictions: %d hit rate: %.3f",
+                size(), maxSize, getHits(), getMisses(), getEvictions(), hitRate());
+    }
+}
@@ -31,6 +31,18 @@ import com.google.common.io.Resources;
 
 import java.io.*;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -40,21 +52,56 @@ import static com.google.common.base.Strings.isNullOrEmpty;
 
 public class TFIDF {
 
-    // inverse document frequency = log of number of documents divided by
-    // number of documents in which a term appears
-    private HashMap<String,Float> idf = new HashMap<String,Float>();
-
-    // number of documents in which a term appears
-    private HashMap<String,Integer> docfreq = new HashMap<String,Integer>();
+    public static boolean debug = false;
 
-    // the length of a vector composed from each term frequency
-    private HashMap<Integer,Float> euclid = new HashMap<Integer,Float>();
+    // each distinct term, whose index in terms is its id in the arrays
+    // below, except for a model opened from a snapshot, where these only
+    // have the terms added since
+    private HashMap<String,Integer> termIds = new HashMap<String,Integer>();
+    private ArrayList<String> terms = new ArrayList<String>();
+    private int termCount = 0;
 
-    // number of times a term appears in a document (where each document is an Integer index)
-    private HashMap<Integer,HashMap<String,Integer>> tf = new HashMap<Integer,HashMap<String,Integer>>();
+    // number of documents in which a term appears, by term id
+    private int[] docfreq = new int[64];
 
-    // tf * idf (where each document is an Integer index)
-    private HashMap<Integer,HashMap<String,Float>> tfidf = new HashMap<Integer,HashMap<String,Float>>();
+    // inverse document frequency = log of number of documents divided by
+    // number of documents in which a term appears, by term id, as of the
+    // last time the document vectors were calculated
+    private float[] idf = new float[64];
+
+    // The documents, by line number, as compressed sparse rows.  The
+    // terms of document d are rowTerms[docStart[d]] up to, but not
+    // including, rowTerms[docStart[d+1]], in ascending order of term id.
+    // rowTf has the number of times each term appears in the document and
+    // rowWeight its tf * idf divided by the length of the document's
+    // vector.  A line with no terms but stop words has an empty row.
+    private int rowCount = 0;
+    private int[] docStart = new int[65];
+    private int[] rowTerms = new int[256];
+    private int[] rowTf = new int[256];
+    private float[] rowWeight = new float[256];
+
+    // the length of the tf * idf vector of each document
+    private float[] euclid = new float[64];
+
+    // docStart, rowTerms and rowWeight as they are read when scoring,
+    // either wrapping the arrays or mapped from a snapshot
+    private IntBuffer docStartView = IntBuffer.wrap(docStart);
+    private IntBuffer rowTermsView = IntBuffer.wrap(rowTerms);
+    private FloatBuffer rowWeightView = FloatBuffer.wrap(rowWeight);
+
+    // the terms of the query, which is document -1, and the number of
+    // times each appears in it, in ascending order of term id
+    private int[] queryTerms = null;
+    private int[] queryTf = null;
+
+    // the query's tf * idf divided by the length of its vector
+    private float[] queryWeight = null;
+    private float queryEuclid = 0;
+
+    // for counting each term once per document in processDoc()
+    private int[] seen = new int[64];
+    private int stamp = 0;
 
     /** English "stop words" such as "a", "at", "them", which have no or little
      * inherent meaning when taken alone. */
@@ -68,11 +115,65 @@ public class TFIDF {
 
     private static boolean asResource = false; // use JUnit resource path for input file
 
-    // similarity of each document to the query (index -1)
-    private HashMap<Integer,Float> docSim = new HashMap<Integer,Float>();
-
     private Random rand = new Random();
 
+    // When incremental, adding a line only updates its row and docfreq, and
+    // idf and the weights are recalculated once, before the next query, with
+    // the document count of the last line added.  That gives the same results
+    // as recalculating them after every line, which is what happens when
+    // incremental is false.
+    public boolean incremental = true;
+    private boolean stale = false;
+    private int staleDocCount = 0;
+
+    // lines, for checking whether an input has been added before, made
+    // the first time addInput() is called
+    private HashSet<String> lineSet = null;
+
+    // When useIndex is true, matchInput() and matchInputNScored() keep
+    // only the n highest scores as they are found, rather than taking them
+    // from matchInputFull().  When prune is also true, terms that can't
+    // change the top n are skipped for documents not yet seen, which can
+    // drop a document whose score exactly ties another's.
+    public boolean useIndex = true;
+    public boolean prune = false;
+
+    // The inverted index, as compressed sparse columns of the rows above:
+    // the documents containing term t are postDocs[postStart[t]] up to
+    // postDocs[postStart[t+1]], ascending, with the term's weight in each
+    // in postWeights, and postMax[t] is the largest of those weights.
+    // It is built from the rows when first needed, and covers the first
+    // indexedRows rows.  Rows added after those are scored from the rows
+    // themselves until there are enough of them to rebuild the index.
+    // postRow[i] is where the weight in postWeights[i] is in rowWeight, so
+    // the weights can be copied over when they are recalculated.
+    private IntBuffer postStart = null;
+    private IntBuffer postDocs = null;
+    private FloatBuffer postWeights = null;
+    private FloatBuffer postMax = null;
+    private int[] postRow = null;
+    private int indexedRows = 0;
+    private boolean indexNonNegative = true; // no weight is below zero
+
+    // A model opened from a snapshot reads its rows, inverted index and
+    // terms from the mapped file until a line is added, when they are
+    // copied into the arrays above.  Its terms are found by binary search
+    // of their ids sorted by the terms' UTF-8 bytes.
+    private static final int SNAPSHOT_MAGIC = 0x54464944; // "TFID"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int SNAPSHOT_SECTIONS = 16;
+    private int snapshotTerms = 0;
+    private IntBuffer sortedTerms = null;
+    private IntBuffer termOffsets = null;
+    private ByteBuffer termBytes = null;
+    private IntBuffer snapshotTf = null;
+    private FloatBuffer snapshotEuclid = null;
+
+    private float[] acc = new float[0];   // score accumulators by doc id
+    private boolean[] hit = new boolean[0];
+    private float[] queryDense = new float[0]; // query weights by term id, for rank()
+
+
     /** ***************************************************************
      */
     public TFIDF(String stopwordsFilename) throws IOException {
@@ -128,8 +229,7 @@ public class TFIDF {
         rand.setSeed(18021918); // Makes test results consistent
         readStopWords(stopwordsFilename);
         readDocuments(documents);
-        calcIDF(documents.size());
-        calcTFIDF();
+        calcTFIDF(documents.size());
     }
 
     /** ***************************************************************
@@ -289,89 +389,103 @@ public class TFIDF {
                 .collect(Collectors.toCollection(ArrayList<String>::new));
     }
 
+    /** ***************************************************************
+     * @return the array, or a copy at least size long
+     */
+    private static int[] ensure(int[] a, int size) {
+
+        if (a.length >= size)
+            return a;
+        return Arrays.copyOf(a, Math.max(size, a.length * 2));
+    }
+
+    /** ***************************************************************
+     */
+    private static float[] ensure(float[] a, int size) {
+
+        if (a.length >= size)
+            return a;
+        return Arrays.copyOf(a, Math.max(size, a.length * 2));
+    }
+
+    /** ***************************************************************
+     * @return the id of a term, or -1 if it's new
+     */
+    private int lookup(String term) {
+
+        Integer id = termIds.get(term);
+        if (id != null)
+            return id.intValue();
+        if (sortedTerms != null)
+            return findSnapshotTerm(term.getBytes(StandardCharsets.UTF_8));
+        return -1;
+    }
+
+    /** ***************************************************************
+     * @return the id of a new term
+     */
+    private int addTerm(String term) {
+
+        int result = termCount++;
+        terms.add(term);
+        termIds.put(term, result);
+        docfreq = ensure(docfreq, termCount);
+        idf = ensure(idf, termCount);
+        seen = ensure(seen, termCount);
+        return result;
+    }
+
     /** ***************************************************************
      * inverse document frequency = log of number of documents divided by
-     * number of documents in which a term appears.
-     * Note that if the query is included as index -1 then it will
-     * get processed too. Put the results into
-     * HashMap<String,Float> idf
-     */
-    private void calcIDF(int docCount) {
-
-        //System.out.print("Info in TFIDF.calcIDF(): ");
-        //ProgressPrinter pp = new ProgressPrinter(1000);
-        //Iterator<String> it = docfreq.keySet().iterator();
-        // while (it.hasNext()) {
-        //    String token = it.next();
-        //pp.tick();
-        //   float f = (float) Math.log10((float) docCount / (float) docfreq.get(token));
-        //System.out.println("token: " + token + ", docCount: " + docCount + ", docFreq: " + docfreq.get(token) + ", idf: " + f);
-        //   idf.put(token,new Float(f));
-        //}
-        idf.putAll(docfreq.keySet().stream().
-                collect(Collectors.toMap((t) -> t,t -> ((float) Math.log10((float) docCount / (float) docfreq.get(t))))));
-        //System.out.println("Info in TFIDF.calcIDF(): " + idf);
-        //System.out.println();
-    }
-
-    /** ***************************************************************
-     * Calculate TF/IDF and put the results in
-     * HashMap<Integer,HashMap<String,Float>> tfidf
-     * In the process, calculate the euclidean distance of the word
-     * vectors and put in HashMap<Integer,Float> euclid
-     * Note that if the query is included as index -1 then it will
-     * get processed too.
-     */
-    private void calcOneTFIDF(Integer int1) {
-
-        HashMap<String,Integer> tftermlist = tf.get(int1);
-        if (tftermlist == null) {
-            System.out.println("Error in calcOneTFIDF(): bad index: " + int1);
-            return;
-        }
-        //System.out.println("Info in TFIDF.calcOneTFIDF(): index: " + int1);
-        HashMap<String,Float> tfidflist = new HashMap<String,Float>();
-        float euc = 0;
-        Iterator<String> it2 = tftermlist.keySet().iterator();
-        while (it2.hasNext()) {
-            String term = it2.next();
-            int tfint = tftermlist.get(term).intValue();
-            float idffloat = idf.get(term).floatValue();
-            float tfidffloat = idffloat * tfint;
-            tfidflist.put(term,Float.valueOf(tfidffloat));
-            euc = euc + (tfidffloat * tfidffloat);
-        }
-        euclid.put(int1, Float.valueOf((float) Math.sqrt(euc)));
-        tfidf.put(int1, tfidflist);
-        //System.out.println("Info in TFIDF.calcOneTFIDF():euclid: " + euclid);
-        //System.out.println("Info in TFIDF.calcOneTFIDF():TF/IDF: " + tfidf);
+     * number of documents in which a term appears
+     */
+    private float calcIDF(int term, int docCount) {
+
+        return (float) Math.log10((float) docCount / (float) docfreq[term]);
     }
 
     /** ***************************************************************
-     * Calculate TF/IDF and put results in
-     * HashMap<Integer,HashMap<String,Float>> tfidf
-     * Note that if the query is included as index -1 then it will
-     * get processed too.
-     * This calls calcOneTFIDF() that does most of the work.
+     * Calculate idf for every term from docCount documents, then the
+     * tf * idf weights of every document, divided by the length of the
+     * document's vector, which goes in euclid
      */
-    private void calcTFIDF() {
+    private void calcTFIDF(int docCount) {
 
         System.out.print("Info in TFIDF.calcTFIDF(): TF/IDF: ");
+        thaw();
+        for (int t = 0; t < termCount; t++)
+            idf[t] = calcIDF(t, docCount);
+        euclid = ensure(euclid, rowCount);
         ProgressPrinter pp = new ProgressPrinter(1000);
-        tf.keySet().stream()
-                .forEach(s -> {calcOneTFIDF(s.intValue());
-                    pp.tick();} );
-        //System.out.println("Info in TFIDF.calcTFIDF(): TF/IDF: " + tfidf);
+        for (int d = 0; d < rowCount; d++) {
+            float euc = 0;
+            for (int i = docStart[d]; i < docStart[d + 1]; i++) {
+                float tfidffloat = idf[rowTerms[i]] * rowTf[i];
+                euc = euc + (tfidffloat * tfidffloat);
+            }
+            euc = (float) Math.sqrt(euc);
+            euclid[d] = euc;
+            for (int i = docStart[d]; i < docStart[d + 1]; i++) {
+                float tfidffloat = idf[rowTerms[i]] * rowTf[i];
+                rowWeight[i] = (euc != 0) ? tfidffloat / euc : 0;
+            }
+            pp.tick();
+        }
+        docStartView = IntBuffer.wrap(docStart);
+        rowTermsView = IntBuffer.wrap(rowTerms);
+        rowWeightView = FloatBuffer.wrap(rowWeight);
+        refreshIndex();
         System.out.println();
     }
 
     /** ***************************************************************
-     * sets the values in tf (term frequency) and tdocfreq (count of
-     * documents in which a term appears)
+     * Count the terms of a document and update docfreq.  A term new to
+     * the corpus is counted in docfreq once, or twice if it appears more
+     * than once in the document, and a known term once per document.
      *
      * @param intlineCount is -1 for query
      */
-    private void processDoc(String doc, Integer intlineCount) {
+    private void processDoc(String doc, int intlineCount) {
 
         if (isNullOrEmpty(doc))
             return;
@@ -381,30 +495,71 @@ public class TFIDF {
             return;
         ArrayList<String> tokens = splitToArrayList(line.trim());
         //System.out.println("Info in TFIDF.ProcessDoc(): " + tokens);
-        HashSet<String> tokensNoDup = new HashSet<String>();
-        HashMap<String,Integer> tdocfreq = new HashMap<String,Integer>();
-        for (int i = 0; i < tokens.size(); i++) {
-            String token = tokens.get(i);
-            Integer tcount = Integer.valueOf(0);
-            if (tdocfreq.containsKey(token))
-                tcount = tdocfreq.get(token);
-            int tcountint = tcount.intValue() + 1;
-            tcount = Integer.valueOf(tcountint);
-            tdocfreq.put(token,tcount);
-            if (!docfreq.containsKey(token))
-                docfreq.put(token,Integer.valueOf(1));
+        stamp++;
+        int[] ids = new int[tokens.size()];
+        for (int i = 0; i < ids.length; i++) {
+            int id = lookup(tokens.get(i));
+            if (id < 0) {
+                id = addTerm(tokens.get(i));
+                docfreq[id] = 1;
+            }
+            else if (seen[id] != stamp) {
+                docfreq[id]++;
+                seen[id] = stamp;
+            }
+            ids[i] = id;
+        }
+        Arrays.sort(ids);
+        int n = 0;
+        int[] counts = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            if (n > 0 && ids[n - 1] == ids[i])
+                counts[n - 1]++;
             else {
-                if (!tokensNoDup.contains(token)) {
-                    Integer intval = docfreq.get(token);
-                    int intvalint = intval.intValue();
-                    docfreq.put(token,Integer.valueOf(intvalint + 1));
-                    tokensNoDup.add(token);
-                }
+                ids[n] = ids[i];
+                counts[n++] = 1;
             }
         }
-        //System.out.println("Info in TFIDF.ProcessDoc(): adding for doc# " + intlineCount + "\n freq: " + docfreq);
-        tf.put(intlineCount, tdocfreq);
-        //System.out.println("Info in TFIDF.ProcessDoc(): tf: " + tf);
+        if (intlineCount == -1) {
+            queryTerms = Arrays.copyOf(ids, n);
+            queryTf = Arrays.copyOf(counts, n);
+        }
+        else
+            setRow(intlineCount, ids, counts, n);
+    }
+
+    /** ***************************************************************
+     * Set the terms of a document, replacing any it had.  Documents are
+     * normally added after the last one, where this is cheap.
+     */
+    private void setRow(int doc, int[] ids, int[] counts, int n) {
+
+        thaw();
+        if (doc >= rowCount) {
+            docStart = ensure(docStart, doc + 2);
+            for (int d = rowCount + 1; d <= doc + 1; d++)
+                docStart[d] = docStart[rowCount];
+            rowCount = doc + 1;
+        }
+        int start = docStart[doc];
+        int end = docStart[doc + 1];
+        int total = docStart[rowCount];
+        int delta = n - (end - start);
+        if (delta != 0) {
+            rowTerms = ensure(rowTerms, total + delta);
+            rowTf = ensure(rowTf, total + delta);
+            rowWeight = ensure(rowWeight, total + delta);
+            System.arraycopy(rowTerms, end, rowTerms, end + delta, total - end);
+            System.arraycopy(rowTf, end, rowTf, end + delta, total - end);
+            System.arraycopy(rowWeight, end, rowWeight, end + delta, total - end);
+            for (int d = doc + 1; d <= rowCount; d++)
+                docStart[d] += delta;
+        }
+        System.arraycopy(ids, 0, rowTerms, start, n);
+        System.arraycopy(counts, 0, rowTf, start, n);
+        Arrays.fill(rowWeight, start, start + n, 0);
+        if (doc < indexedRows)
+            postStart = null; // the postings of the rows after it have moved
     }
 
     /** ***************************************************************
@@ -412,7 +567,10 @@ public class TFIDF {
     public void newLine(String line) {
 
         prepareLine(line);
-        calcDFs();
+        if (incremental)
+            markStale(lines.size() - 1);
+        else
+            calcDFs();
     }
 
     /** ***************************************************************
@@ -422,18 +580,43 @@ public class TFIDF {
         if (!isNullOrEmpty(line)) {
             int newLineIndex = lines.size();
             lines.add(line);
+            if (lineSet != null)
+                lineSet.add(line);
             //System.out.println(line);
             processDoc(line, newLineIndex);
         }
     }
 
+    /** ***************************************************************
+     * Note that idf and the weights need to be recalculated, for
+     * docCount documents, before they are next used
+     */
+    private void markStale(int docCount) {
+
+        stale = true;
+        staleDocCount = docCount;
+    }
+
+    /** ***************************************************************
+     * Recalculate idf and the weights if lines have been added since
+     * they were last calculated.  This must be called before a query is
+     * processed, since processing a query changes docfreq.
+     */
+    private void refresh() {
+
+        if (!stale)
+            return;
+        calcTFIDF(staleDocCount);
+        stale = false;
+    }
+
     /** ***************************************************************
      */
     protected void calcDFs() {
 
         System.out.println("Info in TFIDF.calcDFs(): Caclulate IDF, with size: " + lines.size());
-        calcIDF(lines.size() - 1);
-        calcTFIDF();
+        calcTFIDF(lines.size() - 1);
+        stale = false;
     }
 
     /** ***************************************************************
@@ -478,96 +661,606 @@ public class TFIDF {
     }
 
     /** ***************************************************************
-     * Assume that query is file index -1
-     * Calculate the similarity of each document in the input list to the query
-     */
-    private HashMap<Integer,Float> calcSomeDocSim(List<String> docs, String input) {
-
-        HashMap<Integer,Float> result = new HashMap<Integer,Float>();
-        // System.out.println("Info in TFIDF.calcSomeDocSim(): ");
-        Integer negone = Integer.valueOf(-1);
-        HashMap<String,Float> tfidflist = tfidf.get(negone);
-        HashMap<String,Float> normquery = new HashMap<String,Float>();
-        float euc = euclid.get(negone);
-        Iterator<String> it2 = tfidflist.keySet().iterator();
-        while (it2.hasNext()) {
-            String term = it2.next();
-            float tfidffloat = tfidflist.get(term).floatValue();
-            normquery.put(term,Float.valueOf(tfidffloat / euc));
-        }
-        //System.out.println("Info in TFIDF.calcDocSim(): normquery: " + normquery);
-        Iterator<String> it1 = docs.iterator();
-        while (it1.hasNext()) {
-            Integer int1 = Integer.parseInt(it1.next());
-            if (int1.intValue() != -1) {
-                tfidflist = tfidf.get(int1);
-                euc = euclid.get(int1);
-                float fval = 0;
-                Iterator<String> it3 = tfidflist.keySet().iterator();
-                while (it3.hasNext()) {
-                    String term = it3.next();
-                    float tfidffloat = tfidflist.get(term).floatValue();
-                    float query = 0;
-                    if (normquery.containsKey(term))
-                        query = normquery.get(term).floatValue();
-                    float normalize = 0;
-                    if (euc != 0)
-                        normalize = tfidffloat / euc;
-                    fval = fval + (normalize * query);
+     * Build the inverted index from the rows, so that the documents of
+     * each term are in ascending order
+     */
+    private void buildIndex() {
+
+        long t = System.currentTimeMillis();
+        thaw();
+        int total = docStart[rowCount];
+        int[] postStart = new int[termCount + 1];
+        int[] postDocs = new int[total];
+        int[] postRow = new int[total];
+        float[] postWeights = new float[total];
+        float[] postMax = new float[termCount];
+        Arrays.fill(postMax, Float.NEGATIVE_INFINITY);
+        indexNonNegative = true;
+        for (int i = 0; i < total; i++)
+            postStart[rowTerms[i] + 1]++;
+        for (int term = 0; term < termCount; term++)
+            postStart[term + 1] += postStart[term];
+        int[] next = Arrays.copyOf(postStart, termCount);
+        for (int d = 0; d < rowCount; d++) {
+            for (int i = docStart[d]; i < docStart[d + 1]; i++) {
+                int term = rowTerms[i];
+                float weight = rowWeight[i];
+                postDocs[next[term]] = d;
+                postRow[next[term]] = i;
+                postWeights[next[term]++] = weight;
+                if (weight > postMax[term])
+                    postMax[term] = weight;
+                if (weight < 0)
+                    indexNonNegative = false;
+            }
+        }
+        this.postStart = IntBuffer.wrap(postStart);
+        this.postDocs = IntBuffer.wrap(postDocs);
+        this.postWeights = FloatBuffer.wrap(postWeights);
+        this.postMax = FloatBuffer.wrap(postMax);
+        this.postRow = postRow;
+        indexedRows = rowCount;
+        ensureAccumulators();
+        if (debug) System.out.println("Info in TFIDF.buildIndex(): " + termCount + " terms for " +
+                rowCount + " documents in " + (System.currentTimeMillis() - t) + " ms");
+    }
+
+    /** ***************************************************************
+     * Copy the recalculated weights of the indexed rows into the
+     * inverted index, or drop the index if it was mapped from a
+     * snapshot, which has no postRow
+     */
+    private void refreshIndex() {
+
+        if (postStart == null)
+            return;
+        if (postRow == null) {
+            postStart = null;
+            return;
+        }
+        int indexed = postStart.limit() - 1;
+        indexNonNegative = true;
+        for (int term = 0; term < indexed; term++) {
+            float max = Float.NEGATIVE_INFINITY;
+            int end = postStart.get(term + 1);
+            for (int i = postStart.get(term); i < end; i++) {
+                float weight = rowWeight[postRow[i]];
+                postWeights.put(i, weight);
+                if (weight > max)
+                    max = weight;
+                if (weight < 0)
+                    indexNonNegative = false;
+            }
+            postMax.put(term, max);
+        }
+    }
+
+    /** ***************************************************************
+     * Build the inverted index if there is none, or if more than an
+     * eighth of the rows have been added since it was built
+     */
+    private void ensureIndex() {
+
+        if (postStart == null || rowCount - indexedRows > 64 + indexedRows / 8)
+            buildIndex();
+        ensureAccumulators();
+    }
+
+    /** ***************************************************************
+     */
+    private void ensureAccumulators() {
+
+        if (acc.length < rowCount) {
+            acc = new float[rowCount];
+            hit = new boolean[rowCount];
+        }
+    }
+
+    /** ***************************************************************
+     * Process the query as document -1 and calculate its weights, with
+     * idf from one more document than there are lines.  If the query has
+     * no terms but stop words the previous query is used again.
+     * @return false if there has been no query with terms
+     */
+    private boolean prepareQuery(String input) {
+
+        refresh();
+        processDoc(input, -1);
+        if (queryTerms == null)
+            return false;
+        int docCount = lines.size() + 1;
+        queryWeight = new float[queryTerms.length];
+        float euc = 0;
+        for (int i = 0; i < queryTerms.length; i++) {
+            float tfidffloat = calcIDF(queryTerms[i], docCount) * queryTf[i];
+            queryWeight[i] = tfidffloat;
+            euc = euc + (tfidffloat * tfidffloat);
+        }
+        queryEuclid = (float) Math.sqrt(euc);
+        for (int i = 0; i < queryWeight.length; i++)
+            queryWeight[i] = queryWeight[i] / queryEuclid;
+        return true;
+    }
+
+    /** ***************************************************************
+     * Add the documents with a given score to a result that keeps
+     * only the n highest scores
+     */
+    private static void addBounded(TreeMap<Float,ArrayList<Integer>> result, int n,
+                                   float score, int doc) {
+
+        if (result.size() == n && score < result.firstKey())
+            return;
+        result.computeIfAbsent(score, k -> new ArrayList<Integer>()).add(doc);
+        if (result.size() > n)
+            result.pollFirstEntry();
+    }
+
+    /** ***************************************************************
+     * Score the query, which must have been prepared, against just the
+     * documents that share a term with it, accumulating each term's
+     * contribution from the inverted index, and keep the n highest
+     * scores.  Documents that share no term score 0, and are only
+     * listed when 0 is among the top n scores.  The documents with a
+     * score are listed in ascending order.
+     */
+    private TreeMap<Float,ArrayList<Integer>> scoreTopN(int n) {
+
+        TreeMap<Float,ArrayList<Integer>> result = new TreeMap<Float,ArrayList<Integer>>();
+        if (n < 1)
+            return result;
+        ensureIndex();
+        // most valuable terms first, so pruning can start early
+        int qn = queryTerms.length;
+        int indexed = postStart.limit() - 1; // query terms added since have no documents
+        Integer[] order = new Integer[qn];
+        float[] bound = new float[qn];
+        float remaining = 0;
+        boolean nonNegative = indexNonNegative && queryEuclid > 0;
+        for (int i = 0; i < qn; i++) {
+            order[i] = i;
+            int term = queryTerms[i];
+            if (term >= indexed || postStart.get(term) == postStart.get(term + 1))
+                bound[i] = 0;
+            else
+                bound[i] = postMax.get(term) * queryWeight[i];
+            remaining += bound[i];
+            if (queryWeight[i] < 0)
+                nonNegative = false;
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(bound[b], bound[a]));
+        boolean pruning = prune && nonNegative;
+        int[] touched = new int[16];
+        int touchedCount = 0;
+        if (indexedRows < rowCount) {
+            // rows added since the index was built are scored in full
+            queryDense = ensure(queryDense, termCount);
+            for (int i = 0; i < qn; i++)
+                queryDense[queryTerms[i]] = queryWeight[i];
+            for (int doc = indexedRows; doc < rowCount; doc++) {
+                if (docStartView.get(doc) == docStartView.get(doc + 1))
+                    continue;
+                hit[doc] = true;
+                acc[doc] = docSim(doc);
+                if (touchedCount == touched.length)
+                    touched = Arrays.copyOf(touched, touchedCount * 2);
+                touched[touchedCount++] = doc;
+            }
+            for (int term : queryTerms)
+                queryDense[term] = 0;
+        }
+        for (int q : order) {
+            int term = queryTerms[q];
+            if (term >= indexed)
+                continue;
+            float query = queryWeight[q];
+            boolean addNew = true;
+            if (pruning && touchedCount > 0)
+                addNew = remaining * 1.0001f >= threshold(touched, touchedCount, n);
+            int end = postStart.get(term + 1);
+            for (int i = postStart.get(term); i < end; i++) {
+                int doc = postDocs.get(i);
+                if (!hit[doc]) {
+                    if (!addNew)
+                        continue;
+                    hit[doc] = true;
+                    acc[doc] = 0;
+                    if (touchedCount == touched.length)
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    touched[touchedCount++] = doc;
                 }
-                result.put(int1,fval);
-                //if (int1 == 8362)
-                //    System.out.println("TFIDF.calcDocSim(): " + fval + ":" + tf.get(8362));
+                acc[doc] = acc[doc] + (postWeights.get(i) * query);
             }
+            remaining -= bound[q];
         }
-        //System.out.println("Info in TFIDF.calcDocSim(): Doc sim:\n" + docSim);
+        Arrays.sort(touched, 0, touchedCount);
+        for (int i = 0; i < touchedCount; i++) {
+            int doc = touched[i];
+            if (acc[doc] != 0)
+                addBounded(result, n, acc[doc], doc);
+        }
+        if (result.size() < n || result.firstKey() < 0) {
+            for (int doc = 0; doc < rowCount; doc++) {
+                if (docStartView.get(doc) == docStartView.get(doc + 1))
+                    continue;
+                if (!hit[doc] || acc[doc] == 0)
+                    addBounded(result, n, 0f, doc);
+            }
+        }
+        for (int i = 0; i < touchedCount; i++)
+            hit[touched[i]] = false;
         return result;
     }
 
     /** ***************************************************************
-     * Assume that query is file index -1
-     * Calculate the similarity of each document to the query
-     * Put the result in HashMap<Integer,Float> docSim
-     */
-    private void calcDocSim() {
-
-        //System.out.println("Info in TFIDF.calcDocSim(): tfidf: " + tfidf);
-        Integer negone = Integer.valueOf(-1);
-        HashMap<String,Float> tfidflist = tfidf.get(negone);
-        HashMap<String,Float> normquery = new HashMap<String,Float>();
-        float euc = euclid.get(negone);
-        Iterator<String> it2 = tfidflist.keySet().iterator();
-        while (it2.hasNext()) {
-            String term = it2.next();
-            float tfidffloat = tfidflist.get(term).floatValue();
-            normquery.put(term,Float.valueOf(tfidffloat / euc));
-        }
-        //System.out.println("Info in TFIDF.calcDocSim(): normquery: " + normquery);
-        Iterator<Integer> it1 = tf.keySet().iterator();
-        while (it1.hasNext()) {
-            Integer int1 = it1.next();
-            if (int1.intValue() != -1) {
-                tfidflist = tfidf.get(int1);
-                euc = euclid.get(int1);
-                float fval = 0;
-                Iterator<String> it3 = tfidflist.keySet().iterator();
-                while (it3.hasNext()) {
-                    String term = it3.next();
-                    float tfidffloat = tfidflist.get(term).floatValue();
-                    float query = 0;
-                    if (normquery.containsKey(term))
-                        query = normquery.get(term).floatValue();
-                    float normalize = 0;
-                    if (euc != 0)
-                        normalize = tfidffloat / euc;
-                    fval = fval + (normalize * query);
-                }
-                docSim.put(int1,fval);
-                //if (int1 == 8362)
-                //    System.out.println("TFIDF.calcDocSim(): " + fval + ":" + tf.get(8362));
+     * @return the lowest of the n highest partial scores so far, or
+     * negative infinity if there are fewer than n different scores
+     */
+    private float threshold(int[] touched, int touchedCount, int n) {
+
+        TreeSet<Float> top = new TreeSet<Float>();
+        for (int i = 0; i < touchedCount; i++) {
+            top.add(acc[touched[i]]);
+            if (top.size() > n)
+                top.pollFirst();
+        }
+        if (top.size() < n)
+            return Float.NEGATIVE_INFINITY;
+        return top.first();
+    }
+
+    /** ***************************************************************
+     * Score the query, which must have been prepared, against every
+     * document that has a term, from its row rather than the inverted
+     * index.  The documents with a score are listed in ascending order.
+     */
+    private TreeMap<Float,ArrayList<Integer>> scoreAll() {
+
+        TreeMap<Float,ArrayList<Integer>> result = new TreeMap<Float,ArrayList<Integer>>();
+        queryDense = ensure(queryDense, termCount);
+        for (int i = 0; i < queryTerms.length; i++)
+            queryDense[queryTerms[i]] = queryWeight[i];
+        for (int doc = 0; doc < rowCount; doc++) {
+            if (docStartView.get(doc) == docStartView.get(doc + 1))
+                continue;
+            result.computeIfAbsent(docSim(doc), k -> new ArrayList<Integer>()).add(doc);
+        }
+        for (int term : queryTerms)
+            queryDense[term] = 0;
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return the similarity of one document to the prepared query
+     */
+    private float docSim(int doc) {
+
+        if (doc < 0 || doc >= rowCount)
+            return 0;
+        float fval = 0;
+        int end = docStartView.get(doc + 1);
+        for (int i = docStartView.get(doc); i < end; i++)
+            fval = fval + (rowWeightView.get(i) * queryDense[rowTermsView.get(i)]);
+        return fval;
+    }
+
+    /** ***************************************************************
+     * A model to be filled from a snapshot
+     */
+    private TFIDF() {
+
+        rand.setSeed(18021918); // Makes test results consistent
+    }
+
+    /** ***************************************************************
+     * Compare a term's UTF-8 bytes to those of a term in the snapshot,
+     * as unsigned bytes, which orders them by code point
+     */
+    private int compareSnapshotTerm(byte[] key, int id) {
+
+        int start = termOffsets.get(id);
+        int len = termOffsets.get(id + 1) - start;
+        int n = Math.min(key.length, len);
+        for (int i = 0; i < n; i++) {
+            int c = (key[i] & 0xff) - (termBytes.get(start + i) & 0xff);
+            if (c != 0)
+                return c;
+        }
+        return key.length - len;
+    }
+
+    /** ***************************************************************
+     * @return the id of a term in the snapshot, or -1 if it isn't there
+     */
+    private int findSnapshotTerm(byte[] key) {
+
+        int lo = 0;
+        int hi = snapshotTerms - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int id = sortedTerms.get(mid);
+            int c = compareSnapshotTerm(key, id);
+            if (c == 0)
+                return id;
+            if (c > 0)
+                lo = mid + 1;
+            else
+                hi = mid - 1;
+        }
+        return -1;
+    }
+
+    /** ***************************************************************
+     */
+    private static String decode(ByteBuffer bytes, long start, long end, byte[] buf) {
+
+        int len = (int) (end - start);
+        if (buf.length < len)
+            buf = new byte[len];
+        for (int i = 0; i < len; i++)
+            buf[i] = bytes.get((int) start + i);
+        return new String(buf, 0, len, StandardCharsets.UTF_8);
+    }
+
+    /** ***************************************************************
+     * Copy a model opened from a snapshot into arrays, so that it can
+     * be changed.  The mapped inverted index is still used until the
+     * weights are next calculated.
+     */
+    private void thaw() {
+
+        if (sortedTerms == null)
+            return;
+        long t = System.currentTimeMillis();
+        ArrayList<String> allTerms = new ArrayList<String>(termCount);
+        HashMap<String,Integer> allIds = new HashMap<String,Integer>(termCount * 2);
+        byte[] buf = new byte[64];
+        for (int id = 0; id < snapshotTerms; id++) {
+            String term = decode(termBytes, termOffsets.get(id), termOffsets.get(id + 1), buf);
+            allTerms.add(term);
+            allIds.put(term, id);
+        }
+        allTerms.addAll(terms);
+        allIds.putAll(termIds);
+        terms = allTerms;
+        termIds = allIds;
+        int total = docStartView.get(rowCount);
+        docStart = new int[rowCount + 1];
+        rowTerms = new int[total];
+        rowTf = new int[total];
+        rowWeight = new float[total];
+        euclid = new float[rowCount];
+        docStartView.duplicate().get(docStart);
+        rowTermsView.duplicate().get(rowTerms);
+        snapshotTf.duplicate().get(rowTf);
+        rowWeightView.duplicate().get(rowWeight);
+        snapshotEuclid.duplicate().get(euclid);
+        docStartView = IntBuffer.wrap(docStart);
+        rowTermsView = IntBuffer.wrap(rowTerms);
+        rowWeightView = FloatBuffer.wrap(rowWeight);
+        sortedTerms = null;
+        termOffsets = null;
+        termBytes = null;
+        snapshotTf = null;
+        snapshotEuclid = null;
+        snapshotTerms = 0;
+        System.out.println("Info in TFIDF.thaw(): copied " + termCount + " terms and " +
+                rowCount + " documents in " + (System.currentTimeMillis() - t) + " ms");
+    }
+
+    /** ***************************************************************
+     */
+    private static ByteBuffer section(int bytes) {
+
+        return ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /** ***************************************************************
+     */
+    private static ByteBuffer section(IntBuffer ints, int n) {
+
+        ByteBuffer result = section(n * 4);
+        IntBuffer src = ints.duplicate();
+        src.position(0).limit(n);
+        result.asIntBuffer().put(src);
+        return result;
+    }
+
+    /** ***************************************************************
+     */
+    private static ByteBuffer section(FloatBuffer floats, int n) {
+
+        ByteBuffer result = section(n * 4);
+        FloatBuffer src = floats.duplicate();
+        src.position(0).limit(n);
+        result.asFloatBuffer().put(src);
+        return result;
+    }
+
+    /** ***************************************************************
+     * Write the model to a file that open() can map into memory.  It
+     * has a header giving the offset and length of each section, which
+     * are the arrays of the model and its lines, terms and stop words,
+     * all little-endian.  The file is written under a temporary name
+     * and then moved, so a reader never sees a partial file.
+     */
+    public void save(String filename) throws IOException {
+
+        long t = System.currentTimeMillis();
+        refresh();
+        thaw();
+        if (postStart == null || postStart.limit() - 1 < termCount || indexedRows < rowCount)
+            buildIndex(); // queries may have added terms, and lines rows, since it was built
+        int total = docStart[rowCount];
+        byte[][] termUtf8 = new byte[termCount][];
+        int termLength = 0;
+        for (int id = 0; id < termCount; id++) {
+            termUtf8[id] = terms.get(id).getBytes(StandardCharsets.UTF_8);
+            termLength += termUtf8[id].length;
+        }
+        Integer[] order = new Integer[termCount];
+        for (int id = 0; id < termCount; id++)
+            order[id] = id;
+        Arrays.sort(order, (a, b) -> compareBytes(termUtf8[a], termUtf8[b]));
+        ByteBuffer sorted = section(termCount * 4);
+        ByteBuffer offsets = section((termCount + 1) * 4);
+        ByteBuffer blob = section(termLength);
+        for (int id = 0; id < termCount; id++) {
+            sorted.putInt(order[id]);
+            offsets.putInt(blob.position());
+            blob.put(termUtf8[id]);
+        }
+        offsets.putInt(blob.position());
+        ByteArrayOutputStream lineBytes = new ByteArrayOutputStream();
+        ByteBuffer lineOffsets = section((lines.size() + 1) * 8);
+        for (String line : lines) {
+            lineOffsets.putLong(lineBytes.size());
+            byte[] b = line.getBytes(StandardCharsets.UTF_8);
+            lineBytes.write(b, 0, b.length);
+        }
+        lineOffsets.putLong(lineBytes.size());
+        ByteBuffer[] sections = new ByteBuffer[] {
+                section(IntBuffer.wrap(docfreq), termCount),
+                section(IntBuffer.wrap(docStart), rowCount + 1),
+                section(IntBuffer.wrap(rowTerms), total),
+                section(IntBuffer.wrap(rowTf), total),
+                section(FloatBuffer.wrap(rowWeight), total),
+                section(FloatBuffer.wrap(euclid), rowCount),
+                section(postStart, termCount + 1),
+                section(postDocs, total),
+                section(postWeights, total),
+                section(postMax, termCount),
+                sorted,
+                offsets,
+                blob,
+                lineOffsets,
+                ByteBuffer.wrap(lineBytes.toByteArray()),
+                ByteBuffer.wrap(String.join("\n", stopwords).getBytes(StandardCharsets.UTF_8))};
+        ByteBuffer header = section(24 + sections.length * 16);
+        header.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION);
+        header.putInt(termCount).putInt(rowCount).putInt(lines.size()).putInt(indexNonNegative ? 1 : 0);
+        Path path = Paths.get(filename);
+        Path tmp = Paths.get(filename + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long pos = header.capacity();
+            for (ByteBuffer b : sections) {
+                pos = (pos + 7) & ~7L;
+                header.putLong(pos).putLong(b.capacity());
+                b.clear();
+                while (b.hasRemaining())
+                    pos += ch.write(b, pos);
             }
+            header.flip();
+            while (header.hasRemaining())
+                ch.write(header, header.position());
+            ch.force(true);
         }
-        //System.out.println("Info in TFIDF.calcDocSim(): Doc sim:\n" + docSim);
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        System.out.println("Info in TFIDF.save(): wrote " + lines.size() + " lines and " + termCount +
+                " terms to " + filename + " in " + (System.currentTimeMillis() - t) + " ms");
+    }
+
+    /** ***************************************************************
+     */
+    private static int compareBytes(byte[] a, byte[] b) {
+
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            int c = (a[i] & 0xff) - (b[i] & 0xff);
+            if (c != 0)
+                return c;
+        }
+        return a.length - b.length;
+    }
+
+    /** ***************************************************************
+     * Open a model written by save().  Its arrays are mapped from the
+     * file rather than read, so that opening takes little more than the
+     * time to decode the lines, and processes opening the same file
+     * share one copy of it in memory.
+     */
+    public static TFIDF open(String filename) throws IOException {
+
+        long t = System.currentTimeMillis();
+        TFIDF result = new TFIDF();
+        try (FileChannel ch = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            int headerSize = 24 + SNAPSHOT_SECTIONS * 16;
+            if (ch.size() < headerSize)
+                throw new IOException("Not a TFIDF snapshot: " + filename);
+            ByteBuffer header = ch.map(FileChannel.MapMode.READ_ONLY, 0, headerSize).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != SNAPSHOT_MAGIC || header.getInt() != SNAPSHOT_VERSION)
+                throw new IOException("Not a TFIDF snapshot, or of another version: " + filename);
+            int termCount = header.getInt();
+            int rowCount = header.getInt();
+            int lineCount = header.getInt();
+            result.indexNonNegative = header.getInt() != 0;
+            ByteBuffer[] sections = new ByteBuffer[SNAPSHOT_SECTIONS];
+            for (int i = 0; i < sections.length; i++) {
+                long pos = header.getLong();
+                long len = header.getLong();
+                sections[i] = ch.map(FileChannel.MapMode.READ_ONLY, pos, len).order(ByteOrder.LITTLE_ENDIAN);
+            }
+            result.termCount = termCount;
+            result.snapshotTerms = termCount;
+            result.rowCount = rowCount;
+            result.docfreq = new int[Math.max(termCount, 1)];
+            sections[0].asIntBuffer().get(result.docfreq, 0, termCount);
+            result.idf = new float[Math.max(termCount, 1)];
+            result.seen = new int[Math.max(termCount, 1)];
+            result.docStartView = sections[1].asIntBuffer();
+            result.rowTermsView = sections[2].asIntBuffer();
+            result.snapshotTf = sections[3].asIntBuffer();
+            result.rowWeightView = sections[4].asFloatBuffer();
+            result.snapshotEuclid = sections[5].asFloatBuffer();
+            result.postStart = sections[6].asIntBuffer();
+            result.postDocs = sections[7].asIntBuffer();
+            result.postWeights = sections[8].asFloatBuffer();
+            result.postMax = sections[9].asFloatBuffer();
+            result.indexedRows = rowCount;
+            result.sortedTerms = sections[10].asIntBuffer();
+            result.termOffsets = sections[11].asIntBuffer();
+            result.termBytes = sections[12];
+            LongBuffer lineOffsets = sections[13].asLongBuffer();
+            byte[] buf = new byte[256];
+            result.lines.ensureCapacity(lineCount);
+            for (int i = 0; i < lineCount; i++)
+                result.lines.add(decode(sections[14], lineOffsets.get(i), lineOffsets.get(i + 1), buf));
+            String stop = decode(sections[15], 0, sections[15].capacity(), new byte[0]);
+            if (!stop.isEmpty())
+                result.stopwords.addAll(Arrays.asList(stop.split("\n")));
+        }
+        result.ensureAccumulators();
+        System.out.println("Info in TFIDF.open(): opened " + result.lines.size() + " lines and " +
+                result.termCount + " terms from " + filename + " in " + (System.currentTimeMillis() - t) + " ms");
+        return result;
+    }
+
+    /** ***************************************************************
+     * Open the snapshot of a corpus file if it is newer than the corpus
+     * and the stop words, otherwise read the corpus and save a snapshot
+     * of it for next time
+     */
+    public static TFIDF cached(String filename, String stopwordsFilename, String snapshotFilename) {
+
+        File snapshot = new File(snapshotFilename);
+        if (snapshot.exists() && snapshot.lastModified() >= new File(filename).lastModified() &&
+                snapshot.lastModified() >= new File(stopwordsFilename).lastModified()) {
+            try {
+                return open(snapshotFilename);
+            }
+            catch (IOException e) {
+                System.err.println("Error in TFIDF.cached(): " + e.getMessage());
+            }
+        }
+        TFIDF result = new TFIDF(filename, stopwordsFilename, false);
+        try {
+            result.save(snapshotFilename);
+        }
+        catch (IOException e) {
+            System.err.println("Error in TFIDF.cached(): unable to save " + snapshotFilename + ": " + e.getMessage());
+        }
+        return result;
     }
 
     /** *************************************************************
@@ -577,17 +1270,18 @@ public class TFIDF {
 
         //System.out.println("Info in TFIDF.addInput(): " + input);
         //System.out.println("Info in TFIDF.addInput(): size: " + lines.size());
-        //System.out.println("Info in TFIDF.addInput(): idf: " + idf);
-        //System.out.println("Info in TFIDF.addInput(): tfidf: " + tfidf);
-        if (!lines.contains(input))
+        if (lineSet == null)
+            lineSet = new HashSet<String>(lines);
+        if (lineSet.add(input))
             lines.add(input);
         int linecount = lines.size();
         processDoc(input, linecount - 1);
         //System.out.println("Info in TFIDF.addInput(): size: " + lines.size());
-        calcIDF(linecount);
-        //System.out.println("Info in TFIDF.addInput(): idf: " + idf);
-        calcTFIDF();
-        //System.out.println("Info in TFIDF.addInput(): tfidf: " + tfidf);
+        if (incremental) {
+            markStale(linecount);
+            return;
+        }
+        calcTFIDF(linecount);
     }
 
     /** *************************************************************
@@ -630,6 +1324,7 @@ public class TFIDF {
         return result;
     }
 
+
     /** *************************************************************
      * Rank only a set of specified document IDs against a question
      * @return those ranks merged with the input scoredIDs
@@ -643,16 +1338,14 @@ public class TFIDF {
         result.putAll(scoredIDs);
         if (isNullOrEmpty(question))
             System.exit(0);
-        Integer negone = Integer.valueOf(-1);
-        processDoc(question,negone);
-        calcIDF(lines.size()+1);
-        calcOneTFIDF(negone);
-        HashMap<Integer,Float> someDocSim = calcSomeDocSim(toScoreIDs,question);
-        if (docSim == null)
+        if (!prepareQuery(question))
             return result;
+        queryDense = ensure(queryDense, termCount);
+        for (int i = 0; i < queryTerms.length; i++)
+            queryDense[queryTerms[i]] = queryWeight[i];
         for (String s : toScoreIDs) {
             int intID = Integer.parseInt(s);
-            Float f = someDocSim.get(intID);
+            Float f = docSim(intID);
             if (result.containsKey(f)) {
                 ArrayList<Integer> vals = result.get(f);
                 vals.add(intID);
@@ -663,6 +1356,8 @@ public class TFIDF {
                 result.put(f,vals);
             }
         }
+        for (int term : queryTerms)
+            queryDense[term] = 0;
         return result;
     }
 
@@ -679,32 +1374,11 @@ public class TFIDF {
 
         //System.out.println("Info in TFIDF.matchInputFull(): input: " + input);
         //System.out.println("Info in TFIDF.matchInputFull(): lines: " + lines);
-        ArrayList<String> result = new ArrayList<String>();
         if (isNullOrEmpty(input))
             System.exit(0);
-        Integer negone = Integer.valueOf(-1);
-        processDoc(input,negone);
-        calcIDF(lines.size()+1);
-        calcOneTFIDF(negone);
-        calcDocSim();
-        TreeMap<Float,ArrayList<Integer>> sortedSim = new TreeMap<Float,ArrayList<Integer>>();
-        if (docSim == null)
-            return sortedSim;
-        Iterator<Integer> it = docSim.keySet().iterator();
-        while (it.hasNext()) {
-            Integer i = it.next();
-            Float f = docSim.get(i);
-            if (sortedSim.containsKey(f)) {
-                ArrayList<Integer> vals = sortedSim.get(f);
-                vals.add(i);
-            }
-            else {
-                ArrayList<Integer> vals = new ArrayList<Integer>();
-                vals.add(i);
-                sortedSim.put(f,vals);
-            }
-        }
-        return sortedSim;
+        if (!prepareQuery(input))
+            return new TreeMap<Float,ArrayList<Integer>>();
+        return scoreAll();
     }
 
     /** *************************************************************
@@ -714,23 +1388,23 @@ public class TFIDF {
 
         //System.out.println("Info in TFIDF.matchInput(): " + input);
         //System.out.println("Info in TFIDF.matchInput(): " + lines);
-        TreeMap<Float,ArrayList<Integer>> result = new TreeMap<Float,ArrayList<Integer>>();
-        TreeMap<Float,ArrayList<Integer>> sortedSim = matchInputFull(input);
-        //System.out.println("Info in TFIDF.matchInput(): " + sortedSim);
-        if (sortedSim == null || sortedSim.keySet() == null) {
-            return null;
-        }
-
-        Iterator<Float> it2 = sortedSim.descendingKeySet().iterator();
-        int counter = n;
-        while (it2.hasNext() && counter > 0) {
-            Float f = it2.next();
-            ArrayList<Integer> vals = sortedSim.get(f);
-            counter--;
-            result.put(f,vals);
+        if (!useIndex) {
+            TreeMap<Float,ArrayList<Integer>> sortedSim = matchInputFull(input);
+            TreeMap<Float,ArrayList<Integer>> result = new TreeMap<Float,ArrayList<Integer>>();
+            Iterator<Float> it2 = sortedSim.descendingKeySet().iterator();
+            int counter = n;
+            while (it2.hasNext() && counter > 0) {
+                Float f = it2.next();
+                counter--;
+                result.put(f,sortedSim.get(f));
+            }
+            return result;
         }
-        //System.out.println("Info in TFIDF.matchInput(): result: " + result);
-        return result;
+        if (isNullOrEmpty(input))
+            System.exit(0);
+        if (!prepareQuery(input))
+            return new TreeMap<Float,ArrayList<Integer>>();
+        return scoreTopN(n);
     }
 
     /** *************************************************************
@@ -746,7 +1420,11 @@ public class TFIDF {
         //System.out.println("Info in TFIDF.matchInput(): " + input);
         //System.out.println("Info in TFIDF.matchInput(): " + lines);
         ArrayList<String> result = new ArrayList<String>();
-        TreeMap<Float,ArrayList<Integer>> sortedSim = matchInputFull(input);
+        TreeMap<Float,ArrayList<Integer>> sortedSim;
+        if (useIndex)
+            sortedSim = matchInputNScored(input,n);
+        else
+            sortedSim = matchInputFull(input);
         //System.out.println("Info in TFIDF.matchInput(): " + sortedSim);
         if (sortedSim == null || sortedSim.keySet() == null ||
                 sortedSim.keySet().size() < 1 || sortedSim.lastKey() < .1) {
@@ -804,6 +1482,13 @@ public class TFIDF {
             cb = new TFIDF("testfiles/stopwords.txt");
             cb.readFile(fname);
         }
+        run(cb);
+    }
+
+    /** *************************************************************
+     * Run with a given model
+     */
+    private static void run(TFIDF cb) {
 
         System.out.println("Hi, I'm a chatbot, tell/ask me something");
         boolean done = false;
@@ -860,13 +1545,18 @@ public class TFIDF {
             System.out.println("Usage: ");
             System.out.println("TFIDF -h         % show this help info");
             System.out.println("      -f fname   % use a particular input file");
+            System.out.println("      -s fname sname % use an input file through a snapshot, saving it if needed");
         }
         else if (args != null && args.length > 1 && args[0].equals("-f")) {
             asResource = false;
             run(args[1]);
         }
+        else if (args != null && args.length > 2 && args[0].equals("-s")) {
+            asResource = false;
+            run(cached(args[1], "testfiles/stopwords.txt", args[2]));
+        }
         else
             staticTest();
     }
 }
- 
\ No newline at end of file
+ 
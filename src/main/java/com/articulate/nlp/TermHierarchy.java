@@ -0,0 +1,318 @@
+package com.articulate.nlp;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/** ***************************************************************
+ * The transitive closure of a taxonomy such as the one KBLite builds
+ * from subclass, instance, subrelation and subAttribute statements,
+ * computed once so that subclass and instance tests don't need a
+ * breadth-first search of the hierarchy each time.
+ *
+ * Every term gets an integer id, in the sorted order of the names.
+ * For each term the ids of its subclasses, its superclasses, the
+ * instances of it and its subclasses, and the classes it is an
+ * instance of are kept as sorted slices of four flat int arrays, in
+ * the manner of a compressed sparse row matrix.  A subclass or
+ * instance test is then a binary search of the, usually short, list
+ * of classes above a term, and listing the subclasses or instances of
+ * a class walks one slice.
+ *
+ * The index is read-only once built and may be shared between threads.
+ */
+public class TermHierarchy {
+
+    public static boolean debug = false;
+
+    private final String[] names;
+    private final HashMap<String, Integer> ids;
+
+    // a slice i of one of these is values[start[i]] up to values[start[i+1]]
+    private final int[] descStart;    // subclasses of each term
+    private final int[] desc;
+    private final int[] ancStart;     // classes each term is a subclass of
+    private final int[] anc;
+    private final int[] instStart;    // instances of each term and its subclasses
+    private final int[] inst;
+    private final int[] classStart;   // classes each term is an instance of
+    private final int[] classes;
+
+    /** ***************************************************************
+     * @param childrenOf a map from each term to the terms directly
+     *                   below it, whether subclasses or instances
+     * @param isSubclass whether a term is a subclass, and so whether
+     *                   the terms below it are searched
+     * @param isInstance whether a term is an instance
+     */
+    public TermHierarchy(Map<String, List<String>> childrenOf, Predicate<String> isSubclass,
+                         Predicate<String> isInstance) {
+
+        TreeSet<String> all = new TreeSet<>(childrenOf.keySet());
+        for (List<String> l : childrenOf.values())
+            all.addAll(l);
+        names = all.toArray(new String[0]);
+        int n = names.length;
+        ids = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++)
+            ids.put(names[i], i);
+
+        // direct subclass and instance edges
+        int[][] subs = new int[n][];
+        int[][] insts = new int[n][];
+        boolean[] subclass = new boolean[n];
+        boolean[] instance = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            subclass[i] = isSubclass.test(names[i]);
+            instance[i] = isInstance.test(names[i]);
+        }
+        int[] tmp = new int[16];
+        for (int i = 0; i < n; i++) {
+            List<String> children = childrenOf.get(names[i]);
+            if (children == null)
+                continue;
+            if (tmp.length < children.size())
+                tmp = new int[children.size()];
+            int ns = 0;
+            for (String c : children) {
+                int id = ids.get(c);
+                if (subclass[id])
+                    tmp[ns++] = id;
+            }
+            subs[i] = Arrays.copyOf(tmp, ns);
+            int ni = 0;
+            for (String c : children) {
+                int id = ids.get(c);
+                if (instance[id])
+                    tmp[ni++] = id;
+            }
+            insts[i] = Arrays.copyOf(tmp, ni);
+        }
+
+        // subclasses of each term, by a search from it that marks what
+        // it has reached, so that shared subclasses and cycles are only
+        // visited once
+        int[] stamp = new int[n];
+        int[] queue = new int[n];
+        IntList descList = new IntList();
+        IntList instList = new IntList();
+        descStart = new int[n + 1];
+        instStart = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            int mark = i + 1;
+            int head = 0, tail = 0;
+            int from = descList.size;
+            if (subs[i] != null) {
+                for (int c : subs[i]) {
+                    if (stamp[c] != mark) {
+                        stamp[c] = mark;
+                        queue[tail++] = c;
+                    }
+                }
+            }
+            while (head < tail) {
+                int c = queue[head++];
+                descList.add(c);
+                if (subs[c] == null)
+                    continue;
+                for (int g : subs[c]) {
+                    if (stamp[g] != mark) {
+                        stamp[g] = mark;
+                        queue[tail++] = g;
+                    }
+                }
+            }
+            Arrays.sort(descList.values, from, descList.size);
+            descStart[i + 1] = descList.size;
+
+            // instances of the term itself and of everything below it
+            int instFrom = instList.size;
+            int mark2 = -mark;
+            addInstances(insts[i], stamp, mark2, instList);
+            for (int k = from; k < descList.size; k++)
+                addInstances(insts[descList.values[k]], stamp, mark2, instList);
+            Arrays.sort(instList.values, instFrom, instList.size);
+            instStart[i + 1] = instList.size;
+        }
+        desc = descList.toArray();
+        inst = instList.toArray();
+
+        // the inverse relations, whose slices come out sorted since the
+        // rows are read in id order
+        ancStart = new int[n + 1];
+        anc = transpose(descStart, desc, ancStart);
+        classStart = new int[n + 1];
+        classes = transpose(instStart, inst, classStart);
+        if (debug) System.out.println("TermHierarchy(): " + n + " terms, " + desc.length +
+                " subclass pairs, " + inst.length + " instance pairs");
+    }
+
+    /** ***************************************************************
+     */
+    private static void addInstances(int[] direct, int[] stamp, int mark, IntList result) {
+
+        if (direct == null)
+            return;
+        for (int c : direct) {
+            if (stamp[c] != mark) {
+                stamp[c] = mark;
+                result.add(c);
+            }
+        }
+    }
+
+    /** ***************************************************************
+     * @param start the row offsets of a relation
+     * @param values its row values
+     * @param tstart filled with the row offsets of the inverse
+     * @return the row values of the inverse relation
+     */
+    private static int[] transpose(int[] start, int[] values, int[] tstart) {
+
+        int n = start.length - 1;
+        for (int v : values)
+            tstart[v + 1]++;
+        for (int i = 0; i < n; i++)
+            tstart[i + 1] += tstart[i];
+        int[] next = Arrays.copyOf(tstart, n);
+        int[] result = new int[values.length];
+        for (int row = 0; row < n; row++)
+            for (int k = start[row]; k < start[row + 1]; k++)
+                result[next[values[k]]++] = row;
+        return result;
+    }
+
+    /** ***************************************************************
+     * A growable array of ints
+     */
+    private static class IntList {
+
+        int[] values = new int[1024];
+        int size = 0;
+
+        void add(int v) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = v;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /** ***************************************************************
+     * @return the id of a term, or -1 if it isn't in the hierarchy
+     */
+    public int id(String term) {
+
+        if (term == null)
+            return -1;
+        Integer id = ids.get(term);
+        return (id == null) ? -1 : id;
+    }
+
+    /** ***************************************************************
+     */
+    public int size() {
+
+        return names.length;
+    }
+
+    /** ***************************************************************
+     * @return true if c is below p by a chain of subclasses.  Unlike
+     * KBLite.isSubclass() a class is not a subclass of itself here
+     * unless the hierarchy has a cycle through it.
+     */
+    public boolean isSubclass(String c, String p) {
+
+        int ci = id(c), pi = id(p);
+        if (ci < 0 || pi < 0)
+            return false;
+        return Arrays.binarySearch(anc, ancStart[ci], ancStart[ci + 1], pi) >= 0;
+    }
+
+    /** ***************************************************************
+     * @return true if i is an instance of c or of one of its subclasses
+     */
+    public boolean isInstanceOf(String i, String c) {
+
+        int ii = id(i), ci = id(c);
+        if (ii < 0 || ci < 0)
+            return false;
+        return Arrays.binarySearch(classes, classStart[ii], classStart[ii + 1], ci) >= 0;
+    }
+
+    /** ***************************************************************
+     * @return the subclasses of a class, in sorted order, as a view of
+     * the index that can't be changed
+     */
+    public List<String> subclasses(String cl) {
+
+        int id = id(cl);
+        return (id < 0) ? Collections.emptyList() : new Slice(desc, descStart[id], descStart[id + 1]);
+    }
+
+    /** ***************************************************************
+     * @return the classes a class is a subclass of, in sorted order
+     */
+    public List<String> superclasses(String cl) {
+
+        int id = id(cl);
+        return (id < 0) ? Collections.emptyList() : new Slice(anc, ancStart[id], ancStart[id + 1]);
+    }
+
+    /** ***************************************************************
+     * @return the instances of a class and its subclasses, in sorted order
+     */
+    public List<String> instances(String cl) {
+
+        int id = id(cl);
+        return (id < 0) ? Collections.emptyList() : new Slice(inst, instStart[id], instStart[id + 1]);
+    }
+
+    /** ***************************************************************
+     * @return the classes a term is an instance of, directly or through
+     * their subclasses, in sorted order
+     */
+    public List<String> classesOf(String term) {
+
+        int id = id(term);
+        return (id < 0) ? Collections.emptyList() : new Slice(classes, classStart[id], classStart[id + 1]);
+    }
+
+    /** ***************************************************************
+     * A read-only list of the names of part of one of the id arrays
+     */
+    private class Slice extends AbstractList<String> implements RandomAccess {
+
+        private final int[] values;
+        private final int from;
+        private final int to;
+
+        Slice(int[] values, int from, int to) {
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= to - from)
+                throw new IndexOutOfBoundsException("TermHierarchy.Slice.get(): " + index);
+            return names[values[from + index]];
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
+    /** ***************************************************************
+     */
+    public String toString() {
+
+        return "TermHierarchy: " + names.length + " terms, " + desc.length +
+                " subclass pairs, " + inst.length + " instance pairs";
+    }
+}
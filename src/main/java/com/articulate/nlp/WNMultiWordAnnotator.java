@@ -70,6 +70,7 @@ public class WNMultiWordAnnotator extends MultiWordAnnotator {
         tokenAnno = WNMWTokenAnnotation.class;
         mw = WordNet.wn.multiWords;
         name = "WNMultiWordAnnotator";
+        getTrie();
     }
 
     /****************************************************************
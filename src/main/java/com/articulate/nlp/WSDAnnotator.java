@@ -8,6 +8,8 @@ import com.articulate.sigma.wordNet.WordNetUtilities;
 import edu.stanford.nlp.pipeline.Annotation;
 import edu.stanford.nlp.pipeline.Annotator;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
 import java.util.regex.Pattern;
 
@@ -59,18 +61,143 @@ public class WSDAnnotator implements Annotator {
     public static boolean debug = false;
     //static final Annotator.Requirement WSD_REQUIREMENT = new Annotator.Requirement("wsd");
 
+    private static final Pattern PUNCT = Pattern.compile("\\p{Punct}");
+    private static final Pattern BRACKET = Pattern.compile("-...-");
+
+    // senses already found for a lemma, part of speech and sentence,
+    // shared by all instances.  Set the pipeline or system properties
+    // wsd.cacheSize (0 for no cache) and wsd.cacheFile to keep the cache
+    // between runs.  The cache file is dropped if the files in
+    // WordNetMappings, which hold WordNet and its SUMO mappings, change.
+    public static final int DEFAULT_CACHE_SIZE = 100000;
+    private static volatile SenseCache cache = null;
+    private static volatile String cacheFile = null;
+    private static volatile long[] cacheSources = new long[0];
+
     /****************************************************************
      */
     public WSDAnnotator(String name, Properties props) {
 
         //KBmanager.getMgr().initializeOnce();
+        initCache(props.getProperty(name + ".cacheSize",
+                        System.getProperty(name + ".cacheSize", Integer.toString(DEFAULT_CACHE_SIZE))),
+                props.getProperty(name + ".cacheFile", System.getProperty(name + ".cacheFile")));
+    }
+
+    /****************************************************************
+     * Create the shared cache the first time an annotator is made,
+     * loading it from the cache file if there is one, and saving it
+     * back there when the JVM exits
+     */
+    private static synchronized void initCache(String size, String filename) {
+
+        if (cache != null)
+            return;
+        int max = DEFAULT_CACHE_SIZE;
+        try {
+            max = Integer.parseInt(size.trim());
+        }
+        catch (NumberFormatException e) {
+            System.err.println("Error in WSDAnnotator.initCache(): bad cache size " + size);
+        }
+        if (max <= 0)
+            return;
+        cache = new SenseCache(max);
+        if (StringUtil.emptyString(filename))
+            return;
+        cacheFile = filename;
+        cacheSources = SenseCache.fingerprint(sourceFiles());
+        if (new File(filename).exists()) {
+            try {
+                cache.load(filename, cacheSources);
+            }
+            catch (IOException e) {
+                System.err.println("Error in WSDAnnotator.initCache(): can't read " + filename);
+                e.printStackTrace();
+            }
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(WSDAnnotator::saveCache));
+    }
+
+    /****************************************************************
+     * @return the files senses are found from, in name order, or none
+     * if the KB directory isn't known
+     */
+    private static List<File> sourceFiles() {
+
+        List<File> result = new ArrayList<>();
+        try {
+            File dir = new File(KBmanager.getMgr().configuration.getKbDir() + File.separator + "WordNetMappings");
+            File[] files = dir.listFiles(File::isFile);
+            if (files != null) {
+                Arrays.sort(files);
+                result.addAll(Arrays.asList(files));
+            }
+        }
+        catch (RuntimeException e) {
+            System.err.println("Error in WSDAnnotator.sourceFiles(): " + e.getMessage());
+        }
+        return result;
+    }
+
+    /****************************************************************
+     * @return the shared cache, or null if caching is off
+     */
+    public static SenseCache getCache() {
+
+        return cache;
+    }
+
+    /****************************************************************
+     * Write the cache to the cache file, if one was given
+     */
+    public static void saveCache() {
+
+        SenseCache c = cache;
+        if (c == null || cacheFile == null)
+            return;
+        try {
+            c.save(cacheFile, cacheSources);
+        }
+        catch (IOException e) {
+            System.err.println("Error in WSDAnnotator.saveCache(): can't write " + cacheFile);
+            e.printStackTrace();
+        }
+    }
+
+    /****************************************************************
+     * @return the sense of the lemma in the context of the words of its
+     * sentence, and the SUMO term it maps to, from the cache if possible
+     */
+    private static SenseCache.Entry findSense(String lemma, List<String> words, int pos, long signature) {
+
+        SenseCache c = cache;
+        String key = null;
+        SenseCache.Entry e;
+        if (c != null) {
+            key = SenseCache.key(lemma, pos, signature);
+            e = c.get(key);
+            if (e != null)
+                return e;
+        }
+        String sense = WSD.findWordSenseInContextWithPos(lemma, words, pos, true);
+        String SUMO = "";
+        if (!StringUtil.emptyString(sense)) {
+            String linkedSUMO = WordNet.wn.getSUMOMapping(sense);
+            if (!StringUtil.emptyString(linkedSUMO))
+                SUMO = WordNetUtilities.getBareSUMOTerm(linkedSUMO);
+        }
+        e = new SenseCache.Entry(sense, SUMO);
+        if (c != null)
+            c.put(key, e);
+        return e;
     }
 
     /****************************************************************
      */
     public void annotate(Annotation annotation) {
 
-        System.out.println("WSDAnnotator.annotate():");
+        if (debug) System.out.println("WSDAnnotator.annotate():");
         if (! annotation.containsKey(CoreAnnotations.SentencesAnnotation.class))
             throw new RuntimeException("Error in WSDAnnotator.annotate(): Unable to find sentences in " + annotation);
 
@@ -82,35 +209,33 @@ public class WSDAnnotator implements Annotator {
                 String lemma = token.lemma();
                 words.add(lemma);
             }
+            long signature = SenseCache.contextSignature(words);
             for (CoreLabel token : tokens) {
                 String lemma = token.lemma();
-                if (lemma.length() == 1 && Pattern.matches("\\p{Punct}", lemma)) // skip punctuation
+                if (lemma.length() == 1 && PUNCT.matcher(lemma).matches()) // skip punctuation
                     continue;
-                if (token.originalText().matches("-...-")) // skip parentheses and bracket codes like -LRB-
+                if (BRACKET.matcher(token.originalText()).matches()) // skip parentheses and bracket codes like -LRB-
                     continue;
                 String pos = token.get(CoreAnnotations.PartOfSpeechAnnotation.class); // need to convert to Sigma's integer codes
-                if (pos.matches("-...-") || StringUtil.isPunct(pos)) // skip parentheses and bracket codes like -LRB-
+                if (BRACKET.matcher(pos).matches() || StringUtil.isPunct(pos)) // skip parentheses and bracket codes like -LRB-
                     continue;
                 char num = WordNetUtilities.posPennToNumber(pos);
                 if (token.get(WNMultiWordAnnotator.WNMWSpanAnnotation.class) != null) // skip multiwords
                     continue;
                 if (num == '1' || num == '2' || num == '3' || num == '4') {
-                    String sense = WSD.findWordSenseInContextWithPos(lemma, words, Integer.parseInt(Character.toString(num)),true);
-                    if (!StringUtil.emptyString(sense)) {
-                        token.set(WSDAnnotation.class, sense);
-                        if (debug) System.out.println("WSDAnnotator.annotate(): adding sense: " + sense);
-                        String linkedSUMO = WordNet.wn.getSUMOMapping(sense);
-                        if (!StringUtil.emptyString(linkedSUMO)) {
-                            String SUMO = WordNetUtilities.getBareSUMOTerm(WordNet.wn.getSUMOMapping(sense));
-                            if (!StringUtil.emptyString(SUMO)) {
-                                token.set(SUMOAnnotation.class, SUMO);
-                                if (debug) System.out.println("WSDAnnotator.annotate(): adding SUMO: " + SUMO);
-                            }
+                    SenseCache.Entry e = findSense(lemma, words, num - '0', signature);
+                    if (!StringUtil.emptyString(e.sense)) {
+                        token.set(WSDAnnotation.class, e.sense);
+                        if (debug) System.out.println("WSDAnnotator.annotate(): adding sense: " + e.sense);
+                        if (!StringUtil.emptyString(e.sumo)) {
+                            token.set(SUMOAnnotation.class, e.sumo);
+                            if (debug) System.out.println("WSDAnnotator.annotate(): adding SUMO: " + e.sumo);
                         }
                     }
                 }
             }
         }
+        if (debug && cache != null) System.out.println("WSDAnnotator.annotate(): " + cache);
     }
 
     /****************************************************************
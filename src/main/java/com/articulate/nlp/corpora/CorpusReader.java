@@ -1,6 +1,7 @@
 package com.articulate.nlp.corpora;
 
 import com.articulate.nlp.semRewrite.Interpreter;
+import com.articulate.nlp.semconcor.BulkIndexer;
 import com.articulate.nlp.semconcor.Indexer;
 import com.articulate.sigma.KBmanager;
 import com.articulate.sigma.utils.*;
@@ -67,6 +68,18 @@ public class CorpusReader {
      */
     public void processFileByLine(Connection conn, String file) {
 
+        processFileByLine(conn,null,file);
+    }
+
+    /***************************************************************
+     * Read and process a single corpus file one line at a time,
+     * storing in batches with bulk if it is not null, and report the
+     * tokens indexed per second
+     */
+    public void processFileByLine(Connection conn, BulkIndexer bulk, String file) {
+
+        long t1 = System.currentTimeMillis();
+        long tokens = Indexer.tokensIndexed;
         Interpreter interp = new Interpreter();
         try (InputStream in = new FileInputStream(file);
             Reader reader = new InputStreamReader(in);
@@ -81,10 +94,14 @@ public class CorpusReader {
                         line = line.replaceAll(regExRemove,regExReplacement); // remove corrections to the English
                     if (removeHTML)
                         line = StringUtil.removeHTML(line);
-                    Indexer.extractOneAugmentLine(interp,conn,line,Indexer.tokensMax,file,lnr.getLineNumber());
+                    Indexer.extractOneAugmentLine(interp,conn,bulk,line,Indexer.tokensMax,file,lnr.getLineNumber());
                     System.out.println("Info in CorpusReader.processFileByLine(): line: " + line);
                 }
             }
+            double seconds = (System.currentTimeMillis() - t1) / 1000.0;
+            tokens = Indexer.tokensIndexed - tokens;
+            System.out.printf("Info in CorpusReader.processFileByLine(): %d tokens in %.1f seconds: %.1f tokens/sec%n",
+                    tokens, seconds, seconds == 0 ? 0 : tokens / seconds);
         }
         catch (IOException e) {
             System.err.println("Error in CorpusReader.processFileByLine(): " + e.getMessage());
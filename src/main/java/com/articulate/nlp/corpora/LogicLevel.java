@@ -159,7 +159,7 @@ public class LogicLevel {
                 System.out.print(".");
             if (StringUtil.emptyString(line)) {
                 wholeDocument = new Annotation(para.toString());
-                p.pipeline.annotate(wholeDocument);
+                p.annotate(wholeDocument);
                 List<CoreMap> sents = wholeDocument.get(CoreAnnotations.SentencesAnnotation.class);
                 for (CoreMap cm : sents)
                     sentences.add(cm);
@@ -185,7 +185,7 @@ public class LogicLevel {
                 System.out.print(".");
             if (StringUtil.emptyString(line)) {
                 wholeDocument = new Annotation(para.toString());
-                p.pipeline.annotate(wholeDocument);
+                p.annotate(wholeDocument);
                 List<CoreMap> sents = wholeDocument.get(CoreAnnotations.SentencesAnnotation.class);
                 for (CoreMap cm : sents)
                     sentences.add(cm);
@@ -216,7 +216,7 @@ public class LogicLevel {
             if (line.startsWith("#")) {
                 //System.out.println("readWordFile(): l: " + l.toString());
                 wholeDocument = new Annotation(l.toString());
-                p.pipeline.annotate(wholeDocument);
+                p.annotate(wholeDocument);
                 List<CoreMap> sents = wholeDocument.get(CoreAnnotations.SentencesAnnotation.class);
                 for (CoreMap cm : sents)
                     sentences.add(cm);
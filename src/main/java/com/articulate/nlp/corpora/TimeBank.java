@@ -68,7 +68,7 @@ public class TimeBank {
         Properties props = new Properties();
         String propString = "tokenize, ssplit, pos, lemma, ner";
         p = new Pipeline(true,propString);
-        p.pipeline.addAnnotator(new TimeAnnotator("sutime", props));
+        p.addAnnotator("sutime", new TimeAnnotator("sutime", props));
         initialized = true;
         System.out.println("in TimeBank.init(): completed initialization");
     }
@@ -455,7 +455,7 @@ public class TimeBank {
 
         wholeDocument = new Annotation(sentence);
         wholeDocument.set(CoreAnnotations.DocDateAnnotation.class, anchorDate);
-        p.pipeline.annotate(wholeDocument);
+        p.annotate(wholeDocument);
         suMarkup = new ArrayList<>();
         List<CoreMap> timexAnnsAll = wholeDocument.get(TimeAnnotations.TimexAnnotations.class);
         if (timexAnnsAll != null) {
@@ -838,7 +838,7 @@ public class TimeBank {
         System.out.println("TimeBank.processParagraph()\n " + para);
         Annotation wholeDocument = new Annotation(para);
         wholeDocument.set(CoreAnnotations.DocDateAnnotation.class, anchorDate);
-        p.pipeline.annotate(wholeDocument);
+        p.annotate(wholeDocument);
         //List<CoreMap> sentences = wholeDocument.get(CoreAnnotations.SentencesAnnotation.class);
 
         //System.out.println("text:" + wholeDocument.get(CoreAnnotations.TextAnnotation.class));
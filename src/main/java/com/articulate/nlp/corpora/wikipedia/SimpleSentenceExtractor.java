@@ -180,7 +180,7 @@ public class SimpleSentenceExtractor {
         System.out.println(textVersion);
         Pipeline p = new Pipeline(true,"tokenize, ssplit, pos");
         Annotation wholeDocument = new Annotation(textVersion);
-        p.pipeline.annotate(wholeDocument);
+        p.annotate(wholeDocument);
         List<CoreMap> sentences = wholeDocument.get(CoreAnnotations.SentencesAnnotation.class);
         for (CoreMap sentence : sentences) {
             List<CoreLabel> tokens = sentence.get(CoreAnnotations.TokensAnnotation.class);
@@ -211,7 +211,7 @@ public class SimpleSentenceExtractor {
 
         ArrayList<String> result = new ArrayList<String>();
         Annotation wholeDocument = new Annotation(line);
-        p.pipeline.annotate(wholeDocument);
+        p.annotate(wholeDocument);
         List<CoreMap> sentences = wholeDocument.get(CoreAnnotations.SentencesAnnotation.class);
         for (CoreMap sentence : sentences) {
             List<CoreLabel> tokens = sentence.get(CoreAnnotations.TokensAnnotation.class);
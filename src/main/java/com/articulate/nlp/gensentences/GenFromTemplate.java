@@ -1112,6 +1112,9 @@ public class GenFromTemplate {
                 morphoDbPath = home + "/.sigmanlp/MorphoDB/gpt-oss_20b";
             }
             init(filePrefix, morphoDbPath, templates.isQueryMissingWords(), templates.getMorphoDbModel());
+            if (templates.getMissingWordWaitMillis() != null) {
+                morphoDB.setMissingWordWaitMillis(templates.getMissingWordWaitMillis());
+            }
             System.out.println("Loaded templates.json with " + templates.size() + " template(s).");
             Templates.Template template;
             int i = 0;
@@ -1120,6 +1123,7 @@ public class GenFromTemplate {
                 processTemplate(template);
                 i++;
             }
+            morphoDB.awaitPendingQueries();
         }
         catch (IOException ex) {
             System.err.println("Unable to read templates.json: " + ex.getMessage());
@@ -557,6 +557,7 @@ public class Templates {
     private final String morphoDbPath;
     private final boolean queryMissingWords;
     private final String morphoDbModel;
+    private final Integer missingWordWaitMillis;
     private int nextIndex;
 
     private Templates(double defaultModalFreq,
@@ -574,7 +575,8 @@ public class Templates {
                       List<Template> templates,
                       String morphoDbPath,
                       boolean queryMissingWords,
-                      String morphoDbModel) {
+                      String morphoDbModel,
+                      Integer missingWordWaitMillis) {
         this.defaultModalFreq = defaultModalFreq;
         this.defaultModalNegFreq = defaultModalNegFreq;
         this.defaultQuestionFreq = defaultQuestionFreq;
@@ -591,6 +593,7 @@ public class Templates {
         this.morphoDbPath = morphoDbPath;
         this.queryMissingWords = queryMissingWords;
         this.morphoDbModel = morphoDbModel;
+        this.missingWordWaitMillis = missingWordWaitMillis;
         this.nextIndex = 0;
     }
 
@@ -606,6 +609,14 @@ public class Templates {
         return morphoDbModel;
     }
 
+    /***************************************************************
+     * Returns resources.morpho_db.missing_word_wait_ms, or null if
+     * it is not set.
+     ***************************************************************/
+    public Integer getMissingWordWaitMillis() {
+        return missingWordWaitMillis;
+    }
+
     /***************************************************************
      * Reads a templates.json file and builds a Templates object.
      ***************************************************************/
@@ -636,6 +647,7 @@ public class Templates {
         String morphoDbPath       = readOptionalString(morphoDbNode, "path");
         boolean queryMissingWords = Boolean.TRUE.equals(readOptionalBoolean(morphoDbNode, "query_missing_words"));
         String morphoDbModel      = readOptionalString(morphoDbNode, "model");
+        Integer missingWordWait   = readOptionalInt(morphoDbNode, "missing_word_wait_ms");
         List<Template> templates = loadTemplates(root, modalFreq, modalNegFreq,
                 questionFreq, numToGen, modalOn, questionOn, tenseOn,
                 tenseNoneWeight, tensePastWeight, tensePresentWeight, tenseFutureWeight,
@@ -643,7 +655,8 @@ public class Templates {
         return new Templates(modalFreq, modalNegFreq, questionFreq, numToGen,
                 modalOn, questionOn, tenseOn,
                 tenseNoneWeight, tensePastWeight, tensePresentWeight, tenseFutureWeight,
-                defaultModalValues, templates, morphoDbPath, queryMissingWords, morphoDbModel);
+                defaultModalValues, templates, morphoDbPath, queryMissingWords, morphoDbModel,
+                missingWordWait);
     }
 
     /***************************************************************
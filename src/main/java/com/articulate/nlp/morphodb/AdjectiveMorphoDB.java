@@ -11,15 +11,27 @@ import java.util.Map;
  ***************************************************************/
 public class AdjectiveMorphoDB {
 
-    public final Map<String, List<ObjectNode>> semanticClasses;
+    private final String morphoDbPath;
+    private Map<String, List<ObjectNode>> semanticClasses = null;
 
-    public AdjectiveMorphoDB(Map<String, List<ObjectNode>> semanticClasses) {
-        this.semanticClasses = semanticClasses;
+    private AdjectiveMorphoDB(String morphoDbPath) {
+        this.morphoDbPath = morphoDbPath;
     }
 
+    /***************************************************************
+     * Nothing is read until a classification is asked for.
+     ***************************************************************/
     public static AdjectiveMorphoDB load(String morphoDbPath) {
 
-        return new AdjectiveMorphoDB(loadSemanticClasses(morphoDbPath));
+        return new AdjectiveMorphoDB(morphoDbPath);
+    }
+
+    public synchronized Map<String, List<ObjectNode>> getSemanticClasses() {
+
+        if (semanticClasses == null) {
+            semanticClasses = loadSemanticClasses(morphoDbPath);
+        }
+        return semanticClasses;
     }
 
     private static Map<String, List<ObjectNode>> loadSemanticClasses(String morphoDbPath) {
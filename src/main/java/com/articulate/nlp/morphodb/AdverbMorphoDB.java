@@ -11,15 +11,27 @@ import java.util.Map;
  ***************************************************************/
 public class AdverbMorphoDB {
 
-    public final Map<String, List<ObjectNode>> semanticClasses;
+    private final String morphoDbPath;
+    private Map<String, List<ObjectNode>> semanticClasses = null;
 
-    public AdverbMorphoDB(Map<String, List<ObjectNode>> semanticClasses) {
-        this.semanticClasses = semanticClasses;
+    private AdverbMorphoDB(String morphoDbPath) {
+        this.morphoDbPath = morphoDbPath;
     }
 
+    /***************************************************************
+     * Nothing is read until a classification is asked for.
+     ***************************************************************/
     public static AdverbMorphoDB load(String morphoDbPath) {
 
-        return new AdverbMorphoDB(loadSemanticClasses(morphoDbPath));
+        return new AdverbMorphoDB(morphoDbPath);
+    }
+
+    public synchronized Map<String, List<ObjectNode>> getSemanticClasses() {
+
+        if (semanticClasses == null) {
+            semanticClasses = loadSemanticClasses(morphoDbPath);
+        }
+        return semanticClasses;
     }
 
     private static Map<String, List<ObjectNode>> loadSemanticClasses(String morphoDbPath) {
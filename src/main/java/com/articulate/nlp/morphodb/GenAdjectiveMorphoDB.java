@@ -45,18 +45,9 @@ public class GenAdjectiveMorphoDB {
 
         String adjectiveFileName = GenMorphoUtils.resolveOutputFile("adjective", "AdjectiveSemanticClasses.txt");
         Map<String, List<String>> classifiedEntries = GenMorphoUtils.loadExistingClassifications(adjectiveFileName);
-        for (Map.Entry<String, Set<String>> entry : adjectiveSynsetHash.entrySet()) {
-            String term = entry.getKey().replace('_', ' ');
-
-            if (entry.getValue().isEmpty()) continue;
-            String lemmaKey = GenMorphoUtils.normalizeLemma(term);
-            if (GenMorphoUtils.alreadyClassified(classifiedEntries, lemmaKey)) {
-                if (GenMorphoUtils.debug) {
-                    System.out.println("Skipping GenAdjectiveMorphoDB.genAdjectiveClasses() for \"" + term + "\" - already classified.");
-                }
-                continue;
-            }
-            String synsetId = Collections.min(entry.getValue());
+        GenMorphoWorkers.forEachLemma("GenAdjectiveMorphoDB.genAdjectiveClasses()", adjectiveFileName,
+                adjectiveSynsetHash, classifiedEntries, (term, lemmaKey, synsetIds) -> {
+            String synsetId = Collections.min(synsetIds);
             String definition = adjectiveDocumentationHash.get(synsetId);
             definition = (definition != null) ? definition.replaceAll("^\"|\"$", "") : null;
             String definitionStatement = (definition == null) ? "" :
@@ -99,7 +90,7 @@ public class GenAdjectiveMorphoDB {
             if (GenMorphoUtils.debug) {
                 System.out.println("GenAdjectiveMorphoDB.genAdjectiveSemanticClasses() Prompt: " + prompt);
             }
-            String llmResponse = GenUtils.askLLM(prompt);
+            String llmResponse = GenMorphoWorkers.askLLM(prompt);
             boolean errorInResponse = true;
             ObjectNode responseNode = GenMorphoUtils.extractRequiredJsonObject(llmResponse,
                     cheapPrompt
@@ -122,6 +113,7 @@ public class GenAdjectiveMorphoDB {
                 GenMorphoUtils.cacheClassification(classifiedEntries, lemmaKey, serializedLine);
             }
             if (errorInResponse) {
+                GenUtils.evictLLMResponse(prompt);
                 String errorLine = GenMorphoUtils.buildErrorRecord("adjective", term, lemmaKey, synsetId,
                         definition, llmResponse, "Unable to parse adjective classification response.");
                 GenUtils.writeToFile(adjectiveFileName, errorLine + "\n");
@@ -132,7 +124,7 @@ public class GenAdjectiveMorphoDB {
                 System.out.println("\n\nGenAdjectiveMorphoDB.genAdjectiveSemanticClasses().LLMResponse: " +
                         llmResponse + "\n\n**************\n");
             }
-        }
+        });
     }
 
     private static String normalizeAdjectiveCategory(String rawCategory) {
@@ -45,18 +45,9 @@ public class GenAdverbMorphoDB {
 
         String adverbFileName = GenMorphoUtils.resolveOutputFile("adverb", "AdverbSemanticClasses.txt");
         Map<String, List<String>> classifiedEntries = GenMorphoUtils.loadExistingClassifications(adverbFileName);
-        for (Map.Entry<String, Set<String>> entry : adverbSynsetHash.entrySet()) {
-            String term = entry.getKey().replace('_', ' ');
-
-            if (entry.getValue().isEmpty()) continue;
-            String lemmaKey = GenMorphoUtils.normalizeLemma(term);
-            if (GenMorphoUtils.alreadyClassified(classifiedEntries, lemmaKey)) {
-                if (GenMorphoUtils.debug) {
-                    System.out.println("Skipping GenAdverbMorphoDB.genAdverbSemanticClasses() for \"" + term + "\" - already classified.");
-                }
-                continue;
-            }
-            String synsetId = Collections.min(entry.getValue());
+        GenMorphoWorkers.forEachLemma("GenAdverbMorphoDB.genAdverbSemanticClasses()", adverbFileName,
+                adverbSynsetHash, classifiedEntries, (term, lemmaKey, synsetIds) -> {
+            String synsetId = Collections.min(synsetIds);
             String definition = adverbDocumentationHash.get(synsetId);
             definition = (definition != null) ? definition.replaceAll("^\"|\"$", "") : null;
             String definitionStatement = (definition == null) ? "" :
@@ -110,7 +101,7 @@ public class GenAdverbMorphoDB {
             if (GenMorphoUtils.debug) {
                 System.out.println("GenAdverbMorphoDB.genAdverbSemanticClasses() Prompt: " + prompt);
             }
-            String llmResponse = GenUtils.askLLM(prompt);
+            String llmResponse = GenMorphoWorkers.askLLM(prompt);
             boolean errorInResponse = true;
             ObjectNode responseNode = GenMorphoUtils.extractRequiredJsonObject(llmResponse,
                     cheapPrompt
@@ -133,6 +124,7 @@ public class GenAdverbMorphoDB {
                 GenMorphoUtils.cacheClassification(classifiedEntries, lemmaKey, serializedLine);
             }
             if (errorInResponse) {
+                GenUtils.evictLLMResponse(prompt);
                 String errorLine = GenMorphoUtils.buildErrorRecord("adverb", term, lemmaKey, synsetId,
                         definition, llmResponse, "Unable to parse adverb classification response.");
                 GenUtils.writeToFile(adverbFileName, errorLine + "\n");
@@ -142,7 +134,7 @@ public class GenAdverbMorphoDB {
             if (GenMorphoUtils.debug) {
                 System.out.println("\n\nGenAdverbMorphoDB.genAdverbSemanticClasses().LLMResponse: " + llmResponse + "\n\n**************\n");
             }
-        }
+        });
     }
 
     private static String normalizeAdverbCategory(String rawCategory) {
@@ -49,10 +49,16 @@ public class GenMorphoDB {
         String model;
         String morphoDbPath;
         Integer ollamaPort = DEFAULT_OLLAMA_PORT;
+        List<Integer> ollamaPorts = new ArrayList<>();
+        Integer workers;
+        Long progressSeconds;
         String apiKey;
         String apiKeyEnv;
         String baseUrl;
         String serviceTier;
+        Integer llmConcurrency;
+        Double llmRate;
+        Long llmDeadline;
         Boolean cheapPromptMode;
         boolean verbose;
         boolean allModels;
@@ -135,7 +141,9 @@ public class GenMorphoDB {
         System.out.println("      --provider <ollama|openai|anthropic|claude|openai-compatible|google|gemini|openrouter> --model <model> \\");
         System.out.println("      [--ollama-port <port>] [--api-key <key>|--api-key-env <ENV_VAR>] [--base-url <url>] \\");
         System.out.println("      [--service-tier <auto|default|flex|priority>] [--cheap-prompt|--full-prompt] [--verbose] \\");
-        System.out.println("      [--or-provider-order <provider1,provider2,...>] [--or-provider-preferred <provider>]");
+        System.out.println("      [--or-provider-order <provider1,provider2,...>] [--or-provider-preferred <provider>] \\");
+        System.out.println("      [--llm-concurrency <requests>] [--llm-rate <requests-per-second>] [--llm-deadline <seconds>] \\");
+        System.out.println("      [--ollama-ports <port1,port2,...>] [--workers <per-endpoint>] [--progress-seconds <seconds>]");
         System.out.println("      --or-provider-preferred is accepted as a compatibility alias for --or-provider-order.");
         System.out.println("word-types supported: noun, verb, adjective, adverb, all");
         System.out.println("Maintenance flags:");
@@ -173,6 +181,12 @@ public class GenMorphoDB {
         System.out.println("Noun parallelization flags (apply to all noun gen-functions):");
         System.out.println("  --noun-start <letter>   Begin noun processing at this letter, inclusive (e.g. a)");
         System.out.println("  --noun-end   <letter>   Stop noun processing at this letter, inclusive (e.g. k)");
+        System.out.println("In-process parallelization flags (apply to all gen-functions):");
+        System.out.println("  --ollama-ports <p1,p2,...>   Share lemmas among Ollama servers on these ports");
+        System.out.println("  --workers <n>                Workers per endpoint (default: --llm-concurrency)");
+        System.out.println("  --progress-seconds <s>       Report lemmas/minute per endpoint this often (default 60)");
+        System.out.println("  Workers take the next lemma from a shared queue; a killed run resumes with");
+        System.out.println("  the lemmas that have no record in the output file yet.");
         System.out.println("Adjective gen-functions:");
         System.out.println("  -c to classify adjectives by semantic category");
         System.out.println("Adverb gen-functions:");
@@ -281,6 +295,45 @@ public class GenMorphoDB {
                 index += 2;
                 continue;
             }
+            if ("--ollama-ports".equals(arg)) {
+                if (index + 1 >= args.length) {
+                    System.err.println("Missing value for --ollama-ports.");
+                    return null;
+                }
+                options.ollamaPorts = parseOllamaPorts(args[index + 1]);
+                if (options.ollamaPorts == null) {
+                    System.err.println("Invalid --ollama-ports value: " + args[index + 1]);
+                    return null;
+                }
+                index += 2;
+                continue;
+            }
+            if ("--workers".equals(arg)) {
+                if (index + 1 >= args.length) {
+                    System.err.println("Missing value for --workers.");
+                    return null;
+                }
+                if (!isInteger(args[index + 1]) || Integer.parseInt(args[index + 1].trim()) < 1) {
+                    System.err.println("Invalid --workers value: " + args[index + 1]);
+                    return null;
+                }
+                options.workers = Integer.parseInt(args[index + 1].trim());
+                index += 2;
+                continue;
+            }
+            if ("--progress-seconds".equals(arg)) {
+                if (index + 1 >= args.length) {
+                    System.err.println("Missing value for --progress-seconds.");
+                    return null;
+                }
+                if (!isInteger(args[index + 1]) || Integer.parseInt(args[index + 1].trim()) < 1) {
+                    System.err.println("Invalid --progress-seconds value: " + args[index + 1]);
+                    return null;
+                }
+                options.progressSeconds = Long.parseLong(args[index + 1].trim());
+                index += 2;
+                continue;
+            }
             if ("--api-key".equals(arg)) {
                 if (index + 1 >= args.length) {
                     System.err.println("Missing value for --api-key.");
@@ -340,6 +393,49 @@ public class GenMorphoDB {
                 index += 2;
                 continue;
             }
+            if ("--llm-concurrency".equals(arg)) {
+                if (index + 1 >= args.length) {
+                    System.err.println("Missing value for --llm-concurrency.");
+                    return null;
+                }
+                if (!isInteger(args[index + 1]) || Integer.parseInt(args[index + 1].trim()) < 1) {
+                    System.err.println("Invalid --llm-concurrency value: " + args[index + 1]);
+                    return null;
+                }
+                options.llmConcurrency = Integer.parseInt(args[index + 1].trim());
+                index += 2;
+                continue;
+            }
+            if ("--llm-rate".equals(arg)) {
+                if (index + 1 >= args.length) {
+                    System.err.println("Missing value for --llm-rate.");
+                    return null;
+                }
+                try {
+                    options.llmRate = Double.parseDouble(args[index + 1].trim());
+                } catch (NumberFormatException ex) {
+                    options.llmRate = -1.0;
+                }
+                if (options.llmRate < 0) {
+                    System.err.println("Invalid --llm-rate value: " + args[index + 1]);
+                    return null;
+                }
+                index += 2;
+                continue;
+            }
+            if ("--llm-deadline".equals(arg)) {
+                if (index + 1 >= args.length) {
+                    System.err.println("Missing value for --llm-deadline.");
+                    return null;
+                }
+                if (!isInteger(args[index + 1])) {
+                    System.err.println("Invalid --llm-deadline value: " + args[index + 1]);
+                    return null;
+                }
+                options.llmDeadline = Long.parseLong(args[index + 1].trim());
+                index += 2;
+                continue;
+            }
             if ("--cheap-prompt".equals(arg)) {
                 options.cheapPromptMode = true;
                 index++;
@@ -577,6 +673,32 @@ public class GenMorphoDB {
         }
     }
 
+    /***************************************************************
+     * Parses a comma-separated list of Ollama ports, or returns null
+     * if any of them is not a port number.
+     ***************************************************************/
+    private static List<Integer> parseOllamaPorts(String value) {
+
+        List<Integer> ports = new ArrayList<>();
+        for (String token : value.split(",")) {
+            String trimmed = token.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (!isInteger(trimmed)) {
+                return null;
+            }
+            int port = Integer.parseInt(trimmed);
+            if (port < 1 || port > 65535) {
+                return null;
+            }
+            if (!ports.contains(port)) {
+                ports.add(port);
+            }
+        }
+        return ports.isEmpty() ? null : ports;
+    }
+
     private static void configureLlm(CliOptions options) {
 
         GenUtils.setLLMProvider(options.provider);
@@ -595,6 +717,10 @@ public class GenMorphoDB {
             System.out.println("Using provider: ollama");
             System.out.println("Using model: " + GenUtils.getLLMModel());
             System.out.println("Using Ollama port: " + options.ollamaPort);
+            GenMorphoWorkers.setOllamaPorts(options.ollamaPorts);
+            if (!options.ollamaPorts.isEmpty()) {
+                System.out.println("Spreading workers across Ollama ports: " + options.ollamaPorts);
+            }
         } else {
             GenUtils.setLLMApiKey(options.apiKey);
             System.out.println("Using provider: " + GenUtils.getLLMProvider());
@@ -630,6 +756,24 @@ public class GenMorphoDB {
             System.out.println("Ignoring OpenRouter provider order for provider: " + options.provider +
                     " (only applied when --provider openrouter).");
         }
+        if (options.llmConcurrency != null) {
+            GenUtils.setLLMConcurrency(options.llmConcurrency);
+        }
+        if (options.llmRate != null) {
+            GenUtils.setLLMRate(options.llmRate);
+        }
+        if (options.llmDeadline != null) {
+            GenUtils.setLLMDeadlineSeconds(options.llmDeadline);
+        }
+        System.out.println("Using LLM concurrency: " + GenUtils.getLLMConcurrency() +
+                (GenUtils.getLLMRate() > 0 ? ", at most " + GenUtils.getLLMRate() + " requests per second" : ""));
+        if (options.workers != null) {
+            GenMorphoWorkers.setWorkersPerEndpoint(options.workers);
+        }
+        if (options.progressSeconds != null) {
+            GenMorphoWorkers.setReportMillis(options.progressSeconds * 1000L);
+        }
+        System.out.println("Using workers per endpoint: " + GenMorphoWorkers.getWorkersPerEndpoint());
         System.out.println("Using cheap prompt mode: " + GenUtils.isCheapPromptMode());
         System.out.println("Using verbose logging: " + GenMorphoUtils.debug);
         System.out.println("MorphoDB model directory: " + GenUtils.getMorphoModelDirectoryName());
@@ -791,7 +935,7 @@ public class GenMorphoDB {
                 printHelp();
                 return;
         }
-
+        GenUtils.printLLMStats();
     }
 
     private static class MaintenanceTarget {
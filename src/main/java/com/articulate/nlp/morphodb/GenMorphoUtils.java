@@ -1,5 +1,6 @@
 package com.articulate.nlp.morphodb;
 
+import com.articulate.nlp.BatchedWriter;
 import com.articulate.nlp.GenUtils;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -10,8 +11,6 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
-import java.nio.channels.FileLock;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -22,7 +21,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 /***************************************************************
  * Shared utilities for morphological database generation.
@@ -33,7 +32,6 @@ public final class GenMorphoUtils {
     private static final String OUTPUT_ROOT = "MorphologicalDatabase";
     private static final String MORPHO_DB_ROOT_DIR = "MorphoDB";
     public static final ObjectMapper JSON_MAPPER = new ObjectMapper();
-    private static final ConcurrentHashMap<String, Object> FILE_WRITE_LOCKS = new ConcurrentHashMap<>();
 
     /***************************************************************
      * Builds the standardized output path for morphology resources.
@@ -234,12 +232,24 @@ public final class GenMorphoUtils {
     public static Map<String, List<ObjectNode>> loadClassificationObjects(String outputFilePath) {
 
         Map<String, List<ObjectNode>> parsed = new HashMap<>();
+        forEachClassificationObject(outputFilePath, node ->
+                parsed.computeIfAbsent(node.path("synsetId").asText("").trim(), key -> new ArrayList<>()).add(node));
+        return parsed;
+    }
+
+    /***************************************************************
+     * Passes each JSON object of a morphology output file to the
+     * consumer in file order, without keeping them, for callers that
+     * compile the records into tables of their own.
+     ***************************************************************/
+    public static void forEachClassificationObject(String outputFilePath, Consumer<ObjectNode> consumer) {
+
         if (outputFilePath == null || outputFilePath.trim().isEmpty()) {
-            return parsed;
+            return;
         }
         Path path = Paths.get(outputFilePath);
         if (!Files.exists(path)) {
-            return parsed;
+            return;
         }
         try (BufferedReader reader = Files.newBufferedReader(path)) {
             String line;
@@ -253,24 +263,26 @@ public final class GenMorphoUtils {
                     System.err.println("Missing synsetId in morphology output file '" + outputFilePath + "' line: " + line);
                     System.exit(1);
                 }
-                parsed.computeIfAbsent(synsetId, key -> new ArrayList<>()).add(node);
+                consumer.accept(node);
             }
         } catch (IOException e) {
             throw new RuntimeException("Unable to parse morphology output file: " + outputFilePath, e);
         }
-        return parsed;
     }
 
     /***************************************************************
      * Determines whether a synset has already been processed.
+     * Synchronized on the index, which GenMorphoWorkers threads share.
      ***************************************************************/
     public static boolean alreadyClassified(Map<String, List<String>> existing, String synsetId) {
 
         if (existing == null || synsetId == null || synsetId.trim().isEmpty()) {
             return false;
         }
-        List<String> serializedLines = existing.get(synsetId);
-        return serializedLines != null && !serializedLines.isEmpty();
+        synchronized (existing) {
+            List<String> serializedLines = existing.get(synsetId);
+            return serializedLines != null && !serializedLines.isEmpty();
+        }
     }
 
     /***************************************************************
@@ -281,7 +293,41 @@ public final class GenMorphoUtils {
         if (existing == null || synsetId == null || synsetId.trim().isEmpty() || serializedLine == null) {
             return;
         }
-        existing.computeIfAbsent(synsetId, key -> new ArrayList<>()).add(serializedLine);
+        synchronized (existing) {
+            existing.computeIfAbsent(synsetId, key -> new ArrayList<>()).add(serializedLine);
+        }
+    }
+
+    /***************************************************************
+     * Ends the last line of an output file with a newline if a killed
+     * run left it cut short, so that the next record appended starts
+     * on a line of its own.  The cut line is left for --compact to
+     * turn into an error row.
+     ***************************************************************/
+    public static void terminateLastLine(String outputFilePath) {
+
+        if (outputFilePath == null || outputFilePath.trim().isEmpty()) {
+            return;
+        }
+        Path path = Paths.get(outputFilePath);
+        if (!Files.isRegularFile(path)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size == 0) {
+                return;
+            }
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, size - 1);
+            if (last.get(0) != '\n') {
+                channel.write(ByteBuffer.wrap(new byte[]{'\n'}), size);
+                System.out.println("INFO in GenMorphoUtils.terminateLastLine(): ended the cut-short last line of " +
+                        outputFilePath);
+            }
+        } catch (IOException e) {
+            System.err.println("Error in GenMorphoUtils.terminateLastLine(): can't repair " + outputFilePath + ": " + e);
+        }
     }
 
     private static String extractSynsetIdFromSerializedLine(String serializedLine) {
@@ -584,28 +630,21 @@ public final class GenMorphoUtils {
     }
 
     /***************************************************************
-     * Appends a single JSON line to an existing DB file, using two
-     * layers of locking:
-     *   1. Per-file synchronized block — intra-JVM thread safety
-     *      (Java FileLock is NOT visible across threads in the same JVM).
-     *   2. FileChannel.lock() — exclusive advisory lock across processes.
+     * Appends a single JSON line to an existing DB file through the
+     * file's shared BatchedWriter, so the caller doesn't wait on the
+     * disk.  The writer's background flush appends the queued lines
+     * in batches under a FileLock, so the file stays safe to share
+     * with other processes, and pending lines are flushed at exit.
      * Does nothing if the file does not already exist (never creates files).
      ***************************************************************/
     public static void appendJsonLine(String filePath, ObjectNode node) {
 
-        Object jvmLock = FILE_WRITE_LOCKS.computeIfAbsent(filePath, k -> new Object());
-        synchronized (jvmLock) {
-            Path path = Paths.get(filePath);
-            if (!Files.exists(path)) return;
-            String line = serializeJsonLine(node) + System.lineSeparator();
-            try (FileChannel channel = FileChannel.open(path,
-                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
-                 FileLock fileLock = channel.lock()) {
-                channel.write(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)));
-            } catch (IOException e) {
-                System.out.println("MorphoDB: failed to persist to " + filePath
-                        + ": " + e.getMessage());
-            }
+        if (!Files.exists(Paths.get(filePath))) return;
+        try {
+            BatchedWriter.get(filePath).write(serializeJsonLine(node));
+        } catch (IOException e) {
+            System.out.println("MorphoDB: failed to persist to " + filePath
+                    + ": " + e.getMessage());
         }
     }
 
@@ -0,0 +1,293 @@
+package com.articulate.nlp.morphodb;
+
+import com.articulate.nlp.BatchedWriter;
+import com.articulate.nlp.GenUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/***************************************************************
+ * Runs the per-lemma work of a gen-function on worker threads
+ * spread across one or more LLM endpoints, such as Ollama servers
+ * on several ports of one node.
+ *
+ * Each worker is bound to an endpoint and takes the next lemma from
+ * a queue that all workers share, so a faster endpoint simply does
+ * more lemmas and no worker sits idle while another has a backlog,
+ * as happens with the fixed alphabet slices of --noun-start and
+ * --verb-start.
+ *
+ * The output file is the checkpoint.  A lemma's record is appended
+ * once its work is done, and lemmas that already have a record are
+ * left out of the queue, so a run that is killed and started again
+ * goes on with exactly the lemmas that have none: those not started
+ * and those in flight when it was killed.  BatchedWriter flushes the
+ * records every second and at shutdown, and each progress report
+ * flushes them too.  A last line cut short by the kill is ended
+ * before anything is appended after it.
+ *
+ * Each progress report gives the lemmas per minute of each endpoint.
+ *
+ * Tasks ask the LLM with askLLM() or await() here rather than
+ * GenUtils.askLLM(), which exits the process when a request fails, so
+ * that an endpoint that doesn't answer fails only the lemmas it was
+ * asked about.
+ ***************************************************************/
+public class GenMorphoWorkers {
+
+    public static boolean debug = false;
+
+    public static final long DEFAULT_REPORT_MILLIS = 60 * 1000L;
+
+    // Ollama ports to spread the workers across, or empty for the configured port
+    private static List<Integer> ollamaPorts = new ArrayList<>();
+    // workers per endpoint, or 0 for the LLM concurrency
+    private static int workersPerEndpoint = 0;
+    private static long reportMillis = DEFAULT_REPORT_MILLIS;
+
+    /***************************************************************
+     * The work for one lemma, which writes its record to the output
+     * file.  Called from several threads at once.
+     ***************************************************************/
+    @FunctionalInterface
+    public interface LemmaTask {
+
+        void classify(String term, String lemmaKey, Set<String> synsetIds);
+    }
+
+    private static class Lemma {
+
+        final String term;
+        final String key;
+        final Set<String> synsetIds;
+
+        Lemma(String term, String key, Set<String> synsetIds) {
+            this.term = term;
+            this.key = key;
+            this.synsetIds = synsetIds;
+        }
+    }
+
+    private static class Endpoint {
+
+        final String name;
+        final Integer ollamaPort;
+        final AtomicLong done = new AtomicLong();
+
+        Endpoint(String name, Integer ollamaPort) {
+            this.name = name;
+            this.ollamaPort = ollamaPort;
+        }
+    }
+
+    /***************************************************************
+     * Sets the Ollama ports to spread workers across, one endpoint
+     * each.  An empty list uses the port set with
+     * GenUtils.setOllamaPort().
+     ***************************************************************/
+    public static void setOllamaPorts(List<Integer> ports) {
+
+        ollamaPorts = (ports == null) ? new ArrayList<>() : new ArrayList<>(ports);
+    }
+
+    public static List<Integer> getOllamaPorts() {
+
+        return Collections.unmodifiableList(ollamaPorts);
+    }
+
+    /***************************************************************
+     * Sets the number of workers per endpoint, or 0 for as many as
+     * the LLM concurrency, which keeps each endpoint's request slots
+     * full.
+     ***************************************************************/
+    public static void setWorkersPerEndpoint(int workers) {
+
+        if (workers < 0) {
+            throw new IllegalArgumentException("Workers per endpoint must not be negative.");
+        }
+        workersPerEndpoint = workers;
+    }
+
+    public static int getWorkersPerEndpoint() {
+
+        return (workersPerEndpoint > 0) ? workersPerEndpoint : GenUtils.getLLMConcurrency();
+    }
+
+    /***************************************************************
+     * Sets how often progress is reported while workers run.
+     ***************************************************************/
+    public static void setReportMillis(long millis) {
+
+        if (millis < 1) {
+            throw new IllegalArgumentException("Report interval must be positive.");
+        }
+        reportMillis = millis;
+    }
+
+    /***************************************************************
+     * Returns the endpoints of the configured provider: one per Ollama
+     * port, or the provider's single endpoint.
+     ***************************************************************/
+    private static List<Endpoint> endpoints() {
+
+        List<Endpoint> endpoints = new ArrayList<>();
+        if (!"ollama".equals(GenUtils.getLLMProvider())) {
+            endpoints.add(new Endpoint(GenUtils.getLLMEndpoint().name, null));
+            return endpoints;
+        }
+        List<Integer> ports = ollamaPorts.isEmpty()
+                ? Collections.singletonList(GenUtils.getOllamaPort())
+                : ollamaPorts;
+        for (Integer port : ports) {
+            endpoints.add(new Endpoint("ollama:" + port, port));
+        }
+        return endpoints;
+    }
+
+    /***************************************************************
+     * Sends a prompt to the configured LLM provider and returns the
+     * response, for use in a LemmaTask.
+     *
+     * @throws IllegalStateException if no response comes, which fails
+     *                               only the lemma being done
+     ***************************************************************/
+    public static String askLLM(String prompt) {
+
+        return await(GenUtils.askLLMAsync(prompt));
+    }
+
+    /***************************************************************
+     * Waits for an LLM request made in a LemmaTask.
+     *
+     * @throws IllegalStateException if the request failed or the
+     *                               worker was interrupted
+     ***************************************************************/
+    public static <T> T await(CompletableFuture<T> future) {
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a response", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("No response: " + e.getCause(), e.getCause());
+        }
+    }
+
+    /***************************************************************
+     * Runs the task for every lemma of the synset hash that has
+     * synsets and no record in classifiedEntries yet, once per
+     * normalized lemma, and returns when all are done.  A task that
+     * throws is reported and its lemma left for the next run.
+     *
+     * @param caller the gen-function, for messages
+     * @param outputFile the file the task appends records to
+     * @param classifiedEntries the records already in outputFile, by
+     *                          normalized lemma
+     ***************************************************************/
+    public static void forEachLemma(String caller, String outputFile, Map<String, Set<String>> synsetHash,
+                                    Map<String, List<String>> classifiedEntries, LemmaTask task) {
+
+        GenMorphoUtils.terminateLastLine(outputFile);
+        List<Lemma> pending = new ArrayList<>();
+        Set<String> queued = new HashSet<>();
+        for (Map.Entry<String, Set<String>> entry : synsetHash.entrySet()) {
+            String term = entry.getKey().replace('_', ' ');
+
+            if (entry.getValue().isEmpty()) continue;
+            String lemmaKey = GenMorphoUtils.normalizeLemma(term);
+            if (GenMorphoUtils.alreadyClassified(classifiedEntries, lemmaKey)) {
+                if (GenMorphoUtils.debug) {
+                    System.out.println("Skipping " + caller + " for \"" + term + "\" - already classified.");
+                }
+                continue;
+            }
+            if (queued.add(lemmaKey)) {
+                pending.add(new Lemma(term, lemmaKey, entry.getValue()));
+            }
+        }
+        List<Endpoint> endpoints = endpoints();
+        int perEndpoint = getWorkersPerEndpoint();
+        System.out.println("INFO in GenMorphoWorkers.forEachLemma(): " + caller + ": " + pending.size() +
+                " lemmas to do, " + (synsetHash.size() - pending.size()) + " done or skipped, " +
+                perEndpoint + " workers on each of " + endpoints.size() + " endpoints");
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(endpoints.size() * perEndpoint);
+        for (Endpoint endpoint : endpoints) {
+            for (int n = 0; n < perEndpoint; n++) {
+                Thread worker = new Thread(() -> {
+                    try {
+                        GenUtils.setThreadOllamaPort(endpoint.ollamaPort);
+                        for (int i = next.getAndIncrement(); i < pending.size(); i = next.getAndIncrement()) {
+                            Lemma lemma = pending.get(i);
+                            try {
+                                task.classify(lemma.term, lemma.key, lemma.synsetIds);
+                                endpoint.done.incrementAndGet();
+                                if (debug) System.out.println("INFO in GenMorphoWorkers.forEachLemma(): " +
+                                        caller + " did \"" + lemma.term + "\" on " + endpoint.name);
+                            } catch (RuntimeException e) {
+                                failed.incrementAndGet();
+                                System.err.println("Error in GenMorphoWorkers.forEachLemma(): " + caller +
+                                        " failed for \"" + lemma.term + "\" on " + endpoint.name + ": " + e);
+                                e.printStackTrace();
+                            }
+                        }
+                    } finally {
+                        finished.countDown();
+                    }
+                }, "GenMorphoWorkers-" + endpoint.name + "-" + n);
+                worker.setDaemon(true);
+                worker.start();
+            }
+        }
+        try {
+            while (!finished.await(reportMillis, TimeUnit.MILLISECONDS)) {
+                BatchedWriter.flushAll();
+                report(caller, endpoints, pending.size(), failed.get(), start);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            next.set(pending.size()); // workers stop after their current lemma
+            System.err.println("Error in GenMorphoWorkers.forEachLemma(): " + caller + " interrupted");
+        }
+        BatchedWriter.flushAll();
+        report(caller, endpoints, pending.size(), failed.get(), start);
+    }
+
+    /***************************************************************
+     * Prints the lemmas done so far and each endpoint's lemmas per
+     * minute.
+     ***************************************************************/
+    private static void report(String caller, List<Endpoint> endpoints, int total, int failed, long start) {
+
+        double minutes = Math.max(1, System.currentTimeMillis() - start) / 60000.0;
+        long done = 0;
+        StringBuilder rates = new StringBuilder();
+        for (Endpoint endpoint : endpoints) {
+            long n = endpoint.done.get();
+            done += n;
+            rates.append(rates.length() == 0 ? "" : ", ")
+                    .append(endpoint.name).append(' ')
+                    .append(String.format("%.1f", n / minutes)).append("/min");
+        }
+        System.out.println("INFO in GenMorphoWorkers.forEachLemma(): " + caller + ": " + done + " of " + total +
+                " lemmas" + (failed > 0 ? " (" + failed + " failed)" : "") +
+                String.format(" in %.1f min; ", minutes) + rates);
+    }
+}
@@ -71,18 +71,9 @@ public class GenNounMorphoDB {
 
         String indefFileName = GenMorphoUtils.resolveOutputFile("noun", "IndefiniteArticles.txt");
         Map<String, List<String>> classifiedEntries = GenMorphoUtils.loadExistingClassifications(indefFileName);
-        for (Map.Entry<String, Set<String>> entry : nounSynsetHash.entrySet()) {
-            String term = entry.getKey().replace('_', ' ');
-
-            if (entry.getValue().isEmpty()) continue;
-            String lemmaKey = GenMorphoUtils.normalizeLemma(term);
-            if (GenMorphoUtils.alreadyClassified(classifiedEntries, lemmaKey)) {
-                if (GenMorphoUtils.debug) {
-                    System.out.println("Skipping GenNounMorphoDB.genIndefiniteArticles() for \"" + term + "\" - already classified.");
-                }
-                continue;
-            }
-            String synsetId = Collections.min(entry.getValue());
+        GenMorphoWorkers.forEachLemma("GenNounMorphoDB.genIndefiniteArticles()", indefFileName,
+                nounSynsetHash, classifiedEntries, (term, lemmaKey, synsetIds) -> {
+            String synsetId = Collections.min(synsetIds);
             String definition = nounDocumentationHash.get(synsetId);
             definition = (definition != null) ? definition.replaceAll("^\"|\"$", "") : null;
             String definitionStatement = (definition == null) ? "" : "Definition: \"" + definition + "\". ";
@@ -151,6 +142,7 @@ public class GenNounMorphoDB {
                 GenMorphoUtils.cacheClassification(classifiedEntries, lemmaKey, serializedLine);
             }
             if (errorInResponse) {
+                GenUtils.evictLLMResponse(prompt);
                 String errorLine = GenMorphoUtils.buildErrorRecord("noun", term, lemmaKey, synsetId,
                         definition, llmResponse, "Unable to parse indefinite article response.");
                 GenUtils.writeToFile(indefFileName, errorLine + "\n");
@@ -160,7 +152,7 @@ public class GenNounMorphoDB {
             if (GenMorphoUtils.debug) {
                 System.out.println("\n\nGenNounMorphoDB.genIndefiniteArticles().LLMResponse: " + llmResponse + "\n\n**************\n");
             }
-        }
+        });
     }
 
     /***************************************************************
@@ -170,18 +162,9 @@ public class GenNounMorphoDB {
 
         String collectiveFileName = GenMorphoUtils.resolveOutputFile("noun", "CollectiveNouns.txt");
         Map<String, List<String>> classifiedEntries = GenMorphoUtils.loadExistingClassifications(collectiveFileName);
-        for (Map.Entry<String, Set<String>> entry : nounSynsetHash.entrySet()) {
-            String term = entry.getKey().replace('_', ' ');
-
-            if (entry.getValue().isEmpty()) continue;
-            String lemmaKey = GenMorphoUtils.normalizeLemma(term);
-            if (GenMorphoUtils.alreadyClassified(classifiedEntries, lemmaKey)) {
-                if (GenMorphoUtils.debug) {
-                    System.out.println("Skipping GenNounMorphoDB.genCollectiveNouns() for \"" + term + "\" - already classified.");
-                }
-                continue;
-            }
-            String synsetId = Collections.min(entry.getValue());
+        GenMorphoWorkers.forEachLemma("GenNounMorphoDB.genCollectiveNouns()", collectiveFileName,
+                nounSynsetHash, classifiedEntries, (term, lemmaKey, synsetIds) -> {
+            String synsetId = Collections.min(synsetIds);
             String definition = nounDocumentationHash.get(synsetId);
             definition = (definition != null) ? definition.replaceAll("^\"|\"$", "") : null;
             String definitionStatement = (definition == null) ? "" : "Definition: \"" + definition + "\". ";
@@ -233,6 +216,7 @@ public class GenNounMorphoDB {
                 GenMorphoUtils.cacheClassification(classifiedEntries, lemmaKey, serializedLine);
             }
             if (errorInResponse) {
+                GenUtils.evictLLMResponse(prompt);
                 String errorLine = GenMorphoUtils.buildErrorRecord("noun", term, lemmaKey, synsetId,
                         definition, llmResponse, "Unable to parse collective noun response.");
                 GenUtils.writeToFile(collectiveFileName, errorLine + "\n");
@@ -242,7 +226,7 @@ public class GenNounMorphoDB {
             if (GenMorphoUtils.debug) {
                 System.out.println("\n\nGenNounMorphoDB.genCollectiveNouns().LLMResponse: " + llmResponse + "\n\n**************\n");
             }
-        }
+        });
     }
 
     /***************************************************************
@@ -252,18 +236,9 @@ public class GenNounMorphoDB {
 
         String countabilityFileName = GenMorphoUtils.resolveOutputFile("noun", "Countability.txt");
         Map<String, List<String>> classifiedEntries = GenMorphoUtils.loadExistingClassifications(countabilityFileName);
-        for (Map.Entry<String, Set<String>> entry : nounSynsetHash.entrySet()) {
-            String term = entry.getKey().replace('_', ' ');
-
-            if (entry.getValue().isEmpty()) continue;
-            String lemmaKey = GenMorphoUtils.normalizeLemma(term);
-            if (GenMorphoUtils.alreadyClassified(classifiedEntries, lemmaKey)) {
-                if (GenMorphoUtils.debug) {
-                    System.out.println("Skipping GenNounMorphoDB.genCountability() for \"" + term + "\" - already classified.");
-                }
-                continue;
-            }
-            String synsetId = Collections.min(entry.getValue());
+        GenMorphoWorkers.forEachLemma("GenNounMorphoDB.genCountability()", countabilityFileName,
+                nounSynsetHash, classifiedEntries, (term, lemmaKey, synsetIds) -> {
+            String synsetId = Collections.min(synsetIds);
             String definition = nounDocumentationHash.get(synsetId);
             definition = (definition != null) ? definition.replaceAll("^\"|\"$", "") : null;
             String definitionStatement = (definition == null) ? "" : "Definition: \"" + definition + "\". ";
@@ -316,6 +291,7 @@ public class GenNounMorphoDB {
                 GenMorphoUtils.cacheClassification(classifiedEntries, lemmaKey, serializedLine);
             }
             if (errorInResponse) {
+                GenUtils.evictLLMResponse(prompt);
                 String errorLine = GenMorphoUtils.buildErrorRecord("noun", term, lemmaKey, synsetId,
                         definition, llmResponse, "Unable to parse countability response.");
                 GenUtils.writeToFile(countabilityFileName, errorLine + "\n");
@@ -325,7 +301,7 @@ public class GenNounMorphoDB {
             if (GenMorphoUtils.debug) {
                 System.out.println("\n\nGenNounMorphoDB.genCountability().LLMResponse: " + llmResponse + "\n\n**************\n");
             }
-        }
+        });
     }
 
     /***************************************************************
@@ -335,18 +311,9 @@ public class GenNounMorphoDB {
 
         String humannessFileName = GenMorphoUtils.resolveOutputFile("noun", "Humanness.txt");
         Map<String, List<String>> classifiedEntries = GenMorphoUtils.loadExistingClassifications(humannessFileName);
-        for (Map.Entry<String, Set<String>> entry : nounSynsetHash.entrySet()) {
-            String term = entry.getKey().replace('_', ' ');
-
-            if (entry.getValue().isEmpty()) continue;
-            String lemmaKey = GenMorphoUtils.normalizeLemma(term);
-            if (GenMorphoUtils.alreadyClassified(classifiedEntries, lemmaKey)) {
-                if (GenMorphoUtils.debug) {
-                    System.out.println("Skipping GenNounMorphoDB.genHumanness() for \"" + term + "\" - already classified.");
-                }
-                continue;
-            }
-            String synsetId = Collections.min(entry.getValue());
+        GenMorphoWorkers.forEachLemma("GenNounMorphoDB.genHumanness()", humannessFileName,
+                nounSynsetHash, classifiedEntries, (term, lemmaKey, synsetIds) -> {
+            String synsetId = Collections.min(synsetIds);
             String definition = nounDocumentationHash.get(synsetId);
             definition = (definition != null) ? definition.replaceAll("^\"|\"$", "") : null;
             String definitionStatement = (definition == null) ? "" : "Definition: \"" + definition + "\". ";
@@ -397,6 +364,7 @@ public class GenNounMorphoDB {
                 GenMorphoUtils.cacheClassification(classifiedEntries, lemmaKey, serializedLine);
             }
             if (errorInResponse) {
+                GenUtils.evictLLMResponse(prompt);
                 String errorLine = GenMorphoUtils.buildErrorRecord("noun", term, lemmaKey, synsetId,
                         definition, llmResponse, "Unable to parse humanness response.");
                 GenUtils.writeToFile(humannessFileName, errorLine + "\n");
@@ -406,7 +374,7 @@ public class GenNounMorphoDB {
             if (GenMorphoUtils.debug) {
                 System.out.println("\n\nGenNounMorphoDB.genHumanness().LLMResponse: " + llmResponse + "\n\n**************\n");
             }
-        }
+        });
     }
 
     /***************************************************************
@@ -416,18 +384,9 @@ public class GenNounMorphoDB {
 
         String agentivityFileName = GenMorphoUtils.resolveOutputFile("noun", "NounAgentivity.txt");
         Map<String, List<String>> classifiedEntries = GenMorphoUtils.loadExistingClassifications(agentivityFileName);
-        for (Map.Entry<String, Set<String>> entry : nounSynsetHash.entrySet()) {
-            String term = entry.getKey().replace('_', ' ');
-
-            if (entry.getValue().isEmpty()) continue;
-            String lemmaKey = GenMorphoUtils.normalizeLemma(term);
-            if (GenMorphoUtils.alreadyClassified(classifiedEntries, lemmaKey)) {
-                if (GenMorphoUtils.debug) {
-                    System.out.println("Skipping GenNounMorphoDB.genAgentivity() for \"" + term + "\" - already classified.");
-                }
-                continue;
-            }
-            String synsetId = Collections.min(entry.getValue());
+        GenMorphoWorkers.forEachLemma("GenNounMorphoDB.genAgentivity()", agentivityFileName,
+                nounSynsetHash, classifiedEntries, (term, lemmaKey, synsetIds) -> {
+            String synsetId = Collections.min(synsetIds);
             String definition = nounDocumentationHash.get(synsetId);
             definition = (definition != null) ? definition.replaceAll("^\"|\"$", "") : null;
             String definitionStatement = (definition == null) ? "" : "Definition: \"" + definition + "\". ";
@@ -483,6 +442,7 @@ public class GenNounMorphoDB {
                 GenMorphoUtils.cacheClassification(classifiedEntries, lemmaKey, serializedLine);
             }
             if (errorInResponse) {
+                GenUtils.evictLLMResponse(prompt);
                 String errorLine = GenMorphoUtils.buildErrorRecord("noun", term, lemmaKey, synsetId,
                         definition, llmResponse, "Unable to parse agentivity response.");
                 GenUtils.writeToFile(agentivityFileName, errorLine + "\n");
@@ -492,7 +452,7 @@ public class GenNounMorphoDB {
             if (GenMorphoUtils.debug) {
                 System.out.println("\n\nGenNounMorphoDB.genAgentivity().LLMResponse: " + llmResponse + "\n\n**************\n");
             }
-        }
+        });
     }
 
     /***************************************************************
@@ -503,18 +463,9 @@ public class GenNounMorphoDB {
 
         String pluralsFileName = GenMorphoUtils.resolveOutputFile("noun", "Plurals.txt");
         Map<String, List<String>> classifiedEntries = GenMorphoUtils.loadExistingClassifications(pluralsFileName);
-        for (Map.Entry<String, Set<String>> entry : nounSynsetHash.entrySet()) {
-            String term = entry.getKey().replace('_', ' ');
-
-            if (entry.getValue().isEmpty()) continue;
-            String lemmaKey = GenMorphoUtils.normalizeLemma(term);
-            if (GenMorphoUtils.alreadyClassified(classifiedEntries, lemmaKey)) {
-                if (GenMorphoUtils.debug) {
-                    System.out.println("Skipping GenNounMorphoDB.genPlurals() for \"" + term + "\" - already classified.");
-                }
-                continue;
-            }
-            String synsetId = Collections.min(entry.getValue());
+        GenMorphoWorkers.forEachLemma("GenNounMorphoDB.genPlurals()", pluralsFileName,
+                nounSynsetHash, classifiedEntries, (term, lemmaKey, synsetIds) -> {
+            String synsetId = Collections.min(synsetIds);
             String definition = nounDocumentationHash.get(synsetId);
             definition = (definition != null) ? definition.replaceAll("^\"|\"$", "") : null;
             String definitionStatement = (definition == null) ? "" : "Definition: \"" + definition + "\". ";
@@ -574,6 +525,7 @@ public class GenNounMorphoDB {
                 GenMorphoUtils.cacheClassification(classifiedEntries, lemmaKey, serializedLine);
             }
             if (errorInResponse) {
+                GenUtils.evictLLMResponse(prompt);
                 String errorLine = GenMorphoUtils.buildErrorRecord("singular", term, lemmaKey, synsetId,
                         definition, llmResponse, "Unable to parse pluralization response.");
                 GenUtils.writeToFile(pluralsFileName, errorLine + "\n");
@@ -583,7 +535,7 @@ public class GenNounMorphoDB {
             if (GenMorphoUtils.debug) {
                 System.out.println("\n\nGenNounMorphoDB.genPlurals().LLMResponse: " + llmResponse + "\n\n**************\n");
             }
-        }
+        });
     }
 
     private static boolean isIrregularIndefiniteArticle(String article, String noun) {
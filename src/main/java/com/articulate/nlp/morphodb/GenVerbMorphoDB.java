@@ -82,19 +82,9 @@ public class GenVerbMorphoDB {
 
         String valenceFileName = GenMorphoUtils.resolveOutputFile("verb", "VerbValence.txt");
         Map<String, List<String>> classifiedEntries = GenMorphoUtils.loadExistingClassifications(valenceFileName);
-        for (Map.Entry<String, Set<String>> entry : verbSynsetHash.entrySet()) {
-            String term = entry.getKey().replace('_', ' ');
-
-            if (entry.getValue().isEmpty()) continue;
-            String lemmaKey = GenMorphoUtils.normalizeLemma(term);
-            if (GenMorphoUtils.alreadyClassified(classifiedEntries, lemmaKey)) {
-                if (GenMorphoUtils.debug) {
-                    System.out.println("Skipping GenVerbMorphoDB.genVerbValence() for \"" + term +
-                            "\" - already classified.");
-                }
-                continue;
-            }
-            String synsetId = Collections.min(entry.getValue());
+        GenMorphoWorkers.forEachLemma("GenVerbMorphoDB.genVerbValence()", valenceFileName,
+                verbSynsetHash, classifiedEntries, (term, lemmaKey, synsetIds) -> {
+            String synsetId = Collections.min(synsetIds);
             String definition = verbDocumentationHash.get(synsetId);
             definition = (definition != null) ? definition.replaceAll("^\"|\"$", "") : null;
             String definitionStatement = (definition == null) ? "" : "Definition: \"" + definition + "\". ";
@@ -149,7 +139,7 @@ public class GenVerbMorphoDB {
                 if (GenMorphoUtils.debug) {
                     System.out.println("GenVerbMorphoDB.genVerbValence() Prompt: " + prompt);
                 }
-                String llmResponse = GenUtils.askLLM(prompt);
+                String llmResponse = GenMorphoWorkers.askLLM(prompt);
                 boolean errorInResponse = true;
                 ObjectNode responseNode = GenMorphoUtils.extractRequiredJsonObject(llmResponse,
                         cheapPrompt
@@ -175,6 +165,7 @@ public class GenVerbMorphoDB {
                 GenMorphoUtils.cacheClassification(classifiedEntries, lemmaKey, serializedLine);
             }
             if (errorInResponse) {
+                GenUtils.evictLLMResponse(prompt);
                 String errorLine = GenMorphoUtils.buildErrorRecord("verb", term, lemmaKey, synsetId,
                         definition, llmResponse, "Unable to parse verb valence response.");
                 GenUtils.writeToFile(valenceFileName, errorLine + "\n");
@@ -184,7 +175,7 @@ public class GenVerbMorphoDB {
             if (GenMorphoUtils.debug) {
                 System.out.println("\n\nGenVerbMorphoDB.genVerbValence().LLMResponse: " + llmResponse + "\n\n**************\n");
             }
-        }
+        });
     }
 
     /***************************************************************
@@ -194,19 +185,9 @@ public class GenVerbMorphoDB {
 
         String reflexiveFileName = GenMorphoUtils.resolveOutputFile("verb", "VerbReflexive.txt");
         Map<String, List<String>> classifiedEntries = GenMorphoUtils.loadExistingClassifications(reflexiveFileName);
-        for (Map.Entry<String, Set<String>> entry : verbSynsetHash.entrySet()) {
-            String term = entry.getKey().replace('_', ' ');
-
-            if (entry.getValue().isEmpty()) continue;
-            String lemmaKey = GenMorphoUtils.normalizeLemma(term);
-            if (GenMorphoUtils.alreadyClassified(classifiedEntries, lemmaKey)) {
-                if (GenMorphoUtils.debug) {
-                    System.out.println("Skipping GenVerbMorphoDB.genVerbReflexive() for \"" + term +
-                            "\" - already classified.");
-                }
-                continue;
-            }
-            String synsetId = Collections.min(entry.getValue());
+        GenMorphoWorkers.forEachLemma("GenVerbMorphoDB.genVerbReflexive()", reflexiveFileName,
+                verbSynsetHash, classifiedEntries, (term, lemmaKey, synsetIds) -> {
+            String synsetId = Collections.min(synsetIds);
             String definition = verbDocumentationHash.get(synsetId);
             definition = (definition != null) ? definition.replaceAll("^\"|\"$", "") : null;
             String definitionStatement = (definition == null) ? "" : "Definition: \"" + definition + "\". ";
@@ -241,7 +222,7 @@ public class GenVerbMorphoDB {
             if (GenMorphoUtils.debug) {
                 System.out.println("GenVerbMorphoDB.genVerbReflexive() Prompt: " + prompt);
             }
-            String llmResponse = GenUtils.askLLM(prompt);
+            String llmResponse = GenMorphoWorkers.askLLM(prompt);
             boolean errorInResponse = true;
             ObjectNode responseNode = GenMorphoUtils.extractRequiredJsonObject(llmResponse,
                     cheapPrompt
@@ -264,6 +245,7 @@ public class GenVerbMorphoDB {
                 GenMorphoUtils.cacheClassification(classifiedEntries, lemmaKey, serializedLine);
             }
             if (errorInResponse) {
+                GenUtils.evictLLMResponse(prompt);
                 String errorLine = GenMorphoUtils.buildErrorRecord("verb", term, lemmaKey, synsetId,
                         definition, llmResponse, "Unable to parse reflexive behavior response.");
                 GenUtils.writeToFile(reflexiveFileName, errorLine + "\n");
@@ -273,7 +255,7 @@ public class GenVerbMorphoDB {
             if (GenMorphoUtils.debug) {
                 System.out.println("\n\nGenVerbMorphoDB.genVerbReflexive().LLMResponse: " + llmResponse + "\n\n**************\n");
             }
-        }
+        });
     }
 
     /***************************************************************
@@ -283,19 +265,9 @@ public class GenVerbMorphoDB {
 
         String causativityFileName = GenMorphoUtils.resolveOutputFile("verb", "VerbCausativity.txt");
         Map<String, List<String>> classifiedEntries = GenMorphoUtils.loadExistingClassifications(causativityFileName);
-        for (Map.Entry<String, Set<String>> entry : verbSynsetHash.entrySet()) {
-            String term = entry.getKey().replace('_', ' ');
-
-            if (entry.getValue().isEmpty()) continue;
-            String lemmaKey = GenMorphoUtils.normalizeLemma(term);
-            if (GenMorphoUtils.alreadyClassified(classifiedEntries, lemmaKey)) {
-                if (GenMorphoUtils.debug) {
-                    System.out.println("Skipping GenVerbMorphoDB.genVerbCausativity() for \"" + term +
-                            "\" - already classified.");
-                }
-                continue;
-            }
-            String synsetId = Collections.min(entry.getValue());
+        GenMorphoWorkers.forEachLemma("GenVerbMorphoDB.genVerbCausativity()", causativityFileName,
+                verbSynsetHash, classifiedEntries, (term, lemmaKey, synsetIds) -> {
+            String synsetId = Collections.min(synsetIds);
             String definition = verbDocumentationHash.get(synsetId);
             definition = (definition != null) ? definition.replaceAll("^\"|\"$", "") : null;
             String definitionStatement = (definition == null) ? "" : "Definition: \"" + definition + "\". ";
@@ -329,7 +301,7 @@ public class GenVerbMorphoDB {
             if (GenMorphoUtils.debug) {
                 System.out.println("GenVerbMorphoDB.genVerbCausativity() Prompt: " + prompt);
             }
-            String llmResponse = GenUtils.askLLM(prompt);
+            String llmResponse = GenMorphoWorkers.askLLM(prompt);
             boolean errorInResponse = true;
             ObjectNode responseNode = GenMorphoUtils.extractRequiredJsonObject(llmResponse,
                     cheapPrompt
@@ -352,6 +324,7 @@ public class GenVerbMorphoDB {
                 GenMorphoUtils.cacheClassification(classifiedEntries, lemmaKey, serializedLine);
             }
             if (errorInResponse) {
+                GenUtils.evictLLMResponse(prompt);
                 String errorLine = GenMorphoUtils.buildErrorRecord("verb", term, lemmaKey, synsetId,
                         definition, llmResponse, "Unable to parse causativity response.");
                 GenUtils.writeToFile(causativityFileName, errorLine + "\n");
@@ -361,7 +334,7 @@ public class GenVerbMorphoDB {
             if (GenMorphoUtils.debug) {
                 System.out.println("\n\nGenVerbMorphoDB.genVerbCausativity().LLMResponse: " + llmResponse + "\n\n**************\n");
             }
-        }
+        });
     }
 
     /***************************************************************
@@ -371,19 +344,9 @@ public class GenVerbMorphoDB {
 
         String aspectFileName = GenMorphoUtils.resolveOutputFile("verb", "VerbAchievementProcess.txt");
         Map<String, List<String>> classifiedEntries = GenMorphoUtils.loadExistingClassifications(aspectFileName);
-        for (Map.Entry<String, Set<String>> entry : verbSynsetHash.entrySet()) {
-            String term = entry.getKey().replace('_', ' ');
-
-            if (entry.getValue().isEmpty()) continue;
-            String lemmaKey = GenMorphoUtils.normalizeLemma(term);
-            if (GenMorphoUtils.alreadyClassified(classifiedEntries, lemmaKey)) {
-                if (GenMorphoUtils.debug) {
-                    System.out.println("Skipping GenVerbMorphoDB.genVerbAchievementProcess() for \"" + term +
-                            "\" - already classified.");
-                }
-                continue;
-            }
-            String synsetId = Collections.min(entry.getValue());
+        GenMorphoWorkers.forEachLemma("GenVerbMorphoDB.genVerbAchievementProcess()", aspectFileName,
+                verbSynsetHash, classifiedEntries, (term, lemmaKey, synsetIds) -> {
+            String synsetId = Collections.min(synsetIds);
             String definition = verbDocumentationHash.get(synsetId);
             definition = (definition != null) ? definition.replaceAll("^\"|\"$", "") : null;
             String definitionStatement = (definition == null) ? "" : "Definition: \"" + definition + "\". ";
@@ -417,7 +380,7 @@ public class GenVerbMorphoDB {
             if (GenMorphoUtils.debug) {
                 System.out.println("GenVerbMorphoDB.genVerbAchievementProcess() Prompt: " + prompt);
             }
-            String llmResponse = GenUtils.askLLM(prompt);
+            String llmResponse = GenMorphoWorkers.askLLM(prompt);
             boolean errorInResponse = true;
             ObjectNode responseNode = GenMorphoUtils.extractRequiredJsonObject(llmResponse,
                     cheapPrompt
@@ -440,6 +403,7 @@ public class GenVerbMorphoDB {
                 GenMorphoUtils.cacheClassification(classifiedEntries, lemmaKey, serializedLine);
             }
             if (errorInResponse) {
+                GenUtils.evictLLMResponse(prompt);
                 String errorLine = GenMorphoUtils.buildErrorRecord("verb", term, lemmaKey, synsetId,
                         definition, llmResponse, "Unable to parse aktionsart response.");
                 GenUtils.writeToFile(aspectFileName, errorLine + "\n");
@@ -449,7 +413,7 @@ public class GenVerbMorphoDB {
             if (GenMorphoUtils.debug) {
                 System.out.println("\n\nGenVerbMorphoDB.genVerbAchievementProcess().LLMResponse: " + llmResponse + "\n\n**************\n");
             }
-        }
+        });
     }
 
     /***************************************************************
@@ -459,19 +423,9 @@ public class GenVerbMorphoDB {
 
         String reciprocalFileName = GenMorphoUtils.resolveOutputFile("verb", "VerbReciprocal.txt");
         Map<String, List<String>> classifiedEntries = GenMorphoUtils.loadExistingClassifications(reciprocalFileName);
-        for (Map.Entry<String, Set<String>> entry : verbSynsetHash.entrySet()) {
-            String term = entry.getKey().replace('_', ' ');
-
-            if (entry.getValue().isEmpty()) continue;
-            String lemmaKey = GenMorphoUtils.normalizeLemma(term);
-            if (GenMorphoUtils.alreadyClassified(classifiedEntries, lemmaKey)) {
-                if (GenMorphoUtils.debug) {
-                    System.out.println("Skipping GenVerbMorphoDB.genVerbReciprocal() for \"" + term +
-                            "\" - already classified.");
-                }
-                continue;
-            }
-            String synsetId = Collections.min(entry.getValue());
+        GenMorphoWorkers.forEachLemma("GenVerbMorphoDB.genVerbReciprocal()", reciprocalFileName,
+                verbSynsetHash, classifiedEntries, (term, lemmaKey, synsetIds) -> {
+            String synsetId = Collections.min(synsetIds);
             String definition = verbDocumentationHash.get(synsetId);
             definition = (definition != null) ? definition.replaceAll("^\"|\"$", "") : null;
             String definitionStatement = (definition == null) ? "" : "Definition: \"" + definition + "\". ";
@@ -506,7 +460,7 @@ public class GenVerbMorphoDB {
             if (GenMorphoUtils.debug) {
                 System.out.println("GenVerbMorphoDB.genVerbReciprocal() Prompt: " + prompt);
             }
-            String llmResponse = GenUtils.askLLM(prompt);
+            String llmResponse = GenMorphoWorkers.askLLM(prompt);
             boolean errorInResponse = true;
             ObjectNode responseNode = GenMorphoUtils.extractRequiredJsonObject(llmResponse,
                     cheapPrompt
@@ -529,6 +483,7 @@ public class GenVerbMorphoDB {
                 GenMorphoUtils.cacheClassification(classifiedEntries, lemmaKey, serializedLine);
             }
             if (errorInResponse) {
+                GenUtils.evictLLMResponse(prompt);
                 String errorLine = GenMorphoUtils.buildErrorRecord("verb", term, lemmaKey, synsetId,
                         definition, llmResponse, "Unable to parse reciprocity response.");
                 GenUtils.writeToFile(reciprocalFileName, errorLine + "\n");
@@ -538,7 +493,7 @@ public class GenVerbMorphoDB {
             if (GenMorphoUtils.debug) {
                 System.out.println("\n\nGenVerbMorphoDB.genVerbReciprocal().LLMResponse: " + llmResponse + "\n\n**************\n");
             }
-        }
+        });
     }
 
     /***************************************************************
@@ -548,19 +503,9 @@ public class GenVerbMorphoDB {
 
         String conjugationFileName = GenMorphoUtils.resolveOutputFile("verb", "VerbConjugations.txt");
         Map<String, List<String>> classifiedEntries = GenMorphoUtils.loadExistingClassifications(conjugationFileName);
-        for (Map.Entry<String, Set<String>> entry : verbSynsetHash.entrySet()) {
-            String term = entry.getKey().replace('_', ' ');
-
-            if (entry.getValue().isEmpty()) continue;
-            String lemmaKey = GenMorphoUtils.normalizeLemma(term);
-            if (GenMorphoUtils.alreadyClassified(classifiedEntries, lemmaKey)) {
-                if (GenMorphoUtils.debug) {
-                    System.out.println("Skipping GenVerbMorphoDB.genVerbConjugations() for \"" + term +
-                            "\" - already classified.");
-                }
-                continue;
-            }
-            String synsetId = Collections.min(entry.getValue());
+        GenMorphoWorkers.forEachLemma("GenVerbMorphoDB.genVerbConjugations()", conjugationFileName,
+                verbSynsetHash, classifiedEntries, (term, lemmaKey, synsetIds) -> {
+            String synsetId = Collections.min(synsetIds);
             String definition = verbDocumentationHash.get(synsetId);
             definition = (definition != null) ? definition.replaceAll("^\"|\"$", "") : null;
             String definitionStatement = (definition == null) ? "" : "Definition: \"" + definition + "\". ";
@@ -568,8 +513,8 @@ public class GenVerbMorphoDB {
                 System.out.println("GenVerbMorphoDB.genVerbConjugations() Prompt: "
                         + VerbConjugationUtils.buildConjugationPrompt(term, definitionStatement));
             }
-            ObjectNode record = VerbConjugationUtils.queryAndCanonicalizeConjugation(
-                    term, synsetId, definitionStatement);
+            ObjectNode record = GenMorphoWorkers.await(VerbConjugationUtils.queryAndCanonicalizeConjugationAsync(
+                    term, synsetId, definitionStatement));
             if (record != null) {
                 try {
                     String serializedLine = JSON_MAPPER.writeValueAsString(record);
@@ -588,7 +533,7 @@ public class GenVerbMorphoDB {
             if (GenMorphoUtils.debug) {
                 System.out.println("\n\nGenVerbMorphoDB.genVerbConjugations() completed for: " + term + "\n\n**************\n");
             }
-        }
+        });
     }
 
     private static ArrayNode normalizeConjugationTenses(JsonNode rawTenses) {
@@ -1,17 +1,24 @@
 package com.articulate.nlp.morphodb;
 
+import com.articulate.nlp.BatchedWriter;
 import com.articulate.nlp.GenUtils;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /***************************************************************
  * Read-only interface over a morphology DB snapshot generated by
@@ -45,19 +52,37 @@ public class MorphoDB {
     public final Map<String, ModelMorphoDB> byModel = new LinkedHashMap<>();
 
     // --- LLM query-on-miss configuration ---
+    public static final long DEFAULT_MISSING_WORD_WAIT_MS = 0;
+
     private boolean           queryMissingWords = false;
     private String            llmModel          = null;
     private String            dbRootPath        = null;
-    private final Set<String>         queriedNouns   = new HashSet<>();
-    private final Map<String, String> cachedPlurals  = new HashMap<>();
-    private final Map<String, String> cachedArticles = new HashMap<>();
-    private final Set<String> cachedNounErrorLemmas = new HashSet<>();
-    private boolean nounErrorCacheLoaded = false;
+    // how long a lookup waits for an outstanding LLM query: -1 until it is answered, 0 not at all
+    private volatile long     missingWordWaitMillis = DEFAULT_MISSING_WORD_WAIT_MS;
+
+    // One query per normalized lemma however many lookups miss it.  Each
+    // completes with its answer, or null if it failed, never exceptionally.
+    private final ConcurrentHashMap<String, CompletableFuture<NounAnswer>> nounQueries = new ConcurrentHashMap<>();
+    private final Set<String> cachedNounErrorLemmas = ConcurrentHashMap.newKeySet();
+
+    // lemmaKey → (tenseKey → personKey → surface form)
+    private final ConcurrentHashMap<String, CompletableFuture<Map<String, Map<String, String>>>> verbQueries =
+            new ConcurrentHashMap<>();
+    private final Set<String> cachedVerbErrorLemmas = ConcurrentHashMap.newKeySet();
 
-    private final Set<String> queriedVerbs = new HashSet<>();
-    // lemmaKey → tenseKey → personKey → surface form
-    private final Map<String, Map<String, Map<String, String>>> cachedVerbConjugations = new HashMap<>();
-    private final Set<String> cachedVerbErrorLemmas = new HashSet<>();
+    /***************************************************************
+     * The plural and article an LLM query found for a noun, either
+     * of which may be null.
+     ***************************************************************/
+    private static class NounAnswer {
+        final String plural;
+        final String article;
+
+        NounAnswer(String plural, String article) {
+            this.plural = plural;
+            this.article = article;
+        }
+    }
 
     public static MorphoDB loadMorphoDatabase(String morphoDbPath,
                                               boolean queryMissingWords,
@@ -72,13 +97,14 @@ public class MorphoDB {
         }
         db.dbRootPath = root.getAbsolutePath();
         String modelDirectory = root.getName();
+        MorphoDBSnapshot.Tables tables = MorphoDBSnapshot.load(root.getPath());
         ModelMorphoDB modelDB = new ModelMorphoDB(
                 modelDirectory,
-                NounMorphoDB.load(root.getPath()),
-                VerbMorphoDB.load(root.getPath()),
+                tables.nouns,
+                tables.verbs,
                 AdjectiveMorphoDB.load(root.getPath()),
                 AdverbMorphoDB.load(root.getPath()),
-                PrepositionMorphoDB.load(root.getPath()));
+                tables.prepositions);
         db.byModel.put(modelDirectory, modelDB);
         return db;
     }
@@ -88,55 +114,152 @@ public class MorphoDB {
     }
 
     /***************************************************************
-     * Queries the configured LLM for plural and indefinite article of
-     * the given noun. Results are cached in memory and persisted to the
-     * DB files. Uses cheap-prompt mode to minimise token usage.
-     * No-ops if the noun has already been queried this session.
+     * Sets how long a lookup that misses the DB waits for the LLM
+     * query it starts (or one already outstanding for the same word):
+     * -1 to wait for the answer, 0 to use the fallback at once.
+     * Either way the answer is used by later lookups and persisted to
+     * the DB files when it arrives.
      ***************************************************************/
-    private void queryAndCacheNoun(String noun, String sumoTerm) {
-        String key = GenMorphoUtils.normalizeLemma(noun);
-        if (key.isEmpty()) return;
-        if (queriedNouns.contains(key)) return;
-        queriedNouns.add(key);
-        String model = (llmModel != null && !llmModel.isEmpty()) ? llmModel : GenUtils.getLLMModel();
-        if (llmModel != null && !llmModel.isEmpty())
+    public void setMissingWordWaitMillis(long millis) {
+        missingWordWaitMillis = millis;
+    }
+
+    public long getMissingWordWaitMillis() {
+        return missingWordWaitMillis;
+    }
+
+    /***************************************************************
+     * Waits for every outstanding LLM query and flushes the records
+     * they persisted, e.g. before a generation run exits.
+     ***************************************************************/
+    public void awaitPendingQueries() {
+
+        List<CompletableFuture<?>> pending = new ArrayList<>(nounQueries.values());
+        pending.addAll(verbQueries.values());
+        if (!pending.isEmpty()) {
+            System.out.println("MorphoDB: waiting for " + pending.size() + " missing-word queries.");
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).join();
+        BatchedWriter.flushAll();
+    }
+
+    private static Throwable cause(Throwable error) {
+
+        return (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+    }
+
+    /***************************************************************
+     * Returns the query's answer, waiting as set by
+     * setMissingWordWaitMillis(), or null if there is none yet.
+     ***************************************************************/
+    private <T> T awaitQuery(CompletableFuture<T> query) {
+
+        long wait = missingWordWaitMillis;
+        try {
+            if (wait < 0) return query.get();
+            if (wait == 0) return query.getNow(null);
+            return query.get(wait, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private String queryModel() {
+
+        if (llmModel != null && !llmModel.isEmpty()) {
             GenUtils.setLLMModel(llmModel);
+            return llmModel;
+        }
+        return GenUtils.getLLMModel();
+    }
+
+    /***************************************************************
+     * Returns the LLM query for the plural and indefinite article of
+     * the given noun, starting it if there is none for the noun yet.
+     * Results are persisted to the DB files. Uses cheap-prompt mode
+     * to minimise token usage.
+     ***************************************************************/
+    private CompletableFuture<NounAnswer> queryNoun(String noun, String sumoTerm) {
+
+        String key = GenMorphoUtils.normalizeLemma(noun);
+        if (key.isEmpty()) return CompletableFuture.completedFuture(null);
+        CompletableFuture<NounAnswer> query = nounQueries.get(key);
+        if (query != null) {
+            return query;
+        }
+        CompletableFuture<NounAnswer> created = new CompletableFuture<>();
+        query = nounQueries.putIfAbsent(key, created);
+        if (query != null) {
+            return query;
+        }
+        String model = queryModel();
         System.out.println("Querying " + model + " for morphological information about '" + noun + "'.");
         String basePrompt =
                 "Provide English morphological information for the noun \"" + noun + "\" " +
                 "as a JSON object with fields: singular, plural, article (\"a\" or \"an\").";
         boolean prevCheap = GenUtils.isCheapPromptMode();
         GenUtils.setCheapPromptMode(true);
-        String prompt = GenMorphoUtils.applyCheapPromptDirective(
-                basePrompt, List.of("singular", "plural", "article"));
+        String prompt;
         try {
-            String response = GenUtils.askLLM(prompt);
-            ObjectNode node = GenMorphoUtils.extractRequiredJsonObject(
-                    response, List.of("plural", "article"));
-            if (node == null) {
-                persistNounErrorEntry(key, model, sumoTerm, response,
-                        "Unable to parse noun morphology response.");
-                return;
-            }
-            String plural  = node.path("plural").asText("").trim();
-            String article = node.path("article").asText("").trim().toLowerCase();
-            boolean hasPlural = !plural.isEmpty();
-            boolean hasArticle = "a".equals(article) || "an".equals(article);
-            if (hasPlural) cachedPlurals.put(key, plural);
-            if (hasArticle) cachedArticles.put(key, article);
-            if (!hasPlural && !hasArticle) {
-                persistNounErrorEntry(key, model, sumoTerm, response,
-                        "LLM response missing usable plural/article values.");
-                return;
-            }
-            persistNounEntry(key, plural, article, model, sumoTerm);
-        } catch (Exception e) {
-            System.out.println("MorphoDB: LLM query failed for '" + noun + "': " + e.getMessage());
-            persistNounErrorEntry(key, model, sumoTerm, null,
-                    "LLM query failed: " + e.getMessage());
+            prompt = GenMorphoUtils.applyCheapPromptDirective(
+                    basePrompt, List.of("singular", "plural", "article"));
         } finally {
             GenUtils.setCheapPromptMode(prevCheap);
         }
+        CompletableFuture<String> response;
+        try {
+            response = GenUtils.askLLMAsync(prompt);
+        } catch (RuntimeException e) {
+            response = new CompletableFuture<>();
+            response.completeExceptionally(e);
+        }
+        response.whenComplete((llmResponse, error) -> {
+            NounAnswer answer = null;
+            try {
+                if (error != null) { // no marker, so the noun is asked again next run
+                    System.out.println("MorphoDB: LLM query failed for '" + noun + "': " + cause(error).getMessage());
+                } else {
+                    answer = readNounResponse(key, model, sumoTerm, llmResponse);
+                    if (answer == null) {
+                        GenUtils.evictLLMResponse(prompt);
+                    }
+                }
+            } catch (RuntimeException e) {
+                System.out.println("MorphoDB: LLM query failed for '" + noun + "': " + e.getMessage());
+            } finally {
+                created.complete(answer);
+            }
+        });
+        return created;
+    }
+
+    /***************************************************************
+     * Reads the plural and article from an LLM response and persists
+     * them, or an error marker if the response has neither.
+     ***************************************************************/
+    private NounAnswer readNounResponse(String key, String model, String sumoTerm, String response) {
+
+        ObjectNode node = GenMorphoUtils.extractRequiredJsonObject(
+                response, List.of("plural", "article"));
+        if (node == null) {
+            persistNounErrorEntry(key, model, sumoTerm, response,
+                    "Unable to parse noun morphology response.");
+            return null;
+        }
+        String plural  = node.path("plural").asText("").trim();
+        String article = node.path("article").asText("").trim().toLowerCase();
+        boolean hasPlural = !plural.isEmpty();
+        boolean hasArticle = "a".equals(article) || "an".equals(article);
+        if (!hasPlural && !hasArticle) {
+            persistNounErrorEntry(key, model, sumoTerm, response,
+                    "LLM response missing usable plural/article values.");
+            return null;
+        }
+        persistNounEntry(key, plural, article, model, sumoTerm);
+        return new NounAnswer(hasPlural ? plural : null, hasArticle ? article : null);
     }
 
     /***************************************************************
@@ -167,7 +290,7 @@ public class MorphoDB {
     }
 
     /***************************************************************
-     * Persists error markers so failed LLM noun lookups do not keep
+     * Persists error markers so nouns whose LLM response was unusable do not keep
      * retriggering indefinitely across runs.
      ***************************************************************/
     private void persistNounErrorEntry(String singular,
@@ -222,44 +345,15 @@ public class MorphoDB {
         if (key.isEmpty()) {
             return false;
         }
-        if (!nounErrorCacheLoaded) {
-            loadNounErrorCache();
-        }
-        return cachedNounErrorLemmas.contains(key);
-    }
-
-    private void loadNounErrorCache() {
-
-        if (nounErrorCacheLoaded) {
-            return;
+        if (cachedNounErrorLemmas.contains(key)) {
+            return true;
         }
         for (ModelMorphoDB model : byModel.values()) {
-            cacheNounErrorLemmas(model.nouns.plurals, "singular");
-            cacheNounErrorLemmas(model.nouns.indefiniteArticles, "noun");
-        }
-        nounErrorCacheLoaded = true;
-    }
-
-    private void cacheNounErrorLemmas(Map<String, List<ObjectNode>> recordsByKey,
-                                      String fallbackFieldName) {
-
-        if (recordsByKey == null || recordsByKey.isEmpty()) {
-            return;
-        }
-        for (List<ObjectNode> rows : recordsByKey.values()) {
-            if (rows == null) continue;
-            for (ObjectNode row : rows) {
-                if (row == null) continue;
-                if (!"error".equalsIgnoreCase(row.path("status").asText(""))) continue;
-                String lemma = GenMorphoUtils.normalizeLemma(row.path("lemma").asText(""));
-                if (lemma.isEmpty()) {
-                    lemma = GenMorphoUtils.normalizeLemma(row.path(fallbackFieldName).asText(""));
-                }
-                if (!lemma.isEmpty()) {
-                    cachedNounErrorLemmas.add(lemma);
-                }
+            if (model.nouns.hasErrorRecord(key)) {
+                return true;
             }
         }
+        return false;
     }
 
     public int size() {
@@ -286,7 +380,7 @@ public class MorphoDB {
         if (queryMissingWords && lemma != null && !lemma.trim().isEmpty()) {
             String key = GenMorphoUtils.normalizeLemma(lemma);
             if (!cachedVerbErrorLemmas.contains(key)) {
-                queryAndCacheVerb(lemma.trim());
+                awaitQuery(queryVerb(lemma.trim()));
                 return getCachedVerbConjugation(lemma, tense, grammaticalPerson);
             }
         }
@@ -298,8 +392,9 @@ public class MorphoDB {
         if (lemma == null || tense == null || person == null) {
             return null;
         }
-        Map<String, Map<String, String>> byTense = cachedVerbConjugations
-                .get(GenMorphoUtils.normalizeLemma(lemma));
+        CompletableFuture<Map<String, Map<String, String>>> query =
+                verbQueries.get(GenMorphoUtils.normalizeLemma(lemma));
+        Map<String, Map<String, String>> byTense = (query == null) ? null : query.getNow(null);
         if (byTense == null) {
             return null;
         }
@@ -310,26 +405,59 @@ public class MorphoDB {
         return byPerson.get(person.trim().toLowerCase());
     }
 
-    private void queryAndCacheVerb(String lemma) {
+    /***************************************************************
+     * Returns the LLM query for the conjugations of the given verb,
+     * starting it if there is none for the verb yet.  The record is
+     * persisted to verb/VerbConjugations.txt.
+     ***************************************************************/
+    private CompletableFuture<Map<String, Map<String, String>>> queryVerb(String lemma) {
 
         String key = GenMorphoUtils.normalizeLemma(lemma);
-        if (key.isEmpty() || queriedVerbs.contains(key)) {
-            return;
+        if (key.isEmpty()) return CompletableFuture.completedFuture(null);
+        CompletableFuture<Map<String, Map<String, String>>> query = verbQueries.get(key);
+        if (query != null) {
+            return query;
         }
-        queriedVerbs.add(key);
-        String model = (llmModel != null && !llmModel.isEmpty()) ? llmModel : GenUtils.getLLMModel();
-        if (llmModel != null && !llmModel.isEmpty()) {
-            GenUtils.setLLMModel(llmModel);
+        CompletableFuture<Map<String, Map<String, String>>> created = new CompletableFuture<>();
+        query = verbQueries.putIfAbsent(key, created);
+        if (query != null) {
+            return query;
         }
+        String model = queryModel();
         System.out.println("Querying " + model + " for verb conjugations of '" + lemma + "'.");
-        ObjectNode record = VerbConjugationUtils.queryAndCanonicalizeConjugation(lemma, "LLM-generated", "");
-        if (record == null) {
-            cachedVerbErrorLemmas.add(key);
-            persistVerbErrorEntry(lemma, "Unable to parse verb conjugation response.");
-            System.out.println("MorphoDB: LLM query failed or returned unparseable response for verb '" + lemma + "'.");
-            return;
-        }
-        // Populate in-memory cache from the tenses array
+        VerbConjugationUtils.queryAndCanonicalizeConjugationAsync(lemma, "LLM-generated", "").whenComplete((record, error) -> {
+            Map<String, Map<String, String>> byTense = null;
+            try {
+                if (error != null) { // no marker, so the verb is asked again next run
+                    System.out.println("MorphoDB: LLM query failed for verb '" + lemma + "': " + cause(error).getMessage());
+                } else if (record == null) {
+                    cachedVerbErrorLemmas.add(key);
+                    persistVerbErrorEntry(lemma, "Unable to parse verb conjugation response.");
+                    System.out.println("MorphoDB: LLM returned unparseable response for verb '" + lemma + "'.");
+                } else {
+                    byTense = indexConjugations(key, record);
+                    if (dbRootPath != null) {
+                        String dbName = new File(dbRootPath).getName();
+                        GenMorphoUtils.appendJsonLine(dbRootPath + "/verb/VerbConjugations.txt", record);
+                        System.out.println("Added conjugations for '" + lemma + "' to " + dbName + "/verb/VerbConjugations.txt.");
+                    }
+                }
+            } catch (RuntimeException e) {
+                System.out.println("MorphoDB: LLM query failed for verb '" + lemma + "': " + e.getMessage());
+            } finally {
+                created.complete(byTense);
+            }
+        });
+        return created;
+    }
+
+    /***************************************************************
+     * Returns tense → person → surface form from the tenses array of
+     * a conjugation record.
+     ***************************************************************/
+    private static Map<String, Map<String, String>> indexConjugations(String key, ObjectNode record) {
+
+        Map<String, Map<String, String>> byTense = new HashMap<>();
         JsonNode tensesNode = record.get("tenses");
         if (tensesNode != null && tensesNode.isArray()) {
             for (JsonNode tenseNode : tensesNode) {
@@ -341,9 +469,7 @@ public class MorphoDB {
                 if (forms == null) {
                     continue;
                 }
-                Map<String, String> personMap = cachedVerbConjugations
-                        .computeIfAbsent(key, k -> new HashMap<>())
-                        .computeIfAbsent(tenseKey, k -> new HashMap<>());
+                Map<String, String> personMap = byTense.computeIfAbsent(tenseKey, k -> new HashMap<>());
                 for (String person : List.of("i", "you_singular", "he_she_it", "we", "you_plural", "they")) {
                     String rawForm = forms.path(person).asText("").trim();
                     String form = VerbConjugationUtils.normalizeVerbFormForIndex(rawForm, key, person);
@@ -353,12 +479,7 @@ public class MorphoDB {
                 }
             }
         }
-        // Persist to disk
-        if (dbRootPath != null) {
-            String dbName = new File(dbRootPath).getName();
-            GenMorphoUtils.appendJsonLine(dbRootPath + "/verb/VerbConjugations.txt", record);
-            System.out.println("Added conjugations for '" + lemma + "' to " + dbName + "/verb/VerbConjugations.txt.");
-        }
+        return byTense;
     }
 
     private void persistVerbErrorEntry(String lemma, String errorMessage) {
@@ -442,10 +563,9 @@ public class MorphoDB {
             if (hasPersistedNounError(noun)) {
                 System.out.println("Skipping LLM query for article of '" + noun + "' due to persisted error marker.");
             } else {
-                queryAndCacheNoun(noun.trim(), sumoTerm);
-                String cached = cachedArticles.get(GenMorphoUtils.normalizeLemma(noun));
-                if (cached != null) return cached;
-                System.out.println("Query unsuccessful for article of '" + noun + "'. Using heuristic fallback.");
+                NounAnswer answer = awaitQuery(queryNoun(noun.trim(), sumoTerm));
+                if (answer != null && answer.article != null) return answer.article;
+                System.out.println("No LLM answer (yet) for article of '" + noun + "'. Using heuristic fallback.");
             }
         }
         return defaultIndefiniteArticle(noun);
@@ -523,10 +643,9 @@ public class MorphoDB {
             if (hasPersistedNounError(noun)) {
                 System.out.println("Skipping LLM query for plural of '" + noun + "' due to persisted error marker.");
             } else {
-                queryAndCacheNoun(noun.trim(), sumoTerm);
-                String cached = cachedPlurals.get(GenMorphoUtils.normalizeLemma(noun));
-                if (cached != null) return cached;
-                System.out.println("Query unsuccessful for plural of '" + noun + "'. Using suffix fallback.");
+                NounAnswer answer = awaitQuery(queryNoun(noun.trim(), sumoTerm));
+                if (answer != null && answer.plural != null) return answer.plural;
+                System.out.println("No LLM answer (yet) for plural of '" + noun + "'. Using suffix fallback.");
             }
         }
         return defaultPlural(noun);
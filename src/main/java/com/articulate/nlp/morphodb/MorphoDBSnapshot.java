@@ -0,0 +1,288 @@
+package com.articulate.nlp.morphodb;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/***************************************************************
+ * A binary snapshot of the lookup tables MorphoDB compiles from a
+ * model directory's JSONL files, so that a JVM can start by mapping
+ * one file instead of parsing every record with Jackson.
+ *
+ * The snapshot is MorphoDB.snapshot in the model directory.  It
+ * records the size and modification time of each source file, and
+ * is ignored and rebuilt when any of them differ, as when MorphoDB
+ * or GenMorphoDB has appended to a file since.  A CRC32 of the whole
+ * snapshot is checked before it is used.
+ *
+ * Snapshot: magic, version, the source fingerprints, the noun, verb
+ * and preposition tables, then the CRC32 of everything before it.
+ *
+ * Usage: java com.articulate.nlp.morphodb.MorphoDBSnapshot modelDir...
+ * rebuilds the snapshots of the given model directories.
+ ***************************************************************/
+public class MorphoDBSnapshot {
+
+    public static boolean debug = false;
+
+    public static final String FILE_NAME = "MorphoDB.snapshot";
+
+    private static final int MAGIC = 0x4D444253; // "MDBS"
+    private static final int VERSION = 1;
+
+    // the files the tables are compiled from, relative to the model directory
+    private static final String[] SOURCES = {
+            "noun/IndefiniteArticles.txt",
+            "noun/Plurals.txt",
+            "verb/VerbConjugations.txt",
+            "positional/PositionalPrepositions.txt"
+    };
+
+    /***************************************************************
+     * The lookup tables of one model directory.
+     ***************************************************************/
+    static class Tables {
+
+        final NounMorphoDB nouns;
+        final VerbMorphoDB verbs;
+        final PrepositionMorphoDB prepositions;
+
+        Tables(NounMorphoDB nouns, VerbMorphoDB verbs, PrepositionMorphoDB prepositions) {
+            this.nouns = nouns;
+            this.verbs = verbs;
+            this.prepositions = prepositions;
+        }
+    }
+
+    /***************************************************************
+     * Returns the tables of a model directory from its snapshot, or,
+     * if the snapshot is missing or stale, from its JSONL files, in
+     * which case the snapshot is rewritten for the next start.
+     ***************************************************************/
+    static Tables load(String morphoDbPath) {
+
+        long start = System.currentTimeMillis();
+        Path root = GenMorphoUtils.expandHomePath(morphoDbPath);
+        long[] fingerprint = fingerprint(root);
+        Tables tables = read(root, morphoDbPath, fingerprint);
+        if (tables != null) {
+            if (debug) System.out.println("INFO in MorphoDBSnapshot.load(): read " + root.resolve(FILE_NAME) +
+                    " in " + (System.currentTimeMillis() - start) + " ms");
+            return tables;
+        }
+        tables = parse(morphoDbPath);
+        System.out.println("INFO in MorphoDBSnapshot.load(): parsed " + root + " in " +
+                (System.currentTimeMillis() - start) + " ms");
+        write(root, tables, fingerprint);
+        return tables;
+    }
+
+    /***************************************************************
+     * Parses the JSONL files of a model directory, one thread per
+     * table.
+     ***************************************************************/
+    private static Tables parse(String morphoDbPath) {
+
+        CompletableFuture<NounMorphoDB> nouns = CompletableFuture.supplyAsync(() -> NounMorphoDB.load(morphoDbPath));
+        CompletableFuture<VerbMorphoDB> verbs = CompletableFuture.supplyAsync(() -> VerbMorphoDB.load(morphoDbPath));
+        PrepositionMorphoDB prepositions = PrepositionMorphoDB.load(morphoDbPath);
+        try {
+            return new Tables(nouns.join(), verbs.join(), prepositions);
+        }
+        catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    /***************************************************************
+     * Returns the size and modification time of each source file,
+     * -1 for a missing file.
+     ***************************************************************/
+    private static long[] fingerprint(Path root) {
+
+        long[] fingerprint = new long[SOURCES.length * 2];
+        for (int i = 0; i < SOURCES.length; i++) {
+            Path source = root.resolve(SOURCES[i]);
+            try {
+                fingerprint[i * 2] = Files.size(source);
+                fingerprint[i * 2 + 1] = Files.getLastModifiedTime(source).toMillis();
+            }
+            catch (IOException e) {
+                fingerprint[i * 2] = -1;
+                fingerprint[i * 2 + 1] = -1;
+            }
+        }
+        return fingerprint;
+    }
+
+    /***************************************************************
+     * Returns the tables in the snapshot, or null if there is no
+     * snapshot or it doesn't match the fingerprint or its CRC.
+     ***************************************************************/
+    private static Tables read(Path root, String morphoDbPath, long[] fingerprint) {
+
+        Path file = root.resolve(FILE_NAME);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int size = (int) channel.size();
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < 12 || in.getInt() != MAGIC || in.getInt() != VERSION) {
+                System.out.println("INFO in MorphoDBSnapshot.read(): not a version " + VERSION + " snapshot: " + file);
+                return null;
+            }
+            ByteBuffer body = in.duplicate();
+            body.position(0);
+            body.limit(size - 4);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != in.getInt(size - 4)) {
+                System.err.println("Error in MorphoDBSnapshot.read(): bad checksum in " + file);
+                return null;
+            }
+            in.limit(size - 4);
+            if (in.getInt() != fingerprint.length) {
+                return null;
+            }
+            for (long value : fingerprint) {
+                if (in.getLong() != value) {
+                    if (debug) System.out.println("INFO in MorphoDBSnapshot.read(): sources changed since " + file);
+                    return null;
+                }
+            }
+            NounMorphoDB nouns = NounMorphoDB.read(in, morphoDbPath);
+            VerbMorphoDB verbs = VerbMorphoDB.read(in, morphoDbPath);
+            return new Tables(nouns, verbs, PrepositionMorphoDB.read(in));
+        }
+        catch (IOException | RuntimeException e) {
+            System.err.println("Error in MorphoDBSnapshot.read(): can't read " + file + ": " + e);
+            return null;
+        }
+    }
+
+    /***************************************************************
+     * Writes the snapshot to a temporary file and renames it into
+     * place, so a process loading at the same time sees the old
+     * snapshot or the new one.
+     ***************************************************************/
+    private static boolean write(Path root, Tables tables, long[] fingerprint) {
+
+        Path file = root.resolve(FILE_NAME);
+        Path temp = root.resolve(FILE_NAME + "." + Long.toHexString(System.nanoTime()) + ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE), 1 << 16), crc))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(fingerprint.length);
+                for (long value : fingerprint)
+                    out.writeLong(value);
+                tables.nouns.write(out);
+                tables.verbs.write(out);
+                tables.prepositions.write(out);
+                out.flush();
+                out.writeInt((int) crc.getValue());
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (debug) System.out.println("INFO in MorphoDBSnapshot.write(): wrote " + file);
+            return true;
+        }
+        catch (IOException e) {
+            System.err.println("Error in MorphoDBSnapshot.write(): can't write " + file + ": " + e);
+            try {
+                Files.deleteIfExists(temp);
+            }
+            catch (IOException ignored) { }
+            return false;
+        }
+    }
+
+    /***************************************************************
+     * Parses a model directory's JSONL files and writes its snapshot,
+     * whether or not the current one is up to date.
+     ***************************************************************/
+    public static boolean build(String morphoDbPath) {
+
+        Path root = GenMorphoUtils.expandHomePath(morphoDbPath);
+        long[] fingerprint = fingerprint(root);
+        return write(root, parse(morphoDbPath), fingerprint);
+    }
+
+    static void writeString(DataOutputStream out, String s) throws IOException {
+
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static void writeInts(DataOutputStream out, int[] values) throws IOException {
+
+        out.writeInt(values.length);
+        for (int value : values)
+            out.writeInt(value);
+    }
+
+    static int[] readInts(ByteBuffer in) {
+
+        int[] values = new int[in.getInt()];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + values.length * 4);
+        return values;
+    }
+
+    static void writeBytes(DataOutputStream out, byte[] values) throws IOException {
+
+        out.writeInt(values.length);
+        out.write(values);
+    }
+
+    static byte[] readBytes(ByteBuffer in) {
+
+        byte[] values = new byte[in.getInt()];
+        in.get(values);
+        return values;
+    }
+
+    public static void main(String[] args) {
+
+        if (args.length == 0) {
+            System.out.println("Usage: java com.articulate.nlp.morphodb.MorphoDBSnapshot <modelDir>...");
+            return;
+        }
+        for (String dir : args) {
+            if (!GenMorphoUtils.expandHomePath(dir).toFile().isDirectory()) {
+                System.err.println("Error in MorphoDBSnapshot.main(): not a directory: " + dir);
+                continue;
+            }
+            long start = System.currentTimeMillis();
+            if (build(dir))
+                System.out.println("MorphoDBSnapshot.main(): wrote " +
+                        GenMorphoUtils.expandHomePath(dir).resolve(FILE_NAME) +
+                        " in " + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+}
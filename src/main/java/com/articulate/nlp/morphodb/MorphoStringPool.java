@@ -0,0 +1,153 @@
+package com.articulate.nlp.morphodb;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/***************************************************************
+ * A pool of distinct strings numbered 0, 1, 2... in the order they
+ * were added, with an open-addressing index from each string to its
+ * number.  The MorphoDB lookup tables store these numbers in int
+ * arrays instead of keeping strings and maps per word, and a lookup
+ * does not allocate.
+ *
+ * A pool is filled while a MorphoDB loads and then only read, which
+ * may be done from any number of threads.
+ ***************************************************************/
+public final class MorphoStringPool {
+
+    private String[] strings;
+    private int size = 0;
+    // id + 1 of the string hashed to each slot, or 0 for an empty slot
+    private int[] slots;
+
+    public MorphoStringPool() {
+
+        this(16);
+    }
+
+    public MorphoStringPool(int expected) {
+
+        strings = new String[Math.max(4, expected)];
+        slots = new int[tableSize(expected)];
+    }
+
+    private MorphoStringPool(String[] strings, int[] slots) {
+
+        this.strings = strings;
+        this.size = strings.length;
+        this.slots = slots;
+    }
+
+    private static int tableSize(int n) {
+
+        int size = 16;
+        while (size < n * 2)
+            size <<= 1;
+        return size;
+    }
+
+    private static int slot(String s, int mask) {
+
+        int h = s.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /***************************************************************
+     * Returns the number of the string, adding it if it is new.
+     ***************************************************************/
+    public int add(String s) {
+
+        int mask = slots.length - 1;
+        int i = slot(s, mask);
+        for (int v = slots[i]; v != 0; v = slots[i]) {
+            if (strings[v - 1].equals(s))
+                return v - 1;
+            i = (i + 1) & mask;
+        }
+        if (size == strings.length)
+            strings = Arrays.copyOf(strings, Math.max(4, size * 2));
+        strings[size] = s;
+        slots[i] = ++size;
+        if (size * 2 > slots.length)
+            rehash();
+        return size - 1;
+    }
+
+    private void rehash() {
+
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int i = slot(strings[id], mask);
+            while (slots[i] != 0)
+                i = (i + 1) & mask;
+            slots[i] = id + 1;
+        }
+    }
+
+    /***************************************************************
+     * Returns the number of the string, or -1 if it is not in the pool.
+     ***************************************************************/
+    public int id(String s) {
+
+        if (s == null)
+            return -1;
+        int mask = slots.length - 1;
+        int i = slot(s, mask);
+        for (int v = slots[i]; v != 0; v = slots[i]) {
+            if (strings[v - 1].equals(s))
+                return v - 1;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /***************************************************************
+     * Returns the string with the given number, or null for -1.
+     ***************************************************************/
+    public String get(int id) {
+
+        return (id < 0) ? null : strings[id];
+    }
+
+    public int size() {
+
+        return size;
+    }
+
+    /***************************************************************
+     * Drops the unused end of the string array, once no more strings
+     * will be added.
+     ***************************************************************/
+    public void trim() {
+
+        if (strings.length > size)
+            strings = Arrays.copyOf(strings, size);
+    }
+
+    /***************************************************************
+     * Writes the strings and the index for MorphoDBSnapshot.  The
+     * index is kept as is, since String.hashCode() is the same in
+     * every JVM.
+     ***************************************************************/
+    void write(DataOutputStream out) throws IOException {
+
+        out.writeInt(size);
+        for (int id = 0; id < size; id++)
+            MorphoDBSnapshot.writeString(out, strings[id]);
+        MorphoDBSnapshot.writeInts(out, slots);
+    }
+
+    /***************************************************************
+     * Reads a pool written by write().
+     ***************************************************************/
+    static MorphoStringPool read(ByteBuffer in) {
+
+        String[] strings = new String[in.getInt()];
+        for (int id = 0; id < strings.length; id++)
+            strings[id] = MorphoDBSnapshot.readString(in);
+        return new MorphoStringPool(strings, MorphoDBSnapshot.readInts(in));
+    }
+}
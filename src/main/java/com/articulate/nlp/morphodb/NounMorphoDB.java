@@ -2,59 +2,54 @@ package com.articulate.nlp.morphodb;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 /***************************************************************
  * Read-only noun morphology database loaded from persisted files.
+ *
+ * Plurals and indefinite articles, which template generation looks
+ * up for every noun it writes, are compiled at load time into pooled
+ * tables: noun id → plural id and noun id → article code.  The JSON
+ * records themselves are not kept.  The other noun classifications
+ * are read from their files the first time they are asked for.
  ***************************************************************/
 public class NounMorphoDB {
 
-    public final Map<String, List<ObjectNode>> indefiniteArticles;
-    public final Map<String, List<ObjectNode>> countability;
-    public final Map<String, List<ObjectNode>> plurals;
-    public final Map<String, List<ObjectNode>> humanness;
-    public final Map<String, List<ObjectNode>> agentivity;
-    public final Map<String, List<ObjectNode>> collectiveNouns;
-    private final Map<String, String> articleByNoun;
-    private final Map<String, String> pluralByNoun;
-
-    public NounMorphoDB(Map<String, List<ObjectNode>> indefiniteArticles,
-                        Map<String, List<ObjectNode>> countability,
-                        Map<String, List<ObjectNode>> plurals,
-                        Map<String, List<ObjectNode>> humanness,
-                        Map<String, List<ObjectNode>> agentivity,
-                        Map<String, List<ObjectNode>> collectiveNouns) {
-        this.indefiniteArticles = indefiniteArticles;
-        this.countability = countability;
-        this.plurals = plurals;
-        this.humanness = humanness;
-        this.agentivity = agentivity;
-        this.collectiveNouns = collectiveNouns;
-        this.articleByNoun = buildArticleByNounIndex(indefiniteArticles);
-        this.pluralByNoun = buildPluralByNounIndex(plurals);
-    }
+    private static final byte NO_ARTICLE = 0;
+    private static final byte ARTICLE_A = 1;
+    private static final byte ARTICLE_AN = 2;
 
-    /***************************************************************
-     * Builds a lowercase noun → article ("a"/"an") secondary index
-     * from the synsetId-keyed indefiniteArticles map.
-     ***************************************************************/
-    private static Map<String, String> buildArticleByNounIndex(Map<String, List<ObjectNode>> indefiniteArticles) {
-
-        Map<String, String> index = new HashMap<>();
-        for (List<ObjectNode> nodes : indefiniteArticles.values()) {
-            for (ObjectNode node : nodes) {
-                String noun = node.path("lemma").asText("").trim().toLowerCase();
-                if (noun.isEmpty()) noun = node.path("noun").asText("").trim().toLowerCase();
-                String article = node.path("article").asText("").trim().toLowerCase();
-                if (!noun.isEmpty() && ("a".equals(article) || "an".equals(article))) {
-                    index.putIfAbsent(noun, article);
-                }
-            }
-        }
-        return index;
+    private final String morphoDbPath;
+
+    // lowercase noun → id, and by id its plural in pluralForms and its article code
+    private final MorphoStringPool nouns;
+    private final MorphoStringPool pluralForms;
+    private final int[] pluralOf;
+    private final byte[] articleOf;
+    // normalized lemmas of error records in Plurals.txt or IndefiniteArticles.txt
+    private final MorphoStringPool errorLemmas;
+
+    private final Map<String, Map<String, List<ObjectNode>>> classifications = new HashMap<>();
+
+    private NounMorphoDB(String morphoDbPath,
+                         MorphoStringPool nouns,
+                         MorphoStringPool pluralForms,
+                         int[] pluralOf,
+                         byte[] articleOf,
+                         MorphoStringPool errorLemmas) {
+        this.morphoDbPath = morphoDbPath;
+        this.nouns = nouns;
+        this.pluralForms = pluralForms;
+        this.pluralOf = pluralOf;
+        this.articleOf = articleOf;
+        this.errorLemmas = errorLemmas;
     }
 
     /***************************************************************
@@ -66,27 +61,18 @@ public class NounMorphoDB {
         if (noun == null || noun.isEmpty()) {
             return null;
         }
-        return articleByNoun.get(noun.trim().toLowerCase());
-    }
-
-    /***************************************************************
-     * Builds a lowercase singular → plural secondary index from the
-     * synsetId-keyed plurals map. Entries with plural "none" are skipped.
-     ***************************************************************/
-    private static Map<String, String> buildPluralByNounIndex(Map<String, List<ObjectNode>> plurals) {
-
-        Map<String, String> index = new HashMap<>();
-        for (List<ObjectNode> nodes : plurals.values()) {
-            for (ObjectNode node : nodes) {
-                String singular = node.path("lemma").asText("").trim().toLowerCase();
-                if (singular.isEmpty()) singular = node.path("singular").asText("").trim().toLowerCase();
-                String plural = node.path("plural").asText("").trim();
-                if (!singular.isEmpty() && !plural.isEmpty() && !"none".equalsIgnoreCase(plural)) {
-                    index.putIfAbsent(singular, plural);
-                }
-            }
+        int id = nouns.id(noun.trim().toLowerCase());
+        if (id < 0) {
+            return null;
+        }
+        switch (articleOf[id]) {
+            case ARTICLE_A:
+                return "a";
+            case ARTICLE_AN:
+                return "an";
+            default:
+                return null;
         }
-        return index;
     }
 
     /***************************************************************
@@ -98,53 +84,188 @@ public class NounMorphoDB {
         if (noun == null || noun.isEmpty()) {
             return null;
         }
-        return pluralByNoun.get(noun.trim().toLowerCase());
+        int id = nouns.id(noun.trim().toLowerCase());
+        return (id < 0) ? null : pluralForms.get(pluralOf[id]);
     }
 
-    public static NounMorphoDB load(String morphoDbPath) {
+    /***************************************************************
+     * Returns true if Plurals.txt or IndefiniteArticles.txt has an
+     * error record for the lemma, normalized by
+     * GenMorphoUtils.normalizeLemma().
+     ***************************************************************/
+    public boolean hasErrorRecord(String normalizedLemma) {
 
-        return new NounMorphoDB(
-                loadIndefiniteArticles(morphoDbPath),
-                loadCountability(morphoDbPath),
-                loadPlurals(morphoDbPath),
-                loadHumanness(morphoDbPath),
-                loadAgentivity(morphoDbPath),
-                loadCollectiveNouns(morphoDbPath));
+        return errorLemmas.id(normalizedLemma) >= 0;
     }
 
-    private static Map<String, List<ObjectNode>> loadIndefiniteArticles(String morphoDbPath) {
+    /***************************************************************
+     * Returns the number of nouns with a plural or an article.
+     ***************************************************************/
+    public int size() {
 
-        return loadNounClassifications("IndefiniteArticles.txt", morphoDbPath);
+        return nouns.size();
     }
 
-    private static Map<String, List<ObjectNode>> loadCountability(String morphoDbPath) {
+    public Map<String, List<ObjectNode>> getIndefiniteArticles() {
 
-        return loadNounClassifications("Countability.txt", morphoDbPath);
+        return getClassifications("IndefiniteArticles.txt");
     }
 
-    private static Map<String, List<ObjectNode>> loadPlurals(String morphoDbPath) {
+    public Map<String, List<ObjectNode>> getCountability() {
 
-        return loadNounClassifications("Plurals.txt", morphoDbPath);
+        return getClassifications("Countability.txt");
     }
 
-    private static Map<String, List<ObjectNode>> loadHumanness(String morphoDbPath) {
+    public Map<String, List<ObjectNode>> getPlurals() {
 
-        return loadNounClassifications("Humanness.txt", morphoDbPath);
+        return getClassifications("Plurals.txt");
     }
 
-    private static Map<String, List<ObjectNode>> loadAgentivity(String morphoDbPath) {
+    public Map<String, List<ObjectNode>> getHumanness() {
 
-        return loadNounClassifications("NounAgentivity.txt", morphoDbPath);
+        return getClassifications("Humanness.txt");
     }
 
-    private static Map<String, List<ObjectNode>> loadCollectiveNouns(String morphoDbPath) {
+    public Map<String, List<ObjectNode>> getAgentivity() {
 
-        return loadNounClassifications("CollectiveNouns.txt", morphoDbPath);
+        return getClassifications("NounAgentivity.txt");
     }
 
-    private static Map<String, List<ObjectNode>> loadNounClassifications(String fileName, String morphoDbPath) {
+    public Map<String, List<ObjectNode>> getCollectiveNouns() {
+
+        return getClassifications("CollectiveNouns.txt");
+    }
+
+    /***************************************************************
+     * Returns the synsetId-keyed records of a noun file, reading it
+     * the first time.
+     ***************************************************************/
+    private synchronized Map<String, List<ObjectNode>> getClassifications(String fileName) {
+
+        return classifications.computeIfAbsent(fileName, k -> loadNounClassifications(k, morphoDbPath));
+    }
+
+    public static NounMorphoDB load(String morphoDbPath) {
+
+        Builder builder = new Builder();
+        GenMorphoUtils.forEachClassificationObject(nounFile("IndefiniteArticles.txt", morphoDbPath), builder::addArticle);
+        GenMorphoUtils.forEachClassificationObject(nounFile("Plurals.txt", morphoDbPath), builder::addPlural);
+        return builder.build(morphoDbPath);
+    }
+
+    /***************************************************************
+     * Writes the lookup tables for MorphoDBSnapshot.
+     ***************************************************************/
+    void write(DataOutputStream out) throws IOException {
+
+        nouns.write(out);
+        pluralForms.write(out);
+        MorphoDBSnapshot.writeInts(out, pluralOf);
+        MorphoDBSnapshot.writeBytes(out, articleOf);
+        errorLemmas.write(out);
+    }
+
+    /***************************************************************
+     * Reads lookup tables written by write().
+     ***************************************************************/
+    static NounMorphoDB read(ByteBuffer in, String morphoDbPath) {
+
+        MorphoStringPool nouns = MorphoStringPool.read(in);
+        MorphoStringPool pluralForms = MorphoStringPool.read(in);
+        int[] pluralOf = MorphoDBSnapshot.readInts(in);
+        byte[] articleOf = MorphoDBSnapshot.readBytes(in);
+        return new NounMorphoDB(morphoDbPath, nouns, pluralForms, pluralOf, articleOf, MorphoStringPool.read(in));
+    }
+
+    /***************************************************************
+     * Compiles article and plural records into the lookup tables.
+     * The first usable record for a noun wins.
+     ***************************************************************/
+    private static class Builder {
+
+        final MorphoStringPool nouns = new MorphoStringPool(1 << 16);
+        final MorphoStringPool pluralForms = new MorphoStringPool(1 << 16);
+        final MorphoStringPool errorLemmas = new MorphoStringPool();
+        int[] pluralOf = new int[1 << 16];
+        byte[] articleOf = new byte[1 << 16];
+
+        int nounId(String noun) {
+
+            int before = nouns.size();
+            int id = nouns.add(noun);
+            if (id == before) {
+                if (id == pluralOf.length) {
+                    pluralOf = Arrays.copyOf(pluralOf, id * 2);
+                    articleOf = Arrays.copyOf(articleOf, id * 2);
+                }
+                pluralOf[id] = -1;
+            }
+            return id;
+        }
+
+        void addError(ObjectNode node, String fallbackFieldName) {
+
+            if (!"error".equalsIgnoreCase(node.path("status").asText(""))) {
+                return;
+            }
+            String lemma = GenMorphoUtils.normalizeLemma(node.path("lemma").asText(""));
+            if (lemma.isEmpty()) {
+                lemma = GenMorphoUtils.normalizeLemma(node.path(fallbackFieldName).asText(""));
+            }
+            if (!lemma.isEmpty()) {
+                errorLemmas.add(lemma);
+            }
+        }
+
+        void addArticle(ObjectNode node) {
+
+            addError(node, "noun");
+            String noun = node.path("lemma").asText("").trim().toLowerCase();
+            if (noun.isEmpty()) noun = node.path("noun").asText("").trim().toLowerCase();
+            String article = node.path("article").asText("").trim().toLowerCase();
+            if (noun.isEmpty() || !("a".equals(article) || "an".equals(article))) {
+                return;
+            }
+            int id = nounId(noun);
+            if (articleOf[id] == NO_ARTICLE) {
+                articleOf[id] = "a".equals(article) ? ARTICLE_A : ARTICLE_AN;
+            }
+        }
+
+        void addPlural(ObjectNode node) {
+
+            addError(node, "singular");
+            String singular = node.path("lemma").asText("").trim().toLowerCase();
+            if (singular.isEmpty()) singular = node.path("singular").asText("").trim().toLowerCase();
+            String plural = node.path("plural").asText("").trim();
+            if (singular.isEmpty() || plural.isEmpty() || "none".equalsIgnoreCase(plural)) {
+                return;
+            }
+            int id = nounId(singular);
+            if (pluralOf[id] < 0) {
+                pluralOf[id] = pluralForms.add(plural);
+            }
+        }
+
+        NounMorphoDB build(String morphoDbPath) {
+
+            nouns.trim();
+            pluralForms.trim();
+            errorLemmas.trim();
+            int n = nouns.size();
+            return new NounMorphoDB(morphoDbPath, nouns, pluralForms,
+                    Arrays.copyOf(pluralOf, n), Arrays.copyOf(articleOf, n), errorLemmas);
+        }
+    }
+
+    private static String nounFile(String fileName, String morphoDbPath) {
 
         Path root = GenMorphoUtils.expandHomePath(morphoDbPath);
-        return GenMorphoUtils.loadClassificationObjects(root.resolve("noun").resolve(fileName).toString());
+        return root.resolve("noun").resolve(fileName).toString();
+    }
+
+    private static Map<String, List<ObjectNode>> loadNounClassifications(String fileName, String morphoDbPath) {
+
+        return GenMorphoUtils.loadClassificationObjects(nounFile(fileName, morphoDbPath));
     }
 }
@@ -2,6 +2,9 @@ package com.articulate.nlp.morphodb;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
@@ -160,6 +163,43 @@ public class PrepositionMorphoDB {
         return new PrepositionMorphoDB(preps, articles);
     }
 
+    /***************************************************************
+     * Writes the tables, with the file overlay applied, for
+     * MorphoDBSnapshot.
+     ***************************************************************/
+    void write(DataOutputStream out) throws IOException {
+
+        writeMap(out, prepBySurface);
+        writeMap(out, articleBySurface);
+    }
+
+    /***************************************************************
+     * Reads tables written by write().
+     ***************************************************************/
+    static PrepositionMorphoDB read(ByteBuffer in) {
+
+        Map<String, String> preps = readMap(in);
+        return new PrepositionMorphoDB(preps, readMap(in));
+    }
+
+    private static void writeMap(DataOutputStream out, Map<String, String> map) throws IOException {
+
+        out.writeInt(map.size());
+        for (Map.Entry<String, String> e : map.entrySet()) {
+            MorphoDBSnapshot.writeString(out, e.getKey());
+            MorphoDBSnapshot.writeString(out, e.getValue());
+        }
+    }
+
+    private static Map<String, String> readMap(ByteBuffer in) {
+
+        int n = in.getInt();
+        Map<String, String> map = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++)
+            map.put(MorphoDBSnapshot.readString(in), MorphoDBSnapshot.readString(in));
+        return map;
+    }
+
     /***************************************************************
      * Returns the dependent preposition for the given positional
      * surface form (case-insensitive), or null if the term is not
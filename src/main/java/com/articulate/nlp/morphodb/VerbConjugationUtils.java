@@ -18,6 +18,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /***************************************************************
  * Shared normalization and validation helpers for verb conjugation
@@ -192,11 +193,63 @@ public final class VerbConjugationUtils {
     public static ObjectNode queryAndCanonicalizeConjugation(String verb,
                                                              String synsetId,
                                                              String definitionStatement) {
+        try {
+            String prompt = buildCheapConjugationPrompt(verb, definitionStatement);
+            String llmResponse = GenUtils.askLLM(prompt);
+            ObjectNode record = canonicalizeConjugationResponse(verb, synsetId, llmResponse);
+            if (record == null) {
+                GenUtils.evictLLMResponse(prompt);
+            }
+            return record;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /***************************************************************
+     * As queryAndCanonicalizeConjugation(), but queues the query on
+     * the LLM scheduler and returns at once.  The future completes
+     * with null if the response is unusable, and exceptionally if
+     * there is no response, as on a timeout or transport error.
+     ***************************************************************/
+    public static CompletableFuture<ObjectNode> queryAndCanonicalizeConjugationAsync(String verb,
+                                                                                   String synsetId,
+                                                                                   String definitionStatement) {
+        String prompt = buildCheapConjugationPrompt(verb, definitionStatement);
+        CompletableFuture<String> response;
+        try {
+            response = GenUtils.askLLMAsync(prompt);
+        } catch (RuntimeException e) {
+            response = new CompletableFuture<>();
+            response.completeExceptionally(e);
+        }
+        return response.thenApply(llmResponse -> {
+            ObjectNode record = canonicalizeConjugationResponse(verb, synsetId, llmResponse);
+            if (record == null) {
+                GenUtils.evictLLMResponse(prompt);
+            }
+            return record;
+        });
+    }
+
+    private static String buildCheapConjugationPrompt(String verb, String definitionStatement) {
+
         boolean prevCheap = GenUtils.isCheapPromptMode();
         GenUtils.setCheapPromptMode(true);
         try {
-            String prompt = buildConjugationPrompt(verb, definitionStatement);
-            String llmResponse = GenUtils.askLLM(prompt);
+            return buildConjugationPrompt(verb, definitionStatement);
+        } finally {
+            GenUtils.setCheapPromptMode(prevCheap);
+        }
+    }
+
+    /***************************************************************
+     * Canonicalizes an LLM conjugation response, returning null if it
+     * has no usable JSON object or canonicalizes to an error.
+     ***************************************************************/
+    private static ObjectNode canonicalizeConjugationResponse(String verb, String synsetId, String llmResponse) {
+
+        try {
             String jsonResponse = GenUtils.extractFirstJsonObject(llmResponse);
             if (jsonResponse == null) {
                 return null;
@@ -212,8 +265,6 @@ public final class VerbConjugationUtils {
             return null;
         } catch (Exception e) {
             return null;
-        } finally {
-            GenUtils.setCheapPromptMode(prevCheap);
         }
     }
 
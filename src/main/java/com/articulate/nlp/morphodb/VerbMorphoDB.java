@@ -3,6 +3,9 @@ package com.articulate.nlp.morphodb;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -11,78 +14,108 @@ import java.util.Map;
 
 /***************************************************************
  * Read-only verb morphology database loaded from persisted files.
+ *
+ * Conjugations, which template generation looks up for every verb it
+ * writes, are compiled at load time into pooled tables: each lemma id
+ * has a run of rows, one per tense, of six form ids, one per person.
+ * The JSON records themselves are not kept.  The other verb
+ * classifications are read from their files the first time they are
+ * asked for.
  ***************************************************************/
 public class VerbMorphoDB {
 
-    public final Map<String, List<ObjectNode>> valence;
-    public final Map<String, List<ObjectNode>> causativity;
-    public final Map<String, List<ObjectNode>> reflexive;
-    public final Map<String, List<ObjectNode>> reciprocal;
-    public final Map<String, List<ObjectNode>> achievementProcess;
-    public final Map<String, List<ObjectNode>> conjugations;
-
-    private final Map<String, Map<String, Map<String, String>>> conjugationIndex;
-
-    public VerbMorphoDB(Map<String, List<ObjectNode>> valence,
-                        Map<String, List<ObjectNode>> causativity,
-                        Map<String, List<ObjectNode>> reflexive,
-                        Map<String, List<ObjectNode>> reciprocal,
-                        Map<String, List<ObjectNode>> achievementProcess,
-                        Map<String, List<ObjectNode>> conjugations) {
-        this.valence = valence;
-        this.causativity = causativity;
-        this.reflexive = reflexive;
-        this.reciprocal = reciprocal;
-        this.achievementProcess = achievementProcess;
-        this.conjugations = conjugations;
-        this.conjugationIndex = buildConjugationIndex(conjugations);
+    private static final List<String> PERSONS =
+            Arrays.asList("i", "you_singular", "he_she_it", "we", "you_plural", "they");
+
+    private final String morphoDbPath;
+
+    private final MorphoStringPool lemmas;
+    private final MorphoStringPool tenses;
+    private final MorphoStringPool forms;
+    // the rows of lemma id l are rowStart[l] to rowStart[l + 1]
+    private final int[] rowStart;
+    private final int[] rowTense;
+    // form ids of row r are rowForms[r * 6] to rowForms[r * 6 + 5], -1 for none
+    private final int[] rowForms;
+
+    private final Map<String, Map<String, List<ObjectNode>>> classifications = new HashMap<>();
+
+    private VerbMorphoDB(String morphoDbPath,
+                         MorphoStringPool lemmas,
+                         MorphoStringPool tenses,
+                         MorphoStringPool forms,
+                         int[] rowStart,
+                         int[] rowTense,
+                         int[] rowForms) {
+        this.morphoDbPath = morphoDbPath;
+        this.lemmas = lemmas;
+        this.tenses = tenses;
+        this.forms = forms;
+        this.rowStart = rowStart;
+        this.rowTense = rowTense;
+        this.rowForms = rowForms;
     }
 
     public static VerbMorphoDB load(String morphoDbPath) {
 
-        return new VerbMorphoDB(
-                loadVerbValence(morphoDbPath),
-                loadVerbCausativity(morphoDbPath),
-                loadVerbReflexive(morphoDbPath),
-                loadVerbReciprocal(morphoDbPath),
-                loadVerbAchievementProcess(morphoDbPath),
-                loadVerbConjugations(morphoDbPath));
+        Builder builder = new Builder();
+        GenMorphoUtils.forEachClassificationObject(verbFile("VerbConjugations.txt", morphoDbPath),
+                builder::addConjugation);
+        return builder.build(morphoDbPath);
     }
 
-    private static Map<String, List<ObjectNode>> loadVerbValence(String morphoDbPath) {
+    public Map<String, List<ObjectNode>> getValence() {
 
-        return loadVerbClassifications("VerbValence.txt", morphoDbPath);
+        return getClassifications("VerbValence.txt");
     }
 
-    private static Map<String, List<ObjectNode>> loadVerbCausativity(String morphoDbPath) {
+    public Map<String, List<ObjectNode>> getCausativity() {
 
-        return loadVerbClassifications("VerbCausativity.txt", morphoDbPath);
+        return getClassifications("VerbCausativity.txt");
     }
 
-    private static Map<String, List<ObjectNode>> loadVerbReflexive(String morphoDbPath) {
+    public Map<String, List<ObjectNode>> getReflexive() {
 
-        return loadVerbClassifications("VerbReflexive.txt", morphoDbPath);
+        return getClassifications("VerbReflexive.txt");
     }
 
-    private static Map<String, List<ObjectNode>> loadVerbReciprocal(String morphoDbPath) {
+    public Map<String, List<ObjectNode>> getReciprocal() {
 
-        return loadVerbClassifications("VerbReciprocal.txt", morphoDbPath);
+        return getClassifications("VerbReciprocal.txt");
     }
 
-    private static Map<String, List<ObjectNode>> loadVerbAchievementProcess(String morphoDbPath) {
+    public Map<String, List<ObjectNode>> getAchievementProcess() {
 
-        return loadVerbClassifications("VerbAchievementProcess.txt", morphoDbPath);
+        return getClassifications("VerbAchievementProcess.txt");
     }
 
-    private static Map<String, List<ObjectNode>> loadVerbConjugations(String morphoDbPath) {
+    public Map<String, List<ObjectNode>> getConjugations() {
 
-        return loadVerbClassifications("VerbConjugations.txt", morphoDbPath);
+        return getClassifications("VerbConjugations.txt");
     }
 
-    private static Map<String, List<ObjectNode>> loadVerbClassifications(String fileName, String morphoDbPath) {
+    /***************************************************************
+     * Returns the synsetId-keyed records of a verb file, reading it
+     * the first time.
+     ***************************************************************/
+    private synchronized Map<String, List<ObjectNode>> getClassifications(String fileName) {
+
+        return classifications.computeIfAbsent(fileName,
+                k -> GenMorphoUtils.loadClassificationObjects(verbFile(k, morphoDbPath)));
+    }
+
+    private static String verbFile(String fileName, String morphoDbPath) {
 
         Path root = GenMorphoUtils.expandHomePath(morphoDbPath);
-        return GenMorphoUtils.loadClassificationObjects(root.resolve("verb").resolve(fileName).toString());
+        return root.resolve("verb").resolve(fileName).toString();
+    }
+
+    /***************************************************************
+     * Returns the number of lemmas with conjugations.
+     ***************************************************************/
+    public int size() {
+
+        return lemmas.size();
     }
 
     /***************************************************************
@@ -90,80 +123,151 @@ public class VerbMorphoDB {
      ***************************************************************/
     public String getVerbConjugation(String lemma, String tense, String grammaticalPerson) {
 
-        String lemmaKey = normalizeLemma(lemma);
-        String tenseKey = normalizeKey(tense);
-        String personKey = normalizePersonKey(grammaticalPerson);
-        if (lemmaKey.isEmpty() || tenseKey.isEmpty() || personKey.isEmpty()) {
-            return null;
-        }
-        Map<String, Map<String, String>> byTense = conjugationIndex.get(lemmaKey);
-        if (byTense == null) {
+        int lemmaId = lemmas.id(normalizeLemma(lemma));
+        int tenseId = tenses.id(normalizeKey(tense));
+        int person = PERSONS.indexOf(normalizePersonKey(grammaticalPerson));
+        if (lemmaId < 0 || tenseId < 0 || person < 0) {
             return null;
         }
-        Map<String, String> byPerson = byTense.get(tenseKey);
-        if (byPerson == null) {
-            return null;
+        for (int r = rowStart[lemmaId]; r < rowStart[lemmaId + 1]; r++) {
+            if (rowTense[r] == tenseId) {
+                return forms.get(rowForms[r * PERSONS.size() + person]);
+            }
         }
-        String value = byPerson.get(personKey);
-        return (value == null || value.trim().isEmpty()) ? null : value;
+        return null;
+    }
+
+    /***************************************************************
+     * Writes the lookup tables for MorphoDBSnapshot.
+     ***************************************************************/
+    void write(DataOutputStream out) throws IOException {
+
+        lemmas.write(out);
+        tenses.write(out);
+        forms.write(out);
+        MorphoDBSnapshot.writeInts(out, rowStart);
+        MorphoDBSnapshot.writeInts(out, rowTense);
+        MorphoDBSnapshot.writeInts(out, rowForms);
     }
 
-    private static Map<String, Map<String, Map<String, String>>> buildConjugationIndex(
-            Map<String, List<ObjectNode>> verbConjugations) {
+    /***************************************************************
+     * Reads lookup tables written by write().
+     ***************************************************************/
+    static VerbMorphoDB read(ByteBuffer in, String morphoDbPath) {
+
+        MorphoStringPool lemmas = MorphoStringPool.read(in);
+        MorphoStringPool tenses = MorphoStringPool.read(in);
+        MorphoStringPool forms = MorphoStringPool.read(in);
+        int[] rowStart = MorphoDBSnapshot.readInts(in);
+        int[] rowTense = MorphoDBSnapshot.readInts(in);
+        return new VerbMorphoDB(morphoDbPath, lemmas, tenses, forms, rowStart, rowTense, MorphoDBSnapshot.readInts(in));
+    }
 
-        Map<String, Map<String, Map<String, String>>> index = new HashMap<>();
-        if (verbConjugations == null || verbConjugations.isEmpty()) {
-            return index;
+    /***************************************************************
+     * Compiles conjugation records into the lookup tables.  The first
+     * usable form for a lemma, tense and person wins.
+     ***************************************************************/
+    private static class Builder {
+
+        final MorphoStringPool lemmas = new MorphoStringPool(1 << 15);
+        final MorphoStringPool tenses = new MorphoStringPool();
+        final MorphoStringPool forms = new MorphoStringPool(1 << 16);
+        // (lemma id, tense id) → row, with rows numbered as they are found
+        final Map<Long, Integer> rowOf = new HashMap<>();
+        int rows = 0;
+        int[] rowLemma = new int[1 << 16];
+        int[] rowTense = new int[1 << 16];
+        int[] rowForms = new int[(1 << 16) * PERSONS.size()];
+
+        int row(int lemmaId, int tenseId) {
+
+            Integer row = rowOf.get(((long) lemmaId << 32) | tenseId);
+            if (row != null) {
+                return row;
+            }
+            if (rows == rowLemma.length) {
+                rowLemma = Arrays.copyOf(rowLemma, rows * 2);
+                rowTense = Arrays.copyOf(rowTense, rows * 2);
+                rowForms = Arrays.copyOf(rowForms, rows * 2 * PERSONS.size());
+            }
+            rowLemma[rows] = lemmaId;
+            rowTense[rows] = tenseId;
+            Arrays.fill(rowForms, rows * PERSONS.size(), (rows + 1) * PERSONS.size(), -1);
+            rowOf.put(((long) lemmaId << 32) | tenseId, rows);
+            return rows++;
         }
-        for (List<ObjectNode> records : verbConjugations.values()) {
-            if (records == null) {
-                continue;
+
+        void addConjugation(ObjectNode record) {
+
+            String lemmaRaw = record.path("lemma").asText("").trim();
+            if (lemmaRaw.isEmpty()) lemmaRaw = record.path("verb").asText("").trim();
+            String lemma = normalizeLemma(lemmaRaw);
+            if (lemma.isEmpty()) {
+                return;
             }
-            for (ObjectNode record : records) {
-                if (record == null) {
+            JsonNode tensesNode = record.get("tenses");
+            if (tensesNode == null || !tensesNode.isArray()) {
+                return;
+            }
+            for (JsonNode tenseNode : tensesNode) {
+                if (tenseNode == null || !tenseNode.isObject()) {
                     continue;
                 }
-                String lemmaRaw = record.path("lemma").asText("").trim();
-                if (lemmaRaw.isEmpty()) lemmaRaw = record.path("verb").asText("").trim();
-                String lemma = normalizeLemma(lemmaRaw);
-                if (lemma.isEmpty()) {
+                String tenseKey = normalizeKey(tenseNode.path("tense").asText(""));
+                if (tenseKey.isEmpty()) {
                     continue;
                 }
-                JsonNode tensesNode = record.get("tenses");
-                if (tensesNode == null || !tensesNode.isArray()) {
+                JsonNode formsNode = tenseNode.get("forms");
+                if (formsNode == null || !formsNode.isObject()) {
                     continue;
                 }
-                for (JsonNode tenseNode : tensesNode) {
-                    if (tenseNode == null || !tenseNode.isObject()) {
-                        continue;
+                int row = row(lemmas.add(lemma), tenses.add(tenseKey));
+                for (int p = 0; p < PERSONS.size(); p++) {
+                    String person = PERSONS.get(p);
+                    String normalizedPerson = normalizePersonKey(person);
+                    String rawForm = formsNode.path(person).asText("");
+                    if ((rawForm == null || rawForm.trim().isEmpty()) && formsNode.has("summary")) {
+                        rawForm = formsNode.path("summary").asText("");
                     }
-                    String tenseKey = normalizeKey(tenseNode.path("tense").asText(""));
-                    if (tenseKey.isEmpty()) {
+                    String value = VerbConjugationUtils.normalizeVerbFormForIndex(rawForm, lemma, normalizedPerson);
+                    if (value == null || value.trim().isEmpty()) {
                         continue;
                     }
-                    JsonNode forms = tenseNode.get("forms");
-                    if (forms == null || !forms.isObject()) {
-                        continue;
-                    }
-                    Map<String, String> personMap = index
-                            .computeIfAbsent(lemma, k -> new HashMap<>())
-                            .computeIfAbsent(tenseKey, k -> new HashMap<>());
-                    for (String person : Arrays.asList("i", "you_singular", "he_she_it", "we", "you_plural", "they")) {
-                        String normalizedPerson = normalizePersonKey(person);
-                        String rawForm = forms.path(person).asText("");
-                        if ((rawForm == null || rawForm.trim().isEmpty()) && forms.has("summary")) {
-                            rawForm = forms.path("summary").asText("");
-                        }
-                        String value = VerbConjugationUtils.normalizeVerbFormForIndex(rawForm, lemma, normalizedPerson);
-                        if (value == null || value.isEmpty()) {
-                            continue;
-                        }
-                        personMap.putIfAbsent(normalizedPerson, value);
+                    int slot = row * PERSONS.size() + p;
+                    if (rowForms[slot] < 0) {
+                        rowForms[slot] = forms.add(value);
                     }
                 }
             }
         }
-        return index;
+
+        /***************************************************************
+         * Orders the rows by lemma, keeping each lemma's rows in the
+         * order they were found.
+         ***************************************************************/
+        VerbMorphoDB build(String morphoDbPath) {
+
+            lemmas.trim();
+            tenses.trim();
+            forms.trim();
+            int n = lemmas.size();
+            int[] start = new int[n + 1];
+            for (int r = 0; r < rows; r++) {
+                start[rowLemma[r] + 1]++;
+            }
+            for (int l = 0; l < n; l++) {
+                start[l + 1] += start[l];
+            }
+            int[] next = Arrays.copyOf(start, n);
+            int[] sortedTense = new int[rows];
+            int[] sortedForms = new int[rows * PERSONS.size()];
+            for (int r = 0; r < rows; r++) {
+                int to = next[rowLemma[r]]++;
+                sortedTense[to] = rowTense[r];
+                System.arraycopy(rowForms, r * PERSONS.size(), sortedForms, to * PERSONS.size(), PERSONS.size());
+            }
+            return new VerbMorphoDB(morphoDbPath, lemmas, tenses, forms, start, sortedTense, sortedForms);
+        }
     }
 
     private static String normalizeLemma(String lemma) {
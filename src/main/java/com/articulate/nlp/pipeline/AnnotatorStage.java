@@ -0,0 +1,234 @@
+package com.articulate.nlp.pipeline;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.Annotator;
+import edu.stanford.nlp.util.CoreMap;
+import org.json.JSONObject;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/** ***************************************************************
+ * One annotator of a Pipeline, run on its own so that the documents,
+ * sentences and time spent in each stage can be counted.  The counts
+ * can be updated by many threads at once.
+ *
+ * When instrument is set, each document also records the wall time,
+ * the CPU time of the annotating thread and the bytes it allocated
+ * in histograms, so that percentiles can be reported for each stage.
+ * When it isn't set the only cost is the time count.
+ */
+public class AnnotatorStage {
+
+    public static volatile boolean instrument = false;
+
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private static final boolean cpuSupported = threads.isCurrentThreadCpuTimeSupported();
+    private static final boolean allocSupported = allocSupported();
+
+    public final String name;
+    private final Annotator annotator;
+
+    private final LongAdder docs = new LongAdder();
+    private final LongAdder sentences = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    public final Histogram wallNanos = new Histogram();
+    public final Histogram cpuNanos = new Histogram();
+    public final Histogram allocBytes = new Histogram();
+
+    /** ***************************************************************
+     */
+    public AnnotatorStage(String name, Annotator annotator) {
+
+        this.name = name;
+        this.annotator = annotator;
+    }
+
+    /** ***************************************************************
+     */
+    public void annotate(Annotation document) {
+
+        if (instrument) {
+            annotateInstrumented(document);
+            return;
+        }
+        long start = System.nanoTime();
+        annotator.annotate(document);
+        nanos.add(System.nanoTime() - start);
+        count(document);
+    }
+
+    /** ***************************************************************
+     */
+    private void annotateInstrumented(Annotation document) {
+
+        long tid = Thread.currentThread().getId();
+        long cpu = cpuSupported ? threads.getCurrentThreadCpuTime() : 0;
+        long alloc = allocSupported ? allocatedBytes(tid) : 0;
+        long start = System.nanoTime();
+        annotator.annotate(document);
+        long wall = System.nanoTime() - start;
+        nanos.add(wall);
+        wallNanos.record(wall);
+        if (cpuSupported)
+            cpuNanos.record(threads.getCurrentThreadCpuTime() - cpu);
+        if (allocSupported)
+            allocBytes.record(allocatedBytes(tid) - alloc);
+        count(document);
+    }
+
+    /** ***************************************************************
+     */
+    private void count(Annotation document) {
+
+        docs.increment();
+        List<CoreMap> sents = document.get(CoreAnnotations.SentencesAnnotation.class);
+        if (sents != null)
+            sentences.add(sents.size());
+    }
+
+    /** ***************************************************************
+     */
+    public long getDocs() {
+
+        return docs.sum();
+    }
+
+    /** ***************************************************************
+     */
+    public long getSentences() {
+
+        return sentences.sum();
+    }
+
+    /** ***************************************************************
+     * @return the total time spent in this stage, summed over threads
+     */
+    public double getSeconds() {
+
+        return nanos.sum() / 1.0e9;
+    }
+
+    /** ***************************************************************
+     * @return documents per second of time spent in this stage, which
+     * is the rate one thread would get if this were the only stage
+     */
+    public double docsPerSec() {
+
+        double secs = getSeconds();
+        return secs == 0 ? 0 : getDocs() / secs;
+    }
+
+    /** ***************************************************************
+     */
+    public double sentencesPerSec() {
+
+        double secs = getSeconds();
+        return secs == 0 ? 0 : getSentences() / secs;
+    }
+
+    /** ***************************************************************
+     */
+    public void reset() {
+
+        docs.reset();
+        sentences.reset();
+        nanos.reset();
+        wallNanos.reset();
+        cpuNanos.reset();
+        allocBytes.reset();
+    }
+
+    /** ***************************************************************
+     * Allocation counts are a HotSpot extension of ThreadMXBean
+     */
+    private static boolean allocSupported() {
+
+        if (!(threads instanceof com.sun.management.ThreadMXBean))
+            return false;
+        com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) threads;
+        if (!sun.isThreadAllocatedMemorySupported())
+            return false;
+        if (!sun.isThreadAllocatedMemoryEnabled())
+            sun.setThreadAllocatedMemoryEnabled(true);
+        return true;
+    }
+
+    /** ***************************************************************
+     */
+    private static long allocatedBytes(long tid) {
+
+        return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(tid);
+    }
+
+    /** ***************************************************************
+     * @return the counts and the p50, p95 and p99 of each histogram
+     */
+    public JSONObject toJSON() {
+
+        JSONObject result = new JSONObject();
+        result.put("name", name);
+        result.put("docs", getDocs());
+        result.put("sentences", getSentences());
+        result.put("seconds", getSeconds());
+        result.put("docsPerSec", docsPerSec());
+        result.put("sentencesPerSec", sentencesPerSec());
+        result.put("wallNanos", toJSON(wallNanos));
+        result.put("cpuNanos", toJSON(cpuNanos));
+        result.put("allocBytes", toJSON(allocBytes));
+        return result;
+    }
+
+    /** ***************************************************************
+     */
+    private static JSONObject toJSON(Histogram h) {
+
+        JSONObject result = new JSONObject();
+        result.put("count", h.getCount());
+        result.put("mean", h.getMean());
+        result.put("p50", h.percentile(0.50));
+        result.put("p95", h.percentile(0.95));
+        result.put("p99", h.percentile(0.99));
+        result.put("max", h.getMax());
+        return result;
+    }
+
+    /** ***************************************************************
+     */
+    public static String csvHeader() {
+
+        StringBuilder sb = new StringBuilder("stage,docs,sentences,seconds");
+        for (String h : new String[] {"wallNanos", "cpuNanos", "allocBytes"})
+            for (String f : new String[] {"count", "mean", "p50", "p95", "p99", "max"})
+                sb.append(",").append(h).append("_").append(f);
+        return sb.toString();
+    }
+
+    /** ***************************************************************
+     */
+    public String toCSV() {
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(name).append(",").append(getDocs()).append(",").append(getSentences());
+        sb.append(",").append(String.format(Locale.ROOT, "%.6f", getSeconds()));
+        for (Histogram h : new Histogram[] {wallNanos, cpuNanos, allocBytes}) {
+            sb.append(",").append(h.getCount()).append(",").append(String.format(Locale.ROOT, "%.1f", h.getMean()));
+            sb.append(",").append(h.percentile(0.50)).append(",").append(h.percentile(0.95));
+            sb.append(",").append(h.percentile(0.99)).append(",").append(h.getMax());
+        }
+        return sb.toString();
+    }
+
+    /** ***************************************************************
+     */
+    public String toString() {
+
+        return String.format("%-10s docs/sec: %10.2f sentences/sec: %10.2f seconds: %10.2f",
+                name, docsPerSec(), sentencesPerSec(), getSeconds());
+    }
+}
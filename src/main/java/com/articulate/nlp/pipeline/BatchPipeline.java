@@ -0,0 +1,206 @@
+package com.articulate.nlp.pipeline;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.util.CoreMap;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/** ***************************************************************
+ * Annotates a stream of documents on a pool of worker threads that
+ * all share one Pipeline, and so one set of loaded CoreNLP models.
+ * Results come back in the order the documents were read.  At most
+ * maxInFlight documents are read ahead of the one the caller is
+ * waiting on, so memory stays bounded however long the input is, and
+ * a slow consumer slows the reading of the input rather than letting
+ * results pile up.
+ */
+public class BatchPipeline implements AutoCloseable {
+
+    public static boolean debug = false;
+
+    private final Pipeline p;
+    private final int maxInFlight;
+    private final ExecutorService pool;
+
+    private final LongAdder docs = new LongAdder();
+    private final LongAdder sentences = new LongAdder();
+    private long startTime = 0;
+
+    /** ***************************************************************
+     * @param threads the number of worker threads
+     * @param maxInFlight the most documents read but not yet returned,
+     *                    which must be at least threads to keep every
+     *                    worker busy
+     */
+    public BatchPipeline(Pipeline p, int threads, int maxInFlight) {
+
+        if (threads < 1 || maxInFlight < 1)
+            throw new IllegalArgumentException("BatchPipeline(): threads and maxInFlight must be positive");
+        this.p = p;
+        this.maxInFlight = maxInFlight;
+        pool = Executors.newFixedThreadPool(threads);
+    }
+
+    /** ***************************************************************
+     * Use two documents in flight for each worker thread
+     */
+    public BatchPipeline(Pipeline p, int threads) {
+
+        this(p, threads, threads * 2);
+    }
+
+    /** ***************************************************************
+     */
+    private Annotation annotate(String text) {
+
+        Annotation document = p.annotate(text);
+        docs.increment();
+        List<CoreMap> sents = document.get(CoreAnnotations.SentencesAnnotation.class);
+        if (sents != null)
+            sentences.add(sents.size());
+        return document;
+    }
+
+    /** ***************************************************************
+     * @return a lazy iterator over the annotated documents, in input
+     * order.  Documents are only read from the input as results are
+     * taken, keeping maxInFlight of them in progress.
+     */
+    public Iterator<Annotation> stream(Iterator<String> documents) {
+
+        if (startTime == 0)
+            startTime = System.nanoTime();
+        return new Iterator<Annotation>() {
+
+            private final ArrayDeque<Future<Annotation>> inFlight = new ArrayDeque<>();
+
+            private void fill() {
+                while (inFlight.size() < maxInFlight && documents.hasNext()) {
+                    String text = documents.next();
+                    inFlight.add(pool.submit(() -> annotate(text)));
+                }
+            }
+
+            public boolean hasNext() {
+                fill();
+                return !inFlight.isEmpty();
+            }
+
+            public Annotation next() {
+                fill();
+                if (inFlight.isEmpty())
+                    throw new NoSuchElementException();
+                try {
+                    return inFlight.remove().get();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Error in BatchPipeline.stream(): interrupted", e);
+                }
+                catch (ExecutionException e) {
+                    throw new RuntimeException("Error in BatchPipeline.stream(): " + e.getCause().getMessage(), e.getCause());
+                }
+            }
+        };
+    }
+
+    /** ***************************************************************
+     * Annotate all the documents, giving each result to the consumer
+     * in input order on the calling thread
+     */
+    public void process(Iterator<String> documents, Consumer<Annotation> consumer) {
+
+        Iterator<Annotation> results = stream(documents);
+        while (results.hasNext())
+            consumer.accept(results.next());
+    }
+
+    /** ***************************************************************
+     * @return a lazy iterator over the paragraphs of a text file, where
+     * paragraphs are separated by blank lines, so that a large file
+     * need not be read into memory at once
+     */
+    public static Iterator<String> paragraphs(String filename) throws IOException {
+
+        BufferedReader reader = Files.newBufferedReader(Paths.get(filename), StandardCharsets.UTF_8);
+        return new Iterator<String>() {
+
+            private String next = read();
+
+            private String read() {
+                StringBuilder sb = new StringBuilder();
+                try {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (line.trim().isEmpty()) {
+                            if (sb.length() > 0)
+                                return sb.toString();
+                        }
+                        else {
+                            if (sb.length() > 0)
+                                sb.append(" ");
+                            sb.append(line.trim());
+                        }
+                    }
+                    reader.close();
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return sb.length() > 0 ? sb.toString() : null;
+            }
+
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            public String next() {
+                if (next == null)
+                    throw new NoSuchElementException();
+                String result = next;
+                next = read();
+                return result;
+            }
+        };
+    }
+
+    /** ***************************************************************
+     * @return documents and sentences per second overall since the
+     * first call to stream(), and the rates for each annotator
+     */
+    public String report() {
+
+        double secs = (startTime == 0) ? 0 : (System.nanoTime() - startTime) / 1.0e9;
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("BatchPipeline: %d docs, %d sentences in %.2f seconds: " +
+                        "%.2f docs/sec %.2f sentences/sec%n", docs.sum(), sentences.sum(), secs,
+                secs == 0 ? 0 : docs.sum() / secs, secs == 0 ? 0 : sentences.sum() / secs));
+        sb.append(p.stageReport());
+        return sb.toString();
+    }
+
+    /** ***************************************************************
+     * Stop the worker threads once any documents already submitted
+     * are done
+     */
+    public void close() {
+
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,130 @@
+package com.articulate.nlp.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/** ***************************************************************
+ * A fixed-size, thread-safe histogram of non-negative long values
+ * such as nanoseconds or bytes.  Values below 16 are counted exactly.
+ * Above that each power of two is split into 16 buckets, so a
+ * percentile is reported within about 6% of the true value, and all
+ * of the range of a long fits in under 1000 counters.  Recording a
+ * value doesn't allocate or lock.
+ */
+public class Histogram {
+
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /** ***************************************************************
+     */
+    private static int bucket(long v) {
+
+        if (v < SUB_COUNT)
+            return (int) v;
+        int exp = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) ((v >>> (exp - SUB_BITS)) & (SUB_COUNT - 1));
+        return (exp - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    /** ***************************************************************
+     * @return the smallest value that falls in the bucket
+     */
+    private static long lowest(int b) {
+
+        if (b < SUB_COUNT)
+            return b;
+        int exp = b / SUB_COUNT + SUB_BITS - 1;
+        long sub = b % SUB_COUNT;
+        return (1L << exp) | (sub << (exp - SUB_BITS));
+    }
+
+    /** ***************************************************************
+     * @return the largest value that falls in the bucket
+     */
+    private static long highest(int b) {
+
+        if (b < SUB_COUNT)
+            return b;
+        int exp = b / SUB_COUNT + SUB_BITS - 1;
+        return lowest(b) + (1L << (exp - SUB_BITS)) - 1;
+    }
+
+    /** ***************************************************************
+     * Negative values are counted as zero
+     */
+    public void record(long v) {
+
+        if (v < 0)
+            v = 0;
+        counts.incrementAndGet(bucket(v));
+        total.increment();
+        sum.add(v);
+        long m;
+        while ((m = max.get()) < v && !max.compareAndSet(m, v))
+            ;
+    }
+
+    /** ***************************************************************
+     */
+    public long getCount() {
+
+        return total.sum();
+    }
+
+    /** ***************************************************************
+     */
+    public long getMax() {
+
+        return max.get();
+    }
+
+    /** ***************************************************************
+     */
+    public double getMean() {
+
+        long n = total.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /** ***************************************************************
+     * @param p a fraction such as 0.95
+     * @return an estimate of the value that the fraction p of all
+     * values recorded are no greater than, or 0 if nothing has been
+     * recorded
+     */
+    public long percentile(double p) {
+
+        long n = total.sum();
+        if (n == 0)
+            return 0;
+        long rank = (long) Math.ceil(p * n);
+        if (rank < 1)
+            rank = 1;
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += counts.get(b);
+            if (seen >= rank)
+                return Math.min(lowest(b) + (highest(b) - lowest(b)) / 2, max.get());
+        }
+        return max.get();
+    }
+
+    /** ***************************************************************
+     */
+    public void reset() {
+
+        for (int b = 0; b < BUCKETS; b++)
+            counts.set(b, 0);
+        total.reset();
+        sum.reset();
+        max.set(0);
+    }
+}
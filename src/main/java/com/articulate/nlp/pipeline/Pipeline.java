@@ -38,6 +38,7 @@ import edu.stanford.nlp.ling.CoreAnnotations;
 import edu.stanford.nlp.ling.CoreLabel;
 import edu.stanford.nlp.ling.IndexedWord;
 import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.Annotator;
 import edu.stanford.nlp.pipeline.StanfordCoreNLP;
 import edu.stanford.nlp.semgraph.SemanticGraphEdge;
 import edu.stanford.nlp.time.TimeAnnotations;
@@ -45,20 +46,26 @@ import edu.stanford.nlp.time.TimeAnnotator;
 import edu.stanford.nlp.trees.GrammaticalRelation;
 import edu.stanford.nlp.util.CoreMap;
 
+import org.json.JSONArray;
+
 import java.io.BufferedReader;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
 public class Pipeline {
 
-    public StanfordCoreNLP pipeline;
     public static boolean debug = false;
 
+    // the annotators, in order, each run and counted on its own
+    public final List<AnnotatorStage> stages = new ArrayList<>();
+
     /* default multiWord parser is WordNet - wnmw for WordNet, dbpmw for DBPedia
      Only the multiWord parser annotator type value comes from sigmakee/config.xml
      */
@@ -117,15 +124,34 @@ public class Pipeline {
         }
         props.setProperty("tokenize.options", "splitForwardSlash=true");
         System.out.println("Pipeline(): using Stanford CoreNLP default PCFG model");
-        // creates a StanfordCoreNLP object, with POS tagging, lemmatization, NER, parsing, and coreference resolution
-        pipeline = new StanfordCoreNLP(props);
+        // a StanfordCoreNLP for each annotator, with POS tagging, lemmatization,
+        // NER, parsing, and coreference resolution.  CoreNLP caches the
+        // annotators it loads, so another Pipeline shares the same models.
+        Properties stageProps;
+        for (String name : propString.split("\\s*,\\s*")) {
+            if (name.trim().isEmpty())
+                continue;
+            stageProps = new Properties();
+            stageProps.putAll(props);
+            stageProps.setProperty("annotators", name.trim());
+            stages.add(new AnnotatorStage(name.trim(), new StanfordCoreNLP(stageProps, false)));
+        }
         if (propString.contains("tsumo")) {
             Properties prps = new Properties();
-            pipeline.addAnnotator(new TimeAnnotator("sutime", prps));
-            pipeline.addAnnotator(new TimeSUMOAnnotator("tsumo", prps));
+            addAnnotator("sutime", new TimeAnnotator("sutime", prps));
+            addAnnotator("tsumo", new TimeSUMOAnnotator("tsumo", prps));
         }
     }
 
+    /** ***************************************************************
+     * Add an annotator after the others, as a stage of its own.  This
+     * must be done before the pipeline is used.
+     */
+    public void addAnnotator(String name, Annotator annotator) {
+
+        stages.add(new AnnotatorStage(name, annotator));
+    }
+
     /** ***************************************************************
      */
     public Annotation annotate(String text) {
@@ -134,10 +160,95 @@ public class Pipeline {
         Annotation document = new Annotation(text);
         // run all Annotators on this text
         document.set(CoreAnnotations.DocDateAnnotation.class, anchorDate);
-        pipeline.annotate(document);
+        annotate(document);
         return document;
     }
 
+    /** ***************************************************************
+     * Run each stage in turn on the document, keeping counts for each
+     * stage.  This may
+     * be called by many threads at once.
+     */
+    public void annotate(Annotation document) {
+
+        for (AnnotatorStage stage : stages)
+            stage.annotate(document);
+    }
+
+    /** ***************************************************************
+     * @return the first stage with the given annotator name, or null
+     */
+    public AnnotatorStage getStage(String name) {
+
+        for (AnnotatorStage stage : stages)
+            if (stage.name.equals(name))
+                return stage;
+        return null;
+    }
+
+    /** ***************************************************************
+     * Clear the counts and histograms of every stage
+     */
+    public void resetStats() {
+
+        for (AnnotatorStage stage : stages)
+            stage.reset();
+    }
+
+    /** ***************************************************************
+     * @return the statistics of every stage, in pipeline order.  The
+     * histograms are only filled while AnnotatorStage.instrument is set.
+     */
+    public JSONArray statsJSON() {
+
+        JSONArray result = new JSONArray();
+        for (AnnotatorStage stage : stages)
+            result.put(stage.toJSON());
+        return result;
+    }
+
+    /** ***************************************************************
+     * @return the statistics of every stage, one line per stage
+     */
+    public String statsCSV() {
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(AnnotatorStage.csvHeader()).append("\n");
+        for (AnnotatorStage stage : stages)
+            sb.append(stage.toCSV()).append("\n");
+        return sb.toString();
+    }
+
+    /** ***************************************************************
+     * Write the statistics of every stage as CSV if the file name ends
+     * in .csv and as JSON otherwise
+     */
+    public void writeStats(String filename) throws IOException {
+
+        String contents = filename.endsWith(".csv") ? statsCSV() : statsJSON().toString(2);
+        try (Writer w = new OutputStreamWriter(new FileOutputStream(filename), StandardCharsets.UTF_8)) {
+            w.write(contents);
+        }
+    }
+
+    /** ***************************************************************
+     * @return the documents and sentences per second of each stage
+     */
+    public String stageReport() {
+
+        StringBuilder sb = new StringBuilder();
+        double total = 0;
+        for (AnnotatorStage stage : stages)
+            total += stage.getSeconds();
+        for (AnnotatorStage stage : stages) {
+            sb.append(stage.toString());
+            if (total > 0)
+                sb.append(String.format(" (%5.1f%%)", 100.0 * stage.getSeconds() / total));
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
     /** ***************************************************************
      */
     public static Annotation toAnnotation(String input) {
@@ -266,19 +377,41 @@ public class Pipeline {
      */
     public static void processFile(String filename) {
 
+        processFile(filename, Runtime.getRuntime().availableProcessors());
+    }
+
+    /** ***************************************************************
+     * Annotate a file a paragraph at a time on a pool of threads,
+     * showing the results in file order
+     */
+    public static void processFile(String filename, int threads) {
+
+        processFile(filename, threads, null);
+    }
+
+    /** ***************************************************************
+     * Annotate a file a paragraph at a time on a pool of threads,
+     * showing the results in file order.  If statsFile is not null,
+     * record the latency, CPU time and allocation of each annotator
+     * and write them to statsFile as JSON or CSV.
+     */
+    public static void processFile(String filename, int threads, String statsFile) {
+
         KBmanager.getMgr().initializeOnce();
         //String propString = "tokenize, ssplit, pos, lemma, ner, wsd, wnmw, tsumo";
         Pipeline p = new Pipeline(true,defaultProp);
-        String contents = "";
-        try {
-            contents = new String(Files.readAllBytes(Paths.get(filename)));
+        if (statsFile != null)
+            AnnotatorStage.instrument = true;
+        try (BatchPipeline bp = new BatchPipeline(p, threads)) {
+            bp.process(BatchPipeline.paragraphs(filename), anno -> System.out.println(showResults(anno)));
+            System.out.println(bp.report());
+            if (statsFile != null)
+                p.writeStats(statsFile);
         }
         catch (IOException ioe) {
             System.err.println("error in Pipeline.processFile()");
             ioe.printStackTrace();
         }
-        Annotation wholeDocument = p.annotate(contents);
-        showResults(wholeDocument);
         //List<String> sents = SentenceUtil.restoreSentences(wholeDocument);
         //ArrayList<String> SUMOs = new ArrayList<>();
         //for (String sent : sents) {
@@ -308,7 +441,7 @@ public class Pipeline {
         KBmanager.getMgr().initializeOnce();
         Pipeline p = new Pipeline(true);
         //Properties props = new Properties();
-        //p.pipeline.addAnnotator(new TimeAnnotator("sutime", props));
+        //p.addAnnotator("sutime", new TimeAnnotator("sutime", props));
         try (BufferedReader d = new BufferedReader(new InputStreamReader(System.in))) {
             System.out.println("type 'quit' (without the quotes) on its own line to quit");
             String line = "";
@@ -320,7 +453,7 @@ public class Pipeline {
                 if (!line.equals("quit")) {
                     wholeDocument = new Annotation(line);
                     wholeDocument.set(CoreAnnotations.DocDateAnnotation.class, "2017-05-08");
-                    p.pipeline.annotate(wholeDocument);
+                    p.annotate(wholeDocument);
                     System.out.println(showResults(wholeDocument));
                 }
             }
@@ -336,7 +469,8 @@ public class Pipeline {
     public static void printHelp() {
 
         System.out.println("-h             print this help screen");
-        System.out.println("-f <file>      process a file");
+        System.out.println("-f <file> [threads] [stats.json|stats.csv]  process a file a paragraph at a time,");
+        System.out.println("               optionally writing per-annotator latency, CPU and allocation statistics");
         System.out.println("-p \"<Sent>\"  process one quoted sentence ");
         System.out.println("-i             interactive mode ");
     }
@@ -349,6 +483,10 @@ public class Pipeline {
             printHelp();
         else if (args[0].equals("-f") && args.length == 2)
             processFile(args[1]);
+        else if (args[0].equals("-f") && args.length == 3)
+            processFile(args[1], Integer.parseInt(args[2]));
+        else if (args[0].equals("-f") && args.length == 4)
+            processFile(args[1], Integer.parseInt(args[2]), args[3]);
         else if (args[0].equals("-p") && args.length == 2)
             processOneSent(args[1]);
         else if (args[0].equals("-i"))
@@ -128,7 +128,7 @@ public class SentimentAdaptor {
         initOnce();
         ArrayList<AVPair> result = new ArrayList<AVPair>();
         Annotation wholeDocument = new Annotation(sent);
-        p.pipeline.annotate(wholeDocument);
+        p.annotate(wholeDocument);
         List<CoreMap> sentences = wholeDocument.get(CoreAnnotations.SentencesAnnotation.class);
         for (CoreMap sentence : sentences) {
             String sentiment = sentence.get(SentimentCoreAnnotations.SentimentClass.class);
@@ -173,7 +173,7 @@ public class SentimentAdaptor {
                 line = d.readLine();
                 if (!line.equals("quit")) {
                     Annotation wholeDocument = new Annotation(line);
-                    p.pipeline.annotate(wholeDocument);
+                    p.annotate(wholeDocument);
                     System.out.println(showResults(wholeDocument));
                 }
             }
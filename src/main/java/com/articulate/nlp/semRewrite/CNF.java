@@ -29,6 +29,7 @@ import com.google.common.collect.Lists;
 import java.text.ParseException;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <b>Conjunctive Normal Form</b>
@@ -37,7 +38,7 @@ public class CNF implements Comparable {
 
     public List<Clause> clauses = new ArrayList<>();
     public static boolean debug = false;
-    public static int varnum = 0; // to ensure unique variable renaming
+    private static final AtomicInteger varnum = new AtomicInteger(); // to ensure unique variable renaming, across threads
 
     /** ***************************************************************
      */
@@ -177,7 +178,7 @@ public class CNF implements Comparable {
                     if (varmap.containsKey(l.arg1))
                         newL.arg1 = varmap.get(l.arg1);
                     else {
-                        newL.arg1 = "?VAR" + Integer.toString(varnum++);
+                        newL.arg1 = "?VAR" + Integer.toString(varnum.getAndIncrement());
                         varmap.put(l.arg1,newL.arg1);
                     }
                 }
@@ -188,7 +189,7 @@ public class CNF implements Comparable {
                     if (varmap.containsKey(l.arg2))
                         newL.arg2 = varmap.get(l.arg2);
                     else {
-                        newL.arg2 = "?VAR" + Integer.toString(varnum++);
+                        newL.arg2 = "?VAR" + Integer.toString(varnum.getAndIncrement());
                         varmap.put(l.arg2,newL.arg2);
                     }
                 }
@@ -498,6 +499,17 @@ public class CNF implements Comparable {
         return cnfnew;
     }
 
+    /** ***************************************************************
+     * Add the symbols of this CNF to the Symbols table, as for a rule
+     * or search pattern that is matched against many sentences
+     */
+    public void internSymbols() {
+
+        for (Clause c : clauses)
+            for (Literal l : c.disjuncts)
+                l.internSymbols();
+    }
+
     /** *************************************************************
      */
     public boolean empty() {
@@ -845,28 +857,19 @@ public class CNF implements Comparable {
     }
 
     /** *************************************************************
-     * this is the rule and the argument is the sentence to match
+     * this is the rule and the argument is the sentence to match.
+     * Returns one of the unifications that unifyNew() would find, but
+     * by backtracking search in the Unifier rather than by copying
+     * clauses, so neither this nor cnf is copied or reordered.  Bound
+     * flags are set on the clauses of cnf that were matched.
      */
     public Subst unify(CNF cnf) {
 
         if (debug) System.out.println("INFO in CNF.unify(): cnf source 'rule': " + this);
-        CNF sorted = sortProceduresLast();
-        this.clauses = sorted.clauses;
-        if (debug) System.out.println("INFO in CNF.unify(): cnf source sorted 'rule': " + this);
         if (debug) System.out.println("INFO in CNF.unify(): cnf content (argument): " + cnf);
-        // HashSet<Subst> substList = this.unifyRecurse(cnf);
-        Set<Unification> substList = this.unifyNew(cnf);
-        if (debug) System.out.println("INFO in CNF.unifyNew(): substList: " + substList);
-        if (substList == null)
-            return null;
-        if (substList.isEmpty())
-            return new Subst(); // empty map
-        //System.out.println("INFO in CNF.unify(): cnf source 'rule': " + this);
-        //System.out.println("INFO in CNF.unify(): cnf content (argument): " + cnf);
-        //System.out.println("INFO in CNF.unify(): result: " + substList);
-        Unification u = substList.iterator().next();
-        setBoundFlags(cnf,u);
-        return u.sub;
+        Subst result = new Unifier().unify(this, cnf);
+        if (debug) System.out.println("INFO in CNF.unify(): result: " + result);
+        return result;
     }
 
     /** *************************************************************
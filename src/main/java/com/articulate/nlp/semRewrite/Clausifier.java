@@ -279,6 +279,7 @@ public class Clausifier {
             r.setTerms();
             newrs.rules.add(r);
         }
+        newrs.buildIndex();
         return newrs;
     }
     
@@ -0,0 +1,34 @@
+package com.articulate.nlp.semRewrite;
+
+import com.articulate.nlp.semRewrite.datesandnumber.DateAndNumbersGeneration;
+import com.articulate.nlp.semRewrite.datesandnumber.StanfordDateTimeExtractor;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/** *************************************************************
+ * The state of one call to Interpreter.interpretGenCNF() and/or
+ * Interpreter.interpretCNF().  Everything that used to be kept in
+ * static fields of Interpreter during a request lives here instead,
+ * so that many threads can interpret sentences at once against the
+ * same RuleEngine and Pipeline, each with its own context.  A context
+ * must only be used by one thread at a time.
+ */
+public class InterpretContext {
+
+    // rules that fired, with their bindings, as shown by SRRules.jsp
+    public final Set<String> firedRules = new HashSet<>();
+
+    // the sentence literals produced by interpretGenCNF()
+    public List<Literal> augmentedClauses = new ArrayList<>();
+
+    // both of these keep per-sentence state between calls
+    public final StanfordDateTimeExtractor sde = new StanfordDateTimeExtractor();
+    public final DateAndNumbersGeneration generator = new DateAndNumbersGeneration();
+
+    // rules that passed the RuleIndex filter and were unified, and those that then fired
+    public long rulesExamined = 0;
+    public long rulesFired = 0;
+}
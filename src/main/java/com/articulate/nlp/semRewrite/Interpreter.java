@@ -27,8 +27,6 @@ import com.articulate.nlp.Document;
 import com.articulate.nlp.pipeline.Pipeline;
 import com.articulate.nlp.pipeline.SentenceBuilder;
 import com.articulate.nlp.pipeline.SentenceUtil;
-import com.articulate.nlp.semRewrite.datesandnumber.DateAndNumbersGeneration;
-import com.articulate.nlp.semRewrite.datesandnumber.StanfordDateTimeExtractor;
 import com.articulate.nlp.semRewrite.datesandnumber.Tokens;
 import com.articulate.nlp.semRewrite.substitutor.*;
 
@@ -124,11 +122,17 @@ public class Interpreter {
     public Pipeline p = null;
     //private String propString =  "tokenize, ssplit, pos, lemma, ner, gender, parse, depparse, dcoref, entitymentions, wnmw, wsd, tsumo";
 
+    // read without a lock by getEngine(), so set only when complete
+    private volatile RuleEngine engine = null;
+
+    // Set by the single threaded methods that don't take an InterpretContext,
+    // from the context they create.  Concurrent callers should read their
+    // own context instead.
     public static HashSet<String> firedRules = new HashSet<>();
+    // rules that passed the RuleIndex filter and were unified, and those that then fired
+    public long rulesExamined = 0;
+    public long rulesFired = 0;
     public static ArrayList<Literal> augmentedClauses = new ArrayList<>();
-    public static ClauseSubstitutor substitutor = null;
-    public static DateAndNumbersGeneration generator = new DateAndNumbersGeneration();
-    public static StanfordDateTimeExtractor sde = new StanfordDateTimeExtractor();
 
     // set from StanfordCorefSubstitutor.initialize() to SimpleSubstitutorStorage.groups
     public static Map<CoreLabelSequence, CoreLabelSequence> substGroups = null;
@@ -689,7 +693,7 @@ public class Interpreter {
         }
         Annotation wholeDocument = new Annotation(input);
         wholeDocument.set(CoreAnnotations.DocDateAnnotation.class, "2017-05-08");
-        p.pipeline.annotate(wholeDocument);
+        p.annotate(wholeDocument);
 
         //Annotation document = Pipeline.toAnnotation(input);
         List<CoreMap> sentences = wholeDocument.get(SentencesAnnotation.class);
@@ -885,11 +889,41 @@ public class Interpreter {
         return interpretGenCNF(lastSentence);
     }
 
+    /** *************************************************************
+     * Take in a single sentence and output CNF for further processing,
+     * annotating it with this interpreter's Pipeline.  Unlike
+     * interpretGenCNF(String), no earlier user input is included for
+     * coreference, so that many threads can share one interpreter and
+     * one Pipeline, each with its own context.
+     */
+    public CNF interpretGenCNF(String input, InterpretContext ctx) {
+
+        Annotation wholeDocument = p.annotate(input);
+        CoreMap lastSentence = SentenceUtil.getLastSentence(wholeDocument);
+        if (lastSentence == null)
+            return null;
+        return interpretGenCNF(lastSentence, ctx);
+    }
+
     /** *************************************************************
      * Take in a single sentence and output CNF for further processing.
      */
     public CNF interpretGenCNF(CoreMap lastSentence) {
 
+        InterpretContext ctx = new InterpretContext();
+        CNF cnf = interpretGenCNF(lastSentence, ctx);
+        if (cnf != null)
+            augmentedClauses = new ArrayList<>(ctx.augmentedClauses);
+        return cnf;
+    }
+
+    /** *************************************************************
+     * Take in a single sentence and output CNF for further processing.
+     * This may be called by many threads at once, each with its own
+     * context.
+     */
+    public CNF interpretGenCNF(CoreMap lastSentence, InterpretContext ctx) {
+
         if (debug) System.out.println("Interpreter.interpretGenCNF(): input: " + lastSentence);
         List<CoreLabel> lastSentenceTokens = lastSentence.get(CoreAnnotations.TokensAnnotation.class);
         if (verboseParse && debug) {
@@ -924,18 +958,17 @@ public class Interpreter {
         results.addAll(posInformation);
 
         List<Tokens> tokenList = new ArrayList<>();
-        sde.populateParserInfo(lastSentence,tokenList);
+        ctx.sde.populateParserInfo(lastSentence,tokenList);
 
-        List<Literal> timeResults = generator.generateSumoTerms(tokenList, sde);
-        System.out.println("Interpreter.interpretGenCNF(): timeResult: " + timeResults);
+        List<Literal> timeResults = ctx.generator.generateSumoTerms(tokenList, ctx.sde);
+        if (verboseParse) System.out.println("Interpreter.interpretGenCNF(): timeResult: " + timeResults);
         if (debug) System.out.println("Interpreter.interpretGenCNF(): before scrub measures: " + results);
         results = scrubMeasures(results,lastSentence); // remove original date/time/measure literals
         results.addAll(timeResults);
 
         if (!lemmaLiteral) // if true, then explicit lemma added by
             results = lemmatizeResults(results, lastSentenceTokens);
-        augmentedClauses = new ArrayList<>();
-        augmentedClauses.addAll(results);
+        ctx.augmentedClauses = new ArrayList<>(results);
 //        results = processPhrasalVerbs(results);
         CNF cnf = new CNF();
         cnf.appendAll(results);
@@ -956,7 +989,9 @@ public class Interpreter {
             return null;
         question = input.trim().endsWith("?") && inference;
         if (!question)
-            tfidf.addInput(input);
+            synchronized (tfidf) { // shared by all interpreters
+                tfidf.addInput(input);
+            }
 
         Graph g = null;
         List<CNF> inputs = Lists.newArrayList(interpretGenCNF(input));
@@ -981,7 +1016,9 @@ public class Interpreter {
             if ((ANSWER_UNDEFINED.equals(result) && autoir) || ir) {
                 if (autoir)
                     System.out.println("Interpreter had no response so trying TFIDF");
-                result = tfidf.matchInput(input);
+                synchronized (tfidf) {
+                    result = tfidf.matchInput(input);
+                }
             }
         }
         else {
@@ -1272,139 +1309,45 @@ public class Interpreter {
     /** *************************************************************
      * Apply all the rules in the RuleSet to the input CNF form,
      * matching left hand sides and generating the right hand side.
+     * The rules fired are added to firedRules.
      */
     public List<String> interpretCNF(List<CNF> inputs) {
 
-        if (inputs == null || inputs.isEmpty() || inputs.contains(null))
-            return null;
-        if (inputs.size() > 1) {
-            System.err.println("Error in Interpreter.interpretCNF(): multiple clauses");
-            return null;
-        }
-        List<String> kifoutput = new ArrayList<>();
-        System.out.println("INFO in Interpreter.interpretCNF(): inputs: " + inputs);
-        System.out.println("INFO in Interpreter.interpretCNF(): sorted inputs: " + CNF.toSortedString(inputs));
-        boolean bindingFound = true;
-        int counter = 0;
-        CNF newInput, bindingsRemoved;
-        List<CNF> newinputs;
-        Set<String> preds, terms;
-        Rule r;
-        Subst bindings;
-        RHS rhs;
-        while (bindingFound && counter < 10 && !inputs.isEmpty()) {
-            counter++;
-            bindingFound = false;
-            newinputs = new ArrayList<>();
-            newInput = null;
-            for (int j = 0; j < inputs.size(); j++) {
-                newInput = inputs.get(j).deepCopy();
-
-                preds = newInput.getPreds();
-                terms = newInput.getTerms();
-                //System.out.println("Interpreter.interpretCNF(): input preds: " + preds);
-                if (debug) System.out.println("INFO in Interpreter.interpretCNF(): new input 0: " + newInput);
-                for (Rule rule : rs.rules) {
-                    //if (debug) System.out.println("INFO in Interpreter.interpretCNF(): checking rule: " + rule);
-                    //System.out.println("Interpreter.interpretCNF(): rule preds: " + rs.rules.get(i).preds);
-                    if (!termCoverage(preds,terms,rule))
-                        continue;
-                    //System.out.println("Interpreter.interpretCNF(): predicates match");
-                    r = rule.deepCopy();
-                    if (debug && r.rhs.form == null)
-                        System.out.println("INFO in Interpreter.interpretCNF(): no SUO-KIF formula for: " + r);
-                    //System.out.println("INFO in Interpreter.interpretCNF(): new input 0.5: " + newInput);
-                    if (debug) System.out.println("INFO in Interpreter.interpretCNF(): r: " + r);
-                    if (debug || bind) System.out.println("\nINFO in Interpreter.interpretCNF(): inputs to rule: " + newInput);
-                    //Clause.bindSource = false; // put binding flag on target - the newInput
-                    newInput.clearBound();
-                    bindings = r.cnf.unify(newInput);  // <---- unification -------
-                    if (bindings == null) {
-                        newInput.clearBound();
-                    }
-                    else {
-                        bindingFound = true;
-                        if (showr || debug)
-                            System.out.println("INFO in Interpreter.interpretCNF(): successful rule: " + r);
-                        if (showrhs || debug || bind) System.out.println("\nINFO in Interpreter.interpretCNF(): bound results: " + newInput);
-                        if (debug || bind) System.out.println("INFO in Interpreter.interpretCNF(): bindings: " + bindings);
-                        firedRules.add(r.toString() + " : " + bindings.toString());
-                        rhs = r.rhs.applyBindings(bindings);
-                        if (showrhs || debug)
-                            System.out.println("INFO in Interpreter.interpretCNF(): form after apply bindings: " + rhs);
-                        if (null == r.operator) // empty RHS
-                            newInput.clearBound();
-                        else switch (r.operator) {
-                            case IMP:
-                                // ==>  operator
-                                bindingsRemoved = newInput.removeBound(); // delete the bound clauses
-                                if (debug | showrhs) System.out.println("INFO in Interpreter.interpretCNF(): input with bindings removed: " + bindingsRemoved);
-                                if (!bindingsRemoved.empty()) {  // assert the input after removing bindings
-                                    if (rhs.cnf != null) {
-                                        if (showrhs)
-                                            System.out.println("INFO in Interpreter.interpretCNF(): rhs1: " + rhs.cnf);
-                                        bindingsRemoved.merge(rhs.cnf);
-                                        if (showrhs)
-                                            System.out.println("INFO in Interpreter.interpretCNF(): merged: " + bindingsRemoved);
-                                    }
-                                    newInput = bindingsRemoved;
-                                }
-                                else
-                                    if (rhs.cnf != null) {
-                                        if (showrhs)
-                                            System.out.println("INFO in Interpreter.interpretCNF(): rhs2: " + rhs.cnf);
-                                        newInput = rhs.cnf;
-                                    }   if (r.rhs.form != null && !kifoutput.contains(rhs.form.toString())) { // assert a KIF RHS
-                                        if (showrhs)
-                                            System.out.println("INFO in Interpreter.interpretCNF(): rhs3: " + rhs.form);
-                                        kifoutput.add(rhs.form.toString());
-                                        if (debug) System.out.println("INFO in Interpreter.interpretCNF(): kif: " + kifoutput);
-                                    }       if (showrhs)
-                                        System.out.println("INFO in Interpreter.interpretCNF(): rhs4: " + rhs.form);
-                                    if (debug) System.out.println("INFO in Interpreter.interpretCNF(): new input 2: " + newInput + "\n");
-                                break;
-                            case OPT:
-                                // ?=> operator
-                                bindingsRemoved = newInput.removeBound(); // delete the bound clauses
-                                if (!bindingsRemoved.empty() && !newinputs.contains(bindingsRemoved)) {  // assert the input after removing bindings
-                                    if (rhs.cnf != null)
-                                        bindingsRemoved.merge(rhs.cnf);
-                                    newinputs.add(bindingsRemoved);
-                                }       if (rhs.form != null && !kifoutput.contains(rhs.form.toString())) { // assert a KIF RHS
-                                    if (showrhs)
-                                        System.out.println("   " + rhs.form);
-                                    kifoutput.add(rhs.form.toString());
-                                    if (debug) System.out.println("INFO in Interpreter.interpretCNF(): kif: " + kifoutput);
-                                }
-                                break;
-                            default:
-                                // empty RHS
-                                newInput.clearBound();
-                                break;
-                        }
-                    }
-                    newInput.clearBound();
-                    newInput.clearPreserve();
-                    if (showrhs) System.out.println("\nINFO in Interpreter.interpretCNF(): new inputs: " + newInput);
-                    if (showrhs) System.out.println("INFO in Interpreter.interpretCNF(): kif1: " + kifoutput);
-                }
+        InterpretContext ctx = new InterpretContext();
+        List<String> result = interpretCNF(inputs, ctx);
+        firedRules.addAll(ctx.firedRules);
+        rulesExamined += ctx.rulesExamined;
+        rulesFired += ctx.rulesFired;
+        return result;
+    }
+
+    /** *************************************************************
+     * Apply all the rules in the RuleSet to the input CNF form.  This
+     * may be called by many threads at once, each with its own context.
+     */
+    public List<String> interpretCNF(List<CNF> inputs, InterpretContext ctx) {
+
+        return getEngine().interpretCNF(inputs, ctx);
+    }
+
+    /** *************************************************************
+     * @return the compiled form of rs, rebuilt if rs has been replaced
+     * or its rules changed since it was last compiled.  Threads only
+     * take a lock when the engine has to be rebuilt.
+     */
+    public RuleEngine getEngine() {
+
+        RuleEngine e = engine;
+        if (e != null && e.getRuleSet() == rs && e.isCurrent())
+            return e;
+        synchronized (this) {
+            e = engine;
+            if (e == null || e.getRuleSet() != rs || !e.isCurrent()) {
+                e = new RuleEngine(rs);
+                engine = e;
             }
-            if (bindingFound)
-                newinputs.add(newInput);
-            else
-                if (addUnprocessed)
-                    addUnprocessed(kifoutput,newInput); // a hack to add unprocessed SDP clauses as if they were KIF
-            inputs = new ArrayList<>();
-            inputs.addAll(newinputs);
-            //System.out.println("INFO in Interpreter.interpretCNF(): KB: " + printKB(inputs));
-            //System.out.println("INFO in Interpreter.interpretCNF(): KIF: " + kifoutput);
-            //System.out.println("INFO in Interpreter.interpretCNF(): bindingFound: " + bindingFound);
-            //System.out.println("INFO in Interpreter.interpretCNF(): counter: " + counter);
-            //System.out.println("INFO in Interpreter.interpretCNF(): newinputs: " + newinputs);
-            //System.out.println("INFO in Interpreter.interpretCNF(): inputs: " + inputs);
-            if (showrhs) System.out.println("INFO in Interpreter.interpretCNF(): kif2: " + kifoutput);
+            return e;
         }
-        return kifoutput;
     }
 
     /** ***************************************************************
@@ -1760,13 +1703,25 @@ public class Interpreter {
     public void initialize() throws IOException {
 
         rs = loadRules();
-        tfidf = new TFIDF(System.getenv("ONTOLOGYPORTAL_GIT") + File.separator +
-                "sumo" + File.separator +
-                "WordNetMappings" + File.separator + "stopwords.txt");
+        tfidf = initTFIDF();
         DependencyConverter.readFirstNames();
         initialized = true;
     }
 
+    /** ***************************************************************
+     * The TF/IDF fallback starts from the snapshot named by the
+     * tfidf.snapshot system property, if there is one, rather than empty
+     */
+    private static TFIDF initTFIDF() throws IOException {
+
+        String snapshot = System.getProperty("tfidf.snapshot");
+        if (!StringUtil.emptyString(snapshot) && new File(snapshot).exists())
+            return TFIDF.open(snapshot);
+        return new TFIDF(System.getenv("ONTOLOGYPORTAL_GIT") + File.separator +
+                "sumo" + File.separator +
+                "WordNetMappings" + File.separator + "stopwords.txt");
+    }
+
     /** ***************************************************************
      */
     public static void printRules(RuleSet rs) {
@@ -1784,9 +1739,7 @@ public class Interpreter {
 
         rs = loadRules(rulesFile);
         //printRules(rs);
-        tfidf = new TFIDF(System.getenv("ONTOLOGYPORTAL_GIT") + File.separator +
-                "sumo" + File.separator +
-                "WordNetMappings" + File.separator + "stopwords.txt");
+        tfidf = initTFIDF();
         DependencyConverter.readFirstNames();
         initialized = true;
     }
@@ -0,0 +1,171 @@
+package com.articulate.nlp.semRewrite;
+
+import com.articulate.sigma.KBmanager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** *************************************************************
+ * Measures the throughput of one shared RuleEngine (and optionally
+ * one shared Interpreter and Pipeline) as the number of threads grows,
+ * each thread interpreting inputs with its own InterpretContext.
+ * The input file has one input per line, either a dependency parse
+ * in CNF such as "nsubj(runs-2,John-1), root(ROOT-0,runs-2)" or, with
+ * -s, an English sentence to be parsed first.  With -i each input goes
+ * through Interpreter.interpretCNF(), which looks up the engine on
+ * every call, rather than straight to the engine.
+ */
+public class InterpreterBenchmark {
+
+    public static boolean debug = false;
+
+    /** *************************************************************
+     * Run every input reps times over a pool of the given size
+     * @return inputs interpreted per second
+     */
+    private static double run(int threads, int reps, List<String> lines, List<CNF> cnfs,
+                              Interpreter interp, RuleEngine engine, boolean viaInterp) throws Exception {
+
+        int total = reps * lines.size();
+        AtomicInteger next = new AtomicInteger();
+        AtomicLong fired = new AtomicLong();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                int i;
+                InterpretContext ctx;
+                List<CNF> inputs;
+                CNF cnf;
+                while ((i = next.getAndIncrement()) < total) {
+                    ctx = new InterpretContext();
+                    if (cnfs == null)
+                        cnf = interp.interpretGenCNF(lines.get(i % lines.size()), ctx);
+                    else
+                        cnf = cnfs.get(i % cnfs.size());
+                    if (cnf == null)
+                        continue;
+                    inputs = new ArrayList<>();
+                    inputs.add(cnf);
+                    if (viaInterp)
+                        interp.interpretCNF(inputs, ctx);
+                    else
+                        engine.interpretCNF(inputs, ctx);
+                    fired.addAndGet(ctx.rulesFired);
+                }
+            }));
+        }
+        for (Future<?> f : futures)
+            f.get();
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        if (debug) System.out.println("InterpreterBenchmark.run(): rules fired: " + fired.get());
+        return total / (elapsed / 1.0e9);
+    }
+
+    /** *************************************************************
+     */
+    public static void showHelp() {
+
+        System.out.println("InterpreterBenchmark: throughput of concurrent semantic rewriting");
+        System.out.println("  options:");
+        System.out.println("  -h - show this help screen");
+        System.out.println("  -r <file> - rule file, default SemRewrite.txt");
+        System.out.println("  -t <n> - largest number of threads to try, doubling from 1 (default: cores)");
+        System.out.println("  -n <n> - times to interpret each input in each run (default 10)");
+        System.out.println("  -s - inputs are sentences to parse with one shared Pipeline,");
+        System.out.println("       rather than dependency parses in CNF");
+        System.out.println("  -i - interpret through the shared Interpreter rather than its engine");
+        System.out.println("  with a final argument that is the input file, one input per line");
+    }
+
+    /** *************************************************************
+     */
+    public static void main(String[] args) throws Exception {
+
+        String rulesFile = null;
+        String inputFile = null;
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+        int reps = 10;
+        boolean sentences = false;
+        boolean viaInterp = false;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-h")) {
+                showHelp();
+                return;
+            }
+            else if (args[i].equals("-r") && i + 1 < args.length)
+                rulesFile = args[++i];
+            else if (args[i].equals("-t") && i + 1 < args.length)
+                maxThreads = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-n") && i + 1 < args.length)
+                reps = Integer.parseInt(args[++i]);
+            else if (args[i].equals("-s"))
+                sentences = true;
+            else if (args[i].equals("-i"))
+                viaInterp = true;
+            else
+                inputFile = args[i];
+        }
+        if (inputFile == null) {
+            showHelp();
+            return;
+        }
+        List<String> lines = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(Paths.get(inputFile), StandardCharsets.UTF_8))
+                if (!line.trim().isEmpty())
+                    lines.add(line.trim());
+        }
+        catch (IOException e) {
+            System.err.println("Error in InterpreterBenchmark.main(): can't read " + inputFile);
+            e.printStackTrace();
+            return;
+        }
+        KBmanager.getMgr().initializeOnce();
+        Interpreter.showr = false;
+        Interpreter.showrhs = false;
+        Interpreter.verboseParse = false;
+        RuleSet rs = (rulesFile == null) ? Interpreter.loadRules() : Interpreter.loadRules(rulesFile);
+        if (rs == null)
+            return;
+        Interpreter interp = null;
+        List<CNF> cnfs = null;
+        if (sentences || viaInterp) {
+            interp = new Interpreter();
+            interp.rs = rs;
+        }
+        if (!sentences) {
+            cnfs = new ArrayList<>();
+            for (String line : lines)
+                cnfs.add(CNF.parseSimple(new Lexer(line)));
+        }
+        RuleEngine engine = (interp == null) ? new RuleEngine(rs) : interp.getEngine();
+        System.out.println("InterpreterBenchmark.main(): " + lines.size() + " inputs, " +
+                engine.size() + " rules, " + reps + " repetitions");
+        run(1, 1, lines, cnfs, interp, engine, viaInterp); // warm up
+        double base = 0;
+        double rate;
+        int threads = 1;
+        while (true) {
+            rate = run(threads, reps, lines, cnfs, interp, engine, viaInterp);
+            if (threads == 1)
+                base = rate;
+            System.out.printf("threads: %3d  inputs/sec: %10.1f  speedup: %5.2f%n",
+                    threads, rate, rate / base);
+            if (threads >= maxThreads)
+                break;
+            threads = Math.min(threads * 2, maxThreads);
+        }
+    }
+}
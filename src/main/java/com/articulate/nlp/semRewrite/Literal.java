@@ -58,6 +58,14 @@ public class Literal implements Comparable {
     public String arg2;
     public CoreLabel clArg2 = new CoreLabel();
 
+    // Symbols codes for pred, arg1 and arg2.  The fields above are set
+    // directly all over the code base, so a code is only trusted while the
+    // Scope gives the very String in the field as its name.
+    private int predCode, arg1Code, arg2Code;
+
+    private static final Pattern TOKEN_ONLY = Pattern.compile("\\??(.+)-(\\d+)");
+    private static final Pattern TOKEN_NUM = Pattern.compile(".+-(\\d+)");
+
     // from http://universaldependencies.org/u/dep/index.html
     public static final List<String> dependencyTags = Arrays.asList("acl",
             "advcl", "advmod", "amod", "appos", "aux", "auxpass", "case", "cc",
@@ -380,8 +388,7 @@ public class Literal implements Comparable {
             return s;
         if (s.endsWith("*"))
             return s.substring(0,s.length()-1);
-        Pattern p = Pattern.compile("\\??(.+)-(\\d+)");
-        Matcher m = p.matcher(s);
+        Matcher m = TOKEN_ONLY.matcher(s);
         if (m.matches()) {
             return m.group(1);
         }
@@ -395,8 +402,7 @@ public class Literal implements Comparable {
 
         if (StringUtil.emptyString(s))
             return false;
-        Pattern p = Pattern.compile(".+-(\\d+)");
-        Matcher m = p.matcher(s);
+        Matcher m = TOKEN_NUM.matcher(s);
         if (m.matches())
             return true;
         else
@@ -411,8 +417,7 @@ public class Literal implements Comparable {
 
         if (StringUtil.emptyString(s))
             return -1;
-        Pattern p = Pattern.compile(".+-(\\d+)");
-        Matcher m = p.matcher(s);
+        Matcher m = TOKEN_NUM.matcher(s);
         if (m.matches()) {
             return Integer.parseInt(m.group(1));
         }
@@ -476,9 +481,100 @@ public class Literal implements Comparable {
         newc.pred = pred;
         newc.arg1 = arg1;
         newc.arg2 = arg2;
+        newc.predCode = predCode;
+        newc.arg1Code = arg1Code;
+        newc.arg2Code = arg2Code;
         return newc;
     }
 
+    /** ***************************************************************
+     * Add pred and the arguments to the Symbols table.  Done for the
+     * literals of rules and search patterns when they are compiled,
+     * never for sentences.
+     */
+    public void internSymbols() {
+
+        predCode = Symbols.id(pred);
+        pred = Symbols.name(predCode);
+        arg1Code = Symbols.id(arg1);
+        arg1 = Symbols.name(arg1Code);
+        arg2Code = Symbols.id(arg2);
+        arg2 = Symbols.name(arg2Code);
+    }
+
+    /** ***************************************************************
+     * Code the symbols that are already in the Symbols table, and use
+     * its Strings for them.  The rest are coded when first unified.
+     */
+    private void lookupSymbols() {
+
+        int code;
+        if ((code = Symbols.lookup(pred)) >= 0) {
+            predCode = code;
+            pred = Symbols.name(code);
+        }
+        if ((code = Symbols.lookup(arg1)) >= 0) {
+            arg1Code = code;
+            arg1 = Symbols.name(code);
+        }
+        if ((code = Symbols.lookup(arg2)) >= 0) {
+            arg2Code = code;
+            arg2 = Symbols.name(code);
+        }
+    }
+
+    /** ***************************************************************
+     * @return the code of pred in the given Scope, coding it only if
+     * pred has changed since it was last coded
+     */
+    public int predId(Symbols.Scope scope) {
+
+        String p = pred;
+        if (p == null)
+            return Symbols.NONE;
+        int code = predCode;
+        if (scope.name(code) != p) {
+            code = scope.id(p);
+            pred = scope.name(code); // so that the next check is by identity
+            predCode = code;
+        }
+        return code;
+    }
+
+    /** ***************************************************************
+     * @return the code of arg1 in the given Scope
+     */
+    public int arg1Id(Symbols.Scope scope) {
+
+        String a = arg1;
+        if (a == null)
+            return Symbols.NONE;
+        int code = arg1Code;
+        if (scope.name(code) != a) {
+            code = scope.id(a);
+            arg1 = scope.name(code);
+            arg1Code = code;
+        }
+        return code;
+    }
+
+    /** ***************************************************************
+     * @return the code of arg2 in the given Scope
+     */
+    public int arg2Id(Symbols.Scope scope) {
+
+        String a = arg2;
+        if (a == null)
+            return Symbols.NONE;
+        int code = arg2Code;
+        if (scope.name(code) != a) {
+            code = scope.id(a);
+            arg2 = scope.name(code);
+            arg2Code = code;
+        }
+        return code;
+    }
+
     /** ***************************************************************
      */
     @Override
@@ -592,7 +688,7 @@ public class Literal implements Comparable {
      * is case-insensitive.  Wildcards only allow for ignoring the
      * word-number suffix as in wildcard-5 would match wildcard*.
      */
-    private static boolean wildcardMatch(String t1, String t2) {
+    static boolean wildcardMatch(String t1, String t2) {
 
         //System.out.println("INFO in Literal.wildcardMatch(): attempting to match: " + t1 + " " + t2);
         String s1 = t1;
@@ -726,7 +822,7 @@ public class Literal implements Comparable {
                 lex.next();
             }
             if (debug) System.out.println("INFO in Literal.parse(2): " + lex.look());
-            cl.pred = lex.next();
+            cl.pred = lex.next().intern(); // few distinct relations, so most equals() tests are identity
             /* if (!acceptedPredicate(cl.pred)) {
                 System.out.println("Error in Literal.parse(): unknown pred '" + cl.pred + "' in: " + cl);
                 errStr = (errStart + ": bad predicate '" + lex.look() + "' near line " + startLine + " on input " + lex.line);
@@ -762,6 +858,7 @@ public class Literal implements Comparable {
             ex.printStackTrace();
         }
         //System.out.println("INFO in Literal.parse(9): returning " + cl);
+        cl.lookupSymbols();
         return cl;
     }
 
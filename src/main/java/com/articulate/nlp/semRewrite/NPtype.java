@@ -300,7 +300,7 @@ public class NPtype {
         Annotation wholeDocument = null;
         try {
             wholeDocument = new Annotation(s);
-            p.pipeline.annotate(wholeDocument);
+            p.annotate(wholeDocument);
         }
         catch (Exception e) {
             System.out.println(e.getMessage());
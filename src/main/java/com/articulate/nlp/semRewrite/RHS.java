@@ -165,20 +165,21 @@ public class RHS {
             if (debug) System.out.println("INFO in RHS.applyBindings(): cnf: " + cnf);
         }
 
+        Formula newForm = form; // leave this rule's formula untouched so the rule needn't be copied
         Iterator<String> it = bindings.keySet().iterator();
         while (it.hasNext()) {
             String key = it.next();
             String value = bindings.get(key);
             if (debug) System.out.println("INFO in RHS.applyBindings(): key,bindings: " + key + ", " + bindings);
-            if (form != null && form.getFormula() != null) {
-                form = form.replaceVar(key, value);
-                if (debug) System.out.println("INFO in RHS.applyBindings(): formula: " + form.getFormula());
+            if (newForm != null && newForm.getFormula() != null) {
+                newForm = newForm.replaceVar(key, value);
+                if (debug) System.out.println("INFO in RHS.applyBindings(): formula: " + newForm.getFormula());
             }
         }
-        if (form != null) {
-            if (debug) System.out.println("INFO in RHS.applySubst(): formula (2): " + form.getFormula());
-            rhs.form = form;
-            if (debug) System.out.println("INFO in RHS.applySubst(): formula (3): " + form.getFormula());
+        if (newForm != null) {
+            if (debug) System.out.println("INFO in RHS.applySubst(): formula (2): " + newForm.getFormula());
+            rhs.form = newForm;
+            if (debug) System.out.println("INFO in RHS.applySubst(): formula (3): " + newForm.getFormula());
         }
         return rhs;
     }
@@ -0,0 +1,204 @@
+package com.articulate.nlp.semRewrite;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/** *************************************************************
+ * A RuleSet compiled for matching: the clausified rules and their
+ * RuleIndex.  A RuleEngine is never modified once built, and neither
+ * unification nor applying bindings changes a rule, so one engine can
+ * serve any number of threads at once.  Each call is given its own
+ * InterpretContext for the state of that request.
+ */
+public class RuleEngine {
+
+    private final RuleSet rs;
+    private final RuleIndex index;
+    private final int modifications; // rs.rules.modifications() when index was built
+
+    /** *************************************************************
+     * @param rsin a RuleSet that has already been through
+     *             Clausifier.clausify(), as by Interpreter.loadRules()
+     */
+    public RuleEngine(RuleSet rsin) {
+
+        rs = rsin;
+        synchronized (rsin) {
+            index = rsin.getIndex();
+            modifications = rsin.rules.modifications();
+        }
+    }
+
+    /** *************************************************************
+     * @return the RuleSet the engine was built from
+     */
+    public RuleSet getRuleSet() {
+
+        return rs;
+    }
+
+    /** *************************************************************
+     * @return the number of rules compiled into the engine.  Rules
+     * added to the RuleSet later are not seen by this engine.
+     */
+    public int size() {
+
+        return index.size();
+    }
+
+    /** *************************************************************
+     * @return false if rules have been added to the RuleSet, or
+     * removed or replaced, since the engine was built.  This reads the
+     * rules' count of changes without taking the RuleSet's lock, so it
+     * costs nothing on every call, but a change made by another thread
+     * may be seen late; rules shouldn't change while being interpreted.
+     */
+    public boolean isCurrent() {
+
+        return rs.rules.modifications() == modifications;
+    }
+
+    /** *************************************************************
+     * Apply all the rules to the input CNF form, matching left hand
+     * sides and generating the right hand side.
+     * @param ctx collects the rules fired and the rule counts
+     */
+    public List<String> interpretCNF(List<CNF> inputs, InterpretContext ctx) {
+
+        if (inputs == null || inputs.isEmpty() || inputs.contains(null))
+            return null;
+        if (inputs.size() > 1) {
+            System.err.println("Error in RuleEngine.interpretCNF(): multiple clauses");
+            return null;
+        }
+        List<String> kifoutput = new ArrayList<>();
+        if (Interpreter.showr || Interpreter.debug) {
+            System.out.println("INFO in RuleEngine.interpretCNF(): inputs: " + inputs);
+            System.out.println("INFO in RuleEngine.interpretCNF(): sorted inputs: " + CNF.toSortedString(inputs));
+        }
+        boolean bindingFound = true;
+        int counter = 0;
+        CNF newInput, bindingsRemoved;
+        List<CNF> newinputs;
+        Set<String> preds, terms;
+        Rule r;
+        Subst bindings;
+        RHS rhs;
+        while (bindingFound && counter < 10 && !inputs.isEmpty()) {
+            counter++;
+            bindingFound = false;
+            newinputs = new ArrayList<>();
+            newInput = null;
+            for (int j = 0; j < inputs.size(); j++) {
+                newInput = inputs.get(j).deepCopy();
+
+                preds = newInput.getPreds();
+                terms = newInput.getTerms();
+                //System.out.println("RuleEngine.interpretCNF(): input preds: " + preds);
+                if (Interpreter.debug) System.out.println("INFO in RuleEngine.interpretCNF(): new input 0: " + newInput);
+                for (Rule rule : index.candidates(preds,terms)) { // only rules that pass termCoverage()
+                    //if (Interpreter.debug) System.out.println("INFO in RuleEngine.interpretCNF(): checking rule: " + rule);
+                    ctx.rulesExamined++;
+                    //System.out.println("RuleEngine.interpretCNF(): predicates match");
+                    r = rule; // neither unify() nor applyBindings() modify the rule
+                    if (Interpreter.debug && r.rhs.form == null)
+                        System.out.println("INFO in RuleEngine.interpretCNF(): no SUO-KIF formula for: " + r);
+                    //System.out.println("INFO in RuleEngine.interpretCNF(): new input 0.5: " + newInput);
+                    if (Interpreter.debug) System.out.println("INFO in RuleEngine.interpretCNF(): r: " + r);
+                    if (Interpreter.debug || Interpreter.bind) System.out.println("\nINFO in RuleEngine.interpretCNF(): inputs to rule: " + newInput);
+                    //Clause.bindSource = false; // put binding flag on target - the newInput
+                    newInput.clearBound();
+                    bindings = r.cnf.unify(newInput);  // <---- unification -------
+                    if (bindings == null) {
+                        newInput.clearBound();
+                    }
+                    else {
+                        bindingFound = true;
+                        ctx.rulesFired++;
+                        if (Interpreter.showr || Interpreter.debug)
+                            System.out.println("INFO in RuleEngine.interpretCNF(): successful rule: " + r);
+                        if (Interpreter.showrhs || Interpreter.debug || Interpreter.bind) System.out.println("\nINFO in RuleEngine.interpretCNF(): bound results: " + newInput);
+                        if (Interpreter.debug || Interpreter.bind) System.out.println("INFO in RuleEngine.interpretCNF(): bindings: " + bindings);
+                        ctx.firedRules.add(r.toString() + " : " + bindings.toString());
+                        rhs = r.rhs.applyBindings(bindings);
+                        if (Interpreter.showrhs || Interpreter.debug)
+                            System.out.println("INFO in RuleEngine.interpretCNF(): form after apply bindings: " + rhs);
+                        if (null == r.operator) // empty RHS
+                            newInput.clearBound();
+                        else switch (r.operator) {
+                            case IMP:
+                                // ==>  operator
+                                bindingsRemoved = newInput.removeBound(); // delete the bound clauses
+                                if (Interpreter.debug | Interpreter.showrhs) System.out.println("INFO in RuleEngine.interpretCNF(): input with bindings removed: " + bindingsRemoved);
+                                if (!bindingsRemoved.empty()) {  // assert the input after removing bindings
+                                    if (rhs.cnf != null) {
+                                        if (Interpreter.showrhs)
+                                            System.out.println("INFO in RuleEngine.interpretCNF(): rhs1: " + rhs.cnf);
+                                        bindingsRemoved.merge(rhs.cnf);
+                                        if (Interpreter.showrhs)
+                                            System.out.println("INFO in RuleEngine.interpretCNF(): merged: " + bindingsRemoved);
+                                    }
+                                    newInput = bindingsRemoved;
+                                }
+                                else
+                                    if (rhs.cnf != null) {
+                                        if (Interpreter.showrhs)
+                                            System.out.println("INFO in RuleEngine.interpretCNF(): rhs2: " + rhs.cnf);
+                                        newInput = rhs.cnf;
+                                    }   if (r.rhs.form != null && !kifoutput.contains(rhs.form.toString())) { // assert a KIF RHS
+                                        if (Interpreter.showrhs)
+                                            System.out.println("INFO in RuleEngine.interpretCNF(): rhs3: " + rhs.form);
+                                        kifoutput.add(rhs.form.toString());
+                                        if (Interpreter.debug) System.out.println("INFO in RuleEngine.interpretCNF(): kif: " + kifoutput);
+                                    }       if (Interpreter.showrhs)
+                                        System.out.println("INFO in RuleEngine.interpretCNF(): rhs4: " + rhs.form);
+                                    if (Interpreter.debug) System.out.println("INFO in RuleEngine.interpretCNF(): new input 2: " + newInput + "\n");
+                                break;
+                            case OPT:
+                                // ?=> operator
+                                bindingsRemoved = newInput.removeBound(); // delete the bound clauses
+                                if (!bindingsRemoved.empty() && !newinputs.contains(bindingsRemoved)) {  // assert the input after removing bindings
+                                    if (rhs.cnf != null)
+                                        bindingsRemoved.merge(rhs.cnf);
+                                    newinputs.add(bindingsRemoved);
+                                }       if (rhs.form != null && !kifoutput.contains(rhs.form.toString())) { // assert a KIF RHS
+                                    if (Interpreter.showrhs)
+                                        System.out.println("   " + rhs.form);
+                                    kifoutput.add(rhs.form.toString());
+                                    if (Interpreter.debug) System.out.println("INFO in RuleEngine.interpretCNF(): kif: " + kifoutput);
+                                }
+                                break;
+                            default:
+                                // empty RHS
+                                newInput.clearBound();
+                                break;
+                        }
+                    }
+                    newInput.clearBound();
+                    newInput.clearPreserve();
+                    if (Interpreter.showrhs) System.out.println("\nINFO in RuleEngine.interpretCNF(): new inputs: " + newInput);
+                    if (Interpreter.showrhs) System.out.println("INFO in RuleEngine.interpretCNF(): kif1: " + kifoutput);
+                }
+            }
+            if (bindingFound)
+                newinputs.add(newInput);
+            else
+                if (Interpreter.addUnprocessed)
+                    Interpreter.addUnprocessed(kifoutput,newInput); // a hack to add unprocessed SDP clauses as if they were KIF
+            inputs = new ArrayList<>();
+            inputs.addAll(newinputs);
+            //System.out.println("INFO in RuleEngine.interpretCNF(): KB: " + printKB(inputs));
+            //System.out.println("INFO in RuleEngine.interpretCNF(): KIF: " + kifoutput);
+            //System.out.println("INFO in RuleEngine.interpretCNF(): bindingFound: " + bindingFound);
+            //System.out.println("INFO in RuleEngine.interpretCNF(): counter: " + counter);
+            //System.out.println("INFO in RuleEngine.interpretCNF(): newinputs: " + newinputs);
+            //System.out.println("INFO in RuleEngine.interpretCNF(): inputs: " + inputs);
+            if (Interpreter.showrhs) System.out.println("INFO in RuleEngine.interpretCNF(): kif2: " + kifoutput);
+        }
+        if (Interpreter.debug)
+            System.out.println("INFO in RuleEngine.interpretCNF(): rules examined: " + ctx.rulesExamined +
+                    " fired: " + ctx.rulesFired + " of " + index.size() + " rules");
+        return kifoutput;
+    }
+}
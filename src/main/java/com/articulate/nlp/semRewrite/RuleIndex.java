@@ -0,0 +1,168 @@
+package com.articulate.nlp.semRewrite;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** *************************************************************
+ * A compiled index over a RuleSet that replaces the linear scan
+ * of Interpreter.termCoverage() on every rule.  Every predicate and
+ * term required by some rule (Rule.preds and Rule.terms) gets an
+ * integer id.  Each rule is filed under the required symbol that
+ * the fewest rules require, and carries a bitset of all of its
+ * required symbols.  A lookup only visits the rules filed under
+ * symbols present in the input and confirms each one with a bitset
+ * subset test, so the candidates returned are exactly the rules that
+ * termCoverage() would accept, in their original order.
+ * Building the index also adds the symbols of the rules to the
+ * Symbols table used by the Unifier.
+ * The index is immutable once built and can be shared by threads.
+ */
+public class RuleIndex {
+
+    public static boolean debug = false;
+
+    private final List<Rule> rules;
+    private final Map<String,Integer> predIds = new HashMap<>();
+    private final Map<String,Integer> termIds = new HashMap<>();
+    private final long[][] required;  // rule ordinal -> bitset of required symbol ids
+    private final int[][] postings;   // symbol id -> rule ordinals filed under that symbol
+    private final int[] unconditional; // rules with no required symbols
+    private final int numSymbols;
+
+    /** ***************************************************************
+     */
+    public RuleIndex(List<Rule> ruleList) {
+
+        rules = new ArrayList<>(ruleList);
+        int nextId = 0;
+        for (Rule r : rules) {
+            if (r.cnf != null)
+                r.cnf.internSymbols();
+            for (String p : r.preds)
+                if (!predIds.containsKey(p))
+                    predIds.put(p, nextId++);
+            for (String t : r.terms)
+                if (!termIds.containsKey(t))
+                    termIds.put(t, nextId++);
+        }
+        numSymbols = nextId;
+
+        int[] freq = new int[numSymbols];
+        int[][] ruleSyms = new int[rules.size()][];
+        required = new long[rules.size()][];
+        for (int i = 0; i < rules.size(); i++) {
+            Rule r = rules.get(i);
+            int[] syms = new int[r.preds.size() + r.terms.size()];
+            int n = 0;
+            for (String p : r.preds)
+                syms[n++] = predIds.get(p);
+            for (String t : r.terms)
+                syms[n++] = termIds.get(t);
+            ruleSyms[i] = syms;
+            int maxId = -1;
+            for (int s : syms) {
+                freq[s]++;
+                maxId = Math.max(maxId, s);
+            }
+            long[] bits = new long[(maxId >> 6) + 1];
+            for (int s : syms)
+                bits[s >> 6] |= 1L << (s & 63);
+            required[i] = bits;
+        }
+
+        int[] postingSize = new int[numSymbols];
+        int[] key = new int[rules.size()];
+        int uncond = 0;
+        for (int i = 0; i < rules.size(); i++) {
+            key[i] = -1;
+            for (int s : ruleSyms[i])
+                if (key[i] == -1 || freq[s] < freq[key[i]])
+                    key[i] = s;
+            if (key[i] == -1)
+                uncond++;
+            else
+                postingSize[key[i]]++;
+        }
+        postings = new int[numSymbols][];
+        for (int s = 0; s < numSymbols; s++)
+            postings[s] = new int[postingSize[s]];
+        unconditional = new int[uncond];
+        int[] fill = new int[numSymbols];
+        uncond = 0;
+        for (int i = 0; i < rules.size(); i++) {
+            if (key[i] == -1)
+                unconditional[uncond++] = i;
+            else
+                postings[key[i]][fill[key[i]]++] = i;
+        }
+        if (debug) System.out.println("INFO in RuleIndex(): " + rules.size() + " rules, " +
+                numSymbols + " symbols, " + unconditional.length + " unconditional rules");
+    }
+
+    /** ***************************************************************
+     * @return the number of rules that were indexed
+     */
+    public int size() {
+
+        return rules.size();
+    }
+
+    /** ***************************************************************
+     * @return true if every symbol required by the rule is set in present
+     */
+    private boolean covered(long[] req, long[] present) {
+
+        for (int w = 0; w < req.length; w++)
+            if ((req[w] & ~present[w]) != 0)
+                return false;
+        return true;
+    }
+
+    /** ***************************************************************
+     * @return the rules whose predicates and terms are all found in the
+     * input, in the same order as in the RuleSet.  This is the same
+     * set of rules accepted by Interpreter.termCoverage()
+     */
+    public List<Rule> candidates(Set<String> inputPreds, Set<String> inputTerms) {
+
+        long[] present = new long[(numSymbols >> 6) + 1];
+        Integer id;
+        for (String p : inputPreds) {
+            id = predIds.get(p);
+            if (id != null)
+                present[id >> 6] |= 1L << (id & 63);
+        }
+        for (String t : inputTerms) {
+            id = termIds.get(t);
+            if (id != null)
+                present[id >> 6] |= 1L << (id & 63);
+        }
+        long[] found = new long[(rules.size() >> 6) + 1];
+        for (int i : unconditional)
+            found[i >> 6] |= 1L << (i & 63);
+        for (int w = 0; w < present.length; w++) {
+            long word = present[w];
+            while (word != 0) {
+                int s = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                for (int i : postings[s])
+                    if (covered(required[i], present))
+                        found[i >> 6] |= 1L << (i & 63);
+            }
+        }
+        List<Rule> result = new ArrayList<>();
+        for (int w = 0; w < found.length; w++) {
+            long word = found[w];
+            while (word != 0) {
+                result.add(rules.get((w << 6) + Long.numberOfTrailingZeros(word)));
+                word &= word - 1;
+            }
+        }
+        if (debug) System.out.println("INFO in RuleIndex.candidates(): " + result.size() +
+                " of " + rules.size() + " rules are candidates");
+        return result;
+    }
+}
@@ -29,9 +29,39 @@ import java.util.ArrayList;
 
 public class RuleSet {
 
-    public ArrayList<Rule> rules = new ArrayList<>();
+    public final RuleList rules = new RuleList();
     public ArrayList<String> warningSet = new ArrayList<>();
     public static String filename = "";
+    private RuleIndex index = null;
+    private int indexedModifications = 0; // rules.modifications() when index was built
+
+    /** ***************************************************************
+     * The rules of a RuleSet.  It counts the changes made to it, since
+     * the rules are added and replaced directly all over the code base
+     * and a RuleIndex must be rebuilt after any of them.
+     */
+    public static class RuleList extends ArrayList<Rule> {
+
+        private int replaced = 0;
+
+        /** ***************************************************************
+         */
+        @Override
+        public Rule set(int index, Rule r) {
+
+            replaced++;
+            return super.set(index, r);
+        }
+
+        /** ***************************************************************
+         * @return a count that changes whenever a rule is added, removed
+         * or replaced
+         */
+        public int modifications() {
+
+            return modCount + replaced;
+        }
+    }
 
     /** ***************************************************************
      */
@@ -44,6 +74,28 @@ public class RuleSet {
         return sb.toString();
     }
 
+    /** ***************************************************************
+     * Compile the predicate and term index over the current rules.
+     * Called once the rules have been clausified.
+     */
+    public synchronized RuleIndex buildIndex() {
+
+        indexedModifications = rules.modifications();
+        index = new RuleIndex(rules);
+        return index;
+    }
+
+    /** ***************************************************************
+     * @return the rule index, rebuilding it if rules have been added,
+     * removed or replaced since it was built
+     */
+    public synchronized RuleIndex getIndex() {
+
+        if (index == null || indexedModifications != rules.modifications())
+            buildIndex();
+        return index;
+    }
+
     /** ***************************************************************
      */
     public RuleSet parse(Lexer lex) {
@@ -0,0 +1,362 @@
+package com.articulate.nlp.semRewrite;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** *************************************************************
+ * A symbol table shared by the semRewrite engine that gives every
+ * distinct predicate, constant and variable string an integer code.
+ * The properties that unification tests over and over - whether a
+ * symbol is a ?variable, whether it contains a '*' wildcard or a '-'
+ * token number separator, and the case-folded stem compared by a
+ * word* wildcard - are worked out once, when the symbol is first
+ * seen, so that matching two literals is a few int comparisons rather
+ * than repeated startsWith(), indexOf() and substring() calls.
+ *
+ * Symbols are never removed, so only the symbols of rules and search
+ * patterns go in this table, when they are compiled.  The tokens of a
+ * sentence, such as walk-3, are coded by the Scope of the thread that
+ * interprets it, which is emptied once it grows past MAX_LOCAL symbols,
+ * so interpreting sentences doesn't grow the table.  Lookups of known
+ * symbols don't lock and the table can be shared by threads.
+ */
+public class Symbols {
+
+    public static final int NONE = -1;    // the code of a null argument
+    public static final int UNKNOWN = -2; // returned by lookup() for a symbol not in the table
+
+    public static final int FREE_VAR = 1;   // starts with '?'
+    public static final int WORD_VAR = 2;   // ends with '*'
+    public static final int HAS_STAR = 4;   // contains '*'
+    public static final int HAS_DASH = 8;   // contains '-'
+
+    private static final ConcurrentHashMap<String,Integer> ids = new ConcurrentHashMap<>();
+
+    // written only while holding the class lock, and published to
+    // readers through the ids map
+    private static volatile String[] names = new String[1024];
+    private static volatile int[] flags = new int[1024];
+    private static volatile int[] starStems = new int[1024];
+    private static volatile int[] dashStems = new int[1024];
+    private static volatile int size = 0;
+
+    public static final int DEP = id("dep");
+
+    private static final Scope GLOBAL = new Scope();
+
+    /** *************************************************************
+     * @return the code for s, adding it to the table if it is new
+     */
+    public static int id(String s) {
+
+        if (s == null)
+            return NONE;
+        Integer id = ids.get(s);
+        if (id != null)
+            return id;
+        return add(s);
+    }
+
+    /** *************************************************************
+     */
+    private static synchronized int add(String s) {
+
+        Integer id = ids.get(s);
+        if (id != null)
+            return id;
+        int star = s.lastIndexOf('*');
+        int dash = s.lastIndexOf('-');
+        // the stems may themselves be new symbols, so add them first, and
+        // only publish s in the map once all of its entries are filled in
+        int starStem = (star > -1) ? id(s.substring(0, star).toLowerCase(Locale.ROOT)) : NONE;
+        int dashStem = (dash > -1) ? id(s.substring(0, dash).toLowerCase(Locale.ROOT)) : NONE;
+        int f = 0;
+        if (s.startsWith("?"))
+            f |= FREE_VAR;
+        if (s.endsWith("*"))
+            f |= WORD_VAR;
+        if (star > -1)
+            f |= HAS_STAR;
+        if (dash > -1)
+            f |= HAS_DASH;
+        s = s.intern(); // so that literals parsed later share it
+        int code = size;
+        if (code == names.length)
+            grow();
+        names[code] = s;
+        flags[code] = f;
+        starStems[code] = starStem;
+        dashStems[code] = dashStem;
+        size++;
+        ids.put(s, code);
+        return code;
+    }
+
+    /** *************************************************************
+     */
+    private static void grow() {
+
+        int len = names.length * 2;
+        String[] newNames = new String[len];
+        int[] newFlags = new int[len];
+        int[] newStar = new int[len];
+        int[] newDash = new int[len];
+        System.arraycopy(names, 0, newNames, 0, size);
+        System.arraycopy(flags, 0, newFlags, 0, size);
+        System.arraycopy(starStems, 0, newStar, 0, size);
+        System.arraycopy(dashStems, 0, newDash, 0, size);
+        names = newNames;
+        flags = newFlags;
+        starStems = newStar;
+        dashStems = newDash;
+    }
+
+    /** *************************************************************
+     * @return the code for s, or UNKNOWN if it is not in the table.
+     * Unlike id(), s is never added.
+     */
+    public static int lookup(String s) {
+
+        if (s == null)
+            return NONE;
+        Integer id = ids.get(s);
+        return (id == null) ? UNKNOWN : id;
+    }
+
+    /** *************************************************************
+     * @return the symbol with the given code, or null for NONE
+     */
+    public static String name(int id) {
+
+        return GLOBAL.name(id);
+    }
+
+    /** *************************************************************
+     */
+    public static int flags(int id) {
+
+        return GLOBAL.flags(id);
+    }
+
+    /** *************************************************************
+     */
+    public static boolean isFreeVariable(int id) {
+
+        return GLOBAL.isFreeVariable(id);
+    }
+
+    /** *************************************************************
+     * The equivalent of Literal.wildcardMatch() on two codes.  A
+     * word* wildcard only matches a token with the same stem, ignoring
+     * case.  Anything else is left for the caller to decide.
+     */
+    public static boolean wildcardMatch(int id1, int id2) {
+
+        return GLOBAL.wildcardMatch(id1, id2);
+    }
+
+    /** *************************************************************
+     * Matching of two distinct constants, where one may be a word*
+     * wildcard and the other a numbered token
+     */
+    public static boolean constantMatch(int id1, int id2) {
+
+        return GLOBAL.constantMatch(id1, id2);
+    }
+
+    /** *************************************************************
+     * @return the number of symbols in the table
+     */
+    public static int size() {
+
+        return size;
+    }
+
+    /** *************************************************************
+     * Codes for the symbols that are not in the shared table, typically
+     * the tokens of sentences.  They are negative, below UNKNOWN, and
+     * mean nothing outside the Scope that gave them.  A symbol in the
+     * shared table always has its shared code, and the stems of local
+     * symbols are resolved through the Scope too, so two symbols are
+     * the same exactly when their codes are.
+     *
+     * Each thread has one Scope, got with current() at the start of a
+     * unification and kept from one unification to the next, so the
+     * tokens of a sentence are coded once however many rules it is
+     * matched against.  current() empties the Scope when it has grown
+     * past MAX_LOCAL symbols or the shared table has grown, after which
+     * a Literal finds that the codes it cached are no longer valid and
+     * codes its symbols again.
+     */
+    public static class Scope {
+
+        public static final int MAX_LOCAL = 4096;
+
+        private static final ThreadLocal<Scope> scopes = ThreadLocal.withInitial(Scope::new);
+
+        private final Map<String,Integer> localIds = new HashMap<>();
+        private final List<String> localNames = new ArrayList<>();
+        private int[] localFlags = new int[16];
+        private int[] localStarStems = new int[16];
+        private int[] localDashStems = new int[16];
+        private int sharedSize = 0; // the size of the shared table when the Scope was last emptied
+
+        /** *************************************************************
+         * @return the Scope of the calling thread, emptied first if it is
+         * full or symbols have been added to the shared table since
+         */
+        public static Scope current() {
+
+            Scope scope = scopes.get();
+            if (scope.localNames.size() > MAX_LOCAL || scope.sharedSize != size)
+                scope.clear();
+            return scope;
+        }
+
+        /** *************************************************************
+         */
+        private void clear() {
+
+            localIds.clear();
+            localNames.clear();
+            sharedSize = size;
+        }
+
+        /** *************************************************************
+         * @return the code for s, giving it a local code if it is not
+         * in the shared table
+         */
+        public int id(String s) {
+
+            if (s == null)
+                return NONE;
+            Integer id = ids.get(s);
+            if (id != null)
+                return id;
+            id = localIds.get(s);
+            if (id != null)
+                return id;
+            return addLocal(s);
+        }
+
+        /** *************************************************************
+         */
+        private int addLocal(String s) {
+
+            int star = s.lastIndexOf('*');
+            int dash = s.lastIndexOf('-');
+            int starStem = (star > -1) ? id(s.substring(0, star).toLowerCase(Locale.ROOT)) : NONE;
+            int dashStem = (dash > -1) ? id(s.substring(0, dash).toLowerCase(Locale.ROOT)) : NONE;
+            int f = 0;
+            if (s.startsWith("?"))
+                f |= FREE_VAR;
+            if (s.endsWith("*"))
+                f |= WORD_VAR;
+            if (star > -1)
+                f |= HAS_STAR;
+            if (dash > -1)
+                f |= HAS_DASH;
+            int i = localNames.size();
+            if (i == localFlags.length) {
+                localFlags = Arrays.copyOf(localFlags, i * 2);
+                localStarStems = Arrays.copyOf(localStarStems, i * 2);
+                localDashStems = Arrays.copyOf(localDashStems, i * 2);
+            }
+            localNames.add(s);
+            localFlags[i] = f;
+            localStarStems[i] = starStem;
+            localDashStems[i] = dashStem;
+            int code = UNKNOWN - 1 - i;
+            localIds.put(s, code);
+            return code;
+        }
+
+        /** *************************************************************
+         * @return the symbol with the given code, or null if the code is
+         * NONE or not one of this Scope or the shared table
+         */
+        public String name(int id) {
+
+            if (id >= 0) {
+                String[] n = names;
+                return (id < n.length) ? n[id] : null;
+            }
+            int i = UNKNOWN - 1 - id;
+            return (i >= 0 && i < localNames.size()) ? localNames.get(i) : null;
+        }
+
+        /** *************************************************************
+         */
+        public int flags(int id) {
+
+            if (id == NONE)
+                return 0;
+            if (id < UNKNOWN)
+                return localFlags[UNKNOWN - 1 - id];
+            return flags[id];
+        }
+
+        /** *************************************************************
+         */
+        private int starStem(int id) {
+
+            return (id < UNKNOWN) ? localStarStems[UNKNOWN - 1 - id] : starStems[id];
+        }
+
+        /** *************************************************************
+         */
+        private int dashStem(int id) {
+
+            return (id < UNKNOWN) ? localDashStems[UNKNOWN - 1 - id] : dashStems[id];
+        }
+
+        /** *************************************************************
+         */
+        public boolean isFreeVariable(int id) {
+
+            return (flags(id) & FREE_VAR) != 0;
+        }
+
+        /** *************************************************************
+         * @see Symbols#wildcardMatch(int, int)
+         */
+        public boolean wildcardMatch(int id1, int id2) {
+
+            int f1 = flags(id1);
+            int f2 = flags(id2);
+            if (((f1 | f2) & HAS_STAR) == 0)
+                return true;
+            if ((f1 & f2 & HAS_STAR) != 0) {
+                System.err.println("Error in Literal.wildcardMatch(): both arguments have wildcards: " +
+                        name(id1) + " " + name(id2));
+                return false;
+            }
+            if ((f1 & HAS_STAR) != 0 && (f2 & HAS_DASH) != 0)
+                return starStem(id1) == dashStem(id2);
+            if ((f2 & HAS_STAR) != 0 && (f1 & HAS_DASH) != 0)
+                return starStem(id2) == dashStem(id1);
+            return true;
+        }
+
+        /** *************************************************************
+         * @see Symbols#constantMatch(int, int)
+         */
+        public boolean constantMatch(int id1, int id2) {
+
+            if (id1 == id2)
+                return true;
+            int f1 = flags(id1);
+            int f2 = flags(id2);
+            if ((f1 & HAS_STAR) != 0 && (f2 & HAS_DASH) != 0)
+                return starStem(id1) == dashStem(id2);
+            if ((f2 & HAS_STAR) != 0 && (f1 & HAS_DASH) != 0)
+                return starStem(id2) == dashStem(id1);
+            return false;
+        }
+    }
+}
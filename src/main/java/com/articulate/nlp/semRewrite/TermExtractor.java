@@ -42,7 +42,7 @@ public class TermExtractor {
         Annotation wholeDocument = null;
         try {
             wholeDocument = new Annotation(s);
-            p.pipeline.annotate(wholeDocument);
+            p.annotate(wholeDocument);
         }
         catch (Exception e) {
             System.out.println(e.getMessage());
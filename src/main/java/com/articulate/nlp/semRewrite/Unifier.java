@@ -0,0 +1,266 @@
+package com.articulate.nlp.semRewrite;
+
+import java.util.Arrays;
+import java.util.List;
+
+/** *************************************************************
+ * Allocation-light unification of a rule CNF against a sentence CNF,
+ * used by CNF.unify().  Rather than copying the rule and sentence
+ * clauses for every candidate pairing, as CNF.unifyNew() does, variable
+ * bindings are pushed on a single trail so that they can be undone
+ * when the search backtracks.  Predicates and arguments are compared
+ * by the Symbols codes cached on each Literal rather than as Strings,
+ * with the tokens of the sentence coded in the Symbols.Scope of the
+ * thread.  Neither
+ * CNF is modified except for setting the bound flags on the sentence
+ * clauses of the unification that is returned.
+ *
+ * The matching of a rule clause to a sentence clause follows
+ * Clause.unify() and Literal.mguTermList() exactly, including ground
+ * procedure calls, "dep" matching any relation and word* wildcards.
+ * The search is depth first over the rule clauses, with procedures
+ * last, so the unification returned is the first of those found by
+ * CNF.unifyNew() in rule and sentence order.
+ */
+public class Unifier {
+
+    public static boolean debug = false;
+
+    // the variable bindings, as Symbols codes.  Rules have only a handful
+    // of variables, so a linear scan of the trail beats hashing.
+    private int[] trailVar = new int[16];
+    private int[] trailVal = new int[16];
+    private int trailTop = 0;
+
+    // codes for the symbols that aren't in the Symbols table
+    private final Symbols.Scope scope = Symbols.Scope.current();
+
+    private Clause[] ruleClauses;
+    private List<Clause> sentence;
+    private Clause[] matched;     // the sentence clause matched by each rule clause
+    private boolean[] bindable;   // whether that match marks the sentence clause as bound
+    private boolean lastBindable = false;
+
+    /** *************************************************************
+     * @param rule the rule (or pattern) to match
+     * @param input the sentence.  Bound flags are set on the clauses
+     *              matched by a successful unification.
+     * @return the variable bindings, or null if some rule clause can't
+     * be matched consistently
+     */
+    public Subst unify(CNF rule, CNF input) {
+
+        ruleClauses = new Clause[rule.clauses.size()];
+        int n = 0;
+        for (Clause c : rule.clauses) // procedures last, as in CNF.sortProceduresLast()
+            if (!c.isUnitaryProcedure())
+                ruleClauses[n++] = c;
+        for (Clause c : rule.clauses)
+            if (c.isUnitaryProcedure())
+                ruleClauses[n++] = c;
+        sentence = input.clauses;
+        matched = new Clause[n];
+        bindable = new boolean[n];
+        trailTop = 0;
+        if (!solve(0)) {
+            if (debug) System.out.println("INFO in Unifier.unify(): no unification of " + rule + " with " + input);
+            return null;
+        }
+        for (int i = 0; i < n; i++) {
+            if (!bindable[i])
+                continue;
+            for (Clause c : sentence)
+                if (c.equals(matched[i]))
+                    c.bind();
+        }
+        Subst result = new Subst();
+        String var;
+        for (int i = trailTop - 1; i >= 0; i--) {
+            var = scope.name(trailVar[i]);
+            if (!result.containsKey(var))
+                result.put(var, scope.name(trailVal[i]));
+        }
+        if (debug) System.out.println("INFO in Unifier.unify(): result: " + result);
+        return result;
+    }
+
+    /** *************************************************************
+     * Match rule clause i and all following rule clauses, backtracking
+     * over the choice of sentence clause.
+     */
+    private boolean solve(int i) {
+
+        if (i == ruleClauses.length)
+            return true;
+        Clause rc = ruleClauses[i];
+        int mark;
+        for (Clause sc : sentence) {
+            mark = trailTop;
+            if (unifyClause(rc, sc)) {
+                matched[i] = sc;
+                bindable[i] = lastBindable;
+                if (solve(i + 1))
+                    return true;
+            }
+            undo(mark);
+        }
+        return false;
+    }
+
+    /** *************************************************************
+     * The equivalent of applying the current bindings to the rule clause
+     * and calling Clause.unify() with the sentence clause
+     */
+    private boolean unifyClause(Clause rc, Clause sc) {
+
+        int a1, a2;
+        for (Literal c1 : rc.disjuncts) {
+            a1 = deref(c1.arg1Id(scope));
+            a2 = deref(c1.arg2Id(scope));
+            if (Procedures.isProcPred(c1.pred) && isGround(a1, a2) &&
+                    "true".equals(runProcedure(boundLiteral(c1, a1, a2)))) {
+                lastBindable = true;
+                return true;
+            }
+            for (Literal c2 : sc.disjuncts)
+                if (unifyLiteral(c2, c1, a1, a2))
+                    return true;
+        }
+        return false;
+    }
+
+    /** *************************************************************
+     * The equivalent of s.mguTermList(r) where r has the current bindings
+     * applied, giving arguments q1 and q2.  New bindings go on the trail
+     * and are undone if the match fails.
+     * @param s the sentence literal
+     * @param r the rule literal
+     */
+    private boolean unifyLiteral(Literal s, Literal r, int q1, int q2) {
+
+        if (Procedures.isProcPred(r.pred) && isGround(q1, q2)) {
+            if (Procedures.procUnify(s, boundLiteral(r, q1, q2)) == null)
+                return false;
+            lastBindable = !r.preserve;
+            return true;
+        }
+        int sp = s.predId(scope);
+        int rp = r.predId(scope);
+        if (sp != rp && sp != Symbols.DEP && rp != Symbols.DEP) // allow a "dep" to match anything
+            return false;
+        int mark = trailTop;
+        int s1 = s.arg1Id(scope);
+        int s2 = s.arg2Id(scope);
+        int t1, t2;
+        boolean sentenceBound = false;
+        for (int arg = 1; arg < 3; arg++) {
+            t1 = (arg == 1) ? s1 : s2;
+            t2 = (arg == 1) ? q1 : q2;
+            if (scope.isFreeVariable(t1)) { // a variable in the sentence, such as a question word
+                if (t1 == t2)
+                    continue;
+                if (t1 == q1 || t1 == q2 || !scope.wildcardMatch(t1, t2)) {
+                    undo(mark);
+                    return false;
+                }
+                if (s1 == t1) s1 = t2;
+                if (s2 == t1) s2 = t2;
+                if (q1 == t1) q1 = t2;
+                if (q2 == t1) q2 = t2;
+                sentenceBound = true;
+                bind(t1, t2);
+            }
+            else if (scope.isFreeVariable(t2)) {
+                if (t2 == s1 || t2 == s2 || !scope.wildcardMatch(t1, t2)) {
+                    undo(mark);
+                    return false;
+                }
+                if (q1 == t2) q1 = t1;
+                if (q2 == t2) q2 = t1;
+                bind(t2, t1);
+            }
+            else if (!scope.constantMatch(t1, t2)) {
+                undo(mark);
+                return false;
+            }
+        }
+        // CNF.setBoundFlags() never matched a sentence literal flagged as
+        // preserved, or one whose own variables were bound
+        lastBindable = !r.preserve && !sentenceBound;
+        return true;
+    }
+
+    /** *************************************************************
+     * @return the most recent binding of arg, if it is a bound variable
+     */
+    private int deref(int arg) {
+
+        if (scope.isFreeVariable(arg))
+            for (int i = trailTop - 1; i >= 0; i--)
+                if (trailVar[i] == arg)
+                    return trailVal[i];
+        return arg;
+    }
+
+    /** *************************************************************
+     */
+    private boolean isGround(int a1, int a2) {
+
+        return a1 != Symbols.NONE && !scope.isFreeVariable(a1) &&
+                a2 != Symbols.NONE && !scope.isFreeVariable(a2);
+    }
+
+    /** *************************************************************
+     * Only procedure literals are ever copied, since Procedures needs
+     * a Literal with the bindings applied
+     */
+    private Literal boundLiteral(Literal l, int a1, int a2) {
+
+        Literal result = new Literal();
+        result.pred = l.pred;
+        result.negated = l.negated;
+        result.preserve = l.preserve;
+        result.arg1 = scope.name(a1);
+        result.arg2 = scope.name(a2);
+        return result;
+    }
+
+    /** *************************************************************
+     * The ground procedure checks done at the start of Clause.unify()
+     */
+    private static String runProcedure(Literal l) {
+
+        switch (l.pred) {
+            case "isCELTclass":    return Procedures.isCELTclass(l);
+            case "isSubclass":     return Procedures.isSubclass(l);
+            case "isInstanceOf":   return Procedures.isInstanceOf(l);
+            case "isChildOf":      return Procedures.isChildOf(l);
+            case "isSubAttribute": return Procedures.isSubAttribute(l);
+            case "different":      return Procedures.different(l);
+            default:               return "false";
+        }
+    }
+
+    /** *************************************************************
+     * Push a binding.  A later binding of the same variable hides the
+     * earlier one until it is undone.
+     */
+    private void bind(int var, int val) {
+
+        if (trailTop == trailVar.length) {
+            trailVar = Arrays.copyOf(trailVar, trailTop * 2);
+            trailVal = Arrays.copyOf(trailVal, trailTop * 2);
+        }
+        trailVar[trailTop] = var;
+        trailVal[trailTop] = val;
+        trailTop++;
+    }
+
+    /** *************************************************************
+     * Undo all bindings made since the trail was at mark
+     */
+    private void undo(int mark) {
+
+        trailTop = mark;
+    }
+}
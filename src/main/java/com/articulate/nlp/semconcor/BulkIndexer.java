@@ -0,0 +1,297 @@
+package com.articulate.nlp.semconcor;
+
+import com.articulate.nlp.semRewrite.Literal;
+
+import edu.stanford.nlp.ling.CoreLabel;
+
+import java.sql.*;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** ***************************************************************
+ * Stores sentences into the tables made by Indexer.createDB() in
+ * batches, rather than with several statements per token as
+ * Indexer.extractOneAugmentLine() does without one.  Rows for the
+ * content, index and depindex tables are added to prepared statement
+ * batches, token counts are summed in memory and merged into the
+ * counts table with one batched MERGE, and the work is committed in
+ * transactions of commitEvery sentences.  The token indexes on the
+ * index and depindex tables can be dropped while loading and built
+ * once at the end by close().
+ *
+ * Nothing is guaranteed to be in the database until flush() or
+ * close() is called.  If sending or committing fails, everything since
+ * the last commit is rolled back and dropped before the exception is
+ * thrown, so none of it is sent again with later sentences.
+ */
+public class BulkIndexer implements AutoCloseable {
+
+    public static boolean debug = false;
+
+    private static final String INSERT_CONTENT =
+            "insert into content (cont,dependency,file,sentnum,linenum) values (?,?,?,?,?)";
+    private static final String INSERT_INDEX =
+            "insert into index (token,file,sentnum,linenum) values (?,?,?,?)";
+    private static final String INSERT_DEPINDEX =
+            "insert into depindex (token,file,sentnum,linenum) values (?,?,?,?)";
+    private static final String MERGE_COUNTS =
+            "merge into counts c using (select cast(? as varchar(50)) as token, cast(? as int) as delta) s " +
+            "on c.token = s.token " +
+            "when matched then update set c.count = c.count + s.delta " +
+            "when not matched then insert (token, count) values (s.token, s.delta)";
+
+    // column sizes from Indexer.createDB().  Rows too long for them
+    // are skipped, as the inserts without batching would fail on them
+    private static final int MAX_TOKEN = 50;
+    private static final int MAX_FILE = 100;
+    private static final int MAX_CONT = 1000;
+    private static final int MAX_DEPENDENCY = 2500;
+
+    public int batchSize = 5000;     // rows pending before they are sent
+    public int commitEvery = 1000;   // sentences per transaction
+
+    private final Connection conn;
+    private final boolean deferIndexes;
+    private final boolean autoCommit;
+    private final PreparedStatement content;
+    private final PreparedStatement index;
+    private final PreparedStatement depindex;
+    private final PreparedStatement counts;
+
+    private final Map<String, Integer> pendingCounts = new HashMap<>();
+    private int pendingRows = 0;
+    private int uncommitted = 0;
+    private long uncommittedTokens = 0;
+
+    private long sentences = 0;
+    private long tokens = 0;
+    private final long startTime = System.nanoTime();
+
+    /** ***************************************************************
+     * @param deferIndexes drop the token indexes of the index and
+     *                     depindex tables now and build them in close()
+     */
+    public BulkIndexer(Connection conn, boolean deferIndexes) throws SQLException {
+
+        this.conn = conn;
+        this.deferIndexes = deferIndexes;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(Indexer.CREATE_COUNTS_INDEX); // the merge needs it
+            if (deferIndexes)
+                for (String s : Indexer.DROP_TOKEN_INDEXES)
+                    stmt.execute(s);
+        }
+        autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        content = conn.prepareStatement(INSERT_CONTENT);
+        index = conn.prepareStatement(INSERT_INDEX);
+        depindex = conn.prepareStatement(INSERT_DEPINDEX);
+        counts = conn.prepareStatement(MERGE_COUNTS);
+    }
+
+    /** ***************************************************************
+     */
+    public BulkIndexer(Connection conn) throws SQLException {
+
+        this(conn, true);
+    }
+
+    /** ***************************************************************
+     */
+    private static void setRow(PreparedStatement ps, String token, String file,
+                               int sentnum, int linenum) throws SQLException {
+
+        ps.setString(1, token);
+        ps.setString(2, file);
+        ps.setInt(3, sentnum);
+        ps.setInt(4, linenum);
+        ps.addBatch();
+    }
+
+    /** ***************************************************************
+     */
+    private void count(String token) {
+
+        pendingCounts.merge(token, 1, Integer::sum);
+    }
+
+    /** ***************************************************************
+     * Add the same rows for one sentence as Indexer.extractOneAugmentLine()
+     * does: the sentence and its dependencies, each token and each
+     * token of the dependencies, and their counts
+     */
+    public void addSentence(String sent, List<String> dependenciesList, List<CoreLabel> tokens,
+                            String file, int sentnum, int linenum) throws SQLException {
+
+        String dep = dependenciesList.toString();
+        if (sent.length() > MAX_CONT || dep.length() > MAX_DEPENDENCY || file.length() > MAX_FILE) {
+            System.err.println("Error in BulkIndexer.addSentence(): sentence too long to store: " + sent);
+            return;
+        }
+        content.setString(1, sent);
+        content.setString(2, dep);
+        content.setString(3, file);
+        content.setInt(4, sentnum);
+        content.setInt(5, linenum);
+        content.addBatch();
+        pendingRows++;
+        String token;
+        int stored = 0;
+        for (CoreLabel tok : tokens) {
+            token = tok.originalText();
+            if (token.length() > MAX_TOKEN)
+                continue;
+            setRow(index, token, file, sentnum, linenum);
+            count(token);
+            pendingRows++;
+            stored++;
+        }
+        Literal l;
+        for (String s : dependenciesList) {
+            l = new Literal(s);
+            for (String t : new String[] {l.arg1, l.arg2, l.pred}) {
+                if (t.length() > MAX_TOKEN)
+                    continue;
+                setRow(depindex, t, file, sentnum, linenum);
+                count(t);
+                pendingRows++;
+                stored++;
+            }
+        }
+        this.tokens += stored;
+        Indexer.tokensIndexed += stored;
+        uncommittedTokens += stored;
+        sentences++;
+        uncommitted++;
+        if (pendingRows >= batchSize)
+            sendBatches();
+        if (uncommitted >= commitEvery)
+            flush();
+    }
+
+    /** ***************************************************************
+     * Send the pending rows, without committing
+     */
+    private void sendBatches() throws SQLException {
+
+        if (pendingRows == 0)
+            return;
+        try {
+            content.executeBatch();
+            index.executeBatch();
+            depindex.executeBatch();
+            for (Map.Entry<String, Integer> e : pendingCounts.entrySet()) {
+                counts.setString(1, e.getKey());
+                counts.setInt(2, e.getValue());
+                counts.addBatch();
+            }
+            counts.executeBatch();
+        }
+        catch (SQLException e) {
+            rollback();
+            throw e;
+        }
+        if (debug) System.out.println("BulkIndexer.sendBatches(): " + pendingRows + " rows, " +
+                pendingCounts.size() + " counts");
+        pendingCounts.clear();
+        pendingRows = 0;
+    }
+
+    /** ***************************************************************
+     * Send and commit everything added so far
+     */
+    public void flush() throws SQLException {
+
+        sendBatches();
+        try {
+            conn.commit();
+        }
+        catch (SQLException e) {
+            rollback();
+            throw e;
+        }
+        uncommitted = 0;
+        uncommittedTokens = 0;
+    }
+
+    /** ***************************************************************
+     * Undo everything since the last commit, and drop the rows and
+     * counts not yet sent, along with the sentences and tokens they
+     * added to the totals
+     */
+    private void rollback() {
+
+        System.err.println("Error in BulkIndexer.rollback(): dropping the last " + uncommitted + " sentences");
+        try {
+            content.clearBatch();
+            index.clearBatch();
+            depindex.clearBatch();
+            counts.clearBatch();
+            conn.rollback();
+        }
+        catch (SQLException e) {
+            System.err.println("Error in BulkIndexer.rollback(): " + e.getMessage());
+        }
+        pendingCounts.clear();
+        pendingRows = 0;
+        sentences -= uncommitted;
+        tokens -= uncommittedTokens;
+        Indexer.tokensIndexed -= uncommittedTokens;
+        uncommitted = 0;
+        uncommittedTokens = 0;
+    }
+
+    /** ***************************************************************
+     */
+    public long getTokens() {
+
+        return tokens;
+    }
+
+    /** ***************************************************************
+     */
+    public long getSentences() {
+
+        return sentences;
+    }
+
+    /** ***************************************************************
+     * @return tokens and sentences stored, and the rate since this was made
+     */
+    public String report() {
+
+        double secs = (System.nanoTime() - startTime) / 1.0e9;
+        return String.format("BulkIndexer: %d sentences, %d tokens in %.2f seconds: %.1f tokens/sec",
+                sentences, tokens, secs, secs == 0 ? 0 : tokens / secs);
+    }
+
+    /** ***************************************************************
+     * Flush, build any deferred indexes and restore the connection's
+     * auto-commit setting
+     */
+    public void close() throws SQLException {
+
+        try {
+            flush();
+            if (deferIndexes) {
+                long t = System.currentTimeMillis();
+                try (Statement stmt = conn.createStatement()) {
+                    for (String s : Indexer.CREATE_TOKEN_INDEXES)
+                        stmt.execute(s);
+                }
+                conn.commit();
+                System.out.println("INFO in BulkIndexer.close(): built indexes in " +
+                        (System.currentTimeMillis() - t) + " ms");
+            }
+        }
+        finally {
+            content.close();
+            index.close();
+            depindex.close();
+            counts.close();
+            conn.setAutoCommit(autoCommit);
+        }
+        System.out.println("INFO in BulkIndexer.close(): " + report());
+    }
+}
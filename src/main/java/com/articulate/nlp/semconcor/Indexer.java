@@ -16,6 +16,7 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.regex.Matcher;
@@ -77,6 +78,18 @@ public class Indexer {
     public static String UserName = "sa";
     public static int startline = 0;
 
+    // index and depindex tokens stored, by either path, for reporting tokens/sec
+    public static long tokensIndexed = 0;
+
+    public static final String CREATE_COUNTS_INDEX =
+            "CREATE INDEX IF NOT EXISTS COUNTS_TOKEN ON COUNTS(TOKEN);";
+    public static final String[] CREATE_TOKEN_INDEXES = {
+            "CREATE INDEX IF NOT EXISTS INDEX_TOKEN ON INDEX(TOKEN);",
+            "CREATE INDEX IF NOT EXISTS DEPINDEX_TOKEN ON DEPINDEX(TOKEN);" };
+    public static final String[] DROP_TOKEN_INDEXES = {
+            "DROP INDEX IF EXISTS INDEX_TOKEN;",
+            "DROP INDEX IF EXISTS DEPINDEX_TOKEN;" };
+
     /****************************************************************
      */
     private static boolean initialCapital(List<CoreLabel> tokens) {
@@ -158,6 +171,7 @@ public class Indexer {
             stmt.execute(str + "('" + token + "', '" +
                     file + "', '" + sentnum + "', '" + linenum + "');");
             storeCount(conn, token);
+            tokensIndexed++;
         }
         catch(SQLException e) {
             System.err.println(e.getMessage());
@@ -177,6 +191,7 @@ public class Indexer {
             stmt.execute(str + "('" + token + "', '" +
                     file + "', '" + sentnum + "', '" + linenum + "');");
             storeCount(conn, token);
+            tokensIndexed++;
         }
         catch(SQLException e) {
             System.err.println(e.getMessage());
@@ -213,6 +228,15 @@ public class Indexer {
     public static void extractOneAugmentLine(Interpreter interp, Connection conn, String line,
                                              int limit, String file, int linenum) {
 
+        extractOneAugmentLine(interp,conn,null,line,limit,file,linenum);
+    }
+
+    /****************************************************************
+     * As above, but if bulk is not null, store the rows in its batches
+     * rather than one statement at a time
+     */
+    public static void extractOneAugmentLine(Interpreter interp, Connection conn, BulkIndexer bulk,
+                                             String line, int limit, String file, int linenum) {
 
         if (trapNumberHack(line))
             return;
@@ -222,7 +246,7 @@ public class Indexer {
         try {
             Annotation wholeDocument = new Annotation(line);
             wholeDocument.set(CoreAnnotations.DocDateAnnotation.class, "2017-09-17");
-            interp.p.pipeline.annotate(wholeDocument);
+            interp.p.annotate(wholeDocument);
             sentences = wholeDocument.get(CoreAnnotations.SentencesAnnotation.class);
         }
         catch (Exception e) {
@@ -243,6 +267,16 @@ public class Indexer {
                     initialCapital(tokens) && endPunctuation(tokens)) {
                 cnf = interp.interpretGenCNF(sentence);
                 dependenciesList = cnf.toListString();
+                if (bulk != null) {
+                    try {
+                        bulk.addSentence(sentence.toString(),dependenciesList,tokens,file,sentnum,linenum);
+                    }
+                    catch (SQLException e) {
+                        System.err.println("Error in extractOneAugmentLine(): " + e.getMessage());
+                        e.printStackTrace();
+                    }
+                    continue;
+                }
                 try (Statement stmt = conn.createStatement()) {
                     str = "insert into content (cont,dependency,file,sentnum,linenum) values ";
                     sent = sentence.toString();
@@ -430,6 +464,8 @@ public class Indexer {
         commands.add(command);
         command = "CREATE TABLE CONTENT(FILE VARCHAR(100),SENTNUM INT,CONT VARCHAR(1000),DEPENDENCY VARCHAR(2500),LINENUM INTEGER);";
         commands.add(command);
+        commands.add(CREATE_COUNTS_INDEX);
+        commands.addAll(Arrays.asList(CREATE_TOKEN_INDEXES));
         try {
             for (String s : commands) {
                 stmt.execute(s);
@@ -473,6 +509,8 @@ public class Indexer {
         System.out.println("    -c <db>         Clear db or create if not present");
         System.out.println("    -i <path>       Index corpus in <path> under corpus directory");
         System.out.println("    -w <line> <db>  index Wikipedia starting at line with db file name");
+        System.out.println("    -b <line> <db>  as -w but storing in batches, with indexes built at the end");
+        System.out.println("    -p <db>         build the posting index used by Searcher for db");
         System.out.println("    -h              show this Help message");
     }
 
@@ -488,7 +526,7 @@ public class Indexer {
             conn = DriverManager.getConnection("jdbc:h2:" + corporaDir + args[1], UserName, "");
             storeCorpusText(conn);
         }
-        else if (args != null && args.length > 2 && args[0].equals("-w")) {
+        else if (args != null && args.length > 2 && (args[0].equals("-w") || args[0].equals("-b"))) {
             String dbfilename = args[2];
             conn = DriverManager.getConnection("jdbc:h2:" + corporaDir + "/wikipedia/" + dbfilename,UserName, "");
             startline = Integer.parseInt(args[1]);
@@ -496,9 +534,19 @@ public class Indexer {
             cr.regExGoodLine = "";
             cr.regExRemove = "";
             String file = corporaDir + "/wikipedia/wikipedia2text-extracted.txt";
-            cr.processFileByLine(conn,file);
+            if (args[0].equals("-b")) {
+                try (BulkIndexer bulk = new BulkIndexer(conn)) {
+                    cr.processFileByLine(conn,bulk,file);
+                }
+            }
+            else
+                cr.processFileByLine(conn,file);
             //storeWikiText(conn);
         }
+        else if (args != null && args.length > 1 && args[0].equals("-p")) {
+            conn = DriverManager.getConnection("jdbc:h2:" + corporaDir + File.separator + args[1], UserName, "");
+            PostingIndex.build(conn, corporaDir + File.separator + args[1] + PostingIndex.SUFFIX);
+        }
         if (args != null && args.length > 0 && args[0].equals("-c")) {
             String dbFilename = "wiki";
             if (args.length > 1 && !StringUtil.emptyString(args[1]))
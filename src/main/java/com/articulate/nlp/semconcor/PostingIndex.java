@@ -0,0 +1,465 @@
+package com.articulate.nlp.semconcor;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.util.*;
+
+/** ***************************************************************
+ * An inverted index of the INDEX and DEPINDEX tables of a semconcor
+ * database, kept in a file beside it and memory-mapped, so that the
+ * sentences containing a set of tokens can be found without a SQL
+ * query per token.  Each sentence (a file#sentnum#linenum key) is
+ * given an integer id, and each token has a sorted list of the ids of
+ * the sentences it occurs in.  Lists are stored as variable-length
+ * deltas with a skip entry every SKIP ids, so that a long list can be
+ * intersected with a short one without decoding all of it.
+ *
+ * File layout, all in big-endian order:
+ *   int magic, int version
+ *   the posting lists, each as
+ *     int count, int skips, skips * (int id before block, int block offset),
+ *     then count ids as varint deltas
+ *   the dictionary
+ *     long contentRows, long lastRow, int docs, docs * string key
+ *     int sections, each as string name, int tokens,
+ *       tokens * (string token, int count, int list offset)
+ *   long dictionary offset
+ * where a string is an int length followed by UTF-8 bytes.
+ *
+ * The index isn't updated as sentences are stored, so it must be built
+ * again with build() after indexing.  It records the number of rows of
+ * the content table and the largest H2 row id among them, either of
+ * which changes when sentences are added or removed, and Searcher
+ * doesn't use an index for which isCurrent() is false.
+ */
+public class PostingIndex {
+
+    public static boolean debug = false;
+
+    public static final String SUFFIX = ".postings";
+    public static final String[] SECTIONS = {"index", "depindex"};
+
+    private static final int MAGIC = 0x53435049; // "SCPI"
+    private static final int VERSION = 2;
+    private static final int SKIP = 64;
+
+    private final ByteBuffer buf;
+    private final String[] keys;
+    private final long contentRows;
+    private final long lastRow;
+    // section name to token to {count, offset}
+    private final Map<String, Map<String, int[]>> dictionary = new HashMap<>();
+
+    /** ***************************************************************
+     */
+    private PostingIndex(ByteBuffer buf) throws IOException {
+
+        this.buf = buf;
+        if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION)
+            throw new IOException("PostingIndex(): not a posting index file");
+        ByteBuffer b = buf.duplicate();
+        b.position((int) buf.getLong(buf.limit() - 8));
+        contentRows = b.getLong();
+        lastRow = b.getLong();
+        keys = new String[b.getInt()];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = readString(b);
+        int sections = b.getInt();
+        for (int s = 0; s < sections; s++) {
+            String name = readString(b);
+            int tokens = b.getInt();
+            Map<String, int[]> dict = new HashMap<>(tokens * 4 / 3 + 1);
+            for (int t = 0; t < tokens; t++) {
+                String token = readString(b);
+                dict.put(token, new int[] {b.getInt(), b.getInt()});
+            }
+            dictionary.put(name, dict);
+        }
+    }
+
+    /** ***************************************************************
+     * Map a posting index file into memory
+     */
+    public static PostingIndex open(String filename) throws IOException {
+
+        try (FileChannel fc = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (fc.size() > Integer.MAX_VALUE)
+                throw new IOException("PostingIndex.open(): file over 2GB: " + filename);
+            MappedByteBuffer mbb = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+            PostingIndex result = new PostingIndex(mbb);
+            if (debug) System.out.println("PostingIndex.open(): " + filename + " with " +
+                    result.keys.length + " sentences");
+            return result;
+        }
+    }
+
+    /** ***************************************************************
+     */
+    private static String readString(ByteBuffer b) {
+
+        byte[] bytes = new byte[b.getInt()];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /** ***************************************************************
+     */
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** ***************************************************************
+     */
+    private static void writeVarint(ByteArrayOutputStream out, int v) {
+
+        while ((v & ~0x7F) != 0) {
+            out.write((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.write(v);
+    }
+
+    /** ***************************************************************
+     * Write one sorted list of distinct ids with its skip entries
+     * @return the number of bytes written
+     */
+    private static int writeList(DataOutputStream out, int[] ids, int n) throws IOException {
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream(n * 2);
+        int skips = (n - 1) / SKIP;
+        int[] skipIds = new int[skips];
+        int[] skipOffsets = new int[skips];
+        int prev = 0;
+        for (int i = 0; i < n; i++) {
+            if (i > 0 && i % SKIP == 0) {
+                skipIds[i / SKIP - 1] = prev;
+                skipOffsets[i / SKIP - 1] = data.size();
+            }
+            writeVarint(data, ids[i] - prev);
+            prev = ids[i];
+        }
+        out.writeInt(n);
+        out.writeInt(skips);
+        for (int i = 0; i < skips; i++) {
+            out.writeInt(skipIds[i]);
+            out.writeInt(skipOffsets[i]);
+        }
+        data.writeTo(out);
+        return 8 + skips * 8 + data.size();
+    }
+
+    /** ***************************************************************
+     * Read the given table into lists of sentence ids for each token,
+     * adding to keys any sentence not yet given an id
+     */
+    private static Map<String, int[]> readTable(Connection conn, String table,
+                                                Map<String, Integer> ids, List<String> keys,
+                                                Map<String, Integer> sizes) throws SQLException {
+
+        Map<String, int[]> lists = new HashMap<>();
+        String key, token;
+        Integer id;
+        int[] list;
+        int size;
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("select token,file,sentnum,linenum from " + table)) {
+            while (rs.next()) {
+                token = rs.getString(1);
+                key = rs.getString(2) + "#" + rs.getInt(3) + "#" + rs.getInt(4);
+                id = ids.get(key);
+                if (id == null) {
+                    id = keys.size();
+                    ids.put(key, id);
+                    keys.add(key);
+                }
+                list = lists.get(token);
+                size = sizes.getOrDefault(token, 0);
+                if (list == null) {
+                    list = new int[4];
+                    lists.put(token, list);
+                }
+                else if (size == list.length) {
+                    list = Arrays.copyOf(list, size * 2);
+                    lists.put(token, list);
+                }
+                list[size] = id;
+                sizes.put(token, size + 1);
+            }
+        }
+        return lists;
+    }
+
+    /** ***************************************************************
+     * @return the number of rows of the content table and the largest
+     * row id among them, or 0 if there are none
+     */
+    private static long[] contentVersion(Connection conn) throws SQLException {
+
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("select count(*), max(_rowid_) from content")) {
+            rs.next();
+            return new long[] {rs.getLong(1), rs.getLong(2)};
+        }
+    }
+
+    /** ***************************************************************
+     * Build the posting index of a database, writing it under a
+     * temporary name and then moving it into place
+     * @return the number of sentences indexed
+     */
+    public static int build(Connection conn, String filename) throws SQLException, IOException {
+
+        long t = System.currentTimeMillis();
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> keys = new ArrayList<>();
+        long[] version = contentVersion(conn);
+        // number sentences in the order they were stored, so that ids and deltas stay small
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("select file,sentnum,linenum from content order by file,linenum,sentnum")) {
+            String key;
+            while (rs.next()) {
+                key = rs.getString(1) + "#" + rs.getInt(2) + "#" + rs.getInt(3);
+                if (!ids.containsKey(key)) {
+                    ids.put(key, keys.size());
+                    keys.add(key);
+                }
+            }
+        }
+        Path tmp = Paths.get(filename + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            long offset = 8;
+            Map<String, Map<String, int[]>> dicts = new LinkedHashMap<>();
+            for (String section : SECTIONS) {
+                Map<String, Integer> sizes = new HashMap<>();
+                Map<String, int[]> lists = readTable(conn, section, ids, keys, sizes);
+                Map<String, int[]> dict = new HashMap<>();
+                int[] list;
+                int n;
+                for (Map.Entry<String, int[]> e : lists.entrySet()) {
+                    list = e.getValue();
+                    n = sizes.get(e.getKey());
+                    Arrays.sort(list, 0, n);
+                    int distinct = 0;
+                    for (int i = 0; i < n; i++)
+                        if (distinct == 0 || list[i] != list[distinct - 1])
+                            list[distinct++] = list[i];
+                    if (offset > Integer.MAX_VALUE)
+                        throw new IOException("PostingIndex.build(): index over 2GB");
+                    dict.put(e.getKey(), new int[] {distinct, (int) offset});
+                    offset += writeList(out, list, distinct);
+                    e.setValue(null); // let it be collected
+                }
+                dicts.put(section, dict);
+            }
+            long dictOffset = offset;
+            out.writeLong(version[0]);
+            out.writeLong(version[1]);
+            out.writeInt(keys.size());
+            for (String k : keys)
+                writeString(out, k);
+            out.writeInt(dicts.size());
+            for (Map.Entry<String, Map<String, int[]>> d : dicts.entrySet()) {
+                writeString(out, d.getKey());
+                out.writeInt(d.getValue().size());
+                for (Map.Entry<String, int[]> e : d.getValue().entrySet()) {
+                    writeString(out, e.getKey());
+                    out.writeInt(e.getValue()[0]);
+                    out.writeInt(e.getValue()[1]);
+                }
+            }
+            out.writeLong(dictOffset);
+        }
+        Files.move(tmp, Paths.get(filename), StandardCopyOption.REPLACE_EXISTING);
+        System.out.println("INFO in PostingIndex.build(): indexed " + keys.size() + " sentences in " +
+                (System.currentTimeMillis() - t) + " ms to " + filename);
+        return keys.size();
+    }
+
+    /** ***************************************************************
+     * A reader of one posting list, positioned before its first id
+     */
+    private class Cursor {
+
+        private final int count;
+        private final int skips;
+        private final int skipStart;
+        private final int dataStart;
+        private int index = 0;   // of the next id to decode
+        private int pos;         // of the next id to decode
+        private int current = 0; // the id last decoded
+        private int skip = 0;    // the next skip entry that may be used
+
+        Cursor(int offset) {
+            count = buf.getInt(offset);
+            skips = buf.getInt(offset + 4);
+            skipStart = offset + 8;
+            dataStart = skipStart + skips * 8;
+            pos = dataStart;
+        }
+
+        /** @return the next id, or -1 at the end of the list */
+        int next() {
+            if (index >= count)
+                return -1;
+            int v = 0, shift = 0, b;
+            do {
+                b = buf.get(pos++);
+                v |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            index++;
+            current += v;
+            return current;
+        }
+
+        /** @return the first id not less than target, or -1 if there is none */
+        int advance(int target) {
+            if (index > 0 && current >= target)
+                return current;
+            while (skip < skips && buf.getInt(skipStart + skip * 8) < target) {
+                int blockIndex = (skip + 1) * SKIP;
+                if (blockIndex > index) {
+                    current = buf.getInt(skipStart + skip * 8);
+                    pos = dataStart + buf.getInt(skipStart + skip * 8 + 4);
+                    index = blockIndex;
+                }
+                skip++;
+            }
+            int id;
+            while ((id = next()) != -1)
+                if (id >= target)
+                    return id;
+            return -1;
+        }
+    }
+
+    /** ***************************************************************
+     * @return the number of sentences the token occurs in, in the given
+     * section, which is 0 if it doesn't occur
+     */
+    public int count(String section, String token) {
+
+        Map<String, int[]> dict = dictionary.get(section.toLowerCase());
+        if (dict == null)
+            return 0;
+        int[] e = dict.get(token);
+        return e == null ? 0 : e[0];
+    }
+
+    /** ***************************************************************
+     * @return the sorted ids of the sentences the token occurs in
+     */
+    public int[] postings(String section, String token) {
+
+        Map<String, int[]> dict = dictionary.get(section.toLowerCase());
+        int[] e = (dict == null) ? null : dict.get(token);
+        if (e == null)
+            return new int[0];
+        Cursor c = new Cursor(e[1]);
+        int[] result = new int[e[0]];
+        for (int i = 0; i < result.length; i++)
+            result[i] = c.next();
+        return result;
+    }
+
+    /** ***************************************************************
+     * Intersect the lists of the given tokens, smallest first.  As with
+     * the counts table, tokens that don't occur at all are ignored.
+     * @return the sorted ids of the sentences containing all the tokens
+     * that occur, or none if no token occurs
+     */
+    public int[] intersect(String section, List<String> tokens) {
+
+        Map<String, int[]> dict = dictionary.get(section.toLowerCase());
+        if (dict == null || tokens == null)
+            return new int[0];
+        List<int[]> entries = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        int[] e;
+        for (String t : tokens) {
+            e = dict.get(t);
+            if (e != null && seen.add(t))
+                entries.add(e);
+        }
+        if (entries.isEmpty())
+            return new int[0];
+        entries.sort(Comparator.comparingInt(a -> a[0]));
+        Cursor c = new Cursor(entries.get(0)[1]);
+        int[] result = new int[entries.get(0)[0]];
+        for (int i = 0; i < result.length; i++)
+            result[i] = c.next();
+        int n = result.length;
+        for (int l = 1; l < entries.size() && n > 0; l++) {
+            c = new Cursor(entries.get(l)[1]);
+            int kept = 0, id;
+            for (int i = 0; i < n; i++) {
+                id = c.advance(result[i]);
+                if (id == -1)
+                    break;
+                if (id == result[i])
+                    result[kept++] = id;
+            }
+            n = kept;
+            if (debug) System.out.println("PostingIndex.intersect(): after " + (l + 1) + " lists: " + n);
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /** ***************************************************************
+     * @return the keys of the form filename#sentencenum#linenum of the
+     * sentences containing all the given tokens that occur in the section
+     */
+    public Set<String> fetch(String section, List<String> tokens) {
+
+        Set<String> result = new HashSet<>();
+        for (int id : intersect(section, tokens))
+            result.add(keys[id]);
+        return result;
+    }
+
+    /** ***************************************************************
+     */
+    public String key(int id) {
+
+        return keys[id];
+    }
+
+    /** ***************************************************************
+     * @return the number of rows the content table had when this was built
+     */
+    public long getContentRows() {
+
+        return contentRows;
+    }
+
+    /** ***************************************************************
+     * @return true if the content table has the rows it had when this
+     * was built, as far as the row count and the largest row id tell
+     */
+    public boolean isCurrent(Connection conn) throws SQLException {
+
+        long[] version = contentVersion(conn);
+        return version[0] == contentRows && version[1] == lastRow;
+    }
+
+    /** ***************************************************************
+     */
+    public int size() {
+
+        return keys.length;
+    }
+}
@@ -9,6 +9,7 @@ import com.articulate.sigma.utils.StringUtil;
 
 import com.google.common.base.Strings;
 
+import java.io.File;
 import java.io.IOException;
 import java.sql.*;
 import java.util.*;
@@ -47,6 +48,29 @@ public class Searcher implements ServletContextListener {
     public static int countSize = 100; // parameter to optimize searching
     public static boolean debug = false;
 
+    // search with the PostingIndex of a database, if it has an up to date one
+    public static boolean usePostings = true;
+    private static final Map<String,Postings> postingIndexes = new HashMap<>();
+
+    /***************************************************************
+     * The posting index opened from a file, and the size and time of
+     * the database file when it was last checked against the database
+     */
+    private static class Postings {
+
+        final PostingIndex pi; // null if it is out of date
+        final long modified;   // of the index file when it was opened
+        final long dbModified;
+        final long dbLength;
+
+        Postings(PostingIndex pi, long modified, long dbModified, long dbLength) {
+            this.pi = pi;
+            this.modified = modified;
+            this.dbModified = dbModified;
+            this.dbLength = dbLength;
+        }
+    }
+
     private final UserManager userManager = new UserManager();
 
     @Override
@@ -429,6 +453,7 @@ public class Searcher implements ServletContextListener {
             return result;
         Lexer lex = new Lexer(dep);
         CNF smallcnf = CNF.parseSimple(lex);
+        smallcnf.internSymbols(); // coded once for all the candidates
         String onedep;
         for (int i = 0; i < dependencies.size(); i++) {
             onedep = dependencies.get(i);
@@ -481,6 +506,81 @@ public class Searcher implements ServletContextListener {
         return result;
     }
 
+    /***************************************************************
+     * As fetchIndexes() above, but from a PostingIndex rather than
+     * the INDEX and DEPINDEX tables
+     */
+    public static Set<String> fetchIndexes(PostingIndex pi,
+                                               List<String> sentTokens,
+                                               List<String> depTokens) {
+
+        if (debug) System.out.println("fetchIndexes(pi):" + sentTokens + "\n" + depTokens);
+        Set<String> result = new HashSet<>();
+        if (sentTokens != null && !sentTokens.isEmpty())
+            result = pi.fetch("index",sentTokens);
+        if (result.isEmpty())
+            result = pi.fetch("depindex",depTokens);
+        else if (depTokens != null && !depTokens.isEmpty())
+            result.retainAll(pi.fetch("depindex",depTokens));
+        return result;
+    }
+
+    /***************************************************************
+     * dbFilepath is assumed to be under CORPORA directory
+     */
+    public static PostingIndex getPostingIndex(Connection conn, String dbFilepath) {
+
+        return getPostingIndex(conn, new File(System.getenv("CORPORA"), dbFilepath));
+    }
+
+    /***************************************************************
+     * The index is checked against the content table when it is opened
+     * and again only after the database file has changed, so searches
+     * of a database that isn't being written to don't count its rows,
+     * whichever connection they use.
+     * @param db the path of the database, without the H2 extension
+     * @return the PostingIndex built for the database, or null if there
+     * is none or the content table has changed since it was built
+     */
+    public static PostingIndex getPostingIndex(Connection conn, File db) {
+
+        String filename = db.getPath() + PostingIndex.SUFFIX;
+        File file = new File(filename);
+        if (!file.exists())
+            return null;
+        long modified = file.lastModified();
+        // taken before the check, so that a write during it is noticed next time
+        File dbFile = new File(db.getPath() + ".mv.db");
+        long dbModified = dbFile.lastModified();
+        long dbLength = dbFile.length();
+        PostingIndex pi = null;
+        synchronized (postingIndexes) {
+            Postings p = postingIndexes.get(filename);
+            if (p != null && p.modified == modified) {
+                if (p.pi == null || (p.dbModified == dbModified && p.dbLength == dbLength))
+                    return p.pi;
+                pi = p.pi;
+            }
+        }
+        try {
+            if (pi == null)
+                pi = PostingIndex.open(filename);
+            if (!pi.isCurrent(conn)) {
+                System.out.println("Searcher.getPostingIndex(): " + filename + " is out of date, using SQL");
+                pi = null;
+            }
+        }
+        catch (IOException | SQLException e) {
+            System.err.println("Error in Searcher.getPostingIndex(): " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+        synchronized (postingIndexes) {
+            postingIndexes.put(filename, new Postings(pi, modified, dbModified, dbLength));
+        }
+        return pi;
+    }
+
     /***************************************************************
      * Convert the textual representation of a dependency parse
      * to a list of tokens found in the dependency
@@ -534,7 +634,11 @@ public class Searcher implements ServletContextListener {
         try {
             if (debug) showTable(conn, "index");
             if (debug) showTable(conn, "counts");
-            result = fetchIndexes(conn,sentTokens, depTokens);
+            PostingIndex pi = usePostings ? getPostingIndex(conn,dbFilepath) : null;
+            if (pi != null)
+                result = fetchIndexes(pi,sentTokens,depTokens);
+            else
+                result = fetchIndexes(conn,sentTokens, depTokens);
             if (debug) System.out.println("search(): indexes size: " + result.size());
             List<String> tempSentences = new ArrayList<>();
             List<String> tempDependencies = new ArrayList<>();
@@ -0,0 +1,83 @@
+package com.articulate.nlp;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ArgIndexTest extends UnitTestBase {
+
+    private static final List<List<String>> FORMULAS = Arrays.asList(
+            Arrays.asList("subclass", "Cat", "Animal"),
+            Arrays.asList("termFormat", "EnglishLanguage", "Cat", "\"cat\""),
+            Arrays.asList("documentation", "Cat", "EnglishLanguage", "\"A feline.\""),
+            Arrays.asList("termFormat", "EnglishLanguage", "Dog", "\"dog\""),
+            Arrays.asList("subclass", "Dog", "Animal"),
+            Arrays.asList("termFormat", "FrenchLanguage", "Cat", "\"chat\""),
+            Arrays.asList("termFormat", "EnglishLanguage", "Cat", "\"kitty\""));
+
+    /** ***************************************************************
+     */
+    private static ArgIndex make() {
+
+        ArgIndex index = new ArgIndex();
+        for (int i = 0; i < FORMULAS.size(); i++)
+            index.add(i, FORMULAS.get(i), 0);
+        return index;
+    }
+
+    /** ***************************************************************
+     */
+    @Test
+    public void testFind() {
+
+        ArgIndex index = make();
+        assertArrayEquals(new int[] {1, 3, 5, 6}, index.find(0, "termFormat"));
+        assertArrayEquals(new int[] {0, 4}, index.find(2, "Animal"));
+        assertArrayEquals(new int[] {1, 5, 6}, index.find(new int[] {0, 2}, new String[] {"termFormat", "Cat"}));
+        assertArrayEquals(new int[] {1, 6}, index.find(new int[] {0, 1, 2},
+                new String[] {"termFormat", "EnglishLanguage", "Cat"}));
+        assertEquals(0, index.find(new int[] {0, 2}, new String[] {"subclass", "Cat"}).length);
+        assertEquals(0, index.find(1, "Bird").length);
+        assertEquals(0, index.find(9, "Cat").length);
+        assertEquals(0, index.find(-1, "Cat").length);
+        assertEquals(2, index.count(1, "Cat"));
+    }
+
+    /** ***************************************************************
+     * Lookups must find the same formulas, in the same order, as a scan
+     * of all of them
+     */
+    @Test
+    public void testMatchesScan() {
+
+        Random r = new Random(5);
+        List<List<String>> formulas = new ArrayList<>();
+        ArgIndex index = new ArgIndex();
+        for (int i = 0; i < 2000; i++) {
+            List<String> f = new ArrayList<>();
+            f.add("(p" + i + ")"); // the whole formula, as KBLite keeps it
+            int len = 2 + r.nextInt(4);
+            for (int k = 0; k < len; k++)
+                f.add("t" + r.nextInt(k == 0 ? 5 : 40));
+            formulas.add(f);
+            index.add(i, f, 1);
+        }
+        index.trim();
+        for (int q = 0; q < 500; q++) {
+            int p1 = r.nextInt(3), p2 = 1 + r.nextInt(4);
+            String t1 = "t" + r.nextInt(5), t2 = "t" + r.nextInt(40);
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < formulas.size(); i++) {
+                List<String> f = formulas.get(i);
+                if (p1 + 1 < f.size() && p2 + 1 < f.size() && f.get(p1 + 1).equals(t1) && f.get(p2 + 1).equals(t2))
+                    expected.add(i);
+            }
+            List<Integer> actual = new ArrayList<>();
+            for (int id : index.find(new int[] {p1, p2}, new String[] {t1, t2}))
+                actual.add(id);
+            assertEquals(expected, actual);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.articulate.nlp;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class BatchedWriterTest extends UnitTestBase {
+
+    /** ***************************************************************
+     */
+    private static File temp(String suffix) throws IOException {
+
+        File f = File.createTempFile("batched", suffix);
+        f.delete();
+        f.deleteOnExit();
+        return f;
+    }
+
+    /** ***************************************************************
+     */
+    private static List<String> read(File f) throws IOException {
+
+        InputStream in = new FileInputStream(f);
+        if (f.getName().endsWith(".gz"))
+            in = new GZIPInputStream(in);
+        List<String> result = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null)
+                result.add(line);
+        }
+        return result;
+    }
+
+    /** ***************************************************************
+     * Pairs written from many threads in small batches must stay on
+     * the same line of both files
+     */
+    private static void writePairs(String suffix) throws Exception {
+
+        File eng = temp(suffix), log = temp(suffix);
+        int threads = 4, perThread = 2000;
+        try (BatchedWriter w = new BatchedWriter(500, eng.getPath(), log.getPath())) {
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int id = t;
+                Thread th = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < perThread; i++)
+                            w.write("sentence " + id + " " + i, "(logic " + id + " " + i + ")");
+                    }
+                    catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+                workers.add(th);
+                th.start();
+            }
+            for (Thread th : workers)
+                th.join();
+            assertEquals(threads * perThread, w.lines());
+        }
+        List<String> english = read(eng), logic = read(log);
+        assertEquals(threads * perThread, english.size());
+        assertEquals(english.size(), logic.size());
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < english.size(); i++) {
+            String key = english.get(i).substring("sentence ".length());
+            assertEquals("(logic " + key + ")", logic.get(i));
+            assertTrue(seen.add(key));
+        }
+    }
+
+    /** ***************************************************************
+     */
+    @Test
+    public void testAligned() throws Exception {
+
+        writePairs(".txt");
+    }
+
+    /** ***************************************************************
+     */
+    @Test
+    public void testGzip() throws Exception {
+
+        writePairs(".gz");
+    }
+
+    /** ***************************************************************
+     * A new writer on existing files must append to them
+     */
+    @Test
+    public void testAppend() throws Exception {
+
+        File f = temp(".txt");
+        Files.write(f.toPath(), "first\n".getBytes(StandardCharsets.UTF_8));
+        try (BatchedWriter w = new BatchedWriter(BatchedWriter.DEFAULT_BATCH_CHARS, f.getPath())) {
+            w.write("second");
+            w.flush();
+            assertEquals(Arrays.asList("first", "second"), read(f));
+            w.write("third");
+        }
+        assertEquals(Arrays.asList("first", "second", "third"), read(f));
+    }
+
+    /** ***************************************************************
+     * A batch that can't be written must leave the other files of its
+     * group as they were and be kept for the next flush.  /dev/full
+     * fails every write.
+     */
+    @Test
+    public void testFailedBatchKept() throws Exception {
+
+        File full = new File("/dev/full");
+        Assume.assumeTrue(full.canWrite());
+        File f = temp(".txt");
+        BatchedWriter w = new BatchedWriter(BatchedWriter.DEFAULT_BATCH_CHARS, f.getPath(), full.getPath());
+        try {
+            w.write("first", "(first)");
+            for (int attempt = 1; attempt <= 2; attempt++) {
+                try {
+                    w.flush();
+                    fail("expected flush " + attempt + " to fail");
+                }
+                catch (IOException e) {
+                    // the second attempt fails only if the lines were kept
+                }
+            }
+            assertTrue(read(f).isEmpty());
+        }
+        finally {
+            try {
+                w.close();
+            }
+            catch (IOException e) {
+                // the last batch can't be written to /dev/full either
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.articulate.nlp;
+
+import com.articulate.nlp.morphodb.GenMorphoUtils;
+import com.articulate.nlp.morphodb.GenMorphoWorkers;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class GenMorphoWorkersTest extends UnitTestBase {
+
+    /** ***************************************************************
+     * A synset hash of the given words, each with one synset
+     */
+    private static Map<String, Set<String>> synsets(String... words) {
+
+        Map<String, Set<String>> synsetHash = new TreeMap<>();
+        for (int i = 0; i < words.length; i++)
+            synsetHash.put(words[i], new HashSet<>(Collections.singletonList(String.valueOf(100 + i))));
+        return synsetHash;
+    }
+
+    /** ***************************************************************
+     * A task that appends a record for each lemma, like the generators
+     */
+    private static GenMorphoWorkers.LemmaTask recorder(String file, Map<String, List<String>> classifiedEntries) {
+
+        return (term, lemmaKey, synsetIds) -> {
+            String line = "{\"synsetId\":\"" + Collections.min(synsetIds) + "\",\"lemma\":\"" + lemmaKey + "\"}";
+            GenUtils.writeToFile(file, line + "\n");
+            GenMorphoUtils.cacheClassification(classifiedEntries, lemmaKey, line);
+        };
+    }
+
+    @After
+    public void reset() {
+
+        GenMorphoWorkers.setOllamaPorts(null);
+        GenMorphoWorkers.setWorkersPerEndpoint(0);
+        GenMorphoWorkers.setReportMillis(GenMorphoWorkers.DEFAULT_REPORT_MILLIS);
+    }
+
+    /** ***************************************************************
+     * Every lemma without a record is done once, on the port of the
+     * worker that took it, and workers on a faster port take more
+     */
+    @Test
+    public void testForEachLemma() throws IOException {
+
+        String[] words = new String[60];
+        for (int i = 0; i < words.length; i++)
+            words[i] = String.format("word_%02d", i);
+        Map<String, Set<String>> synsetHash = synsets(words);
+        synsetHash.put("Word_00", new HashSet<>(Collections.singletonList("99")));
+        synsetHash.put("empty", new HashSet<>());
+        Path file = Files.createTempFile("morphoworkers", ".txt");
+        try {
+            Map<String, List<String>> classifiedEntries = new ConcurrentHashMap<>();
+            GenMorphoUtils.cacheClassification(classifiedEntries, "word 59", "{}");
+
+            GenMorphoWorkers.setOllamaPorts(Arrays.asList(20001, 20002));
+            GenMorphoWorkers.setWorkersPerEndpoint(2);
+            GenMorphoWorkers.setReportMillis(50);
+            Map<String, Integer> portOf = new ConcurrentHashMap<>();
+            AtomicInteger calls = new AtomicInteger();
+            GenMorphoWorkers.forEachLemma("GenMorphoWorkersTest", file.toString(), synsetHash, classifiedEntries,
+                    (term, lemmaKey, synsetIds) -> {
+                calls.incrementAndGet();
+                int port = GenUtils.getOllamaPort();
+                assertNull(portOf.put(lemmaKey, port));
+                try {
+                    Thread.sleep(port == 20001 ? 2 : 20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            assertEquals(59, calls.get());
+            assertEquals(59, portOf.size());
+            assertFalse(portOf.containsKey("word 59"));
+            assertFalse(portOf.containsKey("empty"));
+            int fast = Collections.frequency(portOf.values(), 20001);
+            assertTrue(fast + " of 59 on the fast port", fast > 59 - fast);
+        }
+        finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /** ***************************************************************
+     * A run whose tasks failed, or that was killed mid-line, goes on
+     * with exactly the lemmas that have no record
+     */
+    @Test
+    public void testResume() throws IOException {
+
+        Map<String, Set<String>> synsetHash = synsets("ant", "bee", "cat", "dog", "eel", "fox");
+        Path file = Files.createTempFile("morphoworkers", ".txt");
+        try {
+            GenMorphoWorkers.setWorkersPerEndpoint(3);
+            Map<String, List<String>> first = GenMorphoUtils.loadExistingClassifications(file.toString());
+            GenMorphoWorkers.LemmaTask record = recorder(file.toString(), first);
+            GenMorphoWorkers.forEachLemma("GenMorphoWorkersTest", file.toString(), synsetHash, first,
+                    (term, lemmaKey, synsetIds) -> {
+                if (term.compareTo("d") > 0)
+                    throw new IllegalStateException("killed");
+                record.classify(term, lemmaKey, synsetIds);
+            });
+            assertEquals(3, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+            Files.write(file, "{\"synsetId\":\"104\",\"le".getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.APPEND);
+
+            Map<String, List<String>> second = GenMorphoUtils.loadExistingClassifications(file.toString());
+            Set<String> done = ConcurrentHashMap.newKeySet();
+            GenMorphoWorkers.LemmaTask resume = recorder(file.toString(), second);
+            GenMorphoWorkers.forEachLemma("GenMorphoWorkersTest", file.toString(), synsetHash, second,
+                    (term, lemmaKey, synsetIds) -> {
+                done.add(lemmaKey);
+                resume.classify(term, lemmaKey, synsetIds);
+            });
+            assertEquals(new HashSet<>(Arrays.asList("dog", "eel", "fox")), done);
+            Map<String, List<String>> third = GenMorphoUtils.loadExistingClassifications(file.toString());
+            assertEquals(6, third.size());
+            assertEquals(7, Files.readAllLines(file, StandardCharsets.UTF_8).size());
+        }
+        finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /** ***************************************************************
+     * A request that fails throws for the lemma rather than exiting
+     */
+    @Test
+    public void testAwait() {
+
+        assertEquals("yes", GenMorphoWorkers.await(CompletableFuture.completedFuture("yes")));
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IOException("connection refused"));
+        try {
+            GenMorphoWorkers.await(failed);
+            fail("expected IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+}
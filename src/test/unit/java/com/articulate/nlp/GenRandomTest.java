@@ -0,0 +1,63 @@
+package com.articulate.nlp;
+
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class GenRandomTest extends UnitTestBase {
+
+    private static final Random a = new GenRandom();
+    private static final Random b = new GenRandom();
+
+    /** ***************************************************************
+     * Draws from two shared GenRandoms, as a generated sentence would
+     */
+    private static List<Integer> draw(long seed) {
+
+        GenRandom.seed(seed);
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            result.add(a.nextInt(1000));
+            result.add(b.nextBoolean() ? 1 : 0);
+        }
+        return result;
+    }
+
+    /** ***************************************************************
+     */
+    @Test
+    public void testSameSeedSameDraws() {
+
+        List<Integer> first = draw(42);
+        draw(7);
+        assertEquals(first, draw(42));
+        assertNotEquals(first, draw(43));
+        GenRandom.clear();
+    }
+
+    /** ***************************************************************
+     * Each item must get the same draws whichever thread makes them
+     * and whatever the other threads draw meanwhile
+     */
+    @Test
+    public void testThreadsIndependent() throws Exception {
+
+        int items = 200;
+        List<List<Integer>> serial = new ArrayList<>();
+        for (int i = 0; i < items; i++)
+            serial.add(draw(GenRandom.seedFor(5, i)));
+        GenRandom.clear();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<List<Integer>>> parallel = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            final int n = i;
+            parallel.add(pool.submit(() -> draw(GenRandom.seedFor(5, n))));
+        }
+        for (int i = 0; i < items; i++)
+            assertEquals(serial.get(i), parallel.get(i).get());
+        pool.shutdown();
+    }
+}
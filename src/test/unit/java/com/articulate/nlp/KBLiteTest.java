@@ -0,0 +1,122 @@
+package com.articulate.nlp;
+
+import com.articulate.sigma.Formula;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class KBLiteTest extends UnitTestBase {
+
+    private static final String[] ANIMALS = {
+            "; animals",
+            "(subclass Animal Entity)",
+            "(subclass Bird Animal)",
+            "(subclass Mammal Animal)",
+            "(subclass Penguin Bird)",
+            "(instance Tweety Penguin)",
+            "(termFormat EnglishLanguage Bird \"bird\")",
+            "(termFormat EnglishLanguage Penguin \"penguin\")",
+            "(documentation Bird EnglishLanguage \"A feathered animal; it lays eggs.\")",
+            "(=> (instance ?X Bird)",
+            "    (attribute ?X Feathered))"};
+
+    private static final String[] RELATIONS = {
+            "(subclass Relation Entity)",
+            "(subclass BinaryRelation Relation)",
+            "(instance likes BinaryRelation)",
+            "(domain likes 1 Animal)",
+            "(domain likes 2 Entity)",
+            "(termFormat EnglishLanguage likes \"likes\")",
+            "(format EnglishLanguage likes \"%1 likes %2\")"};
+
+    /** ***************************************************************
+     */
+    private static String write(String name, String[] lines) throws IOException {
+
+        File f = File.createTempFile(name, ".kif");
+        f.deleteOnExit();
+        try (PrintWriter pw = new PrintWriter(f)) {
+            for (String s : lines)
+                pw.println(s);
+        }
+        return f.getAbsolutePath();
+    }
+
+    /** ***************************************************************
+     */
+    private static List<String> texts(List<Formula> forms) {
+
+        List<String> result = new ArrayList<>();
+        for (Formula f : forms)
+            result.add(f.getFormula());
+        return result;
+    }
+
+    /** ***************************************************************
+     * Everything a KBLite holds that tests compare
+     */
+    private static String contents(KBLite kb) {
+
+        return kb.terms + "\n" + new TreeMap<>(kb.childrenOf) + "\n" + new TreeMap<>(kb.parentsOf) +
+                "\n" + new TreeMap<>(kb.documentation) + "\n" + new TreeMap<>(kb.termFormats) +
+                "\n" + new TreeMap<>(kb.domains) + "\n" + kb.relations +
+                "\n" + texts(kb.ask("arg", 0, "termFormat")) +
+                "\n" + texts(kb.ask("ant", 0, "instance")) +
+                "\n" + texts(kb.askWithRestriction(0, "domain", 1, "likes"));
+    }
+
+    /** ***************************************************************
+     */
+    @Test
+    public void testLoad() throws IOException {
+
+        KBLite kb = new KBLite(Arrays.asList(write("animals", ANIMALS), write("relations", RELATIONS)), null);
+        assertTrue(kb.isSubclass("Penguin", "Entity"));
+        assertTrue(kb.isInstanceOf("Tweety", "Animal"));
+        assertEquals(new HashSet<>(Arrays.asList("Bird", "Mammal", "Penguin")), kb.getChildClasses("Animal"));
+        assertEquals(Collections.singleton("likes"), kb.relations);
+        assertEquals("\"A feathered animal; it lays eggs.\"", kb.getDocumentation("Bird"));
+        assertEquals(Arrays.asList("(termFormat EnglishLanguage Bird \"bird\")",
+                "(termFormat EnglishLanguage Penguin \"penguin\")",
+                "(termFormat EnglishLanguage likes \"likes\")"), texts(kb.ask("arg", 0, "termFormat")));
+        assertEquals(Collections.singletonList("(termFormat EnglishLanguage Penguin \"penguin\")"),
+                texts(kb.askWithTwoRestrictions(0, "termFormat", 1, "EnglishLanguage", 2, "Penguin")));
+        assertEquals(Collections.singletonList("(=> (instance ?X Bird) (attribute ?X Feathered))"),
+                texts(kb.ask("ant", 2, "Bird")));
+        assertEquals(2, kb.askWithRestriction(0, "domain", 1, "likes").size());
+    }
+
+    /** ***************************************************************
+     * A KBLite loaded from the cache must be the same as one parsed
+     * from the kif files, and a changed file must be parsed again
+     */
+    @Test
+    public void testCache() throws IOException {
+
+        String animals = write("animals", ANIMALS);
+        String relations = write("relations", RELATIONS);
+        File cache = File.createTempFile("kblite", ".cache");
+        cache.delete();
+        cache.deleteOnExit();
+        List<String> files = Arrays.asList(animals, relations);
+        String parsed = contents(new KBLite(files, null));
+        assertEquals(parsed, contents(new KBLite(files, cache.getAbsolutePath())));
+        assertTrue(cache.exists());
+        assertEquals(2, KBLite.readCache(cache.getAbsolutePath()).size());
+        assertEquals(parsed, contents(new KBLite(files, cache.getAbsolutePath())));
+
+        try (PrintWriter pw = new PrintWriter(relations)) {
+            for (String s : RELATIONS)
+                pw.println(s);
+            pw.println("(instance hates BinaryRelation)");
+        }
+        KBLite kb = new KBLite(files, cache.getAbsolutePath());
+        assertTrue(kb.relations.contains("hates"));
+        assertEquals(contents(new KBLite(files, null)), contents(kb));
+    }
+}
@@ -0,0 +1,120 @@
+package com.articulate.nlp;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+public class LLMCacheTest extends UnitTestBase {
+
+    /** ***************************************************************
+     */
+    private static File temp() throws IOException {
+
+        File f = File.createTempFile("llmcache", ".bin");
+        f.delete();
+        f.deleteOnExit();
+        return f;
+    }
+
+    /** ***************************************************************
+     */
+    @Test
+    public void testKey() {
+
+        LLMCache.Key key = LLMCache.key("ollama", "llama3.2", "", "What is a cat?");
+        assertEquals(key, LLMCache.key("ollama", "llama3.2", "", "What is a cat?"));
+        assertNotEquals(key, LLMCache.key("ollama", "llama3.1", "", "What is a cat?"));
+        assertNotEquals(key, LLMCache.key("openai", "llama3.2", "", "What is a cat?"));
+        assertNotEquals(key, LLMCache.key("ollama", "llama3.2", "temperature=0", "What is a cat?"));
+        assertNotEquals(LLMCache.key("a", "bc", "", "p"), LLMCache.key("ab", "c", "", "p"));
+    }
+
+    /** ***************************************************************
+     * Responses must still be there when the log is opened again
+     */
+    @Test
+    public void testPersist() throws IOException {
+
+        File f = temp();
+        LLMCache.Key cat = LLMCache.key("ollama", "m", "", "cat?");
+        LLMCache.Key dog = LLMCache.key("ollama", "m", "", "dog?");
+        try (LLMCache cache = new LLMCache(f.getPath())) {
+            assertNull(cache.get(cat));
+            cache.put(cat, "{\"noun\": \"cat\", \"plural\": \"cats\"}");
+            cache.put(dog, "chien \u00e9\u00e8");
+            cache.put(cat, "ignored");
+            assertEquals("{\"noun\": \"cat\", \"plural\": \"cats\"}", cache.get(cat));
+            assertEquals(2, cache.size());
+            assertEquals(0.5, cache.hitRate(), 1e-9);
+        }
+        try (LLMCache cache = new LLMCache(f.getPath())) {
+            assertEquals(2, cache.size());
+            assertEquals("chien \u00e9\u00e8", cache.get(dog));
+            assertEquals("{\"noun\": \"cat\", \"plural\": \"cats\"}", cache.get(cat));
+        }
+    }
+
+    /** ***************************************************************
+     * An evicted response must stay gone when the log is opened again,
+     * and a new response for its key must then be kept
+     */
+    @Test
+    public void testEvict() throws IOException {
+
+        File f = temp();
+        LLMCache.Key cat = LLMCache.key("ollama", "m", "", "cat?");
+        LLMCache.Key dog = LLMCache.key("ollama", "m", "", "dog?");
+        try (LLMCache cache = new LLMCache(f.getPath())) {
+            cache.put(cat, "Unparseable");
+            cache.put(dog, "chien");
+            cache.evict(cat);
+            cache.evict(cat);
+            assertNull(cache.get(cat));
+            assertEquals(1, cache.size());
+        }
+        try (LLMCache cache = new LLMCache(f.getPath())) {
+            assertEquals(1, cache.size());
+            assertNull(cache.get(cat));
+            assertEquals("chien", cache.get(dog));
+            cache.put(cat, "{\"plural\": \"cats\"}");
+        }
+        try (LLMCache cache = new LLMCache(f.getPath())) {
+            assertEquals(2, cache.size());
+            assertEquals("{\"plural\": \"cats\"}", cache.get(cat));
+        }
+    }
+
+    /** ***************************************************************
+     * A record cut short by a crash must be dropped, leaving the ones
+     * before it, and the log must take new records after them
+     */
+    @Test
+    public void testTruncated() throws IOException {
+
+        File f = temp();
+        LLMCache.Key first = LLMCache.key("ollama", "m", "", "first");
+        LLMCache.Key second = LLMCache.key("ollama", "m", "", "second");
+        LLMCache.Key third = LLMCache.key("ollama", "m", "", "third");
+        try (LLMCache cache = new LLMCache(f.getPath())) {
+            cache.put(first, "one");
+            cache.put(second, "two");
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.setLength(raf.length() - 2);
+        }
+        try (LLMCache cache = new LLMCache(f.getPath())) {
+            assertEquals(1, cache.size());
+            assertEquals("one", cache.get(first));
+            assertNull(cache.get(second));
+            cache.put(third, "three");
+        }
+        try (LLMCache cache = new LLMCache(f.getPath())) {
+            assertEquals(2, cache.size());
+            assertEquals("three", cache.get(third));
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.articulate.nlp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class LLMSchedulerTest extends UnitTestBase {
+
+    /** ***************************************************************
+     * No more requests than the limit may be in flight at once, and
+     * every request must get its own response
+     */
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+
+        LLMScheduler scheduler = new LLMScheduler();
+        LLMScheduler.Endpoint endpoint = scheduler.endpoint("test", 3, 0, 1, 1, 1);
+        AtomicInteger inFlight = new AtomicInteger(), most = new AtomicInteger();
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            String prompt = "p" + i;
+            futures.add(scheduler.submit(endpoint, () -> {
+                most.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                Thread.sleep(10);
+                inFlight.decrementAndGet();
+                return prompt.toUpperCase();
+            }, 0));
+        }
+        for (int i = 0; i < 30; i++)
+            assertEquals("P" + i, futures.get(i).get());
+        assertEquals(3, most.get());
+    }
+
+    /** ***************************************************************
+     * Failed attempts are retried until one succeeds or the attempts
+     * run out
+     */
+    @Test
+    public void testRetry() throws Exception {
+
+        LLMScheduler scheduler = new LLMScheduler();
+        LLMScheduler.Endpoint endpoint = scheduler.endpoint("test", 2, 0, 3, 5, 20);
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> ok = scheduler.submit(endpoint, () -> {
+            if (calls.incrementAndGet() < 3)
+                throw new IllegalStateException("busy");
+            return "done";
+        }, 0);
+        assertEquals("done", ok.get());
+        assertEquals(3, calls.get());
+
+        CompletableFuture<String> bad = scheduler.submit(endpoint, () -> {
+            throw new IllegalStateException("down");
+        }, 0);
+        try {
+            bad.get();
+            fail("expected the request to fail");
+        }
+        catch (ExecutionException e) {
+            assertEquals("down", e.getCause().getMessage());
+        }
+    }
+
+    /** ***************************************************************
+     * A request still waiting behind a slow one fails at its deadline
+     */
+    @Test
+    public void testDeadline() throws Exception {
+
+        LLMScheduler scheduler = new LLMScheduler();
+        LLMScheduler.Endpoint endpoint = scheduler.endpoint("test", 1, 0, 1, 1, 1);
+        CompletableFuture<String> slow = scheduler.submit(endpoint, () -> {
+            Thread.sleep(300);
+            return "slow";
+        }, 0);
+        CompletableFuture<String> late = scheduler.submit(endpoint, () -> "late", 50);
+        try {
+            late.get();
+            fail("expected a timeout");
+        }
+        catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertEquals("slow", slow.get());
+    }
+
+    /** ***************************************************************
+     * A call in flight at its deadline is interrupted, which frees its
+     * slot for the next request
+     */
+    @Test
+    public void testDeadlineInterrupts() throws Exception {
+
+        LLMScheduler scheduler = new LLMScheduler();
+        LLMScheduler.Endpoint endpoint = scheduler.endpoint("test", 1, 0, 1, 1, 1);
+        CompletableFuture<String> stuck = scheduler.submit(endpoint, () -> {
+            Thread.sleep(10000);
+            return "stuck";
+        }, 50);
+        CompletableFuture<String> next = scheduler.submit(endpoint, () -> "next", 0);
+        long start = System.nanoTime();
+        assertEquals("next", next.get());
+        long millis = (System.nanoTime() - start) / 1000000;
+        assertTrue("took " + millis + " ms", millis < 5000);
+        assertTrue(stuck.isCompletedExceptionally());
+    }
+
+    /** ***************************************************************
+     * Requests beyond the first second's worth are started no faster
+     * than the rate
+     */
+    @Test
+    public void testRate() throws Exception {
+
+        LLMScheduler scheduler = new LLMScheduler();
+        LLMScheduler.Endpoint endpoint = scheduler.endpoint("test", 10, 20, 1, 1, 1);
+        long start = System.nanoTime();
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 40; i++)
+            futures.add(scheduler.submit(endpoint, () -> "ok", 0));
+        for (CompletableFuture<String> f : futures)
+            f.get();
+        long millis = (System.nanoTime() - start) / 1000000;
+        assertTrue("took " + millis + " ms", millis >= 900);
+    }
+
+    /** ***************************************************************
+     * A new endpoint starts with a full second's worth of requests
+     */
+    @Test
+    public void testBurst() throws Exception {
+
+        LLMScheduler scheduler = new LLMScheduler();
+        LLMScheduler.Endpoint endpoint = scheduler.endpoint("test", 10, 5, 1, 1, 1);
+        long start = System.nanoTime();
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            futures.add(scheduler.submit(endpoint, () -> "ok", 0));
+        for (CompletableFuture<String> f : futures)
+            f.get();
+        long millis = (System.nanoTime() - start) / 1000000;
+        assertTrue("took " + millis + " ms", millis < 500);
+    }
+}
@@ -0,0 +1,172 @@
+package com.articulate.nlp;
+
+import com.articulate.nlp.morphodb.GenMorphoUtils;
+import com.articulate.nlp.morphodb.MorphoDB;
+import com.articulate.nlp.morphodb.MorphoDBSnapshot;
+import com.articulate.nlp.morphodb.MorphoStringPool;
+import com.articulate.nlp.morphodb.NounMorphoDB;
+import com.articulate.nlp.morphodb.VerbMorphoDB;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class MorphoDBTest extends UnitTestBase {
+
+    /** ***************************************************************
+     * Write a MorphoDB directory with a few noun and verb records
+     */
+    private static Path tempDB() throws IOException {
+
+        Path root = Files.createTempDirectory("morphodb");
+        Files.createDirectories(root.resolve("noun"));
+        Files.createDirectories(root.resolve("verb"));
+        Files.write(root.resolve("noun").resolve("Plurals.txt"), Arrays.asList(
+                "{\"synsetId\":\"1\",\"lemma\":\"Cat\",\"plural\":\"cats\"}",
+                "{\"synsetId\":\"2\",\"singular\":\"mouse\",\"plural\":\"mice\"}",
+                "{\"synsetId\":\"3\",\"lemma\":\"cat\",\"plural\":\"kitties\"}",
+                "{\"synsetId\":\"4\",\"lemma\":\"news\",\"plural\":\"none\"}",
+                "{\"synsetId\":\"5\",\"lemma\":\"Blorp_thing\",\"status\":\"error\"}"), StandardCharsets.UTF_8);
+        Files.write(root.resolve("noun").resolve("IndefiniteArticles.txt"), Arrays.asList(
+                "{\"synsetId\":\"1\",\"lemma\":\"cat\",\"article\":\"a\"}",
+                "{\"synsetId\":\"6\",\"noun\":\"apple\",\"article\":\"An\"}",
+                "{\"synsetId\":\"7\",\"noun\":\"hour\",\"article\":\"the\"}"), StandardCharsets.UTF_8);
+        Files.write(root.resolve("verb").resolve("VerbConjugations.txt"), Arrays.asList(
+                "{\"synsetId\":\"8\",\"lemma\":\"to run\",\"tenses\":[" +
+                        "{\"tense\":\"Simple present\",\"forms\":{\"i\":\"I run\",\"he_she_it\":\"he runs\",\"they\":\"they run\"}}," +
+                        "{\"tense\":\"simple past\",\"forms\":{\"summary\":\"ran\"}}]}",
+                "{\"synsetId\":\"9\",\"verb\":\"walk\",\"tenses\":[" +
+                        "{\"tense\":\"simple present\",\"forms\":{\"we\":\"we walk\"}}]}",
+                "{\"synsetId\":\"10\",\"lemma\":\"run\",\"tenses\":[" +
+                        "{\"tense\":\"simple present\",\"forms\":{\"i\":\"I sprint\",\"we\":\"we run\"}}]}"), StandardCharsets.UTF_8);
+        return root;
+    }
+
+    /** ***************************************************************
+     */
+    @Test
+    public void testStringPool() {
+
+        MorphoStringPool pool = new MorphoStringPool(2);
+        for (int i = 0; i < 1000; i++)
+            assertEquals(i, pool.add("s" + i));
+        assertEquals(17, pool.add("s17"));
+        pool.trim();
+        assertEquals(1000, pool.size());
+        assertEquals(999, pool.id("s999"));
+        assertEquals(-1, pool.id("t1"));
+        assertEquals(-1, pool.id(null));
+        assertEquals("s5", pool.get(5));
+        assertNull(pool.get(-1));
+        assertEquals(1000, pool.add("new"));
+    }
+
+    /** ***************************************************************
+     * The first usable plural or article for a noun wins
+     */
+    @Test
+    public void testNouns() throws IOException {
+
+        NounMorphoDB nouns = NounMorphoDB.load(tempDB().toString());
+        assertEquals("cats", nouns.getPlural("cat"));
+        assertEquals("cats", nouns.getPlural(" CAT "));
+        assertEquals("mice", nouns.getPlural("mouse"));
+        assertNull(nouns.getPlural("news"));
+        assertNull(nouns.getPlural("dog"));
+        assertEquals("a", nouns.getIndefiniteArticle("cat"));
+        assertEquals("an", nouns.getIndefiniteArticle("apple"));
+        assertNull(nouns.getIndefiniteArticle("hour"));
+        assertNull(nouns.getIndefiniteArticle("mouse"));
+        assertTrue(nouns.hasErrorRecord("blorp thing"));
+        assertFalse(nouns.hasErrorRecord("cat"));
+        assertEquals(2, nouns.getPlurals().get("1").size() + nouns.getPlurals().get("2").size());
+    }
+
+    /** ***************************************************************
+     * The first usable form for a lemma, tense and person wins
+     */
+    @Test
+    public void testVerbs() throws IOException {
+
+        VerbMorphoDB verbs = VerbMorphoDB.load(tempDB().toString());
+        assertEquals(2, verbs.size());
+        assertEquals("run", verbs.getVerbConjugation("run", "simple present", "i"));
+        assertEquals("runs", verbs.getVerbConjugation("to run", "Simple Present", "3sg"));
+        assertEquals("run", verbs.getVerbConjugation("run", "simple present", "we"));
+        assertEquals("ran", verbs.getVerbConjugation("run", "simple past", "you"));
+        assertEquals("walk", verbs.getVerbConjugation("walk", "simple present", "we"));
+        assertNull(verbs.getVerbConjugation("walk", "simple present", "they"));
+        assertNull(verbs.getVerbConjugation("walk", "simple past", "we"));
+        assertNull(verbs.getVerbConjugation("jump", "simple present", "we"));
+        assertNull(verbs.getVerbConjugation("run", "simple present", "nobody"));
+        assertEquals(3, verbs.getConjugations().size());
+    }
+
+    /** ***************************************************************
+     * A load writes a snapshot that the next load reads, and a
+     * snapshot whose sources changed or whose bytes are damaged is
+     * rebuilt from the sources
+     */
+    @Test
+    public void testSnapshot() throws IOException {
+
+        Path root = tempDB();
+        Path snapshot = root.resolve(MorphoDBSnapshot.FILE_NAME);
+        MorphoDB.ModelMorphoDB model = MorphoDB.loadMorphoDatabase(root.toString()).byModel.get(root.getFileName().toString());
+        assertEquals("cats", model.nouns.getPlural("cat"));
+        assertTrue(Files.exists(snapshot));
+        long written = Files.getLastModifiedTime(snapshot).toMillis();
+
+        model = MorphoDB.loadMorphoDatabase(root.toString()).byModel.get(root.getFileName().toString());
+        assertEquals("mice", model.nouns.getPlural("mouse"));
+        assertEquals("an", model.nouns.getIndefiniteArticle("apple"));
+        assertTrue(model.nouns.hasErrorRecord("blorp thing"));
+        assertEquals("runs", model.verbs.getVerbConjugation("run", "simple present", "he_she_it"));
+        assertEquals("to", model.prepositions.getPositionalPreposition("adjacent"));
+        assertEquals(written, Files.getLastModifiedTime(snapshot).toMillis());
+
+        Files.write(root.resolve("noun").resolve("Plurals.txt"),
+                Arrays.asList("{\"synsetId\":\"11\",\"lemma\":\"dog\",\"plural\":\"dogs\"}"),
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        model = MorphoDB.loadMorphoDatabase(root.toString()).byModel.get(root.getFileName().toString());
+        assertEquals("dogs", model.nouns.getPlural("dog"));
+
+        try (RandomAccessFile raf = new RandomAccessFile(snapshot.toFile(), "rw")) {
+            raf.seek(raf.length() / 2);
+            int b = raf.read();
+            raf.seek(raf.length() / 2);
+            raf.write(b ^ 0xFF);
+        }
+        model = MorphoDB.loadMorphoDatabase(root.toString()).byModel.get(root.getFileName().toString());
+        assertEquals("dogs", model.nouns.getPlural("dog"));
+        assertEquals("ran", model.verbs.getVerbConjugation("run", "simple past", "they"));
+        assertEquals("dogs", MorphoDB.loadMorphoDatabase(root.toString())
+                .byModel.get(root.getFileName().toString()).nouns.getPlural("dog"));
+    }
+
+    /** ***************************************************************
+     * Appended records reach the file once the writers are flushed,
+     * and a missing file is not created
+     */
+    @Test
+    public void testAppendJsonLine() throws IOException {
+
+        Path root = tempDB();
+        Path plurals = root.resolve("noun").resolve("Plurals.txt");
+        GenMorphoUtils.appendJsonLine(plurals.toString(), GenMorphoUtils.JSON_MAPPER.createObjectNode()
+                .put("synsetId", "12").put("lemma", "ox").put("plural", "oxen"));
+        GenMorphoUtils.appendJsonLine(root.resolve("noun").resolve("Missing.txt").toString(),
+                GenMorphoUtils.JSON_MAPPER.createObjectNode().put("synsetId", "13"));
+        BatchedWriter.flushAll();
+        assertFalse(Files.exists(root.resolve("noun").resolve("Missing.txt")));
+        assertEquals("oxen", NounMorphoDB.load(root.toString()).getPlural("ox"));
+        assertEquals(6, Files.readAllLines(plurals, StandardCharsets.UTF_8).size());
+    }
+}
@@ -0,0 +1,129 @@
+package com.articulate.nlp;
+
+import com.articulate.sigma.wordNet.MultiWords;
+import edu.stanford.nlp.ling.CoreLabel;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class MultiWordTrieTest extends UnitTestBase {
+
+    private MultiWordTrie trie;
+
+    /** ***************************************************************
+     */
+    @Before
+    public void buildTrie() {
+
+        Map<String, Collection<String>> mw = new HashMap<>();
+        mw.put("answer", new HashSet<>(Arrays.asList("answering_machine")));
+        mw.put("answering", new HashSet<>(Arrays.asList("answering_machine")));
+        mw.put("New", new HashSet<>(Arrays.asList("New_York", "New_York_City", "New_Yorker")));
+        mw.put("put", new HashSet<>(Arrays.asList("put_out")));
+        trie = new MultiWordTrie(mw);
+    }
+
+    /** ***************************************************************
+     */
+    private static List<CoreLabel> tokens(String... words) {
+
+        List<CoreLabel> result = new ArrayList<>();
+        for (int i = 0; i < words.length; i++) {
+            String[] wl = words[i].split("/");
+            CoreLabel cl = MultiWordAnnotator.setCoreLabel(wl[0], i + 1);
+            if (wl.length > 1)
+                cl.setLemma(wl[1]);
+            result.add(cl);
+        }
+        return result;
+    }
+
+    /** ***************************************************************
+     */
+    @Test
+    public void testLongestMatch() {
+
+        assertEquals(4, trie.size());
+        String[][] forms = MultiWordTrie.sentenceForms(tokens("I", "love", "New", "York", "City", "."));
+        MultiWordTrie.Match m = trie.longestMatch(forms, 2);
+        assertEquals("New_York_City", m.key());
+        assertEquals(5, m.end);
+        assertNull(trie.longestMatch(forms, 3));
+        forms = MultiWordTrie.sentenceForms(tokens("New", "York", "is", "big"));
+        assertEquals("New_York", trie.longestMatch(forms, 0).key());
+        forms = MultiWordTrie.sentenceForms(tokens("New", "Yorker"));
+        assertEquals("New_Yorker", trie.longestMatch(forms, 0).key());
+    }
+
+    /** ***************************************************************
+     */
+    @Test
+    public void testForms() {
+
+        String[][] forms = MultiWordTrie.sentenceForms(tokens("Mary", "likes/like", "her", "Answering/answer", "Machines/machine"));
+        MultiWordTrie.Match m = trie.longestMatch(forms, 3);
+        assertEquals("answering_machine", m.key());
+        assertNull(trie.longestMatch(forms, 4));
+        forms = MultiWordTrie.sentenceForms(tokens("Mary", "puts/put", "out"));
+        assertEquals("put_out", trie.longestMatch(forms, 1).key());
+    }
+
+    /** ***************************************************************
+     */
+    @Test
+    public void testNoMatch() {
+
+        String[][] forms = MultiWordTrie.sentenceForms(tokens("New"));
+        assertNull(trie.longestMatch(forms, 0));
+        forms = MultiWordTrie.sentenceForms(tokens("York", "New"));
+        assertNull(trie.longestMatch(forms, 0));
+        assertNull(trie.longestMatch(forms, 1));
+    }
+
+    /** ***************************************************************
+     * A multiword that starts right after another must be found too
+     */
+    @Test
+    public void testAdjacentMultiWords() {
+
+        MultiWords mw = new MultiWords();
+        mw.addMultiWord("New York", ' ');
+        mw.addMultiWord("answering machine", ' ');
+        MultiWordAnnotator annotator = new MultiWordAnnotator() {};
+        annotator.multiWordAnno = WNMultiWordAnnotator.WNMultiWordAnnotation.class;
+        annotator.sumoAnno = WNMultiWordAnnotator.WNMWSUMOAnnotation.class;
+        annotator.spanAnno = WNMultiWordAnnotator.WNMWSpanAnnotation.class;
+        annotator.tokenAnno = WNMultiWordAnnotator.WNMWTokenAnnotation.class;
+        annotator.mw = mw;
+        List<CoreLabel> tokens = tokens("New", "York", "answering", "machine", "sales");
+        annotator.annotateSentence(tokens);
+        assertEquals("New_York", tokens.get(1).get(WNMultiWordAnnotator.WNMWTokenAnnotation.class));
+        assertEquals("answering_machine", tokens.get(2).get(WNMultiWordAnnotator.WNMWTokenAnnotation.class));
+        assertEquals("answering_machine", tokens.get(3).get(WNMultiWordAnnotator.WNMWTokenAnnotation.class));
+        assertNull(tokens.get(4).get(WNMultiWordAnnotator.WNMWTokenAnnotation.class));
+    }
+
+    /** ***************************************************************
+     * The shared trie must be built again when a multiword is added,
+     * even to a head it already has
+     */
+    @Test
+    public void testRebuilt() {
+
+        MultiWords mw = new MultiWords();
+        mw.addMultiWord("New York", ' ');
+        MultiWordTrie first = MultiWordTrie.get(mw);
+        assertSame(first, MultiWordTrie.get(mw));
+        assertEquals(1, first.size());
+        mw.addMultiWord("New Jersey", ' ');
+        MultiWordTrie second = MultiWordTrie.get(mw);
+        assertNotSame(first, second);
+        assertEquals(2, second.size());
+    }
+}
@@ -0,0 +1,94 @@
+package com.articulate.nlp;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SenseCacheTest extends UnitTestBase {
+
+    /** ***************************************************************
+     */
+    @Test
+    public void testHitsAndMisses() {
+
+        SenseCache c = new SenseCache(100);
+        long sig = SenseCache.contextSignature(Arrays.asList("John", "kick", "the", "ball", "."));
+        String key = SenseCache.key("ball", 1, sig);
+        assertNull(c.get(key));
+        c.put(key, new SenseCache.Entry("102778669", "Ball"));
+        SenseCache.Entry e = c.get(key);
+        assertEquals("102778669", e.sense);
+        assertEquals("Ball", e.sumo);
+        assertNull(c.get(SenseCache.key("ball", 2, sig)));
+        assertEquals(1, c.getHits());
+        assertEquals(2, c.getMisses());
+    }
+
+    /** ***************************************************************
+     */
+    @Test
+    public void testSignature() {
+
+        long a = SenseCache.contextSignature(Arrays.asList("ab", "c"));
+        long b = SenseCache.contextSignature(Arrays.asList("a", "bc"));
+        long c = SenseCache.contextSignature(Arrays.asList("ab", "c"));
+        assertNotEquals(a, b);
+        assertEquals(a, c);
+    }
+
+    /** ***************************************************************
+     */
+    @Test
+    public void testBounded() {
+
+        SenseCache c = new SenseCache(32);
+        for (int i = 0; i < 1000; i++)
+            c.put(SenseCache.key("w" + i, 1, i), new SenseCache.Entry("", ""));
+        assertTrue(c.size() <= c.getMaxSize());
+        assertTrue(c.getEvictions() >= 1000 - c.getMaxSize());
+    }
+
+    /** ***************************************************************
+     */
+    @Test
+    public void testSaveLoad() throws Exception {
+
+        File f = File.createTempFile("senseCache", ".tsv");
+        f.deleteOnExit();
+        SenseCache c = new SenseCache(100);
+        c.put(SenseCache.key("bank", 1, 42), new SenseCache.Entry("108420278", "FinancialOrganization"));
+        c.put(SenseCache.key("run", 2, 42), new SenseCache.Entry("", ""));
+        c.save(f.getAbsolutePath());
+        SenseCache d = new SenseCache(100);
+        assertEquals(2, d.load(f.getAbsolutePath()));
+        assertEquals("FinancialOrganization", d.get(SenseCache.key("bank", 1, 42)).sumo);
+        assertEquals("", d.get(SenseCache.key("run", 2, 42)).sense);
+    }
+
+    /** ***************************************************************
+     * A cache saved from other source files must not be loaded
+     */
+    @Test
+    public void testSourcesChanged() throws Exception {
+
+        File f = File.createTempFile("senseCache", ".tsv");
+        f.deleteOnExit();
+        File source = File.createTempFile("senseSource", ".txt");
+        source.deleteOnExit();
+        List<File> sources = Arrays.asList(source, new File(source.getPath() + ".missing"));
+        long[] before = SenseCache.fingerprint(sources);
+        SenseCache c = new SenseCache(100);
+        c.put(SenseCache.key("bank", 1, 42), new SenseCache.Entry("108420278", "FinancialOrganization"));
+        c.save(f.getAbsolutePath(), before);
+        assertEquals(1, new SenseCache(100).load(f.getAbsolutePath(), SenseCache.fingerprint(sources)));
+        Files.write(source.toPath(), "a new mapping\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(0, new SenseCache(100).load(f.getAbsolutePath(), SenseCache.fingerprint(sources)));
+        assertEquals(0, new SenseCache(100).load(f.getAbsolutePath()));
+    }
+}
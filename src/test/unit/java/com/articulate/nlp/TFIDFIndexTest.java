@@ -0,0 +1,154 @@
+package com.articulate.nlp;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class TFIDFIndexTest extends UnitTestBase {
+
+    private static final List<String> DOCS = Arrays.asList(
+            "The cat sat on the mat.",
+            "Dogs chase cats in the park.",
+            "A bird sang in the tree.",
+            "The park has many trees and birds.");
+
+    /** ***************************************************************
+     */
+    private static TFIDF make(boolean incremental) throws IOException {
+
+        File stop = File.createTempFile("stopwords", ".txt");
+        stop.deleteOnExit();
+        try (PrintWriter pw = new PrintWriter(stop)) {
+            for (String s : new String[] {"the", "a", "on", "in", "has", "and"})
+                pw.println(s);
+        }
+        TFIDF cb = new TFIDF(new ArrayList<>(DOCS), stop.getAbsolutePath());
+        cb.incremental = incremental;
+        return cb;
+    }
+
+    /** ***************************************************************
+     * Adding lines without recalculating the whole corpus each time
+     * must rank queries the same as recalculating after every line
+     */
+    @Test
+    public void testIncrementalMatchesEager() throws IOException {
+
+        TFIDF inc = make(true);
+        TFIDF eager = make(false);
+        String[] added = {"My cat chased a bird.", "Birds fly over the park.",
+                "My cat chased a bird.", "Trees grow in the park.", "The dog sat."};
+        String[] queries = {"cat", "park birds", "dog on a mat", "trees"};
+        for (String a : added) {
+            inc.addInput(a);
+            eager.addInput(a);
+            for (String q : queries) {
+                assertEquals(eager.matchInputFull(q), inc.matchInputFull(q));
+                assertEquals(eager.matchInput(q, 3), inc.matchInput(q, 3));
+            }
+        }
+        assertEquals(eager.lines, inc.lines);
+        assertEquals(DOCS.size() + 4, inc.lines.size()); // one line was a repeat
+    }
+
+    /** ***************************************************************
+     * The scores may differ in the last bits, as the index adds up a
+     * document's terms in another order than its row
+     */
+    private static void assertSameScores(String q, TreeMap<Float,ArrayList<Integer>> expected,
+                                         TreeMap<Float,ArrayList<Integer>> actual) {
+
+        assertEquals(q, expected.size(), actual.size());
+        Iterator<Map.Entry<Float,ArrayList<Integer>>> it = actual.entrySet().iterator();
+        for (Map.Entry<Float,ArrayList<Integer>> e : expected.entrySet()) {
+            Map.Entry<Float,ArrayList<Integer>> a = it.next();
+            assertEquals(q, e.getKey(), a.getKey(), 1e-6);
+            assertEquals(q, e.getValue(), a.getValue());
+        }
+    }
+
+    /** ***************************************************************
+     * Scoring from the inverted index must give the same top scores
+     * and documents as scoring every document from its row, which is
+     * what matchInputFull() and useIndex = false do
+     */
+    @Test
+    public void testIndexMatchesScan() throws IOException {
+
+        TFIDF indexed = make(true);
+        TFIDF scan = make(true);
+        scan.useIndex = false;
+        indexed.addInput("My cat chased a bird.");
+        scan.addInput("My cat chased a bird.");
+        String[] queries = {"cat", "park birds", "dog on a mat", "trees", "unknown words"};
+        for (boolean prune : new boolean[] {false, true}) {
+            indexed.prune = prune;
+            for (String q : queries) {
+                for (int n = 1; n <= DOCS.size() + 2; n++) {
+                    assertSameScores(q, scan.matchInputNScored(q, n), indexed.matchInputNScored(q, n));
+                }
+                assertEquals(scan.matchInput(q, 2), indexed.matchInput(q, 2));
+                assertEquals(indexed.matchInputFull(q).keySet(), scan.matchInputFull(q).keySet());
+            }
+        }
+    }
+
+    /** ***************************************************************
+     * A model opened from a snapshot must answer as the one saved, both
+     * before and after lines are added to it
+     */
+    @Test
+    public void testSnapshot() throws IOException {
+
+        TFIDF built = make(true);
+        File snapshot = File.createTempFile("tfidf", ".snapshot");
+        snapshot.deleteOnExit();
+        built.save(snapshot.getAbsolutePath());
+        TFIDF opened = TFIDF.open(snapshot.getAbsolutePath());
+        assertEquals(built.lines, opened.lines);
+        assertEquals(built.stopwords, opened.stopwords);
+        String[] queries = {"cat", "park birds", "a new word", "trees"};
+        for (String q : queries) {
+            assertEquals(built.matchInputFull(q), opened.matchInputFull(q));
+            assertEquals(built.matchInputNScored(q, 2), opened.matchInputNScored(q, 2));
+        }
+        built.addInput("A cat in a tree.");
+        opened.addInput("A cat in a tree.");
+        for (String q : queries) {
+            assertEquals(built.matchInputFull(q), opened.matchInputFull(q));
+            assertEquals(built.matchInputNScored(q, 2), opened.matchInputNScored(q, 2));
+        }
+    }
+
+    /** ***************************************************************
+     * Lines added between queries, which are scored from their rows
+     * until the index is rebuilt, must rank as a scan of every row
+     */
+    @Test
+    public void testAddedLinesMatchScan() throws IOException {
+
+        TFIDF indexed = make(true);
+        TFIDF scan = make(true);
+        scan.useIndex = false;
+        String[] words = {"cat", "dog", "bird", "tree", "park", "mat", "fish", "river", "house", "garden"};
+        Random rand = new Random(42);
+        for (int i = 0; i < 150; i++) {
+            StringBuilder line = new StringBuilder();
+            for (int j = 0; j < 4; j++)
+                line.append(words[rand.nextInt(words.length)]).append(' ');
+            line.append("line").append(i);
+            indexed.addInput(line.toString());
+            scan.addInput(line.toString());
+            if (i % 5 == 0) {
+                indexed.prune = (i % 2 == 0);
+                String q = words[rand.nextInt(words.length)] + " " + words[rand.nextInt(words.length)] + " line" + i;
+                assertSameScores(q, scan.matchInputNScored(q, 3), indexed.matchInputNScored(q, 3));
+            }
+        }
+    }
+}
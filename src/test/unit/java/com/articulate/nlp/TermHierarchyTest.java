@@ -0,0 +1,113 @@
+package com.articulate.nlp;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class TermHierarchyTest extends UnitTestBase {
+
+    /** ***************************************************************
+     */
+    private static void add(Map<String, List<String>> childrenOf, String child, String parent) {
+
+        childrenOf.computeIfAbsent(parent, k -> new ArrayList<>()).add(child);
+    }
+
+    /** ***************************************************************
+     * The subclasses of a class found by a breadth-first search, as
+     * KBLite.getChildClasses() finds them without the index
+     */
+    private static Set<String> search(Map<String, List<String>> childrenOf, Set<String> subclasses, String cl) {
+
+        Set<String> result = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>(childrenOf.getOrDefault(cl, Collections.emptyList()));
+        while (!queue.isEmpty()) {
+            String c = queue.poll();
+            if (subclasses.contains(c) && result.add(c))
+                queue.addAll(childrenOf.getOrDefault(c, Collections.emptyList()));
+        }
+        return result;
+    }
+
+    /** ***************************************************************
+     */
+    @Test
+    public void testSmallHierarchy() {
+
+        Map<String, List<String>> childrenOf = new HashMap<>();
+        Set<String> subclasses = new HashSet<>(Arrays.asList("Animal", "Bird", "Mammal", "Bat", "Penguin"));
+        Set<String> instances = new HashSet<>(Arrays.asList("Tweety", "Bruce"));
+        add(childrenOf, "Animal", "Entity");
+        add(childrenOf, "Bird", "Animal");
+        add(childrenOf, "Mammal", "Animal");
+        add(childrenOf, "Bat", "Mammal");
+        add(childrenOf, "Bat", "Bird"); // not so, but a diamond
+        add(childrenOf, "Penguin", "Bird");
+        add(childrenOf, "Tweety", "Penguin");
+        add(childrenOf, "Bruce", "Bat");
+        TermHierarchy h = new TermHierarchy(childrenOf, subclasses::contains, instances::contains);
+
+        assertEquals(Arrays.asList("Animal", "Bat", "Bird", "Mammal", "Penguin"), h.subclasses("Entity"));
+        assertEquals(Arrays.asList("Bat", "Penguin"), h.subclasses("Bird"));
+        assertEquals(Arrays.asList("Animal", "Bird", "Entity", "Mammal"), h.superclasses("Bat"));
+        assertTrue(h.isSubclass("Bat", "Entity"));
+        assertFalse(h.isSubclass("Mammal", "Bird"));
+        assertFalse(h.isSubclass("Bird", "Bird"));
+        assertFalse(h.isSubclass("Tweety", "Bird"));
+        assertEquals(Arrays.asList("Bruce", "Tweety"), h.instances("Animal"));
+        assertEquals(Collections.singletonList("Bruce"), h.instances("Mammal"));
+        assertTrue(h.isInstanceOf("Tweety", "Entity"));
+        assertFalse(h.isInstanceOf("Tweety", "Mammal"));
+        assertEquals(Arrays.asList("Animal", "Bat", "Bird", "Entity", "Mammal"), h.classesOf("Bruce"));
+        assertTrue(h.subclasses("Unknown").isEmpty());
+        assertFalse(h.isSubclass("Unknown", "Entity"));
+    }
+
+    /** ***************************************************************
+     * The index must agree with a search of the hierarchy for every
+     * class of a random one with many shared subclasses
+     */
+    @Test
+    public void testMatchesSearch() {
+
+        Random r = new Random(3);
+        Map<String, List<String>> childrenOf = new HashMap<>();
+        Set<String> subclasses = new HashSet<>();
+        Set<String> instances = new HashSet<>();
+        int n = 300;
+        for (int i = 1; i < n; i++) {
+            String c = "C" + i;
+            subclasses.add(c);
+            int parents = 1 + r.nextInt(3);
+            for (int k = 0; k < parents; k++)
+                add(childrenOf, c, "C" + r.nextInt(i));
+        }
+        for (int i = 0; i < 500; i++) {
+            String inst = "I" + i;
+            instances.add(inst);
+            add(childrenOf, inst, "C" + r.nextInt(n));
+        }
+        TermHierarchy h = new TermHierarchy(childrenOf, subclasses::contains, instances::contains);
+        for (int i = 0; i < n; i++) {
+            String cl = "C" + i;
+            Set<String> subs = search(childrenOf, subclasses, cl);
+            assertEquals(subs, new HashSet<>(h.subclasses(cl)));
+            Set<String> insts = new TreeSet<>();
+            Set<String> classes = new HashSet<>(subs);
+            classes.add(cl);
+            for (String s : classes)
+                for (String c : childrenOf.getOrDefault(s, Collections.emptyList()))
+                    if (instances.contains(c))
+                        insts.add(c);
+            assertEquals(new ArrayList<>(insts), h.instances(cl));
+            for (int k = 0; k < 20; k++) {
+                String other = "C" + r.nextInt(n);
+                assertEquals(subs.contains(other), h.isSubclass(other, cl));
+                String inst = "I" + r.nextInt(500);
+                assertEquals(insts.contains(inst), h.isInstanceOf(inst, cl));
+            }
+        }
+    }
+}
@@ -17,6 +17,18 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({
     UnitCorporaTestSuite.class,
     UnitImsclientTestSuite.class,
+    ArgIndexTest.class,
+    BatchedWriterTest.class,
+    GenMorphoWorkersTest.class,
+    GenRandomTest.class,
+    KBLiteTest.class,
+    LLMCacheTest.class,
+    LLMSchedulerTest.class,
+    MorphoDBTest.class,
+    MultiWordTrieTest.class,
+    SenseCacheTest.class,
+    TFIDFIndexTest.class,
+    TermHierarchyTest.class,
     UnitPiplineTestSuite.class,
     UnitSemRewriteTestSuite.class,
     UnitSemconcorTestSuite.class
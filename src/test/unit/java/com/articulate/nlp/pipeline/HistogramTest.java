@@ -0,0 +1,44 @@
+package com.articulate.nlp.pipeline;
+
+import com.articulate.nlp.UnitTestBase;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramTest extends UnitTestBase {
+
+    /** ***************************************************************
+     */
+    @Test
+    public void testSmallValuesExact() {
+
+        Histogram h = new Histogram();
+        for (long v = 1; v <= 10; v++)
+            h.record(v);
+        assertEquals(10, h.getCount());
+        assertEquals(5, h.percentile(0.50));
+        assertEquals(10, h.percentile(0.99));
+        assertEquals(10, h.getMax());
+        assertEquals(5.5, h.getMean(), 0.0001);
+    }
+
+    /** ***************************************************************
+     */
+    @Test
+    public void testPercentilesWithinBucketError() {
+
+        Histogram h = new Histogram();
+        for (long v = 1; v <= 100000; v++)
+            h.record(v * 1000);
+        long[] expected = {50000000L, 95000000L, 99000000L};
+        double[] ps = {0.50, 0.95, 0.99};
+        for (int i = 0; i < ps.length; i++) {
+            long p = h.percentile(ps[i]);
+            assertTrue(ps[i] + ": " + p, Math.abs(p - expected[i]) < expected[i] * 0.07);
+        }
+        h.reset();
+        assertEquals(0, h.getCount());
+        assertEquals(0, h.percentile(0.5));
+    }
+}
@@ -22,7 +22,12 @@ MA  02111-1307 USA
 */
 
 import com.articulate.nlp.UnitTestBase;
+import edu.stanford.nlp.ling.CoreAnnotations;
 import edu.stanford.nlp.pipeline.Annotation;
+
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import org.junit.Test;
 
@@ -39,4 +44,26 @@ public class PipelineTest extends UnitTestBase {
         SentenceUtil.printSentences(document);
         SentenceUtil.printCorefChain(document);
     }
-}
\ No newline at end of file
+
+    /** ***************************************************************
+     * Documents annotated on several threads come back in input order
+     */
+    @Test
+    public void testBatchOrder() {
+
+        Pipeline p = new Pipeline(false, "tokenize, ssplit");
+        List<String> docs = new ArrayList<>();
+        for (int i = 0; i < 20; i++)
+            docs.add("Document " + i + " has one sentence. And then another.");
+        List<String> results = new ArrayList<>();
+        try (BatchPipeline bp = new BatchPipeline(p, 4, 6)) {
+            bp.process(docs.iterator(), anno -> results.add(anno.get(CoreAnnotations.TextAnnotation.class)));
+            System.out.println(bp.report());
+        }
+        assertEquals(docs, results);
+        for (AnnotatorStage stage : p.stages) {
+            assertEquals(20, stage.getDocs());
+        }
+        assertEquals(40, p.stages.get(p.stages.size() - 1).getSentences());
+    }
+}
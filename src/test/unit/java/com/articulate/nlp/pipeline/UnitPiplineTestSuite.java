@@ -10,6 +10,7 @@ import org.junit.runners.Suite;
  */
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
+    com.articulate.nlp.pipeline.HistogramTest.class,
     com.articulate.nlp.pipeline.PipelineTest.class
 })
 public class UnitPiplineTestSuite extends UnitTestBase {
@@ -3,7 +3,10 @@ package com.articulate.nlp.semRewrite;
 import com.articulate.nlp.UnitTestBase;
 import org.junit.Test;
 
+import java.util.Set;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import org.junit.Ignore;
 
 /*
@@ -150,4 +153,28 @@ public class CNFNewTest extends UnitTestBase {
             bindStr = bindings.toString();
         assertEquals("{?X=walk-3, ?Y=house-6, ?C=Sub}",bindStr);
     }
+
+    /****************************************************************
+     * unify() must not modify the rule, and must return one of the
+     * unifications that unifyNew() finds
+     */
+    @Test
+    public void testUnifyNoCopy() {
+
+        String rule4 = "a(?X,?Y), b(?Y,?Z).";
+        CNF cnf4 = new CNF(rule4);
+        String cnfstr5 = "a(1,2), a(3,4), b(4,6), b(2,5)";
+        CNF cnf5 = new CNF(cnfstr5);
+        Set<Unification> all = new CNF(rule4).unifyNew(new CNF(cnfstr5));
+        Subst bindings = cnf4.unify(cnf5);
+        System.out.println("INFO in CNF.testUnifyNoCopy(): bindings " + bindings);
+        assertEquals("{?X=1, ?Y=2, ?Z=5}",bindings.toString());
+        assertEquals(rule4.substring(0,rule4.length()-1),cnf4.toString());
+        assertEquals("Xa(1,2), a(3,4), b(4,6), Xb(2,5)",cnf5.toString());
+        boolean found = false;
+        for (Unification u : all)
+            if (u.sub.equals(bindings))
+                found = true;
+        assertTrue(found);
+    }
 }
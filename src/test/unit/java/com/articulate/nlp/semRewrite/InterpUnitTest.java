@@ -3,8 +3,12 @@ package com.articulate.nlp.semRewrite;
 import com.articulate.nlp.UnitTestBase;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Test;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 /*
@@ -56,5 +60,42 @@ public class InterpUnitTest extends UnitTestBase {
         assertTrue(result.contains(expected));
     }
 
+    /****************************************************************
+     * One RuleEngine shared by several threads, each with its own
+     * context, gives the same result as a single thread
+     */
+    @Test
+    public void testSharedEngine() throws Exception {
 
+        String input = "attribute(Mary-1,Female), aux(walk-3,might-2), " +
+                "names(Mary-1,\"Mary\"), nsubj(walk-3,Mary-1), " +
+                "number(SINGULAR,Mary-1), root(ROOT-0,walk-3), sumo(Human,Mary-1), " +
+                "sumo(Walking,walk-3).";
+        RuleSet rs = new RuleSet();
+        rs.rules.add(Rule.parseString("aux(?V,might*) ==> (possible(?V,DUMMY))."));
+        rs.rules.add(Rule.parseString("possible(?X,DUMMY) ==> {(possible ?X DUMMY)}."));
+        RuleEngine engine = new RuleEngine(Interpreter.canon(rs));
+        CNF cnf = new CNF(input);
+        String before = cnf.toString();
+        InterpretContext single = new InterpretContext();
+        List<CNF> inputs = new ArrayList<>();
+        inputs.add(cnf);
+        List<String> expected = engine.interpretCNF(inputs, single);
+        assertTrue(expected.contains("(possible walk-3 DUMMY)"));
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<InterpretContext>> futures = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            futures.add(pool.submit(() -> {
+                InterpretContext ctx = new InterpretContext();
+                List<CNF> clauses = new ArrayList<>();
+                clauses.add(cnf);
+                assertEquals(expected, engine.interpretCNF(clauses, ctx));
+                return ctx;
+            }));
+        }
+        for (Future<InterpretContext> f : futures)
+            assertEquals(single.firedRules, f.get().firedRules);
+        pool.shutdown();
+        assertEquals(before, cnf.toString()); // the shared input is never changed
+    }
 }
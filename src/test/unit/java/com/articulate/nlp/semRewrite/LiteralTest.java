@@ -2,7 +2,7 @@ package com.articulate.nlp.semRewrite;
 
 import com.articulate.nlp.UnitTestBase;
 import org.junit.Test;
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 /*
 Copyright 2017-     Infosys
@@ -95,4 +95,34 @@ public class LiteralTest extends UnitTestBase {
         String example2 = "root(?V, reached*)";
         testUnify(example1,example2,null);
     }
+
+    /****************************************************************
+     * Equal symbols get equal codes whichever table holds them, and codes
+     * follow direct assignments to the public fields.  Nothing here
+     * depends on what other tests have added to the shared table.
+     */
+    @Test
+    public void testSymbolCodes() {
+
+        Symbols.Scope scope = Symbols.Scope.current();
+        Literal l1 = new Literal("root(ROOT-0, Reached-14)");
+        Literal l2 = new Literal("nsubj(Reached-14, John-2)");
+        assertEquals(l1.arg2Id(scope), l2.arg1Id(scope));
+        assertSame(l1.arg2, l2.arg1);
+        assertEquals("John-2", scope.name(l2.arg2Id(scope)));
+        assertTrue(scope.isFreeVariable(scope.id("?V")));
+        assertTrue(scope.constantMatch(scope.id("reached*"), l1.arg2Id(scope)));
+        assertFalse(scope.constantMatch(scope.id("lost*"), l1.arg2Id(scope)));
+        assertTrue(scope.wildcardMatch(scope.id("john*"), l2.arg2Id(scope)));
+        l2.arg1 = "lost-3";
+        assertEquals(scope.id("lost-3"), l2.arg1Id(scope));
+        assertEquals("lost-3", scope.name(l2.arg1Id(scope)));
+
+        Literal rule = new Literal("nsubj(?X, Reached-14)");
+        rule.internSymbols();
+        assertEquals(Symbols.lookup("Reached-14"), rule.arg2Id(scope));
+        Symbols.Scope after = Symbols.Scope.current(); // the shared table may have grown
+        assertEquals(rule.arg2Id(after), l1.arg2Id(after));
+        assertSame(rule.arg2, l1.arg2);
+    }
 }
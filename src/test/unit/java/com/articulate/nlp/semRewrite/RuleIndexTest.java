@@ -0,0 +1,78 @@
+package com.articulate.nlp.semRewrite;
+
+import com.articulate.nlp.UnitTestBase;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/** ***************************************************************
+ * Check that the RuleIndex selects exactly the rules accepted by
+ * Interpreter.termCoverage(), in rule set order
+ */
+public class RuleIndexTest extends UnitTestBase {
+
+    /****************************************************************
+     */
+    private static RuleSet makeRuleSet() {
+
+        RuleSet rs = new RuleSet();
+        rs.rules.add(Rule.parseString("aux(?V,might*) ==> (possible(?V,DUMMY))."));
+        rs.rules.add(Rule.parseString("nsubj(?V,?X), sumo(Human,?X) ==> (agent(?V,?X))."));
+        rs.rules.add(Rule.parseString("dobj(?V,?X) ==> (patient(?V,?X))."));
+        rs.rules.add(Rule.parseString("sumo(?C,?X) ==> (instance(?X,?C))."));
+        rs.rules.add(Rule.parseString("nsubj(?V,?X), aux(?V,will*) ==> (future(?V,DUMMY))."));
+        return Interpreter.canon(rs);
+    }
+
+    /****************************************************************
+     */
+    @Test
+    public void testCandidatesMatchTermCoverage() {
+
+        RuleSet rs = makeRuleSet();
+        CNF input = new CNF("attribute(Mary-1,Female), aux(walk-3,might-2), " +
+                "nsubj(walk-3,Mary-1), root(ROOT-0,walk-3), sumo(Human,Mary-1), " +
+                "sumo(Walking,walk-3).");
+        Interpreter interp = new Interpreter(rs);
+        List<Rule> expected = new ArrayList<>();
+        for (Rule r : rs.rules)
+            if (interp.termCoverage(input.getPreds(), input.getTerms(), r))
+                expected.add(r);
+        List<Rule> actual = rs.getIndex().candidates(input.getPreds(), input.getTerms());
+        System.out.println("RuleIndexTest.testCandidatesMatchTermCoverage(): " + actual);
+        assertEquals(expected, actual);
+        assertEquals(3, actual.size());
+    }
+
+    /****************************************************************
+     */
+    @Test
+    public void testIndexRebuiltWhenRulesAdded() {
+
+        RuleSet rs = makeRuleSet();
+        CNF input = new CNF("dep(walk-3,Mary-1).");
+        assertEquals(1, rs.getIndex().candidates(input.getPreds(), input.getTerms()).size());
+        rs.rules.add(Rule.parseString("dep(?X,?Y) ==> (related(?X,?Y))."));
+        assertEquals(2, rs.getIndex().candidates(input.getPreds(), input.getTerms()).size());
+    }
+
+    /****************************************************************
+     */
+    @Test
+    public void testIndexRebuiltWhenRuleReplaced() {
+
+        RuleSet rs = makeRuleSet();
+        CNF input = new CNF("dep(walk-3,Mary-1).");
+        RuleIndex index = rs.getIndex();
+        assertSame(index, rs.getIndex());
+        assertEquals(1, index.candidates(input.getPreds(), input.getTerms()).size());
+        for (int i = 0; i < rs.rules.size(); i++)
+            rs.rules.set(i, Rule.parseString("dep(?X,?Y) ==> (related(?X,?Y))."));
+        assertNotSame(index, rs.getIndex());
+        assertEquals(rs.rules.size(), rs.getIndex().candidates(input.getPreds(), input.getTerms()).size());
+    }
+}
@@ -22,6 +22,7 @@ import org.junit.runners.Suite;
     LiteralTest.class,
     ProceduresUnitTest.class,
     RHSTest.class,
+    RuleIndexTest.class,
     RulePrepAboutRefersToUnitTest.class,
     SemRewriteTest.class,
     SemRewriteTest2.class,
@@ -1,6 +1,8 @@
 package com.articulate.nlp.semconcor;
 
+import com.articulate.nlp.MultiWordAnnotator;
 import com.articulate.nlp.UnitTestBase;
+import edu.stanford.nlp.ling.CoreLabel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.Connection;
@@ -8,6 +10,10 @@ import java.sql.DatabaseMetaData;
 import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import org.junit.After;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -56,4 +62,38 @@ public class IndexerTest extends UnitTestBase {
         assertTrue(path.toFile().exists());
     }
 
+    @Test
+    public void testBulkIndexer() throws Exception {
+
+        System.out.println("------------- IndexerTest.testBulkIndexer() -------------");
+        conn = DriverManager.getConnection(Indexer.JDBC_STRING, Indexer.UserName, "");
+        Indexer.createDB(conn);
+        List<CoreLabel> tokens = new ArrayList<>();
+        String[] words = {"John", "runs", "."};
+        for (int i = 0; i < words.length; i++)
+            tokens.add(MultiWordAnnotator.setCoreLabel(words[i], i + 1));
+        List<String> deps = Arrays.asList("nsubj(runs-2,John-1)", "root(ROOT-0,runs-2)");
+        try (BulkIndexer bulk = new BulkIndexer(conn)) {
+            bulk.batchSize = 4; // send several batches
+            bulk.addSentence("John runs.", deps, tokens, "test.txt", 1, 1);
+            bulk.addSentence("John runs.", deps, tokens, "test.txt", 1, 2);
+            assertEquals(18, bulk.getTokens());
+        }
+        try (Statement stmt = conn.createStatement()) {
+            ResultSet rs = stmt.executeQuery("select count from counts where token='John';");
+            assertTrue(rs.next());
+            assertEquals(2, rs.getInt("count"));
+            rs = stmt.executeQuery("select count from counts where token='runs-2';");
+            assertTrue(rs.next());
+            assertEquals(4, rs.getInt("count"));
+            rs = stmt.executeQuery("select count(*) from index;");
+            assertTrue(rs.next());
+            assertEquals(6, rs.getInt(1));
+            rs = stmt.executeQuery("select count(*) from content;");
+            assertTrue(rs.next());
+            assertEquals(2, rs.getInt(1));
+        }
+        conn.close();
+    }
+
 } // end class file IndexerTest.java
\ No newline at end of file
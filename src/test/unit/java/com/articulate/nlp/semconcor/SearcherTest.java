@@ -1,8 +1,17 @@
 package com.articulate.nlp.semconcor;
 
+import com.articulate.nlp.MultiWordAnnotator;
 import com.articulate.nlp.UnitTestBase;
 import com.articulate.nlp.semRewrite.Interpreter;
 import com.articulate.sigma.utils.StringUtil;
+import edu.stanford.nlp.ling.CoreLabel;
+import java.io.File;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.*;
 import org.junit.After;
 import org.junit.Test;
 import static org.junit.Assert.*;
@@ -50,4 +59,77 @@ public class SearcherTest extends UnitTestBase {
         assertTrue(success);
    }
 
+    /** add a sentence of the given tokens, whose verb is always "runs" */
+    private static void addSentence(BulkIndexer bulk, int linenum, String... words) throws Exception {
+
+        List<CoreLabel> tokens = new ArrayList<>();
+        for (int j = 0; j < words.length; j++)
+            tokens.add(MultiWordAnnotator.setCoreLabel(words[j], j + 1));
+        List<String> deps = Arrays.asList("nsubj(runs-2," + words[0] + "-1)");
+        bulk.addSentence(String.join(" ", words), deps, tokens, "test.txt", 1, linenum);
+    }
+
+    @Test
+    public void testPostingIndex() throws Exception {
+
+        System.out.println("------------- SearcherTest.testPostingIndex() -------------");
+        Path dir = Files.createTempDirectory("postingTest");
+        File db = new File(dir.toFile(), "postingTest");
+        String url = "jdbc:h2:" + db.getPath();
+        try {
+            // enough sentences that "runs" has several skip blocks
+            int n = 300;
+            PostingIndex pi;
+            try (Connection conn = DriverManager.getConnection(url, Indexer.UserName, "")) {
+                Indexer.createDB(conn);
+                try (BulkIndexer bulk = new BulkIndexer(conn)) {
+                    for (int i = 0; i < n; i++) {
+                        if (i % 97 == 0)
+                            addSentence(bulk, i, "Word" + (i % 7), "runs", "Zed", ".");
+                        else
+                            addSentence(bulk, i, "Word" + (i % 7), "runs", ".");
+                    }
+                }
+                PostingIndex.build(conn, db.getPath() + PostingIndex.SUFFIX);
+                pi = Searcher.getPostingIndex(conn, db);
+                assertNotNull(pi);
+                assertEquals(n, pi.size());
+                assertEquals(n, pi.count("index", "runs"));
+                assertEquals(4, pi.count("index", "Zed"));
+                int[] runs = pi.postings("index", "runs");
+                for (int i = 1; i < runs.length; i++)
+                    assertTrue(runs[i - 1] < runs[i]);
+                List<String> depTokens = Arrays.asList("nsubj");
+                List<List<String>> queries = Arrays.asList(
+                        Arrays.asList("runs", "Zed"),
+                        Arrays.asList("Zed", "Word6"),
+                        Arrays.asList("Word3", "runs"),
+                        Arrays.asList("Word2", "Word5"),
+                        Arrays.asList("Word0", "unknown"));
+                for (List<String> sentTokens : queries)
+                    assertEquals(sentTokens.toString(), Searcher.fetchIndexes(conn, sentTokens, depTokens),
+                            Searcher.fetchIndexes(pi, sentTokens, depTokens));
+                assertEquals(4, Searcher.fetchIndexes(pi, Arrays.asList("runs", "Zed"), depTokens).size());
+                assertEquals(Collections.singleton("test.txt#1#97"),
+                        Searcher.fetchIndexes(pi, Arrays.asList("Zed", "Word6"), depTokens));
+            }
+            try (Connection conn = DriverManager.getConnection(url, Indexer.UserName, "")) {
+                assertSame(pi, Searcher.getPostingIndex(conn, db)); // still current on a new connection
+                try (BulkIndexer bulk = new BulkIndexer(conn)) {
+                    addSentence(bulk, n, "Mary", "runs", ".");
+                }
+            }
+            try (Connection conn = DriverManager.getConnection(url, Indexer.UserName, "")) {
+                assertNull(Searcher.getPostingIndex(conn, db));
+            }
+        }
+        finally {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                for (Path f : files)
+                    Files.delete(f);
+            }
+            Files.delete(dir);
+        }
+    }
+
 } // end class file SearcherTest.java
\ No newline at end of file